@@ -22,4 +22,29 @@ public class ResourceUtils {
         }
         return null;
     }
+
+    /**
+     * Download a resource into a shared directory, unless it was already downloaded by a previous execution.
+     * The resource is downloaded into a temporary file and then moved, so concurrent executions never read a partial file.
+     *
+     * @param url   Resource URL
+     * @param dir   Shared directory
+     * @return      Local file
+     * @throws IOException if the resource can not be downloaded
+     */
+    public static File downloadIfMissing(URL url, Path dir) throws IOException {
+        File outFile = dir.resolve(new File(url.getFile()).getName()).toFile();
+        if (outFile.exists()) {
+            return outFile;
+        }
+        Files.createDirectories(dir);
+        Path tmpFile = Files.createTempFile(dir, "." + outFile.getName(), ".tmp");
+        try {
+            download(url, tmpFile.toFile());
+            Files.move(tmpFile, outFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+        return outFile;
+    }
 }
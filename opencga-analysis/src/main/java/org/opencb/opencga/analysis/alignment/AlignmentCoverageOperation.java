@@ -0,0 +1,125 @@
+package org.opencb.opencga.analysis.alignment;
+
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.analysis.tools.OpenCgaTool;
+import org.opencb.opencga.catalog.exceptions.CatalogException;
+import org.opencb.opencga.core.exceptions.ToolException;
+import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.models.file.File;
+import org.opencb.opencga.core.models.file.FileUpdateParams;
+import org.opencb.opencga.core.models.file.SmallRelatedFileParams;
+import org.opencb.opencga.core.response.OpenCGAResult;
+import org.opencb.opencga.core.tools.annotations.Tool;
+import org.opencb.opencga.storage.core.alignment.local.MultiResolutionCoverage;
+import org.opencb.opencga.storage.core.alignment.local.MultiResolutionCoverageBuilder;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+/**
+ * Created on 19/10/20.
+ *
+ * Compute the coverage of an indexed BAM file at several resolutions, without external tools.
+ * The coverage file is stored next to the BAM file, and used by the coverage queries of the BAM file.
+ */
+@Tool(id = AlignmentCoverageOperation.ID, resource = Enums.Resource.ALIGNMENT, description = AlignmentCoverageOperation.DESCRIPTION)
+public class AlignmentCoverageOperation extends OpenCgaTool {
+
+    public final static String ID = "alignment-coverage-run";
+    public final static String DESCRIPTION = "Compute the coverage of a given alignment file at multiple resolutions, e.g., create a "
+            + ".coverage file from a .bam file";
+
+    private String study;
+    private String inputFile;
+    private int windowSize;
+
+    private File inputCatalogFile;
+    private Path inputPath;
+    private Path outputPath;
+
+    protected void check() throws Exception {
+        super.check();
+
+        OpenCGAResult<File> fileResult;
+        try {
+            fileResult = catalogManager.getFileManager().get(getStudy(), inputFile, QueryOptions.empty(), token);
+        } catch (CatalogException e) {
+            throw new ToolException("Error accessing file '" + inputFile + "' of the study " + study + "'", e);
+        }
+        if (fileResult.getNumResults() <= 0) {
+            throw new ToolException("File '" + inputFile + "' not found in study '" + study + "'");
+        }
+
+        inputCatalogFile = fileResult.getResults().get(0);
+        inputPath = Paths.get(inputCatalogFile.getUri());
+        String filename = inputPath.getFileName().toString();
+
+        if (!filename.endsWith(".bam")) {
+            throw new ToolException("Invalid input alignment file '" + inputFile + "': it must be in BAM format");
+        }
+        if (!new java.io.File(inputPath + ".bai").exists()
+                && !inputPath.resolveSibling(filename.substring(0, filename.length() - 4) + ".bai").toFile().exists()) {
+            throw new ToolException("Index file not found for '" + inputFile + "'. Please, index the alignment file first");
+        }
+        if (windowSize <= 0) {
+            throw new ToolException("Invalid window size " + windowSize + ": it must be positive");
+        }
+
+        // Check if the coverage has been already computed!
+        if (MultiResolutionCoverage.getCoveragePath(inputPath).toFile().exists()) {
+            throw new ToolException("Coverage file '" + inputFile + MultiResolutionCoverage.COVERAGE_SUFFIX + "' already exists");
+        }
+
+        outputPath = getOutDir().resolve(filename + MultiResolutionCoverage.COVERAGE_SUFFIX);
+    }
+
+    @Override
+    protected void run() throws Exception {
+
+        step(() -> {
+            int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            new MultiResolutionCoverageBuilder(windowSize, numThreads).build(inputPath, outputPath);
+
+            if (!outputPath.toFile().exists()) {
+                throw new ToolException("Something wrong happened when computing coverage file for '" + inputFile + "'");
+            } else {
+                String catalogPath = Paths.get(new java.io.File(inputCatalogFile.getPath()).getParent()).toString();
+                moveFile(study, outputPath, Paths.get(inputPath.toFile().getParent()),
+                        catalogPath + "/" + outputPath.getFileName(), token);
+
+                FileUpdateParams updateParams = new FileUpdateParams()
+                        .setRelatedFiles(Collections.singletonList(new SmallRelatedFileParams(catalogPath + "/"
+                                + outputPath.getFileName(), File.RelatedFile.Relation.PRODUCED_FROM)));
+                catalogManager.getFileManager().update(study, inputFile, updateParams, QueryOptions.empty(), token);
+            }
+        });
+    }
+
+    public String getStudy() {
+        return study;
+    }
+
+    public AlignmentCoverageOperation setStudy(String study) {
+        this.study = study;
+        return this;
+    }
+
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    public AlignmentCoverageOperation setInputFile(String inputFile) {
+        this.inputFile = inputFile;
+        return this;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public AlignmentCoverageOperation setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+        return this;
+    }
+}
@@ -34,7 +34,6 @@ import org.opencb.commons.utils.FileUtils;
 import org.opencb.opencga.analysis.StorageManager;
 import org.opencb.opencga.analysis.models.FileInfo;
 import org.opencb.opencga.analysis.models.StudyInfo;
-import org.opencb.opencga.analysis.wrappers.DeeptoolsWrapperAnalysis;
 import org.opencb.opencga.analysis.wrappers.SamtoolsWrapperAnalysis;
 import org.opencb.opencga.catalog.db.api.FileDBAdaptor;
 import org.opencb.opencga.catalog.db.api.ProjectDBAdaptor;
@@ -186,18 +185,15 @@ public class AlignmentStorageManager extends StorageManager {
 
     public void coverageRun(String study, String inputFile, int windowSize, String outdir, String token) throws ToolException {
         ObjectMap params = new ObjectMap();
-        params.put("of", "bigwig");
-        params.put("bs", windowSize);
 
-        DeeptoolsWrapperAnalysis deeptools = new DeeptoolsWrapperAnalysis();
+        AlignmentCoverageOperation coverageOperation = new AlignmentCoverageOperation();
+        coverageOperation.setUp(null, catalogManager, storageEngineFactory, params, Paths.get(outdir), token);
 
-        deeptools.setUp(null, catalogManager, storageEngineFactory, params, Paths.get(outdir), token);
+        coverageOperation.setStudy(study);
+        coverageOperation.setInputFile(inputFile);
+        coverageOperation.setWindowSize(windowSize);
 
-        deeptools.setStudy(study);
-        deeptools.setCommand("bamCoverage")
-                .setBamFile(inputFile);
-
-        deeptools.start();
+        coverageOperation.start();
     }
 
     //-------------------------------------------------------------------------
@@ -208,6 +204,13 @@ public class AlignmentStorageManager extends StorageManager {
         return alignmentStorageEngine.getDBAdaptor().coverageQuery(Paths.get(file.getUri()), region, minCoverage, maxCoverage, windowSize);
     }
 
+    public OpenCGAResult<RegionCoverage> coverageQuery(String studyIdStr, String fileIdStr, List<Region> regions, int minCoverage,
+                                                       int maxCoverage, int windowSize, String sessionId) throws Exception {
+        File file = extractAlignmentOrCoverageFile(studyIdStr, fileIdStr, sessionId);
+        return alignmentStorageEngine.getDBAdaptor().coverageQuery(Paths.get(file.getUri()), regions, minCoverage, maxCoverage,
+                windowSize);
+    }
+
     //-------------------------------------------------------------------------
     // Counts
     //-------------------------------------------------------------------------
@@ -32,6 +32,7 @@ import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.core.Transcript;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.annotation.ConsequenceTypeMappings;
+import org.opencb.biodata.tools.alignment.BamUtils;
 import org.opencb.biodata.tools.clinical.DefaultReportedVariantCreator;
 import org.opencb.biodata.tools.clinical.ReportedVariantCreator;
 import org.opencb.biodata.tools.pedigree.ModeOfInheritance;
@@ -631,7 +632,7 @@ public class ClinicalInterpretationManager extends StorageManager {
         // Reported low coverage map
         List<ReportedLowCoverage> reportedLowCoverages = new ArrayList<>();
 
-        Set<String> lowCoverageByGeneDone = new HashSet<>();
+        Set<String> lowCoverageByGeneDone = new LinkedHashSet<>();
 
         // Look for the bam file of the proband
         OpenCGAResult<File> fileQueryResult;
@@ -653,14 +654,10 @@ public class ClinicalInterpretationManager extends StorageManager {
         if (bamFileId != null) {
             for (DiseasePanel diseasePanel : diseasePanels) {
                 for (DiseasePanel.GenePanel genePanel : diseasePanel.getGenes()) {
-                    String geneName = genePanel.getId();
-                    if (!lowCoverageByGeneDone.contains(geneName)) {
-                        reportedLowCoverages.addAll(getReportedLowCoverages(geneName, bamFileId, maxCoverage, studyId,
-                                sessionId));
-                        lowCoverageByGeneDone.add(geneName);
-                    }
+                    lowCoverageByGeneDone.add(genePanel.getId());
                 }
             }
+            reportedLowCoverages.addAll(getReportedLowCoverages(lowCoverageByGeneDone, bamFileId, maxCoverage, studyId, sessionId));
         }
 
         return reportedLowCoverages;
@@ -668,32 +665,152 @@ public class ClinicalInterpretationManager extends StorageManager {
 
     public List<ReportedLowCoverage> getReportedLowCoverages(String geneName, String bamFileId, int maxCoverage, String studyId,
                                                              String sessionId) {
+        return getReportedLowCoverages(Collections.singletonList(geneName), bamFileId, maxCoverage, studyId, sessionId);
+    }
+
+    /**
+     * Get the low coverage regions of the exons of a list of genes.
+     *
+     * All the exons are merged into sorted, non overlapping regions, and the coverage of all of them is computed with one single
+     * query. Then, the coverage of each exon is extracted from the merged regions. Exons shared by several transcripts are read
+     * only once. If the single query fails, the coverage is queried gene by gene, so an error in one gene does not discard the
+     * low coverage regions of the rest of genes.
+     *
+     * @param geneNames   Gene names
+     * @param bamFileId   BAM file id
+     * @param maxCoverage Max coverage
+     * @param studyId     Study id
+     * @param sessionId   Session id
+     * @return Low coverage regions for each gene and exon
+     */
+    public List<ReportedLowCoverage> getReportedLowCoverages(Collection<String> geneNames, String bamFileId, int maxCoverage,
+                                                             String studyId, String sessionId) {
         List<ReportedLowCoverage> reportedLowCoverages = new ArrayList<>();
+        if (CollectionUtils.isEmpty(geneNames)) {
+            return reportedLowCoverages;
+        }
+
+        // Get gene exons from CellBase
+        List<String> geneNamesList = new ArrayList<>(geneNames);
+        QueryResponse<Gene> geneQueryResponse;
         try {
-            // Get gene exons from CellBase
-            QueryResponse<Gene> geneQueryResponse = cellBaseClient.getGeneClient().get(Collections.singletonList(geneName),
-                    QueryOptions.empty());
-            List<RegionCoverage> regionCoverages;
-            for (Transcript transcript: geneQueryResponse.getResponse().get(0).first().getTranscripts()) {
-                for (Exon exon: transcript.getExons()) {
-                    Region region = new Region(exon.getChromosome(), exon.getStart(), exon.getEnd());
-                    regionCoverages = alignmentStorageManager.coverageQuery(studyId, bamFileId, region, 0, maxCoverage, 1,
-                            sessionId).getResults();
-                    for (RegionCoverage regionCoverage: regionCoverages) {
-                        ReportedLowCoverage reportedLowCoverage = new ReportedLowCoverage(regionCoverage)
-                                .setGeneName(geneName)
-                                .setId(exon.getId());
-                        reportedLowCoverages.add(reportedLowCoverage);
-                    }
+            geneQueryResponse = cellBaseClient.getGeneClient().get(geneNamesList, QueryOptions.empty());
+        } catch (Exception e) {
+            logger.error("Error getting genes {} from CellBase to compute the low coverage regions", geneNamesList, e);
+            return reportedLowCoverages;
+        }
+        Map<String, List<Exon>> exonsByGene = new LinkedHashMap<>();
+        List<Exon> allExons = new ArrayList<>();
+        for (int i = 0; i < geneNamesList.size() && i < geneQueryResponse.getResponse().size(); i++) {
+            Gene gene = geneQueryResponse.getResponse().get(i).first();
+            if (gene == null || gene.getTranscripts() == null) {
+                logger.warn("Gene {} not found. Skip low coverage regions", geneNamesList.get(i));
+                continue;
+            }
+            List<Exon> exons = new ArrayList<>();
+            for (Transcript transcript : gene.getTranscripts()) {
+                if (transcript.getExons() != null) {
+                    exons.addAll(transcript.getExons());
                 }
             }
+            exonsByGene.put(geneNamesList.get(i), exons);
+            allExons.addAll(exons);
+        }
+
+        List<RegionCoverage> mergedCoverages;
+        try {
+            mergedCoverages = alignmentStorageManager.coverageQuery(studyId, bamFileId, mergeExonRegions(allExons), 0,
+                    Integer.MAX_VALUE, 1, sessionId).getResults();
         } catch (Exception e) {
-            logger.error("Error getting low coverage regions for panel genes.", e.getMessage());
+            logger.warn("Error getting the coverage of {} genes at once. Query gene by gene", exonsByGene.size(), e);
+            mergedCoverages = null;
         }
+
         // And for that exon regions, get low coverage regions
+        for (Map.Entry<String, List<Exon>> entry : exonsByGene.entrySet()) {
+            String geneName = entry.getKey();
+            try {
+                List<RegionCoverage> coverages = mergedCoverages;
+                if (coverages == null) {
+                    coverages = alignmentStorageManager.coverageQuery(studyId, bamFileId, mergeExonRegions(entry.getValue()), 0,
+                            Integer.MAX_VALUE, 1, sessionId).getResults();
+                }
+                reportedLowCoverages.addAll(getReportedLowCoverages(geneName, entry.getValue(), coverages, maxCoverage));
+            } catch (Exception e) {
+                logger.error("Error getting low coverage regions for gene {}", geneName, e);
+            }
+        }
+        return reportedLowCoverages;
+    }
+
+    // Low coverage regions of the exons of one gene, from the coverage of the merged exon regions
+    private static List<ReportedLowCoverage> getReportedLowCoverages(String geneName, List<Exon> exons,
+                                                                     List<RegionCoverage> mergedCoverages, int maxCoverage) {
+        Map<String, List<RegionCoverage>> coveragesByChromosome = new HashMap<>();
+        for (RegionCoverage coverage : mergedCoverages) {
+            coveragesByChromosome.computeIfAbsent(coverage.getChromosome(), k -> new ArrayList<>()).add(coverage);
+        }
+        List<ReportedLowCoverage> reportedLowCoverages = new ArrayList<>();
+        for (Exon exon : exons) {
+            RegionCoverage exonCoverage = getExonCoverage(exon, coveragesByChromosome.get(exon.getChromosome()));
+            if (exonCoverage == null) {
+                continue;
+            }
+            for (RegionCoverage regionCoverage : BamUtils.filterByCoverage(exonCoverage, 0, maxCoverage)) {
+                if (regionCoverage.getValues() != null && regionCoverage.getValues().length > 0) {
+                    ReportedLowCoverage reportedLowCoverage = new ReportedLowCoverage(regionCoverage)
+                            .setGeneName(geneName)
+                            .setId(exon.getId());
+                    reportedLowCoverages.add(reportedLowCoverage);
+                }
+            }
+        }
         return reportedLowCoverages;
     }
 
+    // Sorted, non overlapping regions covering all the exons. Adjacent exons are merged as well
+    static List<Region> mergeExonRegions(Collection<Exon> exons) {
+        List<Region> regions = new ArrayList<>(exons.size());
+        for (Exon exon : exons) {
+            regions.add(new Region(exon.getChromosome(), exon.getStart(), exon.getEnd()));
+        }
+        regions.sort(Comparator.comparing(Region::getChromosome).thenComparing(Region::getStart));
+
+        List<Region> mergedRegions = new ArrayList<>();
+        Region current = null;
+        for (Region region : regions) {
+            if (current != null && current.getChromosome().equals(region.getChromosome()) && region.getStart() <= current.getEnd() + 1) {
+                current.setEnd(Math.max(current.getEnd(), region.getEnd()));
+            } else {
+                current = new Region(region.getChromosome(), region.getStart(), region.getEnd());
+                mergedRegions.add(current);
+            }
+        }
+        return mergedRegions;
+    }
+
+    // Coverage of the exon, sliced from the merged region that contains it. Null if no merged region contains the exon
+    static RegionCoverage getExonCoverage(Exon exon, List<RegionCoverage> mergedCoverages) {
+        if (mergedCoverages == null) {
+            return null;
+        }
+        for (RegionCoverage coverage : mergedCoverages) {
+            if (coverage.getStart() <= exon.getStart() && exon.getEnd() <= coverage.getEnd()) {
+                // Coverage computed with window size 1. One value per position
+                int from = exon.getStart() - coverage.getStart();
+                int to = Math.min(exon.getEnd() - coverage.getStart() + 1, coverage.getValues().length);
+                RegionCoverage exonCoverage = new RegionCoverage();
+                exonCoverage.setChromosome(exon.getChromosome());
+                exonCoverage.setStart(exon.getStart());
+                exonCoverage.setEnd(exon.getEnd());
+                exonCoverage.setWindowSize(1);
+                exonCoverage.setValues(from < to ? Arrays.copyOfRange(coverage.getValues(), from, to) : new float[0]);
+                return exonCoverage;
+            }
+        }
+        return null;
+    }
+
     public Analyst getAnalyst(String token) throws ToolException {
         try {
             String userId = catalogManager.getUserManager().getUserId(token);
@@ -771,13 +888,9 @@ public class ClinicalInterpretationManager extends StorageManager {
             }
 
             // Compute low coverage for genes found
-            Iterator<String> iterator = genes.iterator();
-            while (iterator.hasNext()) {
-                String geneName = iterator.next();
-                List<ReportedLowCoverage> lowCoverages = getReportedLowCoverages(geneName, bamFileId, maxCoverage, studyId, sessionId);
-                if (ListUtils.isNotEmpty(lowCoverages)) {
-                    reportedLowCoverages.addAll(lowCoverages);
-                }
+            List<ReportedLowCoverage> lowCoverages = getReportedLowCoverages(genes, bamFileId, maxCoverage, studyId, sessionId);
+            if (ListUtils.isNotEmpty(lowCoverages)) {
+                reportedLowCoverages.addAll(lowCoverages);
             }
         }
     }
@@ -9,6 +9,7 @@ import org.opencb.biodata.models.clinical.interpretation.exceptions.Interpretati
 import org.opencb.biodata.models.clinical.pedigree.Pedigree;
 import org.opencb.biodata.models.commons.Disorder;
 import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.tools.clinical.TieringReportedVariantCreator;
 import org.opencb.biodata.tools.pedigree.ModeOfInheritance;
@@ -17,6 +18,7 @@ import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.utils.ListUtils;
 import org.opencb.opencga.analysis.clinical.ClinicalInterpretationManager;
 import org.opencb.opencga.analysis.clinical.ClinicalUtils;
+import org.opencb.opencga.analysis.variant.manager.VariantStorageManager;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.managers.FamilyManager;
 import org.opencb.opencga.core.tools.OpenCgaToolExecutor;
@@ -25,8 +27,10 @@ import org.opencb.opencga.core.exceptions.ToolException;
 import org.opencb.opencga.core.models.clinical.ClinicalAnalysis;
 import org.opencb.opencga.core.models.individual.Individual;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 
 import java.io.IOException;
 import java.nio.file.Paths;
@@ -53,6 +57,9 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
     private String sessionId;
     private ClinicalInterpretationManager clinicalInterpretationManager;
 
+    private final static List<ClinicalProperty.ModeOfInheritance> SINGLE_PASS_MODES = Arrays.asList(MONOALLELIC,
+            XLINKED_MONOALLELIC, YLINKED, BIALLELIC, XLINKED_BIALLELIC);
+
     private final static Query dominantQuery;
     private final static Query recessiveQuery;
     private final static Query mitochondrialQuery;
@@ -119,48 +126,35 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
         }
 
         // Get and check clinical analysis and proband
-        ClinicalAnalysis clinicalAnalysis;
-        try {
-            clinicalAnalysis = clinicalInterpretationManager.getClinicalAnalysis(studyId, clinicalAnalysisId, sessionId);
-        } catch (CatalogException e) {
-            throw new ToolException("Error getting clinical analysis", e);
-        }
+        ClinicalAnalysis clinicalAnalysis = getClinicalAnalysis();
         Individual proband = ClinicalUtils.getProband(clinicalAnalysis);
 
         // Get pedigree
-        Pedigree pedigree = FamilyManager.getPedigreeFromFamily(clinicalAnalysis.getFamily(), proband.getId());
-
-        // Discard members from the pedigree that do not have any samples. If we don't do this, we will always assume
-        ClinicalUtils.removeMembersWithoutSamples(pedigree, clinicalAnalysis.getFamily());
+        Pedigree pedigree = getPedigree(clinicalAnalysis, proband);
 
         // Get the map of individual - sample id and update proband information (to be able to navigate to the parents and their
         // samples easily)
         Map<String, String> sampleMap = ClinicalUtils.getSampleMap(clinicalAnalysis, proband);
 
-        Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap = new HashMap<>();
-        Map<String, List<Variant>> chVariantMap = new HashMap<>();
+        Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap = Collections.synchronizedMap(new HashMap<>());
+        Map<String, List<Variant>> chVariantMap = Collections.synchronizedMap(new HashMap<>());
 
         List<Variant> regionVariants = new ArrayList<>();
 
-        ExecutorService threadPool = Executors.newFixedThreadPool(8);
-
-        List<Future<Boolean>> futureList = new ArrayList<>(8);
-        futureList.add(threadPool.submit(getNamedThread(MONOALLELIC.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, MONOALLELIC, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(XLINKED_MONOALLELIC.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, XLINKED_MONOALLELIC, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(YLINKED.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, YLINKED, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(BIALLELIC.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, BIALLELIC, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(XLINKED_BIALLELIC.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, XLINKED_BIALLELIC, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(MITOCHONDRIAL.name(),
-                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, MITOCHONDRIAL, resultMap))));
-        futureList.add(threadPool.submit(getNamedThread(COMPOUND_HETEROZYGOUS.name(), () -> compoundHeterozygous(chVariantMap))));
-        futureList.add(threadPool.submit(getNamedThread(DE_NOVO.name(), () -> deNovo(resultMap))));
-        futureList.add(threadPool.submit(getNamedThread("REGION", () -> region(diseasePanels, sampleMap.values(),
-                assembly, regionVariants))));
+        List<Callable<Boolean>> tasks = new ArrayList<>(5);
+        // Variants of all the modes of inheritance defined only by genotype patterns are fetched in one single scan
+        tasks.add(getNamedThread("SCAN", () -> singlePassQuery(pedigree, clinicalAnalysis.getDisorder(), sampleMap, resultMap)));
+        tasks.add(getNamedThread(MITOCHONDRIAL.name(),
+                () -> query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, MITOCHONDRIAL, resultMap)));
+        tasks.add(getNamedThread(COMPOUND_HETEROZYGOUS.name(), () -> compoundHeterozygous(chVariantMap)));
+        tasks.add(getNamedThread(DE_NOVO.name(), () -> deNovo(resultMap)));
+        tasks.add(getNamedThread("REGION", () -> region(diseasePanels, sampleMap.values(), assembly, regionVariants)));
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(tasks.size());
+        List<Future<Boolean>> futureList = new ArrayList<>(tasks.size());
+        for (Callable<Boolean> task : tasks) {
+            futureList.add(threadPool.submit(task));
+        }
         threadPool.shutdown();
 
         try {
@@ -170,8 +164,15 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
                     future.cancel(true);
                 }
             }
+            for (Future<Boolean> future : futureList) {
+                if (future.isDone() && !future.isCancelled()) {
+                    future.get();
+                }
+            }
         } catch (InterruptedException e) {
             throw new ToolException("Error launching threads when execuging the Tiering interpretation analysis", e);
+        } catch (ExecutionException e) {
+            throw new ToolException("Error executing the Tiering interpretation analysis", e.getCause());
         }
 
         List<Variant> variantList = new ArrayList<>();
@@ -234,6 +235,50 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
         ClinicalUtils.writeReportedVariants(secondaryFindings, Paths.get(outDir + "/secondary-findings.json"));
     }
 
+    /**
+     * Get the variants of the modes of inheritance defined only by genotype patterns, either from the single scan used by the
+     * analysis or from one query per mode of inheritance. Visible for testing.
+     *
+     * @param singlePass Use the single scan
+     * @return Variants per mode of inheritance
+     * @throws ToolException if there is any error querying the variants
+     */
+    Map<ClinicalProperty.ModeOfInheritance, List<Variant>> queryGenotypeModesOfInheritance(boolean singlePass)
+            throws ToolException {
+        sessionId = getToken();
+        clinicalInterpretationManager = getClinicalInterpretationManager();
+        ClinicalAnalysis clinicalAnalysis = getClinicalAnalysis();
+        Individual proband = ClinicalUtils.getProband(clinicalAnalysis);
+        Pedigree pedigree = getPedigree(clinicalAnalysis, proband);
+        Map<String, String> sampleMap = ClinicalUtils.getSampleMap(clinicalAnalysis, proband);
+
+        Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap = new HashMap<>();
+        if (singlePass) {
+            singlePassQuery(pedigree, clinicalAnalysis.getDisorder(), sampleMap, resultMap);
+        } else {
+            for (ClinicalProperty.ModeOfInheritance moi : SINGLE_PASS_MODES) {
+                query(pedigree, clinicalAnalysis.getDisorder(), sampleMap, moi, resultMap);
+            }
+        }
+        return resultMap;
+    }
+
+    private ClinicalAnalysis getClinicalAnalysis() throws ToolException {
+        try {
+            return clinicalInterpretationManager.getClinicalAnalysis(studyId, clinicalAnalysisId, sessionId);
+        } catch (CatalogException e) {
+            throw new ToolException("Error getting clinical analysis", e);
+        }
+    }
+
+    private Pedigree getPedigree(ClinicalAnalysis clinicalAnalysis, Individual proband) {
+        Pedigree pedigree = FamilyManager.getPedigreeFromFamily(clinicalAnalysis.getFamily(), proband.getId());
+
+        // Discard members from the pedigree that do not have any samples. If we don't do this, we will always assume
+        ClinicalUtils.removeMembersWithoutSamples(pedigree, clinicalAnalysis.getFamily());
+        return pedigree;
+    }
+
     private <T> Callable<T> getNamedThread(String name, Callable<T> c) {
         String parentThreadName = Thread.currentThread().getName();
         return () -> {
@@ -308,42 +353,155 @@ public class TieringInterpretationAnalysisExecutor extends OpenCgaToolExecutor i
         return true;
     }
 
-    private Boolean query(Pedigree pedigree, Disorder disorder, Map<String, String> sampleMap, ClinicalProperty.ModeOfInheritance moi,
-                          Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap) {
-        Query query;
-        Map<String, List<String>> genotypes;
+    /**
+     * Fetch in one single pass the variants of all the modes of inheritance defined by genotype patterns over the dominant or
+     * recessive filters, and classify them in memory. All these queries share the same biotype and consequence type filters,
+     * and the recessive frequency filters are less restrictive than the dominant ones.
+     *
+     * Each mode of inheritance returns at most the same number of variants as a query with the default limit, and its variants
+     * only contain the samples that its own query would return.
+     */
+    private Boolean singlePassQuery(Pedigree pedigree, Disorder disorder, Map<String, String> sampleMap,
+                                    Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap) throws ToolException {
+        Query scanQuery = new Query(recessiveQuery);
+
+        List<TieringModeOfInheritanceFilter> filters = new ArrayList<>(SINGLE_PASS_MODES.size());
+        for (ClinicalProperty.ModeOfInheritance moi : SINGLE_PASS_MODES) {
+            Map<String, List<String>> genotypes = getGenotypes(pedigree, disorder, moi);
+            if (ModeOfInheritance.isEmptyMapOfGenotypes(genotypes)) {
+                continue;
+            }
+            filters.add(new TieringModeOfInheritanceFilter(moi, getQuery(moi), scanQuery, getSampleGenotypes(genotypes, sampleMap)));
+        }
+        if (filters.isEmpty()) {
+            return false;
+        }
+
+        scanQuery.append(VariantQueryParam.INCLUDE_GENOTYPE.key(), true)
+                .append(VariantQueryParam.STUDY.key(), studyId)
+                .append(VariantQueryParam.FILTER.key(), VCFConstants.PASSES_FILTERS_v4)
+                .append(VariantQueryParam.INCLUDE_SAMPLE.key(), new ArrayList<>(sampleMap.values()));
+        String genotypeFilter = TieringModeOfInheritanceFilter.buildGenotypeFilterUnion(filters);
+        if (StringUtils.isNotEmpty(genotypeFilter)) {
+            scanQuery.put(VariantQueryParam.GENOTYPE.key(), genotypeFilter);
+        }
+
+        Map<ClinicalProperty.ModeOfInheritance, List<Variant>> variants = new LinkedHashMap<>();
+        for (TieringModeOfInheritanceFilter filter : filters) {
+            variants.put(filter.getModeOfInheritance(), new ArrayList<>());
+        }
+        VariantStorageManager variantStorageManager = clinicalInterpretationManager.getVariantStorageManager();
+        try (VariantDBIterator iterator = variantStorageManager.iterator(scanQuery, QueryOptions.empty(), sessionId)) {
+            int limit = variantStorageManager.getDefaultQueryLimit(studyId, sessionId);
+            List<TieringModeOfInheritanceFilter> matches = new ArrayList<>(filters.size());
+            int completed = 0;
+            while (iterator.hasNext() && completed < filters.size()) {
+                Variant variant = iterator.next();
+                matches.clear();
+                for (TieringModeOfInheritanceFilter filter : filters) {
+                    if (variants.get(filter.getModeOfInheritance()).size() < limit && filter.test(variant)) {
+                        matches.add(filter);
+                    }
+                }
+                if (!matches.isEmpty()) {
+                    replaceUnknownGenotypes(variant);
+                    for (TieringModeOfInheritanceFilter filter : matches) {
+                        List<Variant> moiVariants = variants.get(filter.getModeOfInheritance());
+                        // Each mode of inheritance gets its own copy, with the samples of its query
+                        moiVariants.add(filter.selectSamples(variant));
+                        if (moiVariants.size() == limit) {
+                            completed++;
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new ToolException("Error querying variants of the modes of inheritance " + variants.keySet(), e);
+        }
+        resultMap.putAll(variants);
+        return true;
+    }
+
+    private Map<String, List<String>> getSampleGenotypes(Map<String, List<String>> genotypes, Map<String, String> sampleMap) {
+        Map<String, List<String>> sampleGenotypes = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : genotypes.entrySet()) {
+            if (sampleMap.containsKey(entry.getKey()) && ListUtils.isNotEmpty(entry.getValue())) {
+                sampleGenotypes.put(sampleMap.get(entry.getKey()), entry.getValue());
+            }
+        }
+        return sampleGenotypes;
+    }
+
+    /**
+     * The single pass query does not define the unknown genotype, so samples without data can be told apart from missing calls.
+     * Replace them as the queries per mode of inheritance would do.
+     *
+     * @param variant Variant
+     */
+    private void replaceUnknownGenotypes(Variant variant) {
+        for (StudyEntry studyEntry : variant.getStudies()) {
+            Integer gtIdx = studyEntry.getFormatPositions().get("GT");
+            if (gtIdx == null) {
+                continue;
+            }
+            for (List<String> sampleData : studyEntry.getSamplesData()) {
+                if (GenotypeClass.UNKNOWN_GENOTYPE.equals(sampleData.get(gtIdx))) {
+                    sampleData.set(gtIdx, "./.");
+                }
+            }
+        }
+    }
+
+    private Query getQuery(ClinicalProperty.ModeOfInheritance moi) {
         switch (moi) {
             case MONOALLELIC:
-                query = new Query(dominantQuery);
-                genotypes = ModeOfInheritance.dominant(pedigree, disorder, penetrance);
-                break;
+                return new Query(dominantQuery);
             case YLINKED:
-                query = new Query(dominantQuery)
+                return new Query(dominantQuery)
                         .append(VariantQueryParam.REGION.key(), "Y");
-                genotypes = ModeOfInheritance.yLinked(pedigree, disorder, penetrance);
-                break;
             case XLINKED_MONOALLELIC:
-                query = new Query(dominantQuery)
+                return new Query(dominantQuery)
                         .append(VariantQueryParam.REGION.key(), "X");
-                genotypes = ModeOfInheritance.xLinked(pedigree, disorder, true, penetrance);
-                break;
             case BIALLELIC:
-                query = new Query(recessiveQuery);
-                genotypes = ModeOfInheritance.recessive(pedigree, disorder, penetrance);
-                break;
+                return new Query(recessiveQuery);
             case XLINKED_BIALLELIC:
-                query = new Query(recessiveQuery)
+                return new Query(recessiveQuery)
                         .append(VariantQueryParam.REGION.key(), "X");
-                genotypes = ModeOfInheritance.xLinked(pedigree, disorder, false, penetrance);
-                break;
             case MITOCHONDRIAL:
-                query = new Query(mitochondrialQuery);
-                genotypes = ModeOfInheritance.mitochondrial(pedigree, disorder, penetrance);
+                return new Query(mitochondrialQuery);
+            default:
+                return null;
+        }
+    }
+
+    private Map<String, List<String>> getGenotypes(Pedigree pedigree, Disorder disorder, ClinicalProperty.ModeOfInheritance moi) {
+        switch (moi) {
+            case MONOALLELIC:
+                return ModeOfInheritance.dominant(pedigree, disorder, penetrance);
+            case YLINKED:
+                return ModeOfInheritance.yLinked(pedigree, disorder, penetrance);
+            case XLINKED_MONOALLELIC:
+                return ModeOfInheritance.xLinked(pedigree, disorder, true, penetrance);
+            case BIALLELIC:
+                return ModeOfInheritance.recessive(pedigree, disorder, penetrance);
+            case XLINKED_BIALLELIC:
+                return ModeOfInheritance.xLinked(pedigree, disorder, false, penetrance);
+            case MITOCHONDRIAL:
+                Map<String, List<String>> genotypes = ModeOfInheritance.mitochondrial(pedigree, disorder, penetrance);
                 filterOutHealthyGenotypes(genotypes);
-                break;
+                return genotypes;
             default:
-                return false;
+                return null;
+        }
+    }
+
+    private Boolean query(Pedigree pedigree, Disorder disorder, Map<String, String> sampleMap, ClinicalProperty.ModeOfInheritance moi,
+                          Map<ClinicalProperty.ModeOfInheritance, List<Variant>> resultMap) {
+        Query query = getQuery(moi);
+        if (query == null) {
+            return false;
         }
+        Map<String, List<String>> genotypes = getGenotypes(pedigree, disorder, moi);
         query.append(VariantQueryParam.INCLUDE_GENOTYPE.key(), true)
                 .append(VariantQueryParam.STUDY.key(), studyId)
                 .append(VariantQueryParam.FILTER.key(), VCFConstants.PASSES_FILTERS_v4)
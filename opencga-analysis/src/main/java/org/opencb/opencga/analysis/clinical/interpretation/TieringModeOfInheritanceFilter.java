@@ -0,0 +1,283 @@
+package org.opencb.opencga.analysis.clinical.interpretation;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.clinical.interpretation.ClinicalProperty;
+import org.opencb.biodata.models.feature.Genotype;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.utils.ListUtils;
+import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
+
+/**
+ * Created on 19/10/20.
+ *
+ * In memory filter of one mode of inheritance, applied over the variants returned by a less restrictive query.
+ * Evaluates the genotype filter of the pedigree, the chromosome, and the frequency filters that differ from the base query,
+ * with the same semantics as the storage engines.
+ */
+public class TieringModeOfInheritanceFilter implements Predicate<Variant> {
+
+    private final ClinicalProperty.ModeOfInheritance moi;
+    private final Map<String, List<String>> genotypes;
+    private final Map<String, Set<String>> normalizedGenotypes;
+    private final String chromosome;
+    private final List<String[]> populationFrequencies = new ArrayList<>();
+    private final List<String[]> stats = new ArrayList<>();
+
+    /**
+     * Build a mode of inheritance filter.
+     *
+     * @param moi         Mode of inheritance
+     * @param query       Query of the mode of inheritance
+     * @param baseQuery   Query used to fetch the variants. Filters already applied by this query are not evaluated again.
+     * @param genotypes   Accepted genotypes per sample
+     */
+    public TieringModeOfInheritanceFilter(ClinicalProperty.ModeOfInheritance moi, Query query, Query baseQuery,
+                                          Map<String, List<String>> genotypes) {
+        this.moi = moi;
+        this.genotypes = new LinkedHashMap<>();
+        normalizedGenotypes = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : genotypes.entrySet()) {
+            if (ListUtils.isNotEmpty(entry.getValue())) {
+                Set<String> gts = new HashSet<>();
+                for (String gt : entry.getValue()) {
+                    gts.add(normalizeGenotype(gt));
+                }
+                this.genotypes.put(entry.getKey(), entry.getValue());
+                normalizedGenotypes.put(entry.getKey(), gts);
+            }
+        }
+
+        String region = query.getString(VariantQueryParam.REGION.key());
+        if (StringUtils.isNotEmpty(region) && !region.equals(baseQuery.getString(VariantQueryParam.REGION.key()))) {
+            if (region.contains(OR) || region.contains(AND) || region.contains(":")) {
+                throw new IllegalArgumentException("Unsupported region filter '" + region + "'. Only single chromosomes are supported");
+            }
+            chromosome = normalizeChromosome(region);
+        } else {
+            chromosome = null;
+        }
+
+        parseFilter(query, baseQuery, VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY, populationFrequencies);
+        parseFilter(query, baseQuery, VariantQueryParam.STATS_MAF, stats);
+    }
+
+    public ClinicalProperty.ModeOfInheritance getModeOfInheritance() {
+        return moi;
+    }
+
+    /**
+     * @return Accepted genotypes for each sample, as provided. Samples not in the map are not filtered.
+     */
+    public Map<String, List<String>> getGenotypes() {
+        return genotypes;
+    }
+
+    @Override
+    public boolean test(Variant variant) {
+        if (chromosome != null && !chromosome.equals(normalizeChromosome(variant.getChromosome()))) {
+            return false;
+        }
+        StudyEntry studyEntry = variant.getStudies().isEmpty() ? null : variant.getStudies().get(0);
+        for (Map.Entry<String, Set<String>> entry : normalizedGenotypes.entrySet()) {
+            String gt = studyEntry == null ? null : studyEntry.getSampleData(entry.getKey(), "GT");
+            if (!matchesGenotype(gt, entry.getValue())) {
+                return false;
+            }
+        }
+        for (String[] filter : populationFrequencies) {
+            if (!testPopulationFrequency(variant, filter)) {
+                return false;
+            }
+        }
+        for (String[] filter : stats) {
+            if (!testMaf(studyEntry, filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy the variant keeping only the samples filtered by genotype, in the same order, as the query of this mode of inheritance
+     * would return them. The variant is returned as is if there is no genotype filter.
+     *
+     * @param variant Variant with all the samples
+     * @return Copy of the variant with the samples of this mode of inheritance
+     */
+    public Variant selectSamples(Variant variant) {
+        if (genotypes.isEmpty()) {
+            return variant;
+        }
+        Variant copy = new Variant(VariantAvro.newBuilder(variant.getImpl()).build());
+        for (int i = 0; i < variant.getStudies().size(); i++) {
+            StudyEntry studyEntry = variant.getStudies().get(i);
+            Map<String, Integer> samplesPosition = new LinkedHashMap<>();
+            List<List<String>> samplesData = new ArrayList<>(genotypes.size());
+            for (String sample : genotypes.keySet()) {
+                Integer samplePosition = studyEntry.getSamplesPosition().get(sample);
+                if (samplePosition != null) {
+                    samplesPosition.put(sample, samplesData.size());
+                    samplesData.add(new ArrayList<>(studyEntry.getSamplesData().get(samplePosition)));
+                }
+            }
+            StudyEntry studyEntryCopy = copy.getStudies().get(i);
+            studyEntryCopy.setSamplesPosition(samplesPosition);
+            studyEntryCopy.setSamplesData(samplesData);
+        }
+        return copy;
+    }
+
+    /**
+     * Build a genotype filter accepting the union of the genotypes of all the filters.
+     * Samples not filtered by all the modes of inheritance are not included.
+     *
+     * @param filters Filters
+     * @return Genotype filter, or empty if none
+     */
+    public static String buildGenotypeFilterUnion(List<TieringModeOfInheritanceFilter> filters) {
+        if (filters.isEmpty()) {
+            return "";
+        }
+        List<String> sampleFilters = new ArrayList<>();
+        for (String sample : filters.get(0).getGenotypes().keySet()) {
+            Set<String> gts = new LinkedHashSet<>();
+            for (TieringModeOfInheritanceFilter filter : filters) {
+                List<String> sampleGts = filter.getGenotypes().get(sample);
+                if (sampleGts == null) {
+                    gts = null;
+                    break;
+                }
+                gts.addAll(sampleGts);
+            }
+            if (gts != null) {
+                sampleFilters.add(sample + IS + String.join(OR, gts));
+            }
+        }
+        return String.join(AND, sampleFilters);
+    }
+
+    private static void parseFilter(Query query, Query baseQuery, VariantQueryParam param, List<String[]> filters) {
+        String value = query.getString(param.key());
+        if (StringUtils.isEmpty(value) || value.equals(baseQuery.getString(param.key()))) {
+            return;
+        }
+        QueryOperation operation = checkOperator(value);
+        if (operation == QueryOperation.OR) {
+            throw new IllegalArgumentException("Unsupported OR filter at " + param.key() + " : " + value);
+        }
+        for (String filter : splitValue(value, operation)) {
+            String[] keyOpValue = splitOperator(filter);
+            String operator = keyOpValue[1];
+            if (operator.startsWith(">>") || operator.startsWith("<<")) {
+                operator = operator.substring(1);
+            }
+            filters.add(new String[]{keyOpValue[0], operator, keyOpValue[2]});
+        }
+    }
+
+    private static boolean testPopulationFrequency(Variant variant, String[] filter) {
+        String[] studyPopulation = filter[0].split(IS);
+        List<PopulationFrequency> populationFrequencies = variant.getAnnotation() == null
+                ? null
+                : variant.getAnnotation().getPopulationFrequencies();
+        if (populationFrequencies != null) {
+            for (PopulationFrequency populationFrequency : populationFrequencies) {
+                if (populationFrequency.getStudy().equals(studyPopulation[0])
+                        && populationFrequency.getPopulation().equals(studyPopulation[1])) {
+                    return compare(populationFrequency.getAltAlleleFreq(), filter[1], filter[2]);
+                }
+            }
+        }
+        // Missing populations are considered as frequency 0
+        return filter[1].startsWith("<");
+    }
+
+    private static boolean testMaf(StudyEntry studyEntry, String[] filter) {
+        String[] studyCohort = splitStudyResource(filter[0]);
+        String cohort = studyCohort[studyCohort.length - 1];
+        VariantStats variantStats = studyEntry == null || studyEntry.getStats() == null ? null : studyEntry.getStats().get(cohort);
+        // Variants without stats do not match any stats filter
+        return variantStats != null && variantStats.getMaf() != null && compare(variantStats.getMaf(), filter[1], filter[2]);
+    }
+
+    private static boolean compare(Number number, String operator, String valueStr) {
+        if (number == null) {
+            return false;
+        }
+        double value = Double.parseDouble(valueStr);
+        double actual = number.doubleValue();
+        switch (operator) {
+            case "<":
+                return actual < value;
+            case "<=":
+                return actual <= value;
+            case ">":
+                return actual > value;
+            case ">=":
+                return actual >= value;
+            case "=":
+            case "==":
+                return actual == value;
+            case "!=":
+                return actual != value;
+            default:
+                throw new IllegalArgumentException("Unknown operator " + operator);
+        }
+    }
+
+    private static boolean matchesGenotype(String gt, Set<String> genotypes) {
+        if (gt == null || gt.equals(GenotypeClass.UNKNOWN_GENOTYPE)) {
+            // Samples without data at this variant. Storage engines consider them as reference
+            return genotypes.contains("0/0") || genotypes.contains("0");
+        }
+        return genotypes.contains(normalizeGenotype(gt));
+    }
+
+    /**
+     * Normalize genotypes as the storage engines do when filtering by genotype.
+     * Phased genotypes match their unphased version, and all the alternate alleles over the main one are considered the same.
+     *
+     * @param gt Genotype
+     * @return Normalized genotype
+     */
+    static String normalizeGenotype(String gt) {
+        Genotype genotype;
+        try {
+            genotype = new Genotype(gt);
+        } catch (IllegalArgumentException e) {
+            return gt;
+        }
+        genotype.setPhased(false);
+        genotype.normalizeAllelesIdx();
+        int[] allelesIdx = genotype.getAllelesIdx();
+        for (int i = 0; i < allelesIdx.length; i++) {
+            if (allelesIdx[i] > 1) {
+                allelesIdx[i] = 2;
+            }
+        }
+        return genotype.toString();
+    }
+
+    private static String normalizeChromosome(String chromosome) {
+        if (chromosome.length() > 3 && chromosome.substring(0, 3).equalsIgnoreCase("chr")) {
+            return chromosome.substring(3);
+        }
+        return chromosome;
+    }
+
+    @Override
+    public String toString() {
+        return "TieringModeOfInheritanceFilter{moi=" + moi + ", genotypes=" + genotypes + ", chromosome=" + chromosome + '}';
+    }
+}
@@ -11,6 +11,7 @@ import org.opencb.opencga.catalog.stats.solr.CatalogSolrManager;
 import org.opencb.opencga.catalog.stats.solr.converters.CatalogCohortToSolrCohortConverter;
 import org.opencb.opencga.catalog.stats.solr.converters.SolrConverterUtil;
 import org.opencb.opencga.catalog.utils.Constants;
+import org.opencb.opencga.core.models.cohort.Cohort;
 import org.opencb.opencga.core.models.common.Enums;
 import org.opencb.opencga.core.models.study.Study;
 import org.opencb.opencga.core.response.OpenCGAResult;
@@ -40,7 +41,7 @@ public class CohortIndexTask extends OpenCgaTool {
         QueryOptions options = new QueryOptions()
                 .append(QueryOptions.INCLUDE, Arrays.asList(StudyDBAdaptor.QueryParams.UID.key(),
                         StudyDBAdaptor.QueryParams.ID.key(), StudyDBAdaptor.QueryParams.FQN.key(),
-                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key()))
+                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key(), StudyDBAdaptor.QueryParams.ATTRIBUTES.key()))
                 .append(DBAdaptor.INCLUDE_ACLS, true);
         OpenCGAResult<Study> studyDataResult = catalogManager.getStudyManager().get(query, options, token);
         if (studyDataResult.getNumResults() == 0) {
@@ -74,7 +75,9 @@ public class CohortIndexTask extends OpenCgaTool {
                 .append(DBAdaptor.INCLUDE_ACLS, true)
                 .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-        catalogSolrManager.insertCatalogCollection(catalogManager.getCohortManager().iterator(study.getFqn(), query,
-                cohortQueryOptions, token), new CatalogCohortToSolrCohortConverter(study), CatalogSolrManager.COHORT_SOLR_COLLECTION);
+        catalogSolrManager.syncCatalogCollection(study, query,
+                q -> catalogManager.getCohortManager().iterator(study.getFqn(), q, cohortQueryOptions, token), Cohort::getUuid,
+                new CatalogCohortToSolrCohortConverter(study), CatalogSolrManager.COHORT_SOLR_COLLECTION,
+                params.getBoolean(CatalogSolrManager.FULL_SYNC), token);
     }
 }
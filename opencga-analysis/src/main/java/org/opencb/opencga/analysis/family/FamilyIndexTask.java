@@ -12,6 +12,7 @@ import org.opencb.opencga.catalog.stats.solr.converters.CatalogFamilyToSolrFamil
 import org.opencb.opencga.catalog.stats.solr.converters.SolrConverterUtil;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.models.family.Family;
 import org.opencb.opencga.core.models.study.Study;
 import org.opencb.opencga.core.response.OpenCGAResult;
 import org.opencb.opencga.core.tools.annotations.Tool;
@@ -40,7 +41,7 @@ public class FamilyIndexTask extends OpenCgaTool {
         QueryOptions options = new QueryOptions()
                 .append(QueryOptions.INCLUDE, Arrays.asList(StudyDBAdaptor.QueryParams.UID.key(),
                         StudyDBAdaptor.QueryParams.ID.key(), StudyDBAdaptor.QueryParams.FQN.key(),
-                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key()))
+                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key(), StudyDBAdaptor.QueryParams.ATTRIBUTES.key()))
                 .append(DBAdaptor.INCLUDE_ACLS, true);
         OpenCGAResult<Study> studyDataResult = catalogManager.getStudyManager().get(query, options, token);
         if (studyDataResult.getNumResults() == 0) {
@@ -74,8 +75,10 @@ public class FamilyIndexTask extends OpenCgaTool {
                 .append(DBAdaptor.INCLUDE_ACLS, true)
                 .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-        catalogSolrManager.insertCatalogCollection(catalogManager.getFamilyManager().iterator(study.getFqn(), query,
-                familyQueryOptions, token), new CatalogFamilyToSolrFamilyConverter(study), CatalogSolrManager.FAMILY_SOLR_COLLECTION);
+        catalogSolrManager.syncCatalogCollection(study, query,
+                q -> catalogManager.getFamilyManager().iterator(study.getFqn(), q, familyQueryOptions, token), Family::getUuid,
+                new CatalogFamilyToSolrFamilyConverter(study), CatalogSolrManager.FAMILY_SOLR_COLLECTION,
+                params.getBoolean(CatalogSolrManager.FULL_SYNC), token);
     }
 }
 
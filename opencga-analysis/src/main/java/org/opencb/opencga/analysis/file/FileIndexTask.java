@@ -12,6 +12,7 @@ import org.opencb.opencga.catalog.stats.solr.converters.CatalogFileToSolrFileCon
 import org.opencb.opencga.catalog.stats.solr.converters.SolrConverterUtil;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.models.file.File;
 import org.opencb.opencga.core.models.study.Study;
 import org.opencb.opencga.core.response.OpenCGAResult;
 import org.opencb.opencga.core.tools.annotations.Tool;
@@ -44,7 +45,7 @@ public class FileIndexTask extends OpenCgaTool {
         QueryOptions options = new QueryOptions()
                 .append(QueryOptions.INCLUDE, Arrays.asList(StudyDBAdaptor.QueryParams.UID.key(),
                         StudyDBAdaptor.QueryParams.ID.key(), StudyDBAdaptor.QueryParams.FQN.key(),
-                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key()))
+                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key(), StudyDBAdaptor.QueryParams.ATTRIBUTES.key()))
                 .append(DBAdaptor.INCLUDE_ACLS, true);
         OpenCGAResult<Study> studyDataResult = catalogManager.getStudyManager().get(query, options, token);
         if (studyDataResult.getNumResults() == 0) {
@@ -82,7 +83,9 @@ public class FileIndexTask extends OpenCgaTool {
                 .append(DBAdaptor.INCLUDE_ACLS, true)
                 .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-        catalogSolrManager.insertCatalogCollection(catalogManager.getFileManager().iterator(study.getFqn(), query,
-                fileQueryOptions, token), new CatalogFileToSolrFileConverter(study), CatalogSolrManager.FILE_SOLR_COLLECTION);
+        catalogSolrManager.syncCatalogCollection(study, query,
+                q -> catalogManager.getFileManager().iterator(study.getFqn(), q, fileQueryOptions, token), File::getUuid,
+                new CatalogFileToSolrFileConverter(study), CatalogSolrManager.FILE_SOLR_COLLECTION,
+                params.getBoolean(CatalogSolrManager.FULL_SYNC), token);
     }
 }
@@ -12,6 +12,7 @@ import org.opencb.opencga.catalog.stats.solr.converters.CatalogIndividualToSolrI
 import org.opencb.opencga.catalog.stats.solr.converters.SolrConverterUtil;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.models.individual.Individual;
 import org.opencb.opencga.core.models.study.Study;
 import org.opencb.opencga.core.response.OpenCGAResult;
 import org.opencb.opencga.core.tools.annotations.Tool;
@@ -41,7 +42,7 @@ public class IndividualIndexTask extends OpenCgaTool {
         QueryOptions options = new QueryOptions()
                 .append(QueryOptions.INCLUDE, Arrays.asList(StudyDBAdaptor.QueryParams.UID.key(),
                         StudyDBAdaptor.QueryParams.ID.key(), StudyDBAdaptor.QueryParams.FQN.key(),
-                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key()))
+                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key(), StudyDBAdaptor.QueryParams.ATTRIBUTES.key()))
                 .append(DBAdaptor.INCLUDE_ACLS, true);
         OpenCGAResult<Study> studyDataResult = catalogManager.getStudyManager().get(query, options, token);
         if (studyDataResult.getNumResults() == 0) {
@@ -81,8 +82,9 @@ public class IndividualIndexTask extends OpenCgaTool {
                 .append(DBAdaptor.INCLUDE_ACLS, true)
                 .append(Constants.FLATTENED_ANNOTATIONS, true);
 
-        catalogSolrManager.insertCatalogCollection(catalogManager.getIndividualManager().iterator(study.getFqn(), query,
-                individualQueryOptions, token), new CatalogIndividualToSolrIndividualConverter(study),
-                CatalogSolrManager.INDIVIDUAL_SOLR_COLLECTION);
+        catalogSolrManager.syncCatalogCollection(study, query,
+                q -> catalogManager.getIndividualManager().iterator(study.getFqn(), q, individualQueryOptions, token), Individual::getUuid,
+                new CatalogIndividualToSolrIndividualConverter(study), CatalogSolrManager.INDIVIDUAL_SOLR_COLLECTION,
+                params.getBoolean(CatalogSolrManager.FULL_SYNC), token);
     }
 }
@@ -11,6 +11,7 @@ import org.opencb.opencga.catalog.stats.solr.CatalogSolrManager;
 import org.opencb.opencga.catalog.stats.solr.converters.JobSolrConverter;
 import org.opencb.opencga.catalog.stats.solr.converters.SolrConverterUtil;
 import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.models.job.Job;
 import org.opencb.opencga.core.models.study.Study;
 import org.opencb.opencga.core.response.OpenCGAResult;
 import org.opencb.opencga.core.tools.annotations.Tool;
@@ -39,7 +40,7 @@ public class JobIndexTask extends OpenCgaTool {
         QueryOptions options = new QueryOptions()
                 .append(QueryOptions.INCLUDE, Arrays.asList(StudyDBAdaptor.QueryParams.UID.key(),
                         StudyDBAdaptor.QueryParams.ID.key(), StudyDBAdaptor.QueryParams.FQN.key(),
-                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key()))
+                        StudyDBAdaptor.QueryParams.VARIABLE_SET.key(), StudyDBAdaptor.QueryParams.ATTRIBUTES.key()))
                 .append(DBAdaptor.INCLUDE_ACLS, true);
         OpenCGAResult<Study> studyDataResult = catalogManager.getStudyManager().get(query, options, token);
         if (studyDataResult.getNumResults() == 0) {
@@ -73,7 +74,9 @@ public class JobIndexTask extends OpenCgaTool {
                         JobDBAdaptor.QueryParams.TAGS.key(), JobDBAdaptor.QueryParams.EXECUTION.key()))
                 .append(DBAdaptor.INCLUDE_ACLS, true);
 
-        catalogSolrManager.insertCatalogCollection(catalogManager.getJobManager().iterator(study.getFqn(), query, jobQueryOptions, token),
-                new JobSolrConverter(study), CatalogSolrManager.JOB_SOLR_COLLECTION);
+        catalogSolrManager.syncCatalogCollection(study, query,
+                q -> catalogManager.getJobManager().iterator(study.getFqn(), q, jobQueryOptions, token), Job::getUuid,
+                new JobSolrConverter(study), CatalogSolrManager.JOB_SOLR_COLLECTION,
+                params.getBoolean(CatalogSolrManager.FULL_SYNC), token);
     }
 }
@@ -1,6 +1,8 @@
 package org.opencb.opencga.analysis.variant.gwas;
 
 import org.apache.commons.lang.StringUtils;
+import org.opencb.biodata.models.feature.Genotype;
+import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
@@ -20,8 +22,8 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.plain.StringDataWriter;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
-import org.opencb.oskar.analysis.stats.FisherExactTest;
-import org.opencb.oskar.analysis.stats.FisherTestResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
@@ -32,6 +34,9 @@ import java.util.concurrent.ExecutionException;
         framework = ToolExecutor.Framework.LOCAL)
 public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implements VariantStorageToolExecutor {
 
+    private final Logger logger = LoggerFactory.getLogger(GwasLocalAnalysisExecutor.class);
+    private LogFactorialFisherTest fisherTest;
+
     @Override
     public void run() throws ToolException {
         List<String> sampleList1 = getSampleList1();
@@ -47,21 +52,26 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
 
             ProgressLogger progressLogger = new ProgressLogger("Processed variants:");
 
-            Task<Variant, String> task = Task.forEach(this::computeFisherTest)
-                    .then((Task<String, String>) batch -> {
-                progressLogger.increment(batch.size());
-                return batch;
-            });
+            int numTasks = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            List<Task<Variant, String>> tasks = new ArrayList<>(numTasks);
+            for (int i = 0; i < numTasks; i++) {
+                FisherTestTask fisherTestTask = new FisherTestTask();
+                tasks.add(Task.forEach(fisherTestTask::computeFisherTest)
+                        .then((Task<String, String>) batch -> {
+                            progressLogger.increment(batch.size());
+                            return batch;
+                        }));
+            }
 
             // TODO: Write header
             StringDataWriter writer = new StringDataWriter(getOutputFile(), true);
 
             ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                    .setNumTasks(4)
+                    .setNumTasks(numTasks)
                     .setBatchSize(100)
                     .setSorted(true)
                     .build();
-            ParallelTaskRunner<Variant, String> ptr = new ParallelTaskRunner<>(reader, task, writer, config);
+            ParallelTaskRunner<Variant, String> ptr = new ParallelTaskRunner<>(reader, tasks, writer, config);
 
             ptr.run();
         } catch (CatalogException | ExecutionException | StorageEngineException e) {
@@ -69,57 +79,183 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
         }
     }
 
-    private String computeFisherTest(Variant variant) {
-        VariantStats caseStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList1());
-        VariantStats controlStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList2());
+    // Fisher test shared by all the threads
+    private synchronized LogFactorialFisherTest getFisherTest() {
+        if (fisherTest == null) {
+            // Largest table for diploid samples
+            fisherTest = new LogFactorialFisherTest(2 * (getSampleList1().size() + getSampleList2().size()));
+        }
+        return fisherTest;
+    }
+
+    /**
+     * Computes the fisher test of each variant. Not thread safe, so each thread requires its own instance.
+     *
+     * The position of the case and control samples is resolved once, and the alleles are counted directly
+     * from the GT column into reused arrays, without creating a VariantStats per sample list.
+     * Samples missing from the variant are not counted, and variants without genotypes are skipped.
+     */
+    class FisherTestTask {
+        private static final int REF = 0;
+        private static final int ALT = 1;
+        // Genotypes with other alleles than REF, ALT or fully missing
+        private static final int OTHER = 2;
 
-        int a = caseStats.getRefAlleleCount(); // case #REF
-        int b = controlStats.getRefAlleleCount(); // control #REF
-        int c = caseStats.getAltAlleleCount(); // case #ALT
-        int d = controlStats.getAltAlleleCount(); // control #ALT
+        private final LogFactorialFisherTest fisherTest = getFisherTest();
+        // Number of REF, ALT and OTHER alleles of each genotype
+        private final Map<String, int[]> genotypeAlleles = new HashMap<>();
+        private final int[] caseAlleles = new int[3];
+        private final int[] controlAlleles = new int[3];
+        private Map<String, Integer> samplesPosition;
+        private int[] caseSamplesIdx;
+        private int[] controlSamplesIdx;
 
-        if (a + b + c + d == 0) {
-            return null;
-        }
-        FisherTestResult fisherTestResult = new FisherExactTest().fisherTest(a, b, c, d);
-
-
-        VariantAnnotation variantAnnotation = variant.getAnnotation();
-        String id = null;
-        Set<String> genes = Collections.emptySet();
-        if (variantAnnotation != null) {
-            id = variantAnnotation.getId();
-            genes = new HashSet<>();
-            if (variantAnnotation.getConsequenceTypes() != null) {
-                for (ConsequenceType consequenceType : variantAnnotation.getConsequenceTypes()) {
-                    if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
-                        genes.add(consequenceType.getGeneName());
+        String computeFisherTest(Variant variant) {
+            StudyEntry studyEntry = variant.getStudies().get(0);
+            Integer gtIdx = studyEntry.getFormatPositions().get("GT");
+            if (gtIdx == null) {
+                // No alleles to count
+                return null;
+            }
+            if (studyEntry.getSamplesPosition() != samplesPosition) {
+                samplesPosition = studyEntry.getSamplesPosition();
+                caseSamplesIdx = toSamplesIdx(getSampleList1());
+                controlSamplesIdx = toSamplesIdx(getSampleList2());
+            }
+            countAlleles(studyEntry, gtIdx, caseSamplesIdx, caseAlleles);
+            countAlleles(studyEntry, gtIdx, controlSamplesIdx, controlAlleles);
+
+            int a = caseAlleles[REF]; // case #REF
+            int b = controlAlleles[REF]; // control #REF
+            int c = caseAlleles[ALT]; // case #ALT
+            int d = controlAlleles[ALT]; // control #ALT
+            int caseAlleleCount = a + c;
+            int controlAlleleCount = b + d;
+            float caseAltAlleleFreq = caseAlleleCount == 0 ? 0 : c / (float) caseAlleleCount;
+            float controlAltAlleleFreq = controlAlleleCount == 0 ? 0 : d / (float) controlAlleleCount;
+            if (caseAlleles[OTHER] > 0 || controlAlleles[OTHER] > 0 || caseAlleleCount == 0 || controlAlleleCount == 0) {
+                // Uncommon genotypes, or groups without alleles. Use the VariantStats to get the same allele counts and frequencies
+                VariantStats caseStats = VariantStatsCalculator.calculate(variant, countGenotypes(studyEntry, gtIdx, caseSamplesIdx));
+                VariantStats controlStats = VariantStatsCalculator.calculate(variant,
+                        countGenotypes(studyEntry, gtIdx, controlSamplesIdx));
+                a = caseStats.getRefAlleleCount();
+                b = controlStats.getRefAlleleCount();
+                c = caseStats.getAltAlleleCount();
+                d = controlStats.getAltAlleleCount();
+                caseAlleleCount = caseStats.getAlleleCount();
+                controlAlleleCount = controlStats.getAlleleCount();
+                caseAltAlleleFreq = caseStats.getAltAlleleFreq();
+                controlAltAlleleFreq = controlStats.getAltAlleleFreq();
+            }
+
+            if (a + b + c + d == 0) {
+                return null;
+            }
+            double pValue = fisherTest.pValue(a, b, c, d);
+            double oddRatio = LogFactorialFisherTest.oddRatio(a, b, c, d);
+
+            VariantAnnotation variantAnnotation = variant.getAnnotation();
+            String id = null;
+            Set<String> genes = Collections.emptySet();
+            if (variantAnnotation != null) {
+                id = variantAnnotation.getId();
+                genes = new HashSet<>();
+                if (variantAnnotation.getConsequenceTypes() != null) {
+                    for (ConsequenceType consequenceType : variantAnnotation.getConsequenceTypes()) {
+                        if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
+                            genes.add(consequenceType.getGeneName());
+                        }
                     }
                 }
             }
+            if (StringUtils.isEmpty(id)) {
+                id = variant.getId();
+            }
+            if (genes.isEmpty()) {
+                genes = Collections.singleton(".");
+            }
+
+            return tsv(
+                    id,
+                    variant.toString(),
+                    variant.getChromosome(), variant.getStart(),
+                    variant.getReference().isEmpty() ? "-" : variant.getReference(),
+                    variant.getAlternate().isEmpty() ? "-" : variant.getAlternate(),
+                    String.join(",", genes),
+                    a, b, c, d,
+                    caseAlleleCount,
+                    controlAlleleCount,
+                    caseAltAlleleFreq,
+                    controlAltAlleleFreq,
+                    pValue,
+                    oddRatio
+            );
         }
-        if (StringUtils.isEmpty(id)) {
-            id = variant.getId();
+
+        private int[] toSamplesIdx(List<String> samples) {
+            List<String> missingSamples = new ArrayList<>();
+            int[] samplesIdx = new int[samples.size()];
+            int numSamples = 0;
+            for (String sample : samples) {
+                Integer sampleIdx = samplesPosition.get(sample);
+                if (sampleIdx == null) {
+                    missingSamples.add(sample);
+                } else {
+                    samplesIdx[numSamples++] = sampleIdx;
+                }
+            }
+            if (!missingSamples.isEmpty()) {
+                logger.warn("Samples {} not found in the variants. Their genotypes will not be counted", missingSamples);
+            }
+            return Arrays.copyOf(samplesIdx, numSamples);
         }
-        if (genes.isEmpty()) {
-            genes = Collections.singleton(".");
+
+        private void countAlleles(StudyEntry studyEntry, int gtIdx, int[] samplesIdx, int[] alleles) {
+            Arrays.fill(alleles, 0);
+            List<List<String>> samplesData = studyEntry.getSamplesData();
+            for (int sampleIdx : samplesIdx) {
+                int[] gtAlleles = genotypeAlleles.computeIfAbsent(samplesData.get(sampleIdx).get(gtIdx), this::toAlleles);
+                alleles[REF] += gtAlleles[REF];
+                alleles[ALT] += gtAlleles[ALT];
+                alleles[OTHER] += gtAlleles[OTHER];
+            }
         }
 
-        return tsv(
-                id,
-                variant.toString(),
-                variant.getChromosome(), variant.getStart(),
-                variant.getReference().isEmpty() ? "-" : variant.getReference(),
-                variant.getAlternate().isEmpty() ? "-" : variant.getAlternate(),
-                String.join(",", genes),
-                a, b, c, d,
-                caseStats.getAlleleCount(),
-                controlStats.getAlleleCount(),
-                caseStats.getAltAlleleFreq(),
-                controlStats.getAltAlleleFreq(),
-                fisherTestResult.getpValue(),
-                fisherTestResult.getOddRatio()
-        );
+        // Fully missing genotypes have no alleles
+        private int[] toAlleles(String gt) {
+            int[] alleles = new int[3];
+            int[] allelesIdx = new Genotype(gt).getAllelesIdx();
+            int numMissing = 0;
+            for (int allele : allelesIdx) {
+                if (allele == 0) {
+                    alleles[REF]++;
+                } else if (allele == 1) {
+                    alleles[ALT]++;
+                } else if (allele < 0) {
+                    numMissing++;
+                } else {
+                    alleles[OTHER]++;
+                }
+            }
+            if (numMissing == allelesIdx.length) {
+                Arrays.fill(alleles, 0);
+            } else if (numMissing > 0) {
+                // Partially missing
+                alleles[OTHER] += numMissing;
+            }
+            return alleles;
+        }
+
+        private Map<Genotype, Integer> countGenotypes(StudyEntry studyEntry, int gtIdx, int[] samplesIdx) {
+            Map<String, Integer> gtStrCount = new HashMap<>();
+            List<List<String>> samplesData = studyEntry.getSamplesData();
+            for (int sampleIdx : samplesIdx) {
+                gtStrCount.merge(samplesData.get(sampleIdx).get(gtIdx), 1, Integer::sum);
+            }
+            Map<Genotype, Integer> gtCount = new HashMap<>(gtStrCount.size());
+            gtStrCount.forEach((gt, count) -> gtCount.merge(new Genotype(gt), count, Integer::sum));
+            return gtCount;
+        }
     }
 
     private static String tsv(Object... objects) {
@@ -0,0 +1,88 @@
+package org.opencb.opencga.analysis.variant.gwas;
+
+/**
+ * Created on 19/10/20.
+ *
+ * Two-sided Fisher's exact test over 2x2 tables, computed from a table of log-factorials built once.
+ * Equivalent to {@link org.opencb.oskar.analysis.stats.FisherExactTest}, without allocating anything per test.
+ * Immutable, so a single instance can be shared by all the threads.
+ */
+final class LogFactorialFisherTest {
+
+    // Relative error to consider two tables equally probable, as in R's fisher.test
+    private static final double RELATIVE_ERROR = 1 + 1e-7;
+
+    private final double[] logFactorials;
+
+    /**
+     * @param maxN Largest sum of the four values of the tables to test. Larger tables are supported, but slower.
+     */
+    LogFactorialFisherTest(int maxN) {
+        logFactorials = new double[maxN + 1];
+        for (int i = 1; i < logFactorials.length; i++) {
+            logFactorials[i] = logFactorials[i - 1] + Math.log(i);
+        }
+    }
+
+    /**
+     * Two-sided p-value of the table.
+     * <pre>
+     *     a  b
+     *     c  d
+     * </pre>
+     * Sum of the probabilities of all the tables with the same marginal totals that are not more probable than the given one.
+     *
+     * @param a Top left
+     * @param b Top right
+     * @param c Bottom left
+     * @param d Bottom right
+     * @return  p-value
+     */
+    double pValue(int a, int b, int c, int d) {
+        int row1 = a + b;
+        int row2 = c + d;
+        int col1 = a + c;
+        int n = row1 + row2;
+        // Log probability of any table with these marginal totals, without the terms that depend on the top left value
+        double logMarginals = logFactorial(row1) + logFactorial(row2) + logFactorial(col1) + logFactorial(b + d) - logFactorial(n);
+
+        double maxLogP = logHypergeometric(logMarginals, a, row1, row2, col1) + Math.log(RELATIVE_ERROR);
+        double pValue = 0;
+        for (int x = Math.max(0, col1 - row2); x <= Math.min(row1, col1); x++) {
+            double logP = logHypergeometric(logMarginals, x, row1, row2, col1);
+            if (logP <= maxLogP) {
+                pValue += Math.exp(logP);
+            }
+        }
+        return Math.min(1, pValue);
+    }
+
+    /**
+     * Odds ratio of the table, (a * d) / (b * c).
+     *
+     * @param a Top left
+     * @param b Top right
+     * @param c Bottom left
+     * @param d Bottom right
+     * @return  Odds ratio. Infinite or NaN if b or c are 0.
+     */
+    static double oddRatio(int a, int b, int c, int d) {
+        return ((double) a * d) / ((double) b * c);
+    }
+
+    // Log probability of the table with top left value x
+    private double logHypergeometric(double logMarginals, int x, int row1, int row2, int col1) {
+        return logMarginals - logFactorial(x) - logFactorial(row1 - x) - logFactorial(col1 - x) - logFactorial(row2 - col1 + x);
+    }
+
+    private double logFactorial(int n) {
+        if (n < logFactorials.length) {
+            return logFactorials[n];
+        }
+        double logFactorial = logFactorials[logFactorials.length - 1];
+        for (int i = logFactorials.length; i <= n; i++) {
+            logFactorial += Math.log(i);
+        }
+        return logFactorial;
+    }
+}
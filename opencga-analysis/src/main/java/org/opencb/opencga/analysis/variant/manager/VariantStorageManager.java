@@ -509,6 +509,20 @@ public class VariantStorageManager extends StorageManager {
         };
     }
 
+    /**
+     * Get the number of variants returned by the queries of a study when no limit is given.
+     *
+     * @param study Study
+     * @param token User's token
+     * @return Default limit of the variant storage engine of the study
+     * @throws CatalogException      if there is any error accessing the study
+     * @throws StorageEngineException if there is any error building the variant storage engine
+     */
+    public int getDefaultQueryLimit(String study, String token) throws CatalogException, StorageEngineException {
+        VariantStorageEngine storageEngine = getVariantStorageEngine(study, token);
+        return VariantQueryUtils.addDefaultLimit(new QueryOptions(), storageEngine.getOptions()).getInt(QueryOptions.LIMIT);
+    }
+
     public VariantDBIterator iterator(String token) throws CatalogException, StorageEngineException {
         return iterator(null, null, token);
     }
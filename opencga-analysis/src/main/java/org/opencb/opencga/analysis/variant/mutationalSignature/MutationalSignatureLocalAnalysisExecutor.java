@@ -1,11 +1,11 @@
 package org.opencb.opencga.analysis.variant.mutationalSignature;
 
+import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.reference.BlockCompressedIndexedFastaSequenceFile;
 import htsjdk.samtools.reference.FastaSequenceIndex;
 import htsjdk.samtools.reference.ReferenceSequence;
 import htsjdk.samtools.util.GZIIndex;
-import org.apache.commons.io.FileSystemUtils;
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.models.core.GenomeSequenceFeature;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.cellbase.client.config.ClientConfiguration;
@@ -26,13 +26,17 @@ import org.opencb.opencga.core.exceptions.ToolException;
 import org.opencb.opencga.core.exceptions.ToolExecutorException;
 import org.opencb.opencga.core.tools.annotations.ToolExecutor;
 import org.opencb.opencga.core.tools.variant.MutationalSignatureAnalysisExecutor;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
-import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 @ToolExecutor(id="opencga-local", tool = MutationalSignatureAnalysis.ID,
@@ -46,6 +50,11 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
     private File gziFile;
 
     private final static int BATCH_SIZE = 200;
+    // Size of the reference sequence decoded at once, about one BGZF block.
+    // Variants are sorted, so consecutive contexts are read from the same window
+    private final static int WINDOW_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(MutationalSignatureLocalAnalysisExecutor.class);
 
     public final static String R_DOCKER_IMAGE = "opencga-r";
 
@@ -57,7 +66,7 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
 
     @Override
     public void run() throws ToolException {
-        Map<String, Map<String, Double>> countMap = initFreqMap();
+        TrinucleotideContextCounter counter = new TrinucleotideContextCounter();
         try {
             VariantStorageManager storageManager = getVariantStorageManager();
 
@@ -69,21 +78,23 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
                     //.append(VariantQueryParam.FILTER.key(), "PASS")
                     .append(VariantQueryParam.TYPE.key(), "SNV");
 
-            VariantDBIterator iterator = storageManager.iterator(query, new QueryOptions(), getToken());
+            // Only the variant coordinates and alleles are needed. Sorted, so contexts are read in genomic order
+            QueryOptions queryOptions = new QueryOptions(QueryOptions.INCLUDE, VariantField.ID.fieldName())
+                    .append(QueryOptions.SORT, true);
 
             // FIXME to make URLs dependent on assembly (and Ensembl/NCBI ?)
-            fastaFile = ResourceUtils.download(new URL(FASTA_URL), getOutDir());
-            faiFile = ResourceUtils.download(new URL(FAI_URL), getOutDir());
-            gziFile = ResourceUtils.download(new URL(GZI_URL), getOutDir());
+            downloadReferenceGenome();
 
-            if (fastaFile != null && faiFile != null && gziFile != null) {
-                updateCountMapFromFasta(iterator, countMap);
-            } else {
-                updateCountMapFromCellBase(iterator, countMap);
+            try (VariantDBIterator iterator = storageManager.iterator(query, queryOptions, getToken())) {
+                if (fastaFile != null && faiFile != null && gziFile != null) {
+                    updateCountsFromFasta(iterator, counter);
+                } else {
+                    updateCountsFromCellBase(iterator, counter);
+                }
             }
 
             // Write context
-            writeCountMap(countMap, getOutDir().resolve("context.txt").toFile());
+            writeCountMap(counter.fillCountMap(initFreqMap()), getOutDir().resolve("context.txt").toFile());
 
             // To compare, download signatures probabilities at
             File signatureFile = ResourceUtils.download(new URL(SIGNATURES_URL), getOutDir());
@@ -113,21 +124,71 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
         }
     }
 
-    private void updateCountMapFromFasta(VariantDBIterator iterator, Map<String, Map<String, Double>> countMap) throws IOException {
-        BlockCompressedIndexedFastaSequenceFile indexed = new BlockCompressedIndexedFastaSequenceFile(fastaFile.toPath(),
-                new FastaSequenceIndex(faiFile), GZIIndex.loadIndex(gziFile.toPath()));
+    /**
+     * Download the reference genome into the shared resources folder of the installation, so it is downloaded and indexed only
+     * once and reused by all the executions. Fallback to the output folder if the shared folder is not available.
+     */
+    private void downloadReferenceGenome() {
+        String opencgaHome = executorParams.getString("opencgaHome");
+        if (StringUtils.isNotEmpty(opencgaHome)) {
+            Path referenceGenomeDir = Paths.get(opencgaHome, "analysis", "resources", "reference-genomes");
+            try {
+                fastaFile = ResourceUtils.downloadIfMissing(new URL(FASTA_URL), referenceGenomeDir);
+                faiFile = ResourceUtils.downloadIfMissing(new URL(FAI_URL), referenceGenomeDir);
+                gziFile = ResourceUtils.downloadIfMissing(new URL(GZI_URL), referenceGenomeDir);
+                return;
+            } catch (IOException e) {
+                logger.warn("Unable to use reference genome from " + referenceGenomeDir + ": " + e.getMessage());
+            }
+        }
+        try {
+            fastaFile = ResourceUtils.download(new URL(FASTA_URL), getOutDir());
+            faiFile = ResourceUtils.download(new URL(FAI_URL), getOutDir());
+            gziFile = ResourceUtils.download(new URL(GZI_URL), getOutDir());
+        } catch (IOException e) {
+            logger.warn("Unable to download reference genome. Using CellBase: " + e.getMessage());
+            fastaFile = null;
+        }
+    }
 
-        while (iterator.hasNext()) {
-            Variant variant = iterator.next();
-            String key = variant.getReference() + ">" + variant.getAlternate();
-            if (countMap.containsKey(key)) {
+    private void updateCountsFromFasta(VariantDBIterator iterator, TrinucleotideContextCounter counter) throws IOException {
+        try (BlockCompressedIndexedFastaSequenceFile indexed = new BlockCompressedIndexedFastaSequenceFile(fastaFile.toPath(),
+                new FastaSequenceIndex(faiFile), GZIIndex.loadIndex(gziFile.toPath()))) {
+            String chromosome = null;
+            long chromosomeLength = 0;
+            // Decoded window of the reference sequence, starting at the 1-based position windowStart
+            byte[] window = new byte[0];
+            long windowStart = 0;
+
+            while (iterator.hasNext()) {
+                Variant variant = iterator.next();
+                int substitution = TrinucleotideContextCounter.substitutionIndex(variant.getReference(), variant.getAlternate());
+                if (substitution < 0) {
+                    continue;
+                }
                 try {
-                    ReferenceSequence refSeq = indexed.getSubsequenceAt(variant.getChromosome(), variant.getStart() - 1, variant.getEnd() + 1);
-                    String sequence = new String(refSeq.getBases());
-
-                    if (countMap.get(key).containsKey(sequence)) {
-                        countMap.get(key).put(sequence, countMap.get(key).get(sequence) + 1);
+                    if (!variant.getChromosome().equals(chromosome)) {
+                        SAMSequenceRecord sequence = indexed.getSequenceDictionary().getSequence(variant.getChromosome());
+                        if (sequence == null) {
+                            throw new IllegalArgumentException("Unknown chromosome");
+                        }
+                        chromosome = variant.getChromosome();
+                        chromosomeLength = sequence.getSequenceLength();
+                        window = new byte[0];
+                        windowStart = 0;
+                    }
+                    long contextStart = variant.getStart() - 1;
+                    long contextEnd = variant.getStart() + 1;
+                    if (contextStart < 1 || contextEnd > chromosomeLength) {
+                        throw new IllegalArgumentException("Context out of chromosome bounds");
+                    }
+                    if (contextStart < windowStart || contextEnd >= windowStart + window.length) {
+                        windowStart = contextStart;
+                        ReferenceSequence refSeq = indexed.getSubsequenceAt(chromosome, windowStart,
+                                Math.min(windowStart + WINDOW_SIZE - 1, chromosomeLength));
+                        window = refSeq.getBases();
                     }
+                    counter.add(substitution, window, (int) (contextStart - windowStart));
                 } catch (Exception e) {
                     System.out.println("Error getting context sequence for variant " + variant.toStringSimple() + ": " + e.getMessage());
                 }
@@ -135,8 +196,8 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
         }
     }
 
-    private void updateCountMapFromCellBase(VariantDBIterator iterator, Map<String, Map<String, Double>> countMap) throws IOException {
-        Map<String, String> regionAlleleMap = new HashMap<>();
+    private void updateCountsFromCellBase(VariantDBIterator iterator, TrinucleotideContextCounter counter) throws IOException {
+        Map<String, Integer> regionAlleleMap = new HashMap<>();
 
         // FIXME: use cellbase utils from storage manager
 //            regionClient = storageManager.getCellBaseUtils(getStudy(), getToken()).getCellBaseClient().getGenomicRegionClient();
@@ -149,24 +210,22 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
         regionClient = cellBaseClient.getGenomicRegionClient();
         while (iterator.hasNext()) {
             Variant variant = iterator.next();
-            variant.toStringSimple();
-            String key = variant.getReference() + ">" + variant.getAlternate();
-            if (countMap.containsKey(key)) {
+            int substitution = TrinucleotideContextCounter.substitutionIndex(variant.getReference(), variant.getAlternate());
+            if (substitution >= 0) {
                 String region = variant.getChromosome() + ":" + (variant.getStart() - 1) + "-" + (variant.getEnd() + 1);
-                regionAlleleMap.put(region, key);
+                regionAlleleMap.put(region, substitution);
                 if (regionAlleleMap.size() >= BATCH_SIZE) {
-                    updateCounterMap(regionAlleleMap, countMap);
+                    updateCounter(regionAlleleMap, counter);
                     regionAlleleMap.clear();
                 }
             }
         }
         if (regionAlleleMap.size() > 0) {
-            updateCounterMap(regionAlleleMap, countMap);
+            updateCounter(regionAlleleMap, counter);
         }
     }
 
-    private void updateCounterMap(Map<String, String> regionAlleleMap, Map<String, Map<String, Double>> countMap) throws IOException {
-        String key;
+    private void updateCounter(Map<String, Integer> regionAlleleMap, TrinucleotideContextCounter counter) throws IOException {
         QueryResponse<GenomeSequenceFeature> response = regionClient.getSequence(new ArrayList(regionAlleleMap.keySet()),
                 QueryOptions.empty());
         List<QueryResult<GenomeSequenceFeature>> seqFeatures = response.getResponse();
@@ -176,11 +235,9 @@ public class MutationalSignatureLocalAnalysisExecutor extends MutationalSignatur
                 String sequence = feature.getSequence();
                 if (sequence.length() == 3) {
                     // Remember that GenomeSequenceFeature ID is equal to region
-                    key = regionAlleleMap.get(seqFeature.getId());
-                    if (countMap.get(key).containsKey(sequence)) {
-                        countMap.get(key).put(sequence, countMap.get(key).get(sequence) + 1);
-                    } else {
-                        System.err.println("Error, key not found " + sequence + " for " + key);
+                    int substitution = regionAlleleMap.get(seqFeature.getId());
+                    if (!counter.add(substitution, sequence.getBytes(), 0)) {
+                        System.err.println("Error, unexpected context " + sequence + " for " + seqFeature.getId());
                     }
                 } else {
                     System.err.println("Error query for " + feature.getSequenceName() + ":" + feature.getStart() + "-"
@@ -0,0 +1,97 @@
+package org.opencb.opencga.analysis.variant.mutationalSignature;
+
+import java.util.Map;
+
+/**
+ * Created on 19/10/20.
+ *
+ * Counts the 96 trinucleotide contexts of the pyrimidine substitutions (C&gt;A, C&gt;G, C&gt;T, T&gt;A, T&gt;C, T&gt;G) in a flat array.
+ * Contexts are indexed in the same order as the count map of the MutationalSignatureAnalysisExecutor:
+ * substitution, then 5' base, then 3' base, with bases sorted as A, C, G, T.
+ */
+class TrinucleotideContextCounter {
+
+    static final int NUM_CONTEXTS = 96;
+
+    private final double[] counts = new double[NUM_CONTEXTS];
+
+    /**
+     * Get the index of the substitution, or -1 if it is not one of the six counted substitutions.
+     *
+     * @param reference Reference allele
+     * @param alternate Alternate allele
+     * @return Substitution index, from 0 to 5
+     */
+    static int substitutionIndex(String reference, String alternate) {
+        if (reference.length() != 1 || alternate.length() != 1) {
+            return -1;
+        }
+        char ref = reference.charAt(0);
+        int alt = baseIndex((byte) alternate.charAt(0));
+        if (ref == 'C') {
+            // C>A, C>G, C>T
+            return alt == 0 ? 0 : alt == 2 ? 1 : alt == 3 ? 2 : -1;
+        } else if (ref == 'T') {
+            // T>A, T>C, T>G
+            return alt == 0 ? 3 : alt == 1 ? 4 : alt == 2 ? 5 : -1;
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Count one substitution given its trinucleotide context, read from the reference genome.
+     * Contexts with unknown bases, or whose middle base does not match the reference allele, are discarded.
+     *
+     * @param substitution Substitution index, from {@link #substitutionIndex}
+     * @param context      Reference sequence
+     * @param offset       Position of the 5' base in the context array
+     * @return If the context was counted
+     */
+    boolean add(int substitution, byte[] context, int offset) {
+        int expectedRef = substitution < 3 ? 1 : 3;
+        int before = baseIndex(context[offset]);
+        int ref = baseIndex(context[offset + 1]);
+        int after = baseIndex(context[offset + 2]);
+        if (before < 0 || after < 0 || ref != expectedRef) {
+            return false;
+        }
+        counts[substitution * 16 + before * 4 + after]++;
+        return true;
+    }
+
+    double[] getCounts() {
+        return counts;
+    }
+
+    /**
+     * Copy the counts into a count map, iterated in context order.
+     *
+     * @param countMap Count map, as created by MutationalSignatureAnalysisExecutor#initFreqMap
+     * @return The same count map
+     */
+    Map<String, Map<String, Double>> fillCountMap(Map<String, Map<String, Double>> countMap) {
+        int i = 0;
+        for (Map<String, Double> contextMap : countMap.values()) {
+            for (Map.Entry<String, Double> entry : contextMap.entrySet()) {
+                entry.setValue(entry.getValue() + counts[i++]);
+            }
+        }
+        return countMap;
+    }
+
+    private static int baseIndex(byte base) {
+        switch (base) {
+            case 'A':
+                return 0;
+            case 'C':
+                return 1;
+            case 'G':
+                return 2;
+            case 'T':
+                return 3;
+            default:
+                return -1;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.opencb.opencga.analysis.variant.stats;
+
+import org.opencb.biodata.models.clinical.pedigree.Pedigree;
+import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
+import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
+import org.opencb.biodata.tools.variant.stats.SampleVariantStatsCalculator;
+
+import java.util.List;
+
+/**
+ * Created on 19/10/20.
+ *
+ * SampleVariantStatsCalculator that can be merged with other calculators of the same samples, so the variants can be
+ * processed by multiple threads, each one with its own instance, and reduced at the end.
+ *
+ * The partial calculators must not be post-processed. Only the calculator with the merged counts must call to {@link #post()}.
+ */
+public class MergeableSampleVariantStatsCalculator extends SampleVariantStatsCalculator {
+
+    public MergeableSampleVariantStatsCalculator(VariantStudyMetadata studyMetadata) {
+        super(studyMetadata);
+    }
+
+    public MergeableSampleVariantStatsCalculator(Pedigree pedigree, List<String> samples) {
+        super(pedigree, samples);
+    }
+
+    /**
+     * Accumulate the partial counts of other calculator, built from the same study metadata.
+     *
+     * @param other Partial calculator
+     * @return this
+     */
+    public MergeableSampleVariantStatsCalculator merge(MergeableSampleVariantStatsCalculator other) {
+        List<SampleVariantStats> otherStatsList = other.statsList;
+        if (otherStatsList.size() != statsList.size()) {
+            throw new IllegalArgumentException("Unable to merge stats from " + otherStatsList.size() + " samples into "
+                    + statsList.size() + " samples");
+        }
+        for (int i = 0; i < statsList.size(); i++) {
+            SampleVariantStatsCalculator.merge(statsList.get(i), otherStatsList.get(i));
+            ti[i] += other.ti[i];
+            tv[i] += other.tv[i];
+            qualCount[i] += other.qualCount[i];
+            qualSum[i] += other.qualSum[i];
+            qualSumSq[i] += other.qualSumSq[i];
+        }
+        return this;
+    }
+}
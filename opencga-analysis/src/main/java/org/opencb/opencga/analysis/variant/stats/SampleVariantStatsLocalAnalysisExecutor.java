@@ -3,7 +3,7 @@ package org.opencb.opencga.analysis.variant.stats;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
-import org.opencb.biodata.tools.variant.stats.SampleVariantStatsCalculator;
+import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.Query;
@@ -19,7 +19,9 @@ import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
 import org.opencb.opencga.core.exceptions.ToolException;
 import org.opencb.opencga.core.exceptions.ToolExecutorException;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @ToolExecutor(id="opencga-local", tool = SampleVariantStatsAnalysis.ID,
         framework = ToolExecutor.Framework.LOCAL,
@@ -40,24 +42,43 @@ public class SampleVariantStatsLocalAnalysisExecutor extends SampleVariantStatsA
         List<SampleVariantStats> stats;
         try {
             DataResult<VariantMetadata> metadata = variantStorageManager.getMetadata(query, new QueryOptions(), getToken());
-            SampleVariantStatsCalculator calculator = new SampleVariantStatsCalculator(metadata.first().getStudies().get(0));
+            VariantStudyMetadata studyMetadata = metadata.first().getStudies().get(0);
 
             ProgressLogger progressLogger = new ProgressLogger("Variants processed:");
             VariantDBIterator iterator = variantStorageManager.iterator(query, new QueryOptions(), getToken());
 
-            ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder().setNumTasks(1).setBatchSize(10).build();
+            int numTasks = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+            ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder().setNumTasks(numTasks).setBatchSize(100).build();
 
+            // Each task accumulates into its own calculator. Partial counts are merged once all the variants are processed.
+            // The calculators are not used directly as tasks, as the runner would post-process each partial result.
+            List<MergeableSampleVariantStatsCalculator> calculators = new ArrayList<>(numTasks);
+            for (int i = 0; i < numTasks; i++) {
+                MergeableSampleVariantStatsCalculator calculator = new MergeableSampleVariantStatsCalculator(studyMetadata);
+                calculator.pre();
+                calculators.add(calculator);
+            }
+            AtomicInteger nextCalculator = new AtomicInteger();
             ParallelTaskRunner<Variant, Variant> ptr = new ParallelTaskRunner<>(
                     new VariantDBReader(iterator),
-                    calculator.then((List<Variant> b) -> {
-                        progressLogger.increment(b.size());
-                        return b;
-                    }),
+                    () -> {
+                        MergeableSampleVariantStatsCalculator calculator = calculators.get(nextCalculator.getAndIncrement());
+                        return (List<Variant> b) -> {
+                            calculator.apply(b);
+                            progressLogger.increment(b.size());
+                            return b;
+                        };
+                    },
                     null,
                     config);
 
             ptr.run();
 
+            MergeableSampleVariantStatsCalculator calculator = calculators.get(0);
+            for (MergeableSampleVariantStatsCalculator partial : calculators.subList(1, calculators.size())) {
+                calculator.merge(partial);
+            }
+            calculator.post();
             stats = calculator.getSampleVariantStats();
         } catch (Exception e) {
             throw new ToolExecutorException(e);
@@ -0,0 +1,103 @@
+package org.opencb.opencga.analysis.clinical;
+
+import org.junit.Test;
+import org.opencb.biodata.models.alignment.RegionCoverage;
+import org.opencb.biodata.models.core.Exon;
+import org.opencb.biodata.models.core.Region;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created on 19/10/20.
+ */
+public class ClinicalInterpretationManagerTest {
+
+    @Test
+    public void testMergeExonRegions() {
+        List<Exon> exons = Arrays.asList(
+                newExon("e1", "2", 500, 600),
+                newExon("e2", "1", 300, 400),
+                newExon("e3", "1", 100, 200),
+                newExon("e4", "1", 150, 250),   // Overlaps e3
+                newExon("e5", "1", 100, 200),   // Same as e3, from other transcript
+                newExon("e6", "1", 251, 260),   // Adjacent to e4
+                newExon("e7", "1", 1000, 1100),
+                newExon("e8", "2", 550, 560));  // Contained in e1
+
+        assertEquals(Arrays.asList(
+                new Region("1", 100, 260),
+                new Region("1", 300, 400),
+                new Region("1", 1000, 1100),
+                new Region("2", 500, 600)), ClinicalInterpretationManager.mergeExonRegions(exons));
+
+        assertEquals(Collections.emptyList(), ClinicalInterpretationManager.mergeExonRegions(Collections.emptyList()));
+    }
+
+    @Test
+    public void testGetExonCoverage() {
+        List<RegionCoverage> mergedCoverages = Arrays.asList(
+                newCoverage("1", 100, 109, 0),
+                newCoverage("1", 200, 204, 100));
+
+        RegionCoverage coverage = ClinicalInterpretationManager.getExonCoverage(newExon("e1", "1", 103, 106), mergedCoverages);
+        assertEquals("1", coverage.getChromosome());
+        assertEquals(103, coverage.getStart());
+        assertEquals(106, coverage.getEnd());
+        assertEquals(1, coverage.getWindowSize());
+        assertArrayEquals(new float[]{3, 4, 5, 6}, coverage.getValues(), 0);
+
+        // Whole merged region
+        coverage = ClinicalInterpretationManager.getExonCoverage(newExon("e2", "1", 200, 204), mergedCoverages);
+        assertArrayEquals(new float[]{100, 101, 102, 103, 104}, coverage.getValues(), 0);
+
+        // Single position at the end of the merged region
+        coverage = ClinicalInterpretationManager.getExonCoverage(newExon("e3", "1", 109, 109), mergedCoverages);
+        assertArrayEquals(new float[]{9}, coverage.getValues(), 0);
+
+        // Not fully contained in any merged region
+        assertNull(ClinicalInterpretationManager.getExonCoverage(newExon("e4", "1", 105, 115), mergedCoverages));
+        assertNull(ClinicalInterpretationManager.getExonCoverage(newExon("e5", "1", 300, 310), mergedCoverages));
+        assertNull(ClinicalInterpretationManager.getExonCoverage(newExon("e6", "1", 100, 110), null));
+    }
+
+    @Test
+    public void testGetExonCoverageTruncatedValues() {
+        // The coverage of the merged region may have less values than positions
+        RegionCoverage mergedCoverage = newCoverage("1", 100, 109, 0);
+        mergedCoverage.setValues(Arrays.copyOf(mergedCoverage.getValues(), 5));
+        List<RegionCoverage> mergedCoverages = Collections.singletonList(mergedCoverage);
+
+        assertArrayEquals(new float[]{3, 4}, ClinicalInterpretationManager.getExonCoverage(newExon("e1", "1", 103, 106),
+                mergedCoverages).getValues(), 0);
+        assertArrayEquals(new float[0], ClinicalInterpretationManager.getExonCoverage(newExon("e2", "1", 107, 109),
+                mergedCoverages).getValues(), 0);
+    }
+
+    private static Exon newExon(String id, String chromosome, int start, int end) {
+        Exon exon = new Exon();
+        exon.setId(id);
+        exon.setChromosome(chromosome);
+        exon.setStart(start);
+        exon.setEnd(end);
+        return exon;
+    }
+
+    // Coverage with window size 1, with consecutive values starting at firstValue
+    private static RegionCoverage newCoverage(String chromosome, int start, int end, int firstValue) {
+        float[] values = new float[end - start + 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = firstValue + i;
+        }
+        RegionCoverage coverage = new RegionCoverage();
+        coverage.setChromosome(chromosome);
+        coverage.setStart(start);
+        coverage.setEnd(end);
+        coverage.setWindowSize(1);
+        coverage.setValues(values);
+        return coverage;
+    }
+}
@@ -0,0 +1,83 @@
+package org.opencb.opencga.analysis.clinical.interpretation;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.opencb.biodata.models.clinical.interpretation.ClinicalProperty;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.analysis.clinical.ClinicalAnalysisUtilsTest;
+import org.opencb.opencga.analysis.variant.OpenCGATestExternalResource;
+import org.opencb.opencga.catalog.managers.AbstractClinicalManagerTest;
+import org.opencb.opencga.catalog.managers.CatalogManagerExternalResource;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class TieringInterpretationAnalysisExecutorTest extends VariantStorageBaseTest implements MongoDBVariantStorageTest {
+
+    private AbstractClinicalManagerTest clinicalTest;
+
+    @ClassRule
+    public static OpenCGATestExternalResource opencga = new OpenCGATestExternalResource();
+
+    @Rule
+    public CatalogManagerExternalResource catalogManagerResource = new CatalogManagerExternalResource();
+
+    @Before
+    public void setUp() throws Exception {
+        clearDB("opencga_test_user_1000G");
+        clinicalTest = ClinicalAnalysisUtilsTest.getClinicalTest(catalogManagerResource, getVariantStorageEngine());
+    }
+
+    @Test
+    public void testSinglePassQuery() throws Exception {
+        for (ClinicalProperty.Penetrance penetrance : ClinicalProperty.Penetrance.values()) {
+            // One query per mode of inheritance, as before the single pass
+            Map<ClinicalProperty.ModeOfInheritance, List<Variant>> expected = newExecutor(penetrance)
+                    .queryGenotypeModesOfInheritance(false);
+            Map<ClinicalProperty.ModeOfInheritance, List<Variant>> actual = newExecutor(penetrance)
+                    .queryGenotypeModesOfInheritance(true);
+
+            assertEquals(penetrance.name(), expected.keySet(), actual.keySet());
+            for (ClinicalProperty.ModeOfInheritance moi : expected.keySet()) {
+                assertEquals(penetrance + " " + moi, toSampleData(expected.get(moi)), toSampleData(actual.get(moi)));
+            }
+        }
+    }
+
+    private TieringInterpretationAnalysisExecutor newExecutor(ClinicalProperty.Penetrance penetrance) throws Exception {
+        TieringInterpretationAnalysisExecutor executor = new TieringInterpretationAnalysisExecutor();
+        ObjectMap executorParams = new ObjectMap()
+                .append("opencgaHome", catalogManagerResource.getOpencgaHome().toString())
+                .append("token", clinicalTest.token);
+        executor.setUp(null, executorParams, Paths.get(opencga.createTmpOutdir("_tiering_executor")));
+        executor.setStudyId(clinicalTest.studyFqn)
+                .setClinicalAnalysisId(clinicalTest.clinicalAnalysis.getId())
+                .setPenetrance(penetrance)
+                .setConfig(new TieringInterpretationConfiguration());
+        return executor;
+    }
+
+    // Variant id and the data of each sample, keeping the order of the variants and the samples
+    private List<String> toSampleData(List<Variant> variants) {
+        List<String> list = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            Map<String, List<String>> samplesData = new LinkedHashMap<>();
+            for (StudyEntry studyEntry : variant.getStudies()) {
+                List<String> samples = studyEntry.getOrderedSamplesName();
+                for (int i = 0; i < samples.size(); i++) {
+                    samplesData.put(samples.get(i), studyEntry.getSampleData(i));
+                }
+            }
+            list.add(variant + " " + samplesData);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,148 @@
+package org.opencb.opencga.analysis.clinical.interpretation;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.PopulationFrequency;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.opencb.biodata.models.clinical.interpretation.ClinicalProperty.ModeOfInheritance.*;
+
+public class TieringModeOfInheritanceFilterTest {
+
+    private final Query recessiveQuery = new Query()
+            .append(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "1kG_phase3:AFR<0.01;GNOMAD_EXOMES:AFR<0.01")
+            .append(VariantQueryParam.STATS_MAF.key(), "ALL<0.01");
+    private final Query dominantQuery = new Query()
+            .append(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "1kG_phase3:AFR<0.002;GNOMAD_EXOMES:AFR<0.001")
+            .append(VariantQueryParam.STATS_MAF.key(), "ALL<0.001");
+
+    @Test
+    public void testGenotypes() {
+        Map<String, List<String>> genotypes = new LinkedHashMap<>();
+        genotypes.put("proband", Arrays.asList("0/1", "1/1"));
+        genotypes.put("father", Arrays.asList("0/0"));
+        genotypes.put("mother", Collections.emptyList());
+        TieringModeOfInheritanceFilter filter = new TieringModeOfInheritanceFilter(BIALLELIC, recessiveQuery, recessiveQuery, genotypes);
+
+        assertTrue(filter.test(variant("1:1000:A:C", "0/1", "0/0", "1/1")));
+        assertTrue(filter.test(variant("1:1000:A:C", "1|0", "0/0", "0/0")));
+        // Secondary alternates do not match the main alternate
+        assertFalse(filter.test(variant("1:1000:A:C", "0/3", "0/0", "0/0")));
+        // Samples without data are considered reference
+        assertTrue(filter.test(variant("1:1000:A:C", "1/1", "?/?", "0/0")));
+        assertFalse(filter.test(variant("1:1000:A:C", "0/0", "0/0", "0/1")));
+        assertFalse(filter.test(variant("1:1000:A:C", "0/1", "./.", "0/1")));
+        assertFalse(filter.test(variant("1:1000:A:C", "1/1", "0/1", "0/1")));
+    }
+
+    @Test
+    public void testChromosome() {
+        Map<String, List<String>> genotypes = Collections.singletonMap("proband", Arrays.asList("1", "1/1"));
+        Query query = new Query(recessiveQuery).append(VariantQueryParam.REGION.key(), "X");
+        TieringModeOfInheritanceFilter filter = new TieringModeOfInheritanceFilter(XLINKED_BIALLELIC, query, recessiveQuery, genotypes);
+
+        assertTrue(filter.test(variant("X:1000:A:C", "1/1", "0/0", "0/0")));
+        assertTrue(filter.test(variant("chrX:1000:A:C", "1", "0/0", "0/0")));
+        assertFalse(filter.test(variant("1:1000:A:C", "1/1", "0/0", "0/0")));
+    }
+
+    @Test
+    public void testFrequencies() {
+        Map<String, List<String>> genotypes = Collections.singletonMap("proband", Arrays.asList("0/1", "1/1"));
+        TieringModeOfInheritanceFilter filter = new TieringModeOfInheritanceFilter(MONOALLELIC, dominantQuery, recessiveQuery, genotypes);
+
+        Variant variant = variant("1:1000:A:C", "0/1", "0/0", "0/0");
+        // Missing stats
+        assertFalse(filter.test(variant));
+
+        setMaf(variant, 0.0005f);
+        // Missing population frequencies
+        assertTrue(filter.test(variant));
+
+        setPopulationFrequency(variant, "1kG_phase3", "AFR", 0.001f);
+        assertTrue(filter.test(variant));
+        setPopulationFrequency(variant, "GNOMAD_EXOMES", "AFR", 0.005f);
+        assertFalse(filter.test(variant));
+
+        variant = variant("1:1000:A:C", "0/1", "0/0", "0/0");
+        setMaf(variant, 0.005f);
+        assertFalse(filter.test(variant));
+
+        // Frequency filters already applied by the base query are not evaluated again
+        filter = new TieringModeOfInheritanceFilter(BIALLELIC, recessiveQuery, recessiveQuery, genotypes);
+        assertTrue(filter.test(variant("1:1000:A:C", "0/1", "0/0", "0/0")));
+    }
+
+    @Test
+    public void testBuildGenotypeFilterUnion() {
+        Map<String, List<String>> dominant = new LinkedHashMap<>();
+        dominant.put("proband", Arrays.asList("0/1", "1/1"));
+        dominant.put("father", Arrays.asList("0/0"));
+        Map<String, List<String>> recessive = new LinkedHashMap<>();
+        recessive.put("proband", Arrays.asList("1/1"));
+        recessive.put("mother", Arrays.asList("0/1"));
+
+        String filter = TieringModeOfInheritanceFilter.buildGenotypeFilterUnion(Arrays.asList(
+                new TieringModeOfInheritanceFilter(MONOALLELIC, dominantQuery, recessiveQuery, dominant),
+                new TieringModeOfInheritanceFilter(BIALLELIC, recessiveQuery, recessiveQuery, recessive)));
+        assertEquals("proband:0/1,1/1", filter);
+    }
+
+    @Test
+    public void testSelectSamples() {
+        Map<String, List<String>> genotypes = new LinkedHashMap<>();
+        genotypes.put("mother", Arrays.asList("0/1"));
+        genotypes.put("proband", Arrays.asList("1/1"));
+        genotypes.put("father", Collections.emptyList());
+        TieringModeOfInheritanceFilter filter = new TieringModeOfInheritanceFilter(BIALLELIC, recessiveQuery, recessiveQuery, genotypes);
+
+        Variant variant = variant("1:1000:A:C", "1/1", "0/0", "0/1");
+        Variant copy = filter.selectSamples(variant);
+        assertEquals(variant.toString(), copy.toString());
+        assertEquals(Arrays.asList("mother", "proband"), copy.getStudies().get(0).getOrderedSamplesName());
+        assertEquals("0/1", copy.getStudies().get(0).getSampleData("mother", "GT"));
+        assertEquals("1/1", copy.getStudies().get(0).getSampleData("proband", "GT"));
+
+        // The original variant is not modified
+        copy.getStudies().get(0).getSamplesData().get(0).set(0, "./.");
+        assertEquals(Arrays.asList("proband", "father", "mother"), variant.getStudies().get(0).getOrderedSamplesName());
+        assertEquals("0/1", variant.getStudies().get(0).getSampleData("mother", "GT"));
+
+        // Filters without genotypes keep all the samples
+        filter = new TieringModeOfInheritanceFilter(BIALLELIC, recessiveQuery, recessiveQuery, Collections.emptyMap());
+        assertSame(variant, filter.selectSamples(variant));
+    }
+
+    private Variant variant(String id, String probandGt, String fatherGt, String motherGt) {
+        Variant variant = new Variant(id);
+        StudyEntry studyEntry = new StudyEntry("study", Collections.emptyList(), Collections.singletonList("GT"))
+                .addSampleData("proband", Collections.singletonList(probandGt))
+                .addSampleData("father", Collections.singletonList(fatherGt))
+                .addSampleData("mother", Collections.singletonList(motherGt));
+        variant.setStudies(Collections.singletonList(studyEntry));
+        variant.setAnnotation(new VariantAnnotation());
+        variant.getAnnotation().setPopulationFrequencies(new ArrayList<>());
+        return variant;
+    }
+
+    private void setMaf(Variant variant, float maf) {
+        VariantStats stats = new VariantStats();
+        stats.setMaf(maf);
+        variant.getStudies().get(0).setStats("ALL", stats);
+    }
+
+    private void setPopulationFrequency(Variant variant, String study, String population, float altAlleleFreq) {
+        PopulationFrequency populationFrequency = new PopulationFrequency();
+        populationFrequency.setStudy(study);
+        populationFrequency.setPopulation(population);
+        populationFrequency.setAltAlleleFreq(altAlleleFreq);
+        variant.getAnnotation().getPopulationFrequencies().add(populationFrequency);
+    }
+}
@@ -0,0 +1,238 @@
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantBuilder;
+import org.opencb.biodata.models.variant.avro.ConsequenceType;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
+import org.opencb.oskar.analysis.stats.FisherExactTest;
+import org.opencb.oskar.analysis.stats.FisherTestResult;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GwasLocalAnalysisExecutorTest {
+
+    private static final String[] GENOTYPES = {"0/0", "0/0", "0/0", "0/1", "0/1", "1/1", "./.", "0|1", "1|0", "1|1", "0", "1"};
+    // Genotypes counted with the VariantStats
+    private static final String[] OTHER_GENOTYPES = {"0/2", "1/2", "0/.", "./1"};
+
+    private List<String> caseSamples;
+    private List<String> controlSamples;
+    private List<String> allSamples;
+    private GwasLocalAnalysisExecutor executor;
+
+    @Before
+    public void setUp() throws Exception {
+        caseSamples = new ArrayList<>();
+        controlSamples = new ArrayList<>();
+        allSamples = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            String sample = "S" + i;
+            allSamples.add(sample);
+            if (i < 10) {
+                caseSamples.add(sample);
+            } else if (i < 20) {
+                controlSamples.add(sample);
+            }
+        }
+        // Samples of the variants are not in the same order as the sample lists
+        Collections.shuffle(allSamples, new Random(1));
+        executor = newExecutor(caseSamples, controlSamples);
+    }
+
+    @Test
+    public void testSameResultAsVariantStats() throws Exception {
+        Random random = new Random(2);
+        GwasLocalAnalysisExecutor.FisherTestTask task = executor.new FisherTestTask();
+        int numResults = 0;
+        for (int i = 0; i < 1000; i++) {
+            Variant variant = newVariant(1000 + i, random);
+            String expected = computeFisherTestWithVariantStats(variant, caseSamples, controlSamples);
+            assertSameResult(variant.toString(), expected, task.computeFisherTest(variant));
+            if (expected != null) {
+                numResults++;
+            }
+        }
+        assertTrue(numResults > 0);
+    }
+
+    @Test
+    public void testSameResultAsVariantStatsOtherGenotypes() throws Exception {
+        Random random = new Random(4);
+        GwasLocalAnalysisExecutor.FisherTestTask task = executor.new FisherTestTask();
+        for (int i = 0; i < 200; i++) {
+            Variant variant = newVariant(1000 + i, random);
+            // Replace a few genotypes
+            for (List<String> sampleData : variant.getStudies().get(0).getSamplesData()) {
+                if (random.nextInt(10) == 0) {
+                    sampleData.set(0, OTHER_GENOTYPES[random.nextInt(OTHER_GENOTYPES.length)]);
+                }
+            }
+            String expected = computeFisherTestWithVariantStats(variant, caseSamples, controlSamples);
+            assertSameResult(variant.toString(), expected, task.computeFisherTest(variant));
+        }
+    }
+
+    @Test
+    public void testAllGenotypesMissing() throws Exception {
+        VariantBuilder builder = Variant.newBuilder("1:1000:A:C").setStudyId("1").setFormat("GT");
+        for (String sample : allSamples) {
+            builder.addSample(sample, "./.");
+        }
+        assertNull(executor.new FisherTestTask().computeFisherTest(builder.build()));
+    }
+
+    @Test
+    public void testMissingSamples() throws Exception {
+        List<String> caseSamplesWithMissing = new ArrayList<>(caseSamples);
+        caseSamplesWithMissing.add("UNKNOWN_1");
+        List<String> controlSamplesWithMissing = new ArrayList<>(controlSamples);
+        controlSamplesWithMissing.add(0, "UNKNOWN_2");
+
+        Random random = new Random(3);
+        GwasLocalAnalysisExecutor.FisherTestTask task = executor.new FisherTestTask();
+        GwasLocalAnalysisExecutor.FisherTestTask taskWithMissing
+                = newExecutor(caseSamplesWithMissing, controlSamplesWithMissing).new FisherTestTask();
+        for (int i = 0; i < 100; i++) {
+            Variant variant = newVariant(1000 + i, random);
+            assertEquals(variant.toString(), task.computeFisherTest(variant), taskWithMissing.computeFisherTest(variant));
+        }
+    }
+
+    @Test
+    public void testMissingGenotypes() throws Exception {
+        VariantBuilder builder = Variant.newBuilder("1:1000:A:C").setStudyId("1").setFormat("DP");
+        for (String sample : allSamples) {
+            builder.addSample(sample, "10");
+        }
+        assertNull(executor.new FisherTestTask().computeFisherTest(builder.build()));
+    }
+
+    // Same TSV line, with the p-value computed by a different implementation
+    private static void assertSameResult(String message, String expected, String actual) {
+        if (expected == null) {
+            assertNull(message, actual);
+            return;
+        }
+        String[] expectedFields = expected.split("\t");
+        String[] actualFields = actual.split("\t");
+        int pValueIdx = expectedFields.length - 2;
+        assertEquals(message, expectedFields.length, actualFields.length);
+        for (int i = 0; i < expectedFields.length; i++) {
+            if (i == pValueIdx) {
+                assertEquals(message, Double.parseDouble(expectedFields[i]), Double.parseDouble(actualFields[i]),
+                        1e-9 * Double.parseDouble(expectedFields[i]));
+            } else {
+                assertEquals(message, expectedFields[i], actualFields[i]);
+            }
+        }
+    }
+
+    private GwasLocalAnalysisExecutor newExecutor(List<String> caseSamples, List<String> controlSamples) {
+        GwasLocalAnalysisExecutor executor = new GwasLocalAnalysisExecutor();
+        executor.setSampleList1(caseSamples);
+        executor.setSampleList2(controlSamples);
+        return executor;
+    }
+
+    private Variant newVariant(int start, Random random) {
+        VariantBuilder builder = Variant.newBuilder("1:" + start + ":A:C").setStudyId("1").setFormat("GT", "DP");
+        for (String sample : allSamples) {
+            builder.addSample(sample, GENOTYPES[random.nextInt(GENOTYPES.length)], String.valueOf(random.nextInt(50)));
+        }
+        Variant variant = builder.build();
+        if (random.nextBoolean()) {
+            VariantAnnotation annotation = new VariantAnnotation();
+            annotation.setId(random.nextBoolean() ? "rs" + start : null);
+            List<ConsequenceType> consequenceTypes = new ArrayList<>();
+            for (int i = 0; i < random.nextInt(3); i++) {
+                ConsequenceType consequenceType = new ConsequenceType();
+                consequenceType.setGeneName("GENE" + random.nextInt(5));
+                consequenceTypes.add(consequenceType);
+            }
+            annotation.setConsequenceTypes(consequenceTypes);
+            variant.setAnnotation(annotation);
+        }
+        return variant;
+    }
+
+    // Implementation before counting the alleles directly from the genotypes
+    private static String computeFisherTestWithVariantStats(Variant variant, List<String> sampleList1, List<String> sampleList2) {
+        VariantStats caseStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), sampleList1);
+        VariantStats controlStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), sampleList2);
+
+        int a = caseStats.getRefAlleleCount(); // case #REF
+        int b = controlStats.getRefAlleleCount(); // control #REF
+        int c = caseStats.getAltAlleleCount(); // case #ALT
+        int d = controlStats.getAltAlleleCount(); // control #ALT
+
+        if (a + b + c + d == 0) {
+            return null;
+        }
+        FisherTestResult fisherTestResult = new FisherExactTest().fisherTest(a, b, c, d);
+
+
+        VariantAnnotation variantAnnotation = variant.getAnnotation();
+        String id = null;
+        Set<String> genes = Collections.emptySet();
+        if (variantAnnotation != null) {
+            id = variantAnnotation.getId();
+            genes = new HashSet<>();
+            if (variantAnnotation.getConsequenceTypes() != null) {
+                for (ConsequenceType consequenceType : variantAnnotation.getConsequenceTypes()) {
+                    if (StringUtils.isNotEmpty(consequenceType.getGeneName())) {
+                        genes.add(consequenceType.getGeneName());
+                    }
+                }
+            }
+        }
+        if (StringUtils.isEmpty(id)) {
+            id = variant.getId();
+        }
+        if (genes.isEmpty()) {
+            genes = Collections.singleton(".");
+        }
+
+        return tsv(
+                id,
+                variant.toString(),
+                variant.getChromosome(), variant.getStart(),
+                variant.getReference().isEmpty() ? "-" : variant.getReference(),
+                variant.getAlternate().isEmpty() ? "-" : variant.getAlternate(),
+                String.join(",", genes),
+                a, b, c, d,
+                caseStats.getAlleleCount(),
+                controlStats.getAlleleCount(),
+                caseStats.getAltAlleleFreq(),
+                controlStats.getAltAlleleFreq(),
+                fisherTestResult.getpValue(),
+                fisherTestResult.getOddRatio()
+        );
+    }
+
+    private static String tsv(Object... objects) {
+        StringJoiner joiner = new StringJoiner("\t");
+        for (Object object : objects) {
+            final String toString;
+            if (object instanceof Double) {
+                if (((Double) object).isNaN() || ((Double) object).isInfinite()) {
+                    toString = "NA";
+                } else {
+                    toString = object.toString();
+                }
+            } else {
+                toString = object.toString();
+            }
+            joiner.add(toString);
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.junit.Test;
+import org.opencb.oskar.analysis.stats.FisherExactTest;
+import org.opencb.oskar.analysis.stats.FisherTestResult;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created on 19/10/20.
+ */
+public class LogFactorialFisherTestTest {
+
+    private static final int[][] TABLES = {
+            {1, 1, 1, 1},
+            {3, 1, 1, 3},
+            {10, 0, 0, 10},
+            {0, 10, 10, 0},
+            {0, 0, 5, 7},
+            {1, 9, 11, 3},
+            {12, 5, 3, 20},
+            {100, 95, 100, 105},
+            {180, 20, 150, 50},
+            {2000, 10, 1990, 0},
+            {0, 1, 0, 0},
+    };
+
+    @Test
+    public void testFixedTables() {
+        LogFactorialFisherTest fisherTest = new LogFactorialFisherTest(100);
+        for (int[] t : TABLES) {
+            assertSameResult(fisherTest, t[0], t[1], t[2], t[3]);
+        }
+    }
+
+    @Test
+    public void testKnownPValues() {
+        LogFactorialFisherTest fisherTest = new LogFactorialFisherTest(100);
+        // R: fisher.test(matrix(c(1, 11, 9, 3), nrow = 2))$p.value
+        assertEquals(0.002759456, fisherTest.pValue(1, 9, 11, 3), 1e-9);
+        // R: fisher.test(matrix(c(3, 1, 1, 3), nrow = 2))$p.value
+        assertEquals(0.4857143, fisherTest.pValue(3, 1, 1, 3), 1e-7);
+        assertEquals(1, fisherTest.pValue(1, 1, 1, 1), 1e-12);
+    }
+
+    @Test
+    public void testRandomTables() {
+        // Tables larger than the log-factorial table are also supported
+        LogFactorialFisherTest fisherTest = new LogFactorialFisherTest(50);
+        Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            assertSameResult(fisherTest, random.nextInt(40), random.nextInt(40), random.nextInt(40), random.nextInt(40));
+        }
+    }
+
+    private static void assertSameResult(LogFactorialFisherTest fisherTest, int a, int b, int c, int d) {
+        String message = a + " " + b + " " + c + " " + d;
+        FisherTestResult expected = new FisherExactTest().fisherTest(a, b, c, d);
+        assertEquals(message, expected.getpValue(), fisherTest.pValue(a, b, c, d), 1e-9 * expected.getpValue());
+        assertEquals(message, expected.getOddRatio(), LogFactorialFisherTest.oddRatio(a, b, c, d), 1e-9 * Math.abs(expected.getOddRatio()));
+    }
+}
@@ -0,0 +1,64 @@
+package org.opencb.opencga.analysis.variant.mutationalSignature;
+
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TrinucleotideContextCounterTest {
+
+    @Test
+    public void testSubstitutionIndex() {
+        assertEquals(0, TrinucleotideContextCounter.substitutionIndex("C", "A"));
+        assertEquals(2, TrinucleotideContextCounter.substitutionIndex("C", "T"));
+        assertEquals(5, TrinucleotideContextCounter.substitutionIndex("T", "G"));
+        // Only pyrimidine substitutions are counted
+        assertEquals(-1, TrinucleotideContextCounter.substitutionIndex("G", "A"));
+        assertEquals(-1, TrinucleotideContextCounter.substitutionIndex("C", "C"));
+        assertEquals(-1, TrinucleotideContextCounter.substitutionIndex("CA", "TA"));
+    }
+
+    @Test
+    public void testAdd() {
+        TrinucleotideContextCounter counter = new TrinucleotideContextCounter();
+        byte[] sequence = "NACAGTTTC".getBytes();
+
+        // C>A at ACA
+        assertTrue(counter.add(0, sequence, 1));
+        assertTrue(counter.add(0, sequence, 1));
+        // T>G at TTT
+        assertTrue(counter.add(5, sequence, 5));
+        // Unknown base
+        assertFalse(counter.add(0, sequence, 0));
+        // Middle base does not match the reference
+        assertFalse(counter.add(3, sequence, 1));
+
+        assertEquals(2, counter.getCounts()[0], 0);
+        assertEquals(1, counter.getCounts()[TrinucleotideContextCounter.NUM_CONTEXTS - 1], 0);
+    }
+
+    @Test
+    public void testFillCountMap() {
+        TrinucleotideContextCounter counter = new TrinucleotideContextCounter();
+        // C>T at GCG
+        counter.add(2, "GCG".getBytes(), 0);
+
+        Map<String, Map<String, Double>> countMap = new LinkedHashMap<>();
+        String bases = "ACGT";
+        for (String substitution : new String[]{"C>A", "C>G", "C>T", "T>A", "T>C", "T>G"}) {
+            Map<String, Double> contexts = new LinkedHashMap<>();
+            for (char before : bases.toCharArray()) {
+                for (char after : bases.toCharArray()) {
+                    contexts.put("" + before + substitution.charAt(0) + after, 0.0);
+                }
+            }
+            countMap.put(substitution, contexts);
+        }
+
+        counter.fillCountMap(countMap);
+        assertEquals(1.0, countMap.get("C>T").get("GCG"), 0);
+        assertEquals(1.0, countMap.values().stream().flatMap(m -> m.values().stream()).mapToDouble(Double::doubleValue).sum(), 0);
+    }
+}
@@ -0,0 +1,101 @@
+package org.opencb.opencga.analysis.variant.stats;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantBuilder;
+import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created on 19/10/20.
+ */
+public class MergeableSampleVariantStatsCalculatorTest {
+
+    private static final String[] GENOTYPES = {"0/0", "0/0", "0/1", "0/1", "1/1", "./.", "0|1", "1|0", "1|1"};
+    private static final String[] ALLELES = {"A", "C", "G", "T", "AT"};
+    private static final String[] FILTERS = {"PASS", "PASS", "LowQual"};
+
+    private final List<String> samples = Arrays.asList("S1", "S2", "S3", "S4", "S5");
+
+    @Test
+    public void testMergeSameAsSingleCalculator() throws Exception {
+        List<Variant> variants = newVariants(2000, new Random(1));
+
+        MergeableSampleVariantStatsCalculator single = newCalculator(samples);
+        single.apply(variants);
+        single.post();
+        List<SampleVariantStats> expected = single.getSampleVariantStats();
+
+        for (int numTasks : new int[]{1, 2, 3, 7}) {
+            List<MergeableSampleVariantStatsCalculator> calculators = new ArrayList<>(numTasks);
+            for (int i = 0; i < numTasks; i++) {
+                calculators.add(newCalculator(samples));
+            }
+            // Batches are distributed among the tasks, as in the local executor
+            int batchSize = 100;
+            for (int i = 0; i < variants.size(); i += batchSize) {
+                calculators.get((i / batchSize) % numTasks).apply(variants.subList(i, Math.min(variants.size(), i + batchSize)));
+            }
+            MergeableSampleVariantStatsCalculator merged = calculators.get(0);
+            for (MergeableSampleVariantStatsCalculator partial : calculators.subList(1, calculators.size())) {
+                merged.merge(partial);
+            }
+            merged.post();
+            List<SampleVariantStats> actual = merged.getSampleVariantStats();
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                String message = numTasks + " tasks, sample " + expected.get(i).getId();
+                assertTrue(message, expected.get(i).getTiTvRatio() > 0);
+                assertTrue(message, expected.get(i).getQualityAvg() > 0);
+                assertEquals(message, expected.get(i).getTiTvRatio(), actual.get(i).getTiTvRatio(), 0);
+                assertEquals(message, expected.get(i).getQualityAvg(), actual.get(i).getQualityAvg(), 0);
+                assertEquals(message, expected.get(i).getQualityStdDev(), actual.get(i).getQualityStdDev(), 0);
+                assertEquals(message, expected.get(i), actual.get(i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeDifferentSamples() throws Exception {
+        newCalculator(samples).merge(newCalculator(Collections.singletonList("S1")));
+    }
+
+    private MergeableSampleVariantStatsCalculator newCalculator(List<String> samples) throws Exception {
+        MergeableSampleVariantStatsCalculator calculator = new MergeableSampleVariantStatsCalculator(null, samples);
+        calculator.pre();
+        return calculator;
+    }
+
+    private List<Variant> newVariants(int numVariants, Random random) {
+        List<Variant> variants = new ArrayList<>(numVariants);
+        for (int i = 0; i < numVariants; i++) {
+            String chromosome = random.nextInt(4) == 0 ? "X" : "1";
+            String reference = ALLELES[random.nextInt(ALLELES.length - 1)];
+            String alternate;
+            do {
+                alternate = ALLELES[random.nextInt(ALLELES.length)];
+            } while (alternate.equals(reference));
+            VariantBuilder builder = Variant.newBuilder(chromosome + ":" + (1000 + i * 10) + ":" + reference + ":" + alternate)
+                    .setStudyId("1")
+                    .setFileId("file1")
+                    .setFormat("GT", "DP")
+                    .setFilter(FILTERS[random.nextInt(FILTERS.length)])
+                    // Integer qualities, so the partial sums are exact regardless of the order
+                    .setQuality((double) random.nextInt(100));
+            for (String sample : samples) {
+                builder.addSample(sample, GENOTYPES[random.nextInt(GENOTYPES.length)], String.valueOf(random.nextInt(50)));
+            }
+            variants.add(builder.build());
+        }
+        return variants;
+    }
+}
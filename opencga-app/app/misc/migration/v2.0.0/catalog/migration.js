@@ -97,3 +97,10 @@ migrateCollection("study", {"variableSets" : { $exists: true, $ne: [] } }, {"var
 
 
 // TODO: Add indexes for new "deleted" collections
+
+// Compound index for the annotation filters. Every variable filter is a single $elemMatch over {vs, id, value}
+db.file.createIndex({"studyUid": 1, "customAnnotationSets.vs": 1, "customAnnotationSets.id": 1, "customAnnotationSets.value": 1}, {"background": true});
+db.sample.createIndex({"studyUid": 1, "customAnnotationSets.vs": 1, "customAnnotationSets.id": 1, "customAnnotationSets.value": 1}, {"background": true});
+db.individual.createIndex({"studyUid": 1, "customAnnotationSets.vs": 1, "customAnnotationSets.id": 1, "customAnnotationSets.value": 1}, {"background": true});
+db.cohort.createIndex({"studyUid": 1, "customAnnotationSets.vs": 1, "customAnnotationSets.id": 1, "customAnnotationSets.value": 1}, {"background": true});
+db.family.createIndex({"studyUid": 1, "customAnnotationSets.vs": 1, "customAnnotationSets.id": 1, "customAnnotationSets.value": 1}, {"background": true});
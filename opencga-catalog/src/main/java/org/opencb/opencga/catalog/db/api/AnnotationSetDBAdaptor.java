@@ -97,4 +97,15 @@ public interface AnnotationSetDBAdaptor<T> extends DBAdaptor<T> {
      * @throws CatalogDBException when there is an error in the database.
      */
     OpenCGAResult<VariableSummary> getAnnotationSummary(long studyId, long variableSetId) throws CatalogDBException;
+
+    /**
+     * Discards the precomputed annotation summary of the variable set and computes it again from all the annotations of the study.
+     * Summaries are kept up to date on every change, so this is only needed to repair them.
+     *
+     * @param studyId study id.
+     * @param variableSetId variable set id for which the summary will be rebuilt.
+     * @return a list of Feature count with every different value.
+     * @throws CatalogDBException when there is an error in the database.
+     */
+    OpenCGAResult<VariableSummary> rebuildAnnotationSummary(long studyId, long variableSetId) throws CatalogDBException;
 }
@@ -27,6 +27,7 @@ import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.opencb.commons.datastore.core.*;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
+import org.opencb.commons.datastore.mongodb.MongoDBIterator;
 import org.opencb.opencga.catalog.db.api.AnnotationSetDBAdaptor;
 import org.opencb.opencga.catalog.db.mongodb.converters.AnnotableConverter;
 import org.opencb.opencga.catalog.db.mongodb.converters.AnnotationConverter;
@@ -36,6 +37,7 @@ import org.opencb.opencga.catalog.exceptions.CatalogParameterException;
 import org.opencb.opencga.catalog.utils.AnnotationUtils;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.catalog.utils.ParamUtils;
+import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.models.common.Annotable;
 import org.opencb.opencga.core.models.common.AnnotationSet;
 import org.opencb.opencga.core.models.study.Variable;
@@ -61,12 +63,24 @@ import static org.opencb.opencga.catalog.managers.AnnotationSetManager.ANNOTATIO
  */
 public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor implements AnnotationSetDBAdaptor<T> {
 
+    private static final String MODIFICATION_DATE = "modificationDate";
+
+    // Fields of the precomputed annotation summaries
+    private static final String SUMMARY_COLLECTION = "collection";
+    private static final String SUMMARY_COUNT = "count";
+    private static final String SUMMARY_BUILT = "built";
+    private static final String SUMMARY_VERSION = "version";
+    private static final String SUMMARY_REBUILDS = "rebuilds";
+    private static final int SUMMARY_REBUILD_ATTEMPTS = 3;
+
     private final AnnotationConverter annotationConverter;
+    private final String collectionName;
 
-    AnnotationMongoDBAdaptor(Logger logger) {
+    AnnotationMongoDBAdaptor(Logger logger, String collectionName) {
         super(logger);
 
         this.annotationConverter = new AnnotationConverter();
+        this.collectionName = collectionName;
     }
 
     protected abstract AnnotableConverter<? extends Annotable> getConverter();
@@ -174,6 +188,7 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
         if (result.getNumUpdated() != 1) {
             throw CatalogDBException.alreadyExists("AnnotationSet", "name", annotationSet.getId());
         }
+        resetAnnotationSummary(variableSet.getUid());
     }
 
     /**
@@ -288,6 +303,11 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
         Map<String, Object> actionMap = options.getMap(Constants.ACTIONS, new HashMap<>());
         long startTime = startQuery();
 
+        Document previousAnnotations = null;
+        if (actionMap.containsKey(ANNOTATION_SETS) || actionMap.containsKey(ANNOTATIONS)) {
+            previousAnnotations = getAnnotationSetsDocument(clientSession, entryId, isVersioned);
+        }
+
         if (actionMap.containsKey(ANNOTATION_SETS)) {
             List<AnnotationSet> annotationSetList = (List<AnnotationSet>) parameters.get(ANNOTATION_SETS);
 
@@ -382,9 +402,180 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
             addNewAnnotations(clientSession, entryId, annotationDocumentList, isVersioned);
         }
 
+        if (previousAnnotations != null) {
+            Document currentAnnotations = getAnnotationSetsDocument(clientSession, entryId, isVersioned);
+            updateAnnotationSummary(clientSession, previousAnnotations.getLong(PRIVATE_STUDY_UID),
+                    getAnnotationList(previousAnnotations), getAnnotationList(currentAnnotations));
+
+            // Annotation changes also count as modifications of the entry
+            Document queryDocument = new Document(PRIVATE_UID, entryId);
+            if (isVersioned) {
+                queryDocument.append(LAST_OF_VERSION, true);
+            }
+            String time = TimeUtils.getTime();
+            Bson update = Updates.combine(
+                    Updates.set(MODIFICATION_DATE, time),
+                    Updates.set(PRIVATE_MODIFICATION_DATE, TimeUtils.toDate(time)));
+            getCollection().update(clientSession, queryDocument, update, new QueryOptions());
+        }
+
         return endWrite(startTime, 1, 1, new ArrayList<>());
     }
 
+    private Document getAnnotationSetsDocument(ClientSession clientSession, long entryId, boolean isVersioned)
+            throws CatalogDBException {
+        Document queryDocument = new Document(PRIVATE_UID, entryId);
+        if (isVersioned) {
+            queryDocument.append(LAST_OF_VERSION, true);
+        }
+        QueryOptions options = new QueryOptions(QueryOptions.INCLUDE,
+                Arrays.asList(PRIVATE_STUDY_UID, AnnotationSetParams.ANNOTATION_SETS.key()));
+
+        MongoDBIterator<Document> iterator = getCollection().nativeQuery().find(clientSession, queryDocument, options);
+        if (!iterator.hasNext()) {
+            throw new CatalogDBException("Unexpected error. Could not obtain the annotation sets of the entry " + entryId);
+        }
+        Document document = iterator.next();
+        iterator.close();
+        return document;
+    }
+
+    private static List<Document> getAnnotationList(Document document) {
+        Object annotations = document == null ? null : document.get(AnnotationSetParams.ANNOTATION_SETS.key());
+        return annotations == null ? Collections.emptyList() : (List<Document>) annotations;
+    }
+
+    /**
+     * Update the precomputed annotation summaries after inserting or removing a whole entry.
+     * Only the last version of the entries is counted.
+     *
+     * @param clientSession Client session.
+     * @param entryDocument Document of the entry, as stored in the database.
+     * @param inserted      Whether the entry has been inserted or removed.
+     * @throws CatalogDBException if there is any unexpected error.
+     */
+    void updateAnnotationSummary(ClientSession clientSession, Document entryDocument, boolean inserted) throws CatalogDBException {
+        if (Boolean.FALSE.equals(entryDocument.get(LAST_OF_VERSION))) {
+            return;
+        }
+        List<Document> annotations = getAnnotationList(entryDocument);
+        if (annotations.isEmpty()) {
+            return;
+        }
+        long studyUid = entryDocument.getLong(PRIVATE_STUDY_UID);
+        if (inserted) {
+            updateAnnotationSummary(clientSession, studyUid, Collections.emptyList(), annotations);
+        } else {
+            updateAnnotationSummary(clientSession, studyUid, annotations, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Apply the differences between the old and the new annotations of one entry to the precomputed annotation summaries.
+     * Summaries not built yet are skipped, as they will be built from the whole collection the first time they are read.
+     * While a summary is being rebuilt, its version is incremented within the same transaction, so the rebuild does not save a
+     * summary computed before this update. Otherwise, the marker of the summary is only read.
+     *
+     * @param clientSession  Client session.
+     * @param studyUid       Study uid of the entry.
+     * @param oldAnnotations Annotations of the entry before the update.
+     * @param newAnnotations Annotations of the entry after the update.
+     * @throws CatalogDBException if there is any unexpected error.
+     */
+    private void updateAnnotationSummary(ClientSession clientSession, long studyUid, List<Document> oldAnnotations,
+                                         List<Document> newAnnotations) throws CatalogDBException {
+        Map<Document, Integer> increments = new LinkedHashMap<>();
+        countAnnotations(oldAnnotations, -1, increments);
+        countAnnotations(newAnnotations, 1, increments);
+
+        MongoDBCollection summaryCollection = getAnnotationSummaryCollection();
+        Map<Long, Boolean> builtSummaries = new HashMap<>();
+        for (Map.Entry<Document, Integer> entry : increments.entrySet()) {
+            if (entry.getValue() == 0) {
+                continue;
+            }
+            long variableSetUid = entry.getKey().getLong(AnnotationSetParams.VARIABLE_SET_ID.key());
+            Boolean built = builtSummaries.get(variableSetUid);
+            if (built == null) {
+                built = checkSummaryMarker(clientSession, studyUid, variableSetUid);
+                builtSummaries.put(variableSetUid, built);
+            }
+            if (built) {
+                Document query = getSummaryQuery(studyUid, variableSetUid)
+                        .append(AnnotationSetParams.ID.key(), entry.getKey().get(AnnotationSetParams.ID.key()))
+                        .append(AnnotationSetParams.VALUE.key(), entry.getKey().get(AnnotationSetParams.VALUE.key()));
+                summaryCollection.update(clientSession, query, Updates.inc(SUMMARY_COUNT, entry.getValue()),
+                        new QueryOptions(MongoDBCollection.UPSERT, true));
+            }
+        }
+
+        // Remove the values no longer in use
+        for (Map.Entry<Long, Boolean> entry : builtSummaries.entrySet()) {
+            if (entry.getValue()) {
+                Document query = getSummaryQuery(studyUid, entry.getKey()).append(SUMMARY_COUNT, new Document("$lte", 0));
+                summaryCollection.remove(clientSession, query, new QueryOptions(MongoDBCollection.MULTI, true));
+            }
+        }
+    }
+
+    private static void countAnnotations(List<Document> annotations, int increment, Map<Document, Integer> counts) {
+        for (Document annotation : annotations) {
+            Document key = new Document()
+                    .append(AnnotationSetParams.VARIABLE_SET_ID.key(), annotation.get(AnnotationSetParams.VARIABLE_SET_ID.key()))
+                    .append(AnnotationSetParams.ID.key(), annotation.get(AnnotationSetParams.ID.key()))
+                    .append(AnnotationSetParams.VALUE.key(), annotation.get(AnnotationSetParams.VALUE.key()));
+            counts.merge(key, increment, Integer::sum);
+        }
+    }
+
+    private MongoDBCollection getAnnotationSummaryCollection() {
+        return dbAdaptorFactory.getMongoDBCollectionMap().get(MongoDBAdaptorFactory.ANNOTATION_SUMMARY_COLLECTION);
+    }
+
+    // Query matching every document of the summary of a variable set: the value counts, and the marker saying the summary is built
+    private Document getSummaryQuery(long studyUid, long variableSetUid) {
+        return new Document()
+                .append(SUMMARY_COLLECTION, collectionName)
+                .append(PRIVATE_STUDY_UID, studyUid)
+                .append(AnnotationSetParams.VARIABLE_SET_ID.key(), variableSetUid);
+    }
+
+    // The marker has a fixed _id, so concurrent upserts never create it twice
+    private Document getSummaryMarkerQuery(long studyUid, long variableSetUid) {
+        return new Document("_id", collectionName + ":" + studyUid + ":" + variableSetUid);
+    }
+
+    // Increment the number of rebuilds in progress, creating the marker if it does not exist, and return the marker
+    private Document upsertSummaryMarker(long studyUid, long variableSetUid, int rebuilds) {
+        List<Bson> updates = new ArrayList<>();
+        updates.add(Updates.inc(SUMMARY_REBUILDS, rebuilds));
+        updates.add(Updates.inc(SUMMARY_VERSION, 0));
+        updates.add(Updates.setOnInsert(SUMMARY_BUILT, false));
+        for (Map.Entry<String, Object> entry : getSummaryQuery(studyUid, variableSetUid).entrySet()) {
+            updates.add(Updates.setOnInsert(entry.getKey(), entry.getValue()));
+        }
+        QueryOptions options = new QueryOptions(MongoDBCollection.UPSERT, true).append("returnNew", true);
+        return getAnnotationSummaryCollection().findAndUpdate(getSummaryMarkerQuery(studyUid, variableSetUid), null, null,
+                Updates.combine(updates), options).first();
+    }
+
+    // Read the marker of the summary, incrementing its version only if there is a rebuild in progress. Return whether it is built
+    private boolean checkSummaryMarker(ClientSession clientSession, long studyUid, long variableSetUid) {
+        MongoDBCollection summaryCollection = getAnnotationSummaryCollection();
+        Document query = getSummaryMarkerQuery(studyUid, variableSetUid);
+        MongoDBIterator<Document> iterator = summaryCollection.nativeQuery().find(clientSession, query, new QueryOptions());
+        Document marker = iterator.hasNext() ? iterator.next() : null;
+        iterator.close();
+        if (marker == null) {
+            // Never read, so neither built nor being rebuilt
+            return false;
+        }
+        if (((Number) marker.getOrDefault(SUMMARY_REBUILDS, 0)).intValue() > 0) {
+            summaryCollection.update(clientSession, query, Updates.inc(SUMMARY_VERSION, 1), null);
+        }
+        return marker.getBoolean(SUMMARY_BUILT, false);
+    }
+
     private void removePrivateVariableMap(ClientSession clientSession, long entryId, Map<String, String> privateVariableMapToSet,
                                           boolean isVersioned) throws CatalogDBException {
         Document queryDocument = new Document(PRIVATE_UID, entryId);
@@ -612,6 +803,7 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
             modifiedCount += result.getNumUpdated();
             matchCount += result.getNumMatches();
         }
+        resetAnnotationSummary(variableSetId);
 
         return endWrite(startTime, matchCount, modifiedCount, new ArrayList<>());
     }
@@ -711,18 +903,129 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
             throw new CatalogDBException("VariableSet {id: " + variableSetId + "}: An unexpected error happened when extracting the "
                     + "annotations for the variable " + fieldId + ". Please, report this error to the OpenCGA developers.");
         }
+        resetAnnotationSummary(variableSetId);
 
         return new OpenCGAResult(result);
     }
 
+    /**
+     * Discard the precomputed annotation summaries of a variable set in all the studies, so they are built again the next time
+     * they are read. Used after the updates affecting the annotations of many entries at once.
+     * The value counts are removed and the markers are flagged as not built in one transaction. Their version is incremented, so
+     * any rebuild that read the entries before the update does not save its result.
+     *
+     * @param variableSetUid Variable set uid.
+     * @throws CatalogDBException if there is any unexpected error.
+     */
+    private void resetAnnotationSummary(long variableSetUid) throws CatalogDBException {
+        MongoDBCollection summaryCollection = getAnnotationSummaryCollection();
+        Document query = new Document()
+                .append(SUMMARY_COLLECTION, collectionName)
+                .append(AnnotationSetParams.VARIABLE_SET_ID.key(), variableSetUid);
+        try {
+            runTransaction(clientSession -> {
+                summaryCollection.remove(clientSession, new Document(query).append(AnnotationSetParams.ID.key(),
+                        new Document("$exists", true)), new QueryOptions(MongoDBCollection.MULTI, true));
+                summaryCollection.update(clientSession, new Document(query).append(AnnotationSetParams.ID.key(),
+                        new Document("$exists", false)),
+                        Updates.combine(Updates.set(SUMMARY_BUILT, false), Updates.inc(SUMMARY_VERSION, 1)),
+                        new QueryOptions(MongoDBCollection.MULTI, true));
+                return null;
+            });
+        } catch (CatalogParameterException | CatalogAuthorizationException e) {
+            throw new CatalogDBException(e);
+        }
+    }
+
+    @Override
     public OpenCGAResult<VariableSummary> getAnnotationSummary(long studyId, long variableSetId) throws CatalogDBException {
         long startTime = startQuery();
 
-        List<Bson> aggregation = new ArrayList<>(6);
-        aggregation.add(new Document("$match", new Document(PRIVATE_STUDY_UID, studyId)));
+        MongoDBCollection summaryCollection = getAnnotationSummaryCollection();
+        Document builtQuery = getSummaryMarkerQuery(studyId, variableSetId).append(SUMMARY_BUILT, true);
+        if (summaryCollection.count(builtQuery).getNumMatches() == 0) {
+            return rebuildAnnotationSummary(studyId, variableSetId);
+        }
+
+        Document query = getSummaryQuery(studyId, variableSetId).append(AnnotationSetParams.ID.key(), new Document("$exists", true));
+        List<Document> valueCounts = summaryCollection.find(query, new QueryOptions()).getResults();
+
+        return endQuery(startTime, toVariableSummaryList(valueCounts));
+    }
+
+    @Override
+    public OpenCGAResult<VariableSummary> rebuildAnnotationSummary(long studyId, long variableSetId) throws CatalogDBException {
+        long startTime = startQuery();
+
+        List<Document> valueCounts;
+        int attempt = 0;
+        boolean saved;
+        startSummaryRebuild(studyId, variableSetId);
+        try {
+            do {
+                // Any update of the entries after reading the version changes it, and the summary is computed again
+                long version = getSummaryVersion(studyId, variableSetId);
+                valueCounts = aggregateAnnotationSummary(studyId, variableSetId);
+                saved = saveAnnotationSummary(studyId, variableSetId, version, valueCounts);
+                attempt++;
+            } while (!saved && attempt < SUMMARY_REBUILD_ATTEMPTS);
+        } finally {
+            finishSummaryRebuild(studyId, variableSetId);
+        }
+        if (!saved) {
+            logger.warn("Annotation summary of variable set {} in study {} not saved after {} attempts due to concurrent updates",
+                    variableSetId, studyId, attempt);
+        }
+
+        return endQuery(startTime, toVariableSummaryList(valueCounts));
+    }
+
+    /**
+     * Get the current version of an annotation summary, creating its marker if it does not exist.
+     *
+     * @param studyId       Study uid.
+     * @param variableSetId Variable set uid.
+     * @return Version of the summary.
+     */
+    long getSummaryVersion(long studyId, long variableSetId) {
+        return ((Number) upsertSummaryMarker(studyId, variableSetId, 0).get(SUMMARY_VERSION)).longValue();
+    }
+
+    /**
+     * Flag an annotation summary as being rebuilt, creating its marker if it does not exist.
+     * Until {@link #finishSummaryRebuild} is called, every update of the annotations increments the version of the summary.
+     *
+     * @param studyId       Study uid.
+     * @param variableSetId Variable set uid.
+     */
+    void startSummaryRebuild(long studyId, long variableSetId) {
+        upsertSummaryMarker(studyId, variableSetId, 1);
+    }
+
+    /**
+     * Remove the flag set by {@link #startSummaryRebuild}.
+     *
+     * @param studyId       Study uid.
+     * @param variableSetId Variable set uid.
+     */
+    void finishSummaryRebuild(long studyId, long variableSetId) {
+        upsertSummaryMarker(studyId, variableSetId, -1);
+    }
+
+    /**
+     * Count the values of the annotations of a variable set from the entries of the study.
+     *
+     * @param studyId       Study uid.
+     * @param variableSetId Variable set uid.
+     * @return Value count documents of the summary.
+     */
+    List<Document> aggregateAnnotationSummary(long studyId, long variableSetId) {
+        List<Bson> aggregation = new ArrayList<>(7);
+        aggregation.add(new Document("$match", new Document(PRIVATE_STUDY_UID, studyId)
+                .append(LAST_OF_VERSION, new Document("$ne", false))
+                .append(AnnotationSetParams.ANNOTATION_SETS_VARIABLE_SET_ID.key(), variableSetId)));
         aggregation.add(new Document("$project", new Document(AnnotationSetParams.ANNOTATION_SETS.key(), 1)));
         aggregation.add(new Document("$unwind", "$" + AnnotationSetParams.ANNOTATION_SETS.key()));
-//        aggregation.add(new Document("$unwind", "$" + AnnotationSetParams.ANNOTATION_SETS_ANNOTATIONS.key()));
 
         aggregation.add(new Document("$match",
                 new Document(AnnotationSetParams.ANNOTATION_SETS_VARIABLE_SET_ID.key(), variableSetId))
@@ -734,20 +1037,69 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
                                 .append("count", new Document("$sum", 1))
                 )
         );
-        aggregation.add(new Document("$sort", new Document("_id.name", -1).append("count", -1)));
 
         List<Document> result = getCollection().aggregate(aggregation, new QueryOptions()).getResults();
 
+        List<Document> valueCounts = new ArrayList<>(result.size());
+        for (Document document : result) {
+            Document id = (Document) document.get("_id");
+            valueCounts.add(getSummaryQuery(studyId, variableSetId)
+                    .append(AnnotationSetParams.ID.key(), id.getString("name"))
+                    .append(AnnotationSetParams.VALUE.key(), id.get("value"))
+                    .append(SUMMARY_COUNT, document.getInteger("count")));
+        }
+        return valueCounts;
+    }
+
+    /**
+     * Replace the whole annotation summary and mark it as built, only if its version has not changed.
+     * The marker is updated in the same transaction, so it conflicts with any concurrent update of the annotations.
+     *
+     * @param studyId       Study uid.
+     * @param variableSetId Variable set uid.
+     * @param version       Version of the summary read before computing the value counts.
+     * @param valueCounts   Value count documents.
+     * @return false if the annotations were updated after reading the version, and the summary was not saved.
+     * @throws CatalogDBException if there is any unexpected error.
+     */
+    boolean saveAnnotationSummary(long studyId, long variableSetId, long version, List<Document> valueCounts)
+            throws CatalogDBException {
+        MongoDBCollection summaryCollection = getAnnotationSummaryCollection();
+        try {
+            return runTransaction(clientSession -> {
+                Document markerQuery = getSummaryMarkerQuery(studyId, variableSetId).append(SUMMARY_VERSION, version);
+                Bson markerUpdate = Updates.combine(Updates.set(SUMMARY_BUILT, true), Updates.inc(SUMMARY_VERSION, 1));
+                if (summaryCollection.update(clientSession, markerQuery, markerUpdate, null).getNumMatches() == 0) {
+                    return false;
+                }
+                summaryCollection.remove(clientSession, getSummaryQuery(studyId, variableSetId)
+                                .append(AnnotationSetParams.ID.key(), new Document("$exists", true)),
+                        new QueryOptions(MongoDBCollection.MULTI, true));
+                for (Document valueCount : valueCounts) {
+                    summaryCollection.insert(clientSession, valueCount, null);
+                }
+                return true;
+            });
+        } catch (CatalogParameterException | CatalogAuthorizationException e) {
+            throw new CatalogDBException(e);
+        }
+    }
+
+    private static List<VariableSummary> toVariableSummaryList(List<Document> valueCounts) {
+        List<Document> sortedValueCounts = new ArrayList<>(valueCounts);
+        sortedValueCounts.sort(Comparator
+                .comparing((Document document) -> document.getString(AnnotationSetParams.ID.key()), Comparator.reverseOrder())
+                .thenComparing(document -> ((Number) document.get(SUMMARY_COUNT)).longValue(), Comparator.reverseOrder()));
+
         List<VariableSummary> variableSummaryList = new ArrayList<>();
 
         List<FeatureCount> featureCountList = new ArrayList<>();
         VariableSummary v = new VariableSummary();
 
-        for (Document document : result) {
-            Document id = (Document) document.get("_id");
-            String name = id.getString("name");
-            Object value = id.get("value");
-            int count = document.getInteger("count");
+        for (Document document : sortedValueCounts) {
+            String name = document.getString(AnnotationSetParams.ID.key());
+            Object value = document.get(AnnotationSetParams.VALUE.key());
+            int count = ((Number) document.get(SUMMARY_COUNT)).intValue();
 
             if (!name.equals(v.getName())) {
                 featureCountList = new ArrayList<>();
@@ -758,7 +1110,7 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
             featureCountList.add(new FeatureCount(value, count));
         }
 
-        return endQuery(startTime, variableSummaryList);
+        return variableSummaryList;
     }
 
     public Document createAnnotationQuery(String annotations, ObjectMap variableTypeMap) throws CatalogDBException {
@@ -878,10 +1230,13 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
                             throw new CatalogDBException("Variable " + key + ": " + e.getMessage(), e);
                         }
 
+                        // Equality conditions first and then the value, matching the compound index
+                        // {studyUid, customAnnotationSets.vs, customAnnotationSets.id, customAnnotationSets.value}.
+                        // All the conditions must be in the same $elemMatch so Mongo can use the bounds of every field.
                         Document queryDocument = new Document()
-                                .append(AnnotationSetParams.ID.key(), key)
-                                .append(AnnotationSetParams.VARIABLE_SET_ID.key(), variableTypeMap.getLong(variableSet));
-                        queryDocument.putAll(valueList.get(0));
+                                .append(AnnotationSetParams.VARIABLE_SET_ID.key(), variableTypeMap.getLong(variableSet))
+                                .append(AnnotationSetParams.ID.key(), key);
+                        queryDocument.putAll(toIndexedValueQuery(valueList.get(0)));
 
                         // Add the query to the document query list
                         documentList.add(new Document(AnnotationSetParams.ANNOTATION_SETS.key(),
@@ -902,4 +1257,30 @@ public abstract class AnnotationMongoDBAdaptor<T> extends MongoDBAdaptor impleme
         return document;
     }
 
+    /**
+     * Rewrite a list of equality conditions over the annotation value, {$or: [{value: a}, {value: b}]}, into {value: {$in: [a, b]}}.
+     * The $in operator is solved with a single scan over the annotation index, instead of one index scan per $or clause.
+     *
+     * @param valueQuery Query over the annotation value
+     * @return Equivalent query
+     */
+    static Document toIndexedValueQuery(Document valueQuery) {
+        Object or = valueQuery.get("$or");
+        if (valueQuery.size() != 1 || !(or instanceof List)) {
+            return valueQuery;
+        }
+        List<Object> values = new ArrayList<>(((List<?>) or).size());
+        for (Object condition : (List<?>) or) {
+            if (!(condition instanceof Document) || ((Document) condition).size() != 1) {
+                return valueQuery;
+            }
+            Object value = ((Document) condition).get(AnnotationSetParams.VALUE.key());
+            if (!(value instanceof String || value instanceof Number || value instanceof Boolean)) {
+                return valueQuery;
+            }
+            values.add(value);
+        }
+        return new Document(AnnotationSetParams.VALUE.key(), new Document("$in", values));
+    }
+
 }
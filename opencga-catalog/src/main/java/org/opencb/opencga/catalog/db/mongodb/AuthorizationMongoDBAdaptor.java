@@ -40,6 +40,7 @@ import org.opencb.opencga.catalog.exceptions.CatalogAuthorizationException;
 import org.opencb.opencga.catalog.exceptions.CatalogDBException;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.exceptions.CatalogParameterException;
+import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.models.common.Enums;
 import org.opencb.opencga.core.models.study.PermissionRule;
 import org.opencb.opencga.core.models.study.Study;
@@ -61,6 +62,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
     private Map<Enums.Resource, MongoDBCollection> dbCollectionMap = new HashMap<>();
 
     private static final String ANONYMOUS = "*";
+    private static final String MODIFICATION_DATE = "modificationDate";
     static final String MEMBER_WITH_INTERNAL_ACL = "_withInternalAcls";
 
     public AuthorizationMongoDBAdaptor(DBAdaptorFactory dbFactory) throws CatalogDBException {
@@ -315,6 +317,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
                 .append(QueryParams.ACL.key(), removePermissions)
                 .append(QueryParams.USER_DEFINED_ACLS.key(), removePermissions)
         );
+        setModificationDate(update);
         logger.debug("Remove all acls for entity {} for member {} in study {}. Query: {}, pullAll: {}", resource, member, studyId,
                 query.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
                 update.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()));
@@ -393,7 +396,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
             update.put(QueryParams.USER_DEFINED_ACLS.key(), new Document("$each", permissions));
         }
 
-        update = new Document("$addToSet", update);
+        update = setModificationDate(new Document("$addToSet", update));
         logger.debug("Add Acls (addToSet): Query {}, Push {}, entity: {}",
                 queryDocument.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
                 update.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()), resource);
@@ -442,6 +445,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
         } else {
             update = new Document("$addToSet", new Document(QueryParams.ACL.key(), new Document("$each", myPermissions)));
         }
+        setModificationDate(update);
 
         logger.debug("Add Acls (addToSet): Query {}, Push {}",
                 queryDocument.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -521,6 +525,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
         } else {
             update = new Document("$pullAll", new Document(QueryParams.ACL.key(), removePermissions));
         }
+        setModificationDate(update);
 
         logger.debug("Remove Acls (pullAll): Query {}, Pull {}",
                 queryDocument.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -586,6 +591,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
             } else {
                 update = new Document("$set", new Document(QueryParams.ACL.key(), permissionArray));
             }
+            setModificationDate(update);
 
             logger.debug("Set Acls (set): Query {}, Push {}",
                     queryDocument.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -637,6 +643,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
                 .append("$addToSet", new Document()
                         .append(QueryParams.ACL.key(), new Document("$each", myPermissions))
                         .append(PERMISSION_RULES_APPLIED, permissionRule.getId()));
+        setModificationDate(update);
 
         logger.debug("Apply permission rules: Query {}, Update {}",
                 bson.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -718,6 +725,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
                     .append(QueryParams.ACL.key(), effectivePermissions)
                     .append(QueryParams.USER_DEFINED_ACLS.key(), manualPermissions)
                     .append(PERMISSION_RULES_APPLIED, permissionRulesApplied));
+            setModificationDate(update);
 
             logger.debug("Remove permission rule id and permissions from {}: Query {}, Update {}", entry,
                     tmpQuery.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -802,6 +810,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
             Document update = new Document("$set", new Document()
                     .append(QueryParams.ACL.key(), effectivePermissions)
                     .append(PERMISSION_RULES_APPLIED, permissionRulesApplied));
+            setModificationDate(update);
 
             logger.debug("Remove permission rule id and restoring permissions from {}: Query {}, Update {}", entry,
                     tmpQuery.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
@@ -905,10 +914,23 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
                 .append(QueryParams.ACL.key(), removePermissions)
                 .append(QueryParams.USER_DEFINED_ACLS.key(), removePermissions)
         );
+        setModificationDate(update);
 
         collection.update(clientSession, queryDocument, update, new QueryOptions("multi", true));
     }
 
+    // ACL changes also count as modifications of the entries, so they are synchronized again with the search engine
+    private static Document setModificationDate(Document update) {
+        String time = TimeUtils.getTime();
+        Document set = (Document) update.get("$set");
+        if (set == null) {
+            set = new Document();
+            update.put("$set", set);
+        }
+        set.append(MODIFICATION_DATE, time).append(PRIVATE_MODIFICATION_DATE, TimeUtils.toDate(time));
+        return update;
+    }
+
     private List<String> createPermissionArray(Map<String, List<String>> memberPermissionsMap) {
         List<String> myPermissions = new ArrayList<>(memberPermissionsMap.size() * 2);
         for (Map.Entry<String, List<String>> stringListEntry : memberPermissionsMap.entrySet()) {
@@ -72,7 +72,7 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
 
     public CohortMongoDBAdaptor(MongoDBCollection cohortCollection, MongoDBCollection deletedCohortCollection,
                                 MongoDBAdaptorFactory dbAdaptorFactory) {
-        super(LoggerFactory.getLogger(CohortMongoDBAdaptor.class));
+        super(LoggerFactory.getLogger(CohortMongoDBAdaptor.class), MongoDBAdaptorFactory.COHORT_COLLECTION);
         this.dbAdaptorFactory = dbAdaptorFactory;
         this.cohortCollection = cohortCollection;
         this.deletedCohortCollection = deletedCohortCollection;
@@ -132,6 +132,7 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
 
         logger.debug("Inserting cohort '{}' ({})...", cohort.getId(), cohort.getUid());
         cohortCollection.insert(clientSession, cohortObject, null);
+        updateAnnotationSummary(clientSession, cohortObject, true);
         logger.debug("Cohort '{}' successfully inserted", cohort.getId());
         return newId;
     }
@@ -474,6 +475,7 @@ public class CohortMongoDBAdaptor extends AnnotationMongoDBAdaptor<Cohort> imple
         if (remove.getNumDeleted() == 0) {
             throw new CatalogDBException("Cohort " + cohortId + " could not be deleted");
         }
+        updateAnnotationSummary(clientSession, cohortDocument, false);
         logger.debug("Cohort {} successfully deleted", cohortId);
 
         return endWrite(tmpStartTime, 1, 0, 0, 1, null);
@@ -75,7 +75,7 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
 
     public FamilyMongoDBAdaptor(MongoDBCollection familyCollection, MongoDBCollection deletedFamilyCollection,
                                 MongoDBAdaptorFactory dbAdaptorFactory) {
-        super(LoggerFactory.getLogger(FamilyMongoDBAdaptor.class));
+        super(LoggerFactory.getLogger(FamilyMongoDBAdaptor.class), MongoDBAdaptorFactory.FAMILY_COLLECTION);
         this.dbAdaptorFactory = dbAdaptorFactory;
         this.familyCollection = familyCollection;
         this.deletedFamilyCollection = deletedFamilyCollection;
@@ -181,6 +181,7 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
 
         logger.debug("Inserting family '{}' ({})...", family.getId(), family.getUid());
         familyCollection.insert(clientSession, familyDocument, null);
+        updateAnnotationSummary(clientSession, familyDocument, true);
         logger.debug("Family '{}' successfully inserted", family.getId());
 
         return family;
@@ -578,6 +579,7 @@ public class FamilyMongoDBAdaptor extends AnnotationMongoDBAdaptor<Family> imple
             if (remove.getNumDeleted() == 0) {
                 throw new CatalogDBException("Family " + familyId + " could not be deleted");
             }
+            updateAnnotationSummary(clientSession, tmpFamily, false);
 
             logger.debug("Family uid '{}' version '{}' deleted from main SAMPLE collection", familyUid, sampleVersion);
         }
@@ -86,7 +86,7 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
      */
     public FileMongoDBAdaptor(MongoDBCollection fileCollection, MongoDBCollection deletedFileCollection,
                               MongoDBAdaptorFactory dbAdaptorFactory) {
-        super(LoggerFactory.getLogger(FileMongoDBAdaptor.class));
+        super(LoggerFactory.getLogger(FileMongoDBAdaptor.class), MongoDBAdaptorFactory.FILE_COLLECTION);
         this.dbAdaptorFactory = dbAdaptorFactory;
         this.fileCollection = fileCollection;
         this.deletedFileCollection = deletedFileCollection;
@@ -167,6 +167,7 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
         fileDocument.put(PRIVATE_MODIFICATION_DATE, fileDocument.get(PRIVATE_CREATION_DATE));
 
         fileCollection.insert(clientSession, fileDocument, null);
+        updateAnnotationSummary(clientSession, fileDocument, true);
 
         // Update the size field from the study collection
         if (!file.isExternal() && file.getSize() > 0) {
@@ -619,6 +620,7 @@ public class FileMongoDBAdaptor extends AnnotationMongoDBAdaptor<File> implement
                 if (remove.getNumDeleted() == 0) {
                     throw new CatalogDBException("File " + tmpFileUid + " could not be deleted");
                 }
+                updateAnnotationSummary(clientSession, tmpFile, false);
 
                 logger.debug("File uid '{}' deleted from main FILE collection", tmpFileUid);
                 numFiles++;
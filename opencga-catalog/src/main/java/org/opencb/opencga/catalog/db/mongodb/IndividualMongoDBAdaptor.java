@@ -77,7 +77,7 @@ public class IndividualMongoDBAdaptor extends AnnotationMongoDBAdaptor<Individua
 
     public IndividualMongoDBAdaptor(MongoDBCollection individualCollection, MongoDBCollection deletedIndividualCollection,
                                     MongoDBAdaptorFactory dbAdaptorFactory) {
-        super(LoggerFactory.getLogger(IndividualMongoDBAdaptor.class));
+        super(LoggerFactory.getLogger(IndividualMongoDBAdaptor.class), MongoDBAdaptorFactory.INDIVIDUAL_COLLECTION);
         this.dbAdaptorFactory = dbAdaptorFactory;
         this.individualCollection = individualCollection;
         this.deletedIndividualCollection = deletedIndividualCollection;
@@ -185,6 +185,7 @@ public class IndividualMongoDBAdaptor extends AnnotationMongoDBAdaptor<Individua
 
         logger.debug("Inserting individual '{}' ({})...", individual.getId(), individual.getUid());
         individualCollection.insert(clientSession, individualDocument, null);
+        updateAnnotationSummary(clientSession, individualDocument, true);
         logger.debug("Individual '{}' successfully inserted", individual.getId());
 
         if (individual.getSamples() != null && !individual.getSamples().isEmpty()) {
@@ -811,6 +812,7 @@ public class IndividualMongoDBAdaptor extends AnnotationMongoDBAdaptor<Individua
             if (remove.getNumDeleted() == 0) {
                 throw new CatalogDBException("Individual " + individualId + " could not be deleted");
             }
+            updateAnnotationSummary(clientSession, tmpIndividual, false);
 
             logger.debug("Individual uid '{}' version '{}' deleted from main INDIVIDUAL collection", individualUid, individualVersion);
         }
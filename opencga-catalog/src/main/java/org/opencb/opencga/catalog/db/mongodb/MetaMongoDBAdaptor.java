@@ -39,6 +39,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static org.opencb.opencga.catalog.db.mongodb.MongoDBUtils.getMongoDBDocument;
@@ -55,6 +56,9 @@ public class MetaMongoDBAdaptor extends MongoDBAdaptor implements MetaDBAdaptor
             Filters.eq(OLD_ID, MongoDBAdaptorFactory.METADATA_OBJECT_ID));
     private final MongoDBCollection metaCollection;
     private static final String VERSION = GitRepositoryState.get().getBuildVersion();
+    // Indexes required by the annotation queries, created even if the creation of the rest of indexes is disabled
+    private static final Set<String> ANNOTATION_INDEXES = Collections.singleton(
+            "studyUid_1_customAnnotationSets.vs_1_customAnnotationSets.id_1_customAnnotationSets.value_1");
 
     public MetaMongoDBAdaptor(MongoDBCollection metaMongoDBCollection, MongoDBAdaptorFactory dbAdaptorFactory) {
         super(LoggerFactory.getLogger(ProjectMongoDBAdaptor.class));
@@ -118,12 +122,30 @@ public class MetaMongoDBAdaptor extends MongoDBAdaptor implements MetaDBAdaptor
         createIndexes(dbAdaptorFactory.getCatalogFamilyDBAdaptor().getFamilyCollection(), indexes.get("family"));
         createIndexes(dbAdaptorFactory.getCatalogPanelDBAdaptor().getPanelCollection(), indexes.get("panel"));
 
+        // Annotation indexes
+        createIndexes(dbAdaptorFactory.getCatalogSampleDBAdaptor().getSampleCollection(), indexes.get("sample"),
+                ANNOTATION_INDEXES::contains);
+        createIndexes(dbAdaptorFactory.getCatalogIndividualDBAdaptor().getIndividualCollection(), indexes.get("individual"),
+                ANNOTATION_INDEXES::contains);
+        createIndexes(dbAdaptorFactory.getCatalogFileDBAdaptor().getCollection(), indexes.get("file"), ANNOTATION_INDEXES::contains);
+        createIndexes(dbAdaptorFactory.getCatalogCohortDBAdaptor().getCohortCollection(), indexes.get("cohort"),
+                ANNOTATION_INDEXES::contains);
+        createIndexes(dbAdaptorFactory.getCatalogFamilyDBAdaptor().getFamilyCollection(), indexes.get("family"),
+                ANNOTATION_INDEXES::contains);
+        createIndexes(dbAdaptorFactory.getMongoDBCollectionMap().get(MongoDBAdaptorFactory.ANNOTATION_SUMMARY_COLLECTION),
+                indexes.get(MongoDBAdaptorFactory.ANNOTATION_SUMMARY_COLLECTION), indexName -> true);
+
     }
 
     private void createIndexes(MongoDBCollection mongoCollection, List<Map<String, ObjectMap>> indexes) {
         if (true) {
             return;
         }
+        createIndexes(mongoCollection, indexes, indexName -> true);
+    }
+
+    // Create the missing indexes accepted by the filter
+    private void createIndexes(MongoDBCollection mongoCollection, List<Map<String, ObjectMap>> indexes, Predicate<String> filter) {
         DataResult<Document> index = mongoCollection.getIndex();
         // We store the existing indexes
         Set<String> existingIndexes = index.getResults()
@@ -146,7 +168,7 @@ public class MetaMongoDBAdaptor extends MongoDBAdaptor implements MetaDBAdaptor
                     indexName += pair.getKey() + "_" + pair.getValue();
                 }
 
-                if (!existingIndexes.contains(indexName)) {
+                if (!existingIndexes.contains(indexName) && filter.test(indexName)) {
                     mongoCollection.createIndex(keys, new ObjectMap(userIndex.get("options")));
                 }
             }
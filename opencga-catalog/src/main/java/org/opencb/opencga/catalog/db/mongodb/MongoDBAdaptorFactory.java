@@ -67,7 +67,8 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
             DELETED_CLINICAL_ANALYSIS_COLLECTION,
             DELETED_INTERPRETATION_COLLECTION,
             METADATA_COLLECTION,
-            AUDIT_COLLECTION
+            AUDIT_COLLECTION,
+            ANNOTATION_SUMMARY_COLLECTION
     );
 
     public static final String USER_COLLECTION = "user";
@@ -96,6 +97,7 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
 
     public static final String METADATA_COLLECTION = "metadata";
     public static final String AUDIT_COLLECTION = "audit";
+    public static final String ANNOTATION_SUMMARY_COLLECTION = "annotation_summary";
     static final String METADATA_OBJECT_ID = "METADATA";
     private final MongoDataStoreManager mongoManager;
     private final MongoDBConfiguration configuration;
@@ -334,6 +336,7 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
         MongoDBCollection deletedInterpretationCollection = mongoDataStore.getCollection(DELETED_INTERPRETATION_COLLECTION);
 
         MongoDBCollection auditCollection = mongoDataStore.getCollection(AUDIT_COLLECTION);
+        MongoDBCollection annotationSummaryCollection = mongoDataStore.getCollection(ANNOTATION_SUMMARY_COLLECTION);
 
         collections = new HashMap<>();
         collections.put(METADATA_COLLECTION, metaCollection);
@@ -363,6 +366,7 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
         collections.put(DELETED_INTERPRETATION_COLLECTION, deletedInterpretationCollection);
 
         collections.put(AUDIT_COLLECTION, auditCollection);
+        collections.put(ANNOTATION_SUMMARY_COLLECTION, annotationSummaryCollection);
 
         fileDBAdaptor = new FileMongoDBAdaptor(fileCollection, deletedFileCollection, this);
         individualDBAdaptor = new IndividualMongoDBAdaptor(individualCollection, deletedIndividualCollection, this);
@@ -78,7 +78,7 @@ public class SampleMongoDBAdaptor extends AnnotationMongoDBAdaptor<Sample> imple
 
     public SampleMongoDBAdaptor(MongoDBCollection sampleCollection, MongoDBCollection deletedSampleCollection,
                                 MongoDBAdaptorFactory dbAdaptorFactory) {
-        super(LoggerFactory.getLogger(SampleMongoDBAdaptor.class));
+        super(LoggerFactory.getLogger(SampleMongoDBAdaptor.class), MongoDBAdaptorFactory.SAMPLE_COLLECTION);
         this.dbAdaptorFactory = dbAdaptorFactory;
         this.sampleCollection = sampleCollection;
         this.deletedSampleCollection = deletedSampleCollection;
@@ -171,6 +171,7 @@ public class SampleMongoDBAdaptor extends AnnotationMongoDBAdaptor<Sample> imple
 
         logger.debug("Inserting sample '{}' ({})...", sample.getId(), sample.getUid());
         sampleCollection.insert(clientSession, sampleObject, null);
+        updateAnnotationSummary(clientSession, sampleObject, true);
         logger.debug("Sample '{}' successfully inserted", sample.getId());
 
         if (individualUid > 0) {
@@ -696,6 +697,7 @@ public class SampleMongoDBAdaptor extends AnnotationMongoDBAdaptor<Sample> imple
             if (remove.getNumDeleted() == 0) {
                 throw new CatalogDBException("Sample " + sampleId + " could not be deleted");
             }
+            updateAnnotationSummary(clientSession, tmpSample, false);
 
             logger.debug("Sample uid '{}' version '{}' deleted from main SAMPLE collection", sampleUid, sampleVersion);
         }
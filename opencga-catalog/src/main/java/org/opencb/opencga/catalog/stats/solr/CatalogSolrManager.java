@@ -26,8 +26,10 @@ import org.opencb.commons.datastore.solr.SolrCollection;
 import org.opencb.commons.datastore.solr.SolrManager;
 import org.opencb.commons.utils.CollectionUtils;
 import org.opencb.opencga.catalog.db.api.DBIterator;
+import org.opencb.opencga.catalog.db.api.StudyDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.managers.CatalogManager;
+import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.config.DatabaseCredentials;
 import org.opencb.opencga.core.models.study.Study;
 import org.slf4j.Logger;
@@ -35,9 +37,11 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 /**
  * Created by wasim on 27/06/18.
@@ -47,9 +51,13 @@ public class CatalogSolrManager {
     private CatalogManager catalogManager;
     private SolrManager solrManager;
     private int insertBatchSize;
+    private long syncOverlap;
     private String DATABASE_PREFIX = "opencga";
 
     public static final int DEFAULT_INSERT_BATCH_SIZE = 10000;
+    // (ms) Entries modified up to this time before the last synchronization are sent again. Covers the updates committed after the
+    // synchronization started, but with an older modification date, and the clock differences between servers.
+    public static final long DEFAULT_SYNC_OVERLAP = 300000;
     public static final String COHORT_SOLR_COLLECTION = "Catalog_Cohort";
     public static final String FILE_SOLR_COLLECTION = "Catalog_File";
     public static final String FAMILY_SOLR_COLLECTION = "Catalog_Family";
@@ -63,6 +71,16 @@ public class CatalogSolrManager {
     public static final String INDIVIDUAL_CONF_SET = "OpenCGACatalogIndividualConfSet";
     public static final String SAMPLE_CONF_SET = "OpenCGACatalogSampleConfSet";
     public static final String JOB_CONF_SET = "OpenCGACatalogJobConfSet";
+
+    // Study attribute with the date of the last successful synchronization of each Solr collection
+    public static final String SYNC_DATE_ATTRIBUTE_PREFIX = "OPENCGA_SOLR_SYNC_";
+    // Index task param to send all the entries, ignoring the date of the last synchronization
+    public static final String FULL_SYNC = "full";
+
+    // Query params common to all the catalog entries
+    private static final String MODIFICATION_DATE = "modificationDate";
+    private static final String STATUS_DATE = "status.date";
+    private static final String DELETED = "deleted";
     private final Map<String, String> CONFIGS_COLLECTION = new HashMap<>();
 
     private Logger logger;
@@ -75,6 +93,8 @@ public class CatalogSolrManager {
         int tmpInsertBatchSize = Integer.parseInt(searchConfiguration.getOptions().getOrDefault("insertBatchSize",
                 String.valueOf(DEFAULT_INSERT_BATCH_SIZE)));
         insertBatchSize = tmpInsertBatchSize > 0 ? tmpInsertBatchSize : DEFAULT_INSERT_BATCH_SIZE;
+        syncOverlap = Math.max(0, Long.parseLong(searchConfiguration.getOptions().getOrDefault("syncOverlap",
+                String.valueOf(DEFAULT_SYNC_OVERLAP))));
         this.solrManager = new SolrManager(searchConfiguration.getHosts(), mode, timeout);
 
         DATABASE_PREFIX = catalogManager.getConfiguration().getDatabasePrefix() + "_";
@@ -136,27 +156,132 @@ public class CatalogSolrManager {
         }
     }
 
+    @FunctionalInterface
+    public interface CatalogIterator<T> {
+        DBIterator<T> iterator(Query query) throws CatalogException;
+    }
+
+    /**
+     * Synchronize the entries of one type of a study with Solr, sending only the ones modified since the last successful
+     * synchronization and removing the ones deleted since then. Changes are committed once, at the end.
+     * Entries modified shortly before the last synchronization, within the "syncOverlap" option, are sent again.
+     * The date of the synchronization is stored in the study attributes only after the commit, so an interrupted synchronization
+     * is resumed from the last successful one.
+     *
+     * @param study          Study, including its attributes.
+     * @param query          Query selecting the entries to index.
+     * @param iterator       Catalog iterator over the entries matching a query.
+     * @param uuid           Uuid of an entry, used as Solr document id.
+     * @param converter      Converter from catalog to Solr models.
+     * @param collectionName Solr collection name.
+     * @param full           Send all the entries, ignoring the date of the last synchronization.
+     * @param token          Token used to store the date of the synchronization.
+     * @param <T>            Catalog model
+     * @return Number of entries sent or removed.
+     * @throws CatalogException CatalogException
+     */
+    public <T> int syncCatalogCollection(Study study, Query query, CatalogIterator<T> iterator, Function<T, String> uuid,
+                                         ComplexTypeConverter converter, String collectionName, boolean full, String token)
+            throws CatalogException {
+        String lastSyncDate = full ? null : getLastSyncDate(study, collectionName);
+        if (lastSyncDate != null && TimeUtils.toDate(lastSyncDate) != null) {
+            lastSyncDate = TimeUtils.getTime(new Date(TimeUtils.toDate(lastSyncDate).getTime() - syncOverlap));
+        }
+        // Taken before reading, so the entries modified during the synchronization are sent again the next time
+        String syncDate = TimeUtils.getTime();
+
+        Query modifiedQuery = new Query(query);
+        Query deletedQuery = new Query(query).append(DELETED, true);
+        if (lastSyncDate != null) {
+            modifiedQuery.append(MODIFICATION_DATE, ">=" + lastSyncDate);
+            deletedQuery.append(STATUS_DATE, ">=" + lastSyncDate);
+            logger.info("Sending {} entries of study {} modified since {}", collectionName, study.getFqn(), lastSyncDate);
+        } else {
+            logger.info("Sending all the {} entries of study {}", collectionName, study.getFqn());
+        }
+
+        int count = addCatalogCollection(iterator.iterator(modifiedQuery), converter, collectionName);
+
+        List<String> deletedIds = new ArrayList<>();
+        try (DBIterator<T> deletedIterator = iterator.iterator(deletedQuery)) {
+            while (deletedIterator.hasNext()) {
+                deletedIds.add(uuid.apply(deletedIterator.next()));
+            }
+        }
+        if (!deletedIds.isEmpty()) {
+            try {
+                solrManager.getSolrClient().deleteById(DATABASE_PREFIX + collectionName, deletedIds);
+            } catch (IOException | SolrServerException e) {
+                throw new CatalogException(e.getMessage(), e);
+            }
+        }
+
+        commit(collectionName);
+        logger.info("{} {} entries sent and {} removed", count, collectionName, deletedIds.size());
+
+        ObjectMap attributes = new ObjectMap(SYNC_DATE_ATTRIBUTE_PREFIX + collectionName, syncDate);
+        catalogManager.getStudyManager().update(study.getFqn(), new ObjectMap(StudyDBAdaptor.QueryParams.ATTRIBUTES.key(), attributes),
+                QueryOptions.empty(), token);
+        if (study.getAttributes() != null) {
+            study.getAttributes().putAll(attributes);
+        }
+
+        return count + deletedIds.size();
+    }
+
+    /**
+     * Get the date of the last successful synchronization of a Solr collection.
+     *
+     * @param study          Study, including its attributes.
+     * @param collectionName Solr collection name.
+     * @return Date of the last synchronization, or null if never synchronized.
+     */
+    public String getLastSyncDate(Study study, String collectionName) {
+        if (study.getAttributes() == null) {
+            return null;
+        }
+        Object date = study.getAttributes().get(SYNC_DATE_ATTRIBUTE_PREFIX + collectionName);
+        return date == null ? null : date.toString();
+    }
+
     public <T> void insertCatalogCollection(DBIterator<T> iterator, ComplexTypeConverter converter, String collectionName)
             throws CatalogException {
+        addCatalogCollection(iterator, converter, collectionName);
+        commit(collectionName);
+    }
+
+    public <T, M> void insertCatalogCollection(List<T> records, ComplexTypeConverter converter, String collectionName)
+            throws CatalogException {
+        addCatalogCollection(records, converter, collectionName);
+        commit(collectionName);
+    }
 
+    // Send all the entries in batches of insertBatchSize, without committing
+    private <T> int addCatalogCollection(DBIterator<T> iterator, ComplexTypeConverter converter, String collectionName)
+            throws CatalogException {
         int count = 0;
         List<T> records = new ArrayList<>(insertBatchSize);
-        while (iterator.hasNext()) {
-            T record = iterator.next();
-            records.add(record);
-            count++;
-            if (count % insertBatchSize == 0) {
-                insertCatalogCollection(records, converter, collectionName);
-                records.clear();
+        try {
+            while (iterator.hasNext()) {
+                T record = iterator.next();
+                records.add(record);
+                count++;
+                if (count % insertBatchSize == 0) {
+                    addCatalogCollection(records, converter, collectionName);
+                    records.clear();
+                }
             }
-        }
 
-        if (CollectionUtils.isNotEmpty(records)) {
-            insertCatalogCollection(records, converter, collectionName);
+            if (CollectionUtils.isNotEmpty(records)) {
+                addCatalogCollection(records, converter, collectionName);
+            }
+        } finally {
+            iterator.close();
         }
+        return count;
     }
 
-    public <T, M> void insertCatalogCollection(List<T> records, ComplexTypeConverter converter, String collectionName)
+    private <T, M> void addCatalogCollection(List<T> records, ComplexTypeConverter converter, String collectionName)
             throws CatalogException {
         List<M> solrModels = new ArrayList<>();
 
@@ -167,9 +292,7 @@ public class CatalogSolrManager {
         UpdateResponse updateResponse;
         try {
             updateResponse = solrManager.getSolrClient().addBeans(DATABASE_PREFIX + collectionName, solrModels);
-            if (updateResponse.getStatus() == 0) {
-                solrManager.getSolrClient().commit(DATABASE_PREFIX + collectionName);
-            } else {
+            if (updateResponse.getStatus() != 0) {
                 throw new CatalogException(updateResponse.getException());
             }
         } catch (IOException | SolrServerException e) {
@@ -177,6 +300,14 @@ public class CatalogSolrManager {
         }
     }
 
+    private void commit(String collectionName) throws CatalogException {
+        try {
+            solrManager.getSolrClient().commit(DATABASE_PREFIX + collectionName);
+        } catch (IOException | SolrServerException e) {
+            throw new CatalogException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Return faceted data from a Solr core/collection
      * according a given query.
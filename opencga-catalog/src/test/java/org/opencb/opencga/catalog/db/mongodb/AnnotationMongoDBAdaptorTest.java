@@ -0,0 +1,158 @@
+package org.opencb.opencga.catalog.db.mongodb;
+
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.core.QueryParam;
+import org.opencb.opencga.catalog.managers.AbstractManagerTest;
+import org.opencb.opencga.catalog.utils.ParamUtils;
+import org.opencb.opencga.core.models.summaries.FeatureCount;
+import org.opencb.opencga.core.models.summaries.VariableSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.*;
+
+/**
+ * Created on 19/10/20.
+ */
+public class AnnotationMongoDBAdaptorTest extends AbstractManagerTest {
+
+    private static final String ANNOTATION_INDEX
+            = "studyUid_1_customAnnotationSets.vs_1_customAnnotationSets.id_1_customAnnotationSets.value_1";
+
+    @Test
+    public void toIndexedValueQuery() {
+        Document or = new Document("$or", Arrays.asList(new Document("value", "a"), new Document("value", 3)));
+        assertEquals(new Document("value", new Document("$in", Arrays.asList("a", 3))), AnnotationMongoDBAdaptor.toIndexedValueQuery(or));
+
+        Document single = new Document("value", "a");
+        assertSame(single, AnnotationMongoDBAdaptor.toIndexedValueQuery(single));
+
+        // Operators and regular expressions are not rewritten
+        Document range = new Document("$or", Arrays.asList(new Document("value", new Document("$gt", 3)), new Document("value", 1)));
+        assertSame(range, AnnotationMongoDBAdaptor.toIndexedValueQuery(range));
+        Document regex = new Document("$or", Arrays.asList(new Document("value", Pattern.compile("^a")), new Document("value", "b")));
+        assertSame(regex, AnnotationMongoDBAdaptor.toIndexedValueQuery(regex));
+    }
+
+    @Test
+    public void annotationQueryUsesIndex() throws Exception {
+        MongoDBAdaptorFactory dbAdaptorFactory = new MongoDBAdaptorFactory(catalogManager.getConfiguration());
+        try {
+            dbAdaptorFactory.createIndexes();
+            MongoDatabase db = dbAdaptorFactory.getMongoDataStore().getDb();
+
+            // Same annotations in other studies and variable sets, so only the compound index is selective
+            List<Document> samples = new ArrayList<>();
+            for (long studyUid = 1001; studyUid <= 1003; studyUid++) {
+                for (int i = 0; i < 100; i++) {
+                    samples.add(new Document(MongoDBAdaptor.PRIVATE_STUDY_UID, studyUid)
+                            .append("id", "S" + studyUid + "_" + i)
+                            .append("uuid", "S" + studyUid + "_" + i)
+                            .append(MongoDBAdaptor.PRIVATE_UID, studyUid * 1000 + i)
+                            .append("version", 1)
+                            .append("customAnnotationSets", Arrays.asList(
+                                    new Document("vs", 10L).append("id", "age").append("value", i % 50),
+                                    new Document("vs", 10L).append("id", "name").append("value", "S" + i),
+                                    new Document("vs", 11L).append("id", "age").append("value", i % 50))));
+                }
+            }
+            db.getCollection(MongoDBAdaptorFactory.SAMPLE_COLLECTION).insertMany(samples);
+
+            ObjectMap variableTypeMap = new ObjectMap("vs1", 10L).append("vs1:age", QueryParam.Type.INTEGER);
+            Document query = new Document("$and", Arrays.asList(
+                    new Document(MongoDBAdaptor.PRIVATE_STUDY_UID, 1002L),
+                    dbAdaptorFactory.getCatalogSampleDBAdaptor().createAnnotationQuery("vs1:age=30,31", variableTypeMap)));
+
+            Document explain = db.runCommand(new Document("explain",
+                    new Document("find", MongoDBAdaptorFactory.SAMPLE_COLLECTION).append("filter", query))
+                    .append("verbosity", "executionStats"));
+
+            String winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+            assertThat(winningPlan, containsString("IXSCAN"));
+            assertThat(winningPlan, containsString(ANNOTATION_INDEX));
+            assertThat(winningPlan, not(containsString("COLLSCAN")));
+
+            // Samples 30, 31, 80 and 81 of the study. No other document is read.
+            Document executionStats = explain.get("executionStats", Document.class);
+            assertEquals(4, ((Number) executionStats.get("nReturned")).intValue());
+            assertEquals(4, ((Number) executionStats.get("totalDocsExamined")).intValue());
+        } finally {
+            dbAdaptorFactory.close();
+        }
+    }
+
+    @Test
+    public void rebuildAnnotationSummaryWithConcurrentUpdate() throws Exception {
+        MongoDBAdaptorFactory dbAdaptorFactory = new MongoDBAdaptorFactory(catalogManager.getConfiguration());
+        try {
+            SampleMongoDBAdaptor sampleDBAdaptor = dbAdaptorFactory.getCatalogSampleDBAdaptor();
+            long variableSetUid = catalogManager.getStudyManager().getVariableSet(studyFqn, "vs", QueryOptions.empty(), token).first()
+                    .getUid();
+
+            // A rebuild reads the entries, and an update commits before the rebuild saves the summary
+            sampleDBAdaptor.startSummaryRebuild(studyUid, variableSetUid);
+            long version = sampleDBAdaptor.getSummaryVersion(studyUid, variableSetUid);
+            List<Document> valueCounts = sampleDBAdaptor.aggregateAnnotationSummary(studyUid, variableSetUid);
+            updatePhenotype(s_1, "CASE");
+            assertFalse(sampleDBAdaptor.saveAnnotationSummary(studyUid, variableSetUid, version, valueCounts));
+            sampleDBAdaptor.finishSummaryRebuild(studyUid, variableSetUid);
+
+            // The summary is built from the updated entries
+            List<String> summary = toStrings(sampleDBAdaptor.getAnnotationSummary(studyUid, variableSetUid).getResults());
+            assertEquals(toStrings(sampleDBAdaptor.rebuildAnnotationSummary(studyUid, variableSetUid).getResults()), summary);
+            assertTrue(summary.contains("PHEN=CASE:4"));
+
+            // Without a rebuild in progress, the updates do not change the version
+            version = sampleDBAdaptor.getSummaryVersion(studyUid, variableSetUid);
+            updatePhenotype(s_2, "CONTROL");
+            updatePhenotype(s_2, "CASE");
+            assertEquals(version, sampleDBAdaptor.getSummaryVersion(studyUid, variableSetUid));
+
+            // Same with the summary already built: the outdated rebuild is discarded, and the update is applied to the summary
+            sampleDBAdaptor.startSummaryRebuild(studyUid, variableSetUid);
+            version = sampleDBAdaptor.getSummaryVersion(studyUid, variableSetUid);
+            valueCounts = sampleDBAdaptor.aggregateAnnotationSummary(studyUid, variableSetUid);
+            updatePhenotype(s_2, "CONTROL");
+            assertFalse(sampleDBAdaptor.saveAnnotationSummary(studyUid, variableSetUid, version, valueCounts));
+            sampleDBAdaptor.finishSummaryRebuild(studyUid, variableSetUid);
+
+            summary = toStrings(sampleDBAdaptor.getAnnotationSummary(studyUid, variableSetUid).getResults());
+            assertEquals(toStrings(sampleDBAdaptor.rebuildAnnotationSummary(studyUid, variableSetUid).getResults()), summary);
+            assertTrue(summary.contains("PHEN=CASE:3"));
+
+            // Removing a variable discards the summary, and any rebuild started before
+            version = sampleDBAdaptor.getSummaryVersion(studyUid, variableSetUid);
+            valueCounts = sampleDBAdaptor.aggregateAnnotationSummary(studyUid, variableSetUid);
+            catalogManager.getStudyManager().removeFieldFromVariableSet(studyFqn, "vs", "EXTRA", token);
+            assertFalse(sampleDBAdaptor.saveAnnotationSummary(studyUid, variableSetUid, version, valueCounts));
+            assertEquals(toStrings(sampleDBAdaptor.rebuildAnnotationSummary(studyUid, variableSetUid).getResults()),
+                    toStrings(sampleDBAdaptor.getAnnotationSummary(studyUid, variableSetUid).getResults()));
+        } finally {
+            dbAdaptorFactory.close();
+        }
+    }
+
+    private void updatePhenotype(String sample, String phenotype) throws Exception {
+        catalogManager.getSampleManager().updateAnnotations(studyFqn, sample, "annot1", new ObjectMap("PHEN", phenotype),
+                ParamUtils.CompleteUpdateAction.ADD, QueryOptions.empty(), token);
+    }
+
+    private List<String> toStrings(List<VariableSummary> summary) {
+        List<String> list = new ArrayList<>();
+        for (VariableSummary variableSummary : summary) {
+            for (FeatureCount featureCount : variableSummary.getAnnotations()) {
+                list.add(variableSummary.getName() + "=" + featureCount.getName() + ":" + featureCount.getCount());
+            }
+        }
+        return list;
+    }
+}
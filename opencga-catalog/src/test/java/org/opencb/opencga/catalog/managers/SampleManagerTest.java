@@ -31,6 +31,7 @@ import org.opencb.opencga.core.models.study.Variable;
 import org.opencb.opencga.core.models.study.VariableSet;
 import org.opencb.opencga.core.models.summaries.FeatureCount;
 import org.opencb.opencga.core.models.summaries.VariableSetSummary;
+import org.opencb.opencga.core.models.summaries.VariableSummary;
 import org.opencb.opencga.core.models.user.Account;
 import org.opencb.opencga.core.response.OpenCGAResult;
 
@@ -1110,6 +1111,37 @@ public class SampleManagerTest extends AbstractManagerTest {
 
     }
 
+    @Test
+    public void getVariableSetSummaryAfterUpdates() throws CatalogException {
+        // Build the summary
+        VariableSetSummary summary = catalogManager.getStudyManager().getVariableSetSummary(studyFqn, "vs", token).first();
+        assertEquals(5, getSummaryCount(summary, "PHEN", "CONTROL"));
+        assertEquals(3, getSummaryCount(summary, "PHEN", "CASE"));
+
+        catalogManager.getSampleManager().updateAnnotations(studyFqn, s_1, "annot1", new ObjectMap("PHEN", "CASE"),
+                ParamUtils.CompleteUpdateAction.ADD, new QueryOptions(Constants.INCREMENT_VERSION, true), token);
+        catalogManager.getSampleManager().removeAnnotationSet(studyFqn, "s_2", "annot1", QueryOptions.empty(), token);
+
+        summary = catalogManager.getStudyManager().getVariableSetSummary(studyFqn, "vs", token).first();
+        assertEquals(4, getSummaryCount(summary, "PHEN", "CONTROL"));
+        assertEquals(3, getSummaryCount(summary, "PHEN", "CASE"));
+        assertEquals(0, getSummaryCount(summary, "NAME", "s_2"));
+        assertEquals(1, getSummaryCount(summary, "NAME", "s_1"));
+    }
+
+    private long getSummaryCount(VariableSetSummary summary, String variable, Object value) {
+        for (VariableSummary variableSummary : summary.getSamples()) {
+            if (variableSummary.getName().equals(variable)) {
+                for (FeatureCount featureCount : variableSummary.getAnnotations()) {
+                    if (featureCount.getName().equals(value)) {
+                        return featureCount.getCount();
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
     @Test
     public void testModifySample() throws CatalogException {
         String sampleId1 = catalogManager.getSampleManager()
@@ -1159,6 +1191,27 @@ public class SampleManagerTest extends AbstractManagerTest {
 
     }
 
+    @Test
+    public void testUpdateAclModificationDate() throws Exception {
+        catalogManager.getSampleManager().create(studyFqn, new Sample().setId("SAMPLE_1"), new QueryOptions(), token);
+        String modificationDate = catalogManager.getSampleManager().get(studyFqn, "SAMPLE_1", QueryOptions.empty(), token).first()
+                .getModificationDate();
+
+        // Modification dates have a resolution of one second
+        Thread.sleep(1100);
+        catalogManager.getSampleManager().updateAcl(studyFqn, Collections.singletonList("SAMPLE_1"), "user2",
+                new Sample.SampleAclParams(SampleAclEntry.SamplePermissions.VIEW.name(), AclParams.Action.SET, null, null, null),
+                token);
+
+        // ACL changes are modifications, so the next incremental sync of the search engine picks them up
+        String newModificationDate = catalogManager.getSampleManager().get(studyFqn, "SAMPLE_1", QueryOptions.empty(), token).first()
+                .getModificationDate();
+        assertTrue(newModificationDate.compareTo(modificationDate) > 0);
+        assertEquals(1, catalogManager.getSampleManager().search(studyFqn,
+                new Query(SampleDBAdaptor.QueryParams.MODIFICATION_DATE.key(), ">" + modificationDate), QueryOptions.empty(), token)
+                .getNumResults());
+    }
+
     @Test
     public void searchSamplesByIndividual() throws CatalogException {
         catalogManager.getIndividualManager().create(studyFqn, new Individual().setId("Individual1")
@@ -5,6 +5,7 @@ import org.apache.solr.client.solrj.SolrServerException;
 import org.junit.Test;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.catalog.db.api.*;
@@ -21,12 +22,13 @@ import org.opencb.opencga.core.models.sample.Sample;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 import static org.opencb.opencga.catalog.utils.Constants.FLATTENED_ANNOTATIONS;
 
 public class CatalogSolrManagerTest extends AbstractSolrManagerTest {
@@ -192,6 +194,38 @@ public class CatalogSolrManagerTest extends AbstractSolrManagerTest {
         assertEquals(3, facet.getResults().get(0).getBuckets().get(0).getCount());
     }
 
+    @Test
+    public void testSyncSamples() throws CatalogException {
+        MongoDBAdaptorFactory factory = new MongoDBAdaptorFactory(catalogManager.getConfiguration());
+
+        Map<String, Set<String>> studyAcls =
+                SolrConverterUtil.parseInternalOpenCGAAcls((List<Map<String, Object>>) study.getAttributes().get("OPENCGA_ACL"));
+        // We replace the current studyAcls for the parsed one
+        study.getAttributes().put("OPENCGA_ACL", studyAcls);
+
+        QueryOptions queryOptions = new QueryOptions(FLATTENED_ANNOTATIONS, true)
+                .append(DBAdaptor.INCLUDE_ACLS, true);
+        SampleDBAdaptor sampleDBAdaptor = factory.getCatalogSampleDBAdaptor();
+        Query query = new Query(SampleDBAdaptor.QueryParams.STUDY_UID.key(), study.getUid());
+
+        assertNull(catalogSolrManager.getLastSyncDate(study, CatalogSolrManager.SAMPLE_SOLR_COLLECTION));
+        int count = catalogSolrManager.syncCatalogCollection(study, query, q -> sampleDBAdaptor.iterator(q, queryOptions),
+                Sample::getUuid, new CatalogSampleToSolrSampleConverter(study), CatalogSolrManager.SAMPLE_SOLR_COLLECTION, false,
+                sessionIdOwner);
+        assertEquals(3, count);
+        assertNotNull(catalogSolrManager.getLastSyncDate(study, CatalogSolrManager.SAMPLE_SOLR_COLLECTION));
+
+        // The deleted sample is removed from the collection
+        catalogManager.getSampleManager().delete(studyFqn, Collections.singletonList("sample3"), new ObjectMap(), sessionIdOwner);
+        catalogSolrManager.syncCatalogCollection(study, query, q -> sampleDBAdaptor.iterator(q, queryOptions),
+                Sample::getUuid, new CatalogSampleToSolrSampleConverter(study), CatalogSolrManager.SAMPLE_SOLR_COLLECTION, false,
+                sessionIdOwner);
+
+        DataResult<FacetField> facet = catalogSolrManager.facetedQuery(study, CatalogSolrManager.SAMPLE_SOLR_COLLECTION,
+                new Query(), new QueryOptions(QueryOptions.FACET, SampleDBAdaptor.QueryParams.RELEASE.key()), "owner");
+        assertEquals(2, facet.getResults().get(0).getBuckets().get(0).getCount());
+    }
+
     @Test
     public void testInsertFiles() throws CatalogException, SolrServerException, IOException {
         Map<String, Set<String>> studyAcls =
@@ -32,6 +32,7 @@ import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.client.config.ClientConfiguration;
 import org.opencb.opencga.client.exceptions.ClientException;
+import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.response.RestResponse;
 import org.opencb.opencga.core.response.VariantQueryResult;
 import org.slf4j.Logger;
@@ -160,11 +161,19 @@ public abstract class AbstractParentClient {
 
         int skip = params.getInt(QueryOptions.SKIP, DEFAULT_SKIP);
 
+        // Continuation token returned by queries supporting deep pagination. Used instead of skip, if present.
+        String cursor = params.getString(ParamConstants.CURSOR_PARAM, null);
+
         RestResponse<T> finalRestResponse = null;
         RestResponse<T> queryResponse;
 
         while (true) {
-            params.put(QueryOptions.SKIP, skip);
+            if (StringUtils.isEmpty(cursor)) {
+                params.put(QueryOptions.SKIP, skip);
+            } else {
+                params.remove(QueryOptions.SKIP);
+                params.put(ParamConstants.CURSOR_PARAM, cursor);
+            }
             params.put(QueryOptions.LIMIT, limit);
             params.put(QueryOptions.TIMEOUT, timeout);
 
@@ -179,6 +188,7 @@ public abstract class AbstractParentClient {
                 queryResponse = callRest(path, params, clazz, method);
             }
             int numResults = queryResponse.getResponses().isEmpty() ? 0 : queryResponse.getResponses().get(0).getNumResults();
+            cursor = getNextCursor(queryResponse);
 
             if (finalRestResponse == null) {
                 finalRestResponse = queryResponse;
@@ -206,6 +216,14 @@ public abstract class AbstractParentClient {
         return finalRestResponse;
     }
 
+    private <T> String getNextCursor(RestResponse<T> queryResponse) {
+        if (queryResponse.getResponses() == null || queryResponse.getResponses().isEmpty()) {
+            return null;
+        }
+        ObjectMap attributes = queryResponse.getResponses().get(0).getAttributes();
+        return attributes == null ? null : attributes.getString(VariantQueryResult.NEXT_CURSOR, null);
+    }
+
     /**
      * Call to WS using get or post method.
      *
@@ -13,6 +13,9 @@ public class ParamConstants {
     public static final String LIMIT_DESCRIPTION = "Number of results to be returned";
     public static final String SKIP_DESCRIPTION = "Number of results to skip";
     public static final String COUNT_DESCRIPTION = "Get the total number of results matching the query. Deactivated by default.";
+    public static final String CURSOR_PARAM = "cursor";
+    public static final String CURSOR_DESCRIPTION = "Continuation token returned as 'nextCursor' by a previous query. Resumes the query after "
+            + "the last returned result. Can not be combined with skip";
 
     public static final String CREATION_DATE_DESCRIPTION = "Creation date. Format: yyyyMMddHHmmss. Examples: >2018, 2017-2018, <201805";
     public static final String CREATION_DATE_PARAM = "creationDate";
@@ -38,6 +38,7 @@ public class VariantQueryResult<T> extends OpenCGAResult<T> {
     private static final String SOURCE = "source";
     private static final String APPROXIMATE_COUNT = "approximateCount";
     private static final String APPROXIMATE_COUNT_SAMPLING_SIZE = "approximateCountSamplingSize";
+    public static final String NEXT_CURSOR = "nextCursor";
 
     public VariantQueryResult() {
     }
@@ -140,6 +141,25 @@ public class VariantQueryResult<T> extends OpenCGAResult<T> {
         return this;
     }
 
+    /**
+     * Opaque continuation token to be used as "cursor" to fetch the next page of results.
+     * Null if there are no more results.
+     *
+     * @return Next cursor
+     */
+    public String getNextCursor() {
+        return getAttributes().getString(NEXT_CURSOR, null);
+    }
+
+    public VariantQueryResult<T> setNextCursor(String nextCursor) {
+        if (nextCursor == null) {
+            getAttributes().remove(NEXT_CURSOR);
+        } else {
+            getAttributes().put(NEXT_CURSOR, nextCursor);
+        }
+        return this;
+    }
+
     public String getSource() {
         return getAttributes().getString(SOURCE);
     }
@@ -339,6 +339,7 @@ public class OpenCGAWSServer {
                     break;
                 case QueryOptions.SORT:
                 case QueryOptions.ORDER:
+                case ParamConstants.CURSOR_PARAM:
                     queryOptions.put(entry.getKey(), value);
                     break;
                 case QueryOptions.SKIP_COUNT:
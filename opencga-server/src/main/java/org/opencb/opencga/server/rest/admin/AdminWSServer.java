@@ -17,6 +17,7 @@ import org.opencb.opencga.analysis.sample.SampleIndexTask;
 import org.opencb.opencga.catalog.db.api.MetaDBAdaptor;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.managers.PanelManager;
+import org.opencb.opencga.catalog.stats.solr.CatalogSolrManager;
 import org.opencb.opencga.catalog.utils.Constants;
 import org.opencb.opencga.core.exceptions.VersionException;
 import org.opencb.opencga.core.models.admin.*;
@@ -178,9 +179,11 @@ public class AdminWSServer extends OpenCGAWSServer {
     @POST
     @Path("/catalog/indexStats")
     @ApiOperation(value = "Sync Catalog into the Solr", response = Boolean.class)
-    public Response syncSolr() {
+    public Response syncSolr(
+            @ApiParam(value = "Index all the entries instead of only the ones modified since the last synchronization")
+            @DefaultValue("false") @QueryParam("full") boolean full) {
         try {
-            ObjectMap params = new ObjectMap();
+            ObjectMap params = new ObjectMap(CatalogSolrManager.FULL_SYNC, full);
             List<OpenCGAResult<Job>> results = new ArrayList<>(6);
             results.add(catalogManager.getJobManager().submit("admin", FileIndexTask.ID, Enums.Priority.MEDIUM, params, token));
             results.add(catalogManager.getJobManager().submit("admin", SampleIndexTask.ID, Enums.Priority.MEDIUM, params, token));
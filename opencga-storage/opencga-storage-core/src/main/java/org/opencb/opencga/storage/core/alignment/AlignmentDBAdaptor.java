@@ -28,6 +28,7 @@ import org.opencb.opencga.storage.core.alignment.iterators.AlignmentIterator;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 
 
 public interface AlignmentDBAdaptor {
@@ -59,5 +60,19 @@ public interface AlignmentDBAdaptor {
     OpenCGAResult<RegionCoverage> coverageQuery(Path path, Region region, int minCoverage, int maxCoverage, int windowSize)
             throws Exception;
 
+    /**
+     * Compute the coverage of a list of regions, opening the file only once.
+     *
+     * @param path        File path
+     * @param regions     Regions, preferably sorted
+     * @param minCoverage Min coverage
+     * @param maxCoverage Max coverage
+     * @param windowSize  Window size
+     * @return Coverage of all the regions, in the same order
+     * @throws Exception on error
+     */
+    OpenCGAResult<RegionCoverage> coverageQuery(Path path, List<Region> regions, int minCoverage, int maxCoverage, int windowSize)
+            throws Exception;
+
     OpenCGAResult<Long> getTotalCounts(Path path) throws AlignmentCoverageException, IOException;
 }
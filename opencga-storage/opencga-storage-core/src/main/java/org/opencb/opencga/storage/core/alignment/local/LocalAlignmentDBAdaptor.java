@@ -152,21 +152,81 @@ public class LocalAlignmentDBAdaptor implements AlignmentDBAdaptor {
     @Override
     public OpenCGAResult<RegionCoverage> coverageQuery(Path path, Region region, int minCoverage, int maxCoverage, int windowSize)
             throws Exception {
+        return coverageQuery(path, Collections.singletonList(region), minCoverage, maxCoverage, windowSize);
+    }
+
+    @Override
+    public OpenCGAResult<RegionCoverage> coverageQuery(Path path, List<Region> regions, int minCoverage, int maxCoverage,
+                                                       int windowSize) throws Exception {
         FileUtils.checkFile(path);
 
         StopWatch watch = StopWatch.createStarted();
 
-        RegionCoverage regionCoverage;
-        if (path.toString().endsWith("bw") || path.toString().endsWith("bigwig")) {
-            regionCoverage = BamUtils.getCoverageFromBigWig(region, windowSize, path);
-        } else {
-            BamManager bamManager = new BamManager(path);
-            regionCoverage = bamManager.coverage(region, windowSize);
-            bamManager.close();
+        List<RegionCoverage> selectedRegions = new ArrayList<>();
+        if (!readMultiResolutionCoverage(path, regions, minCoverage, maxCoverage, windowSize, selectedRegions)) {
+            if (isBigWig(path)) {
+                for (Region region : regions) {
+                    RegionCoverage regionCoverage = BamUtils.getCoverageFromBigWig(region, windowSize, path);
+                    selectCoverage(regionCoverage, minCoverage, maxCoverage, selectedRegions);
+                }
+            } else {
+                // Open the file only once. Regions are expected to be sorted, so the file is read sequentially
+                BamManager bamManager = new BamManager(path);
+                try {
+                    for (Region region : regions) {
+                        RegionCoverage regionCoverage = bamManager.coverage(region, windowSize);
+                        selectCoverage(regionCoverage, minCoverage, maxCoverage, selectedRegions);
+                    }
+                } finally {
+                    bamManager.close();
+                }
+            }
         }
 
+        watch.stop();
+        return new OpenCGAResult<>(((int) watch.getTime()), Collections.emptyList(), selectedRegions.size(), selectedRegions,
+                selectedRegions.size());
+    }
+
+    // Read the coverage from the precomputed multi-resolution coverage file, if any, from the coarsest resolution that satisfies
+    // the window size. Returns false if there is no such file, or if the window size is finer than the precomputed ones, so the
+    // coverage must be computed from the alignment file
+    private static boolean readMultiResolutionCoverage(Path path, List<Region> regions, int minCoverage, int maxCoverage,
+                                                       int windowSize, List<RegionCoverage> selectedRegions) throws IOException {
+        Path coveragePath = getMultiResolutionCoveragePath(path);
+        if (coveragePath == null) {
+            return false;
+        }
+        try (MultiResolutionCoverage coverage = MultiResolutionCoverage.open(coveragePath)) {
+            if (!coveragePath.equals(path) && !coverage.supportsWindowSize(windowSize)) {
+                return false;
+            }
+            for (Region region : regions) {
+                selectCoverage(coverage.query(region, windowSize), minCoverage, maxCoverage, selectedRegions);
+            }
+        }
+        return true;
+    }
+
+    // The file itself if it is a multi-resolution coverage file, the coverage file computed for the alignment file, or null
+    private static Path getMultiResolutionCoveragePath(Path path) {
+        if (MultiResolutionCoverage.isMultiResolutionCoverage(path)) {
+            return path;
+        }
+        Path coveragePath = MultiResolutionCoverage.getCoveragePath(path);
+        if (!isBigWig(path) && coveragePath.toFile().exists()) {
+            return coveragePath;
+        }
+        return null;
+    }
+
+    private static boolean isBigWig(Path path) {
+        return path.toString().endsWith("bw") || path.toString().endsWith("bigwig");
+    }
+
+    private static void selectCoverage(RegionCoverage regionCoverage, int minCoverage, int maxCoverage,
+                                       List<RegionCoverage> selectedRegions) {
         // If necessary, filter by coverage range and remove empty regions
-        List<RegionCoverage> selectedRegions = new ArrayList<>();
         if (minCoverage <= 0 && maxCoverage >= Integer.MAX_VALUE) {
             selectedRegions.add(regionCoverage);
         } else {
@@ -180,10 +240,6 @@ public class LocalAlignmentDBAdaptor implements AlignmentDBAdaptor {
                 }
             }
         }
-
-        watch.stop();
-        return new OpenCGAResult<>(((int) watch.getTime()), Collections.emptyList(), selectedRegions.size(), selectedRegions,
-                selectedRegions.size());
     }
 
     @Override
@@ -192,7 +248,12 @@ public class LocalAlignmentDBAdaptor implements AlignmentDBAdaptor {
 
         StopWatch watch = StopWatch.createStarted();
         long totalCounts;
-        if (path.toFile().getName().endsWith(".bam")) {
+        Path coveragePath = getMultiResolutionCoveragePath(path);
+        if (coveragePath != null) {
+            try (MultiResolutionCoverage coverage = MultiResolutionCoverage.open(coveragePath)) {
+                totalCounts = coverage.getTotalCounts();
+            }
+        } else if (path.toFile().getName().endsWith(".bam")) {
             if (new File(path.toString() + ".bw").exists()) {
                 totalCounts = WigUtils.getTotalCounts(new BigWigManager(Paths.get(path + ".bw")).getBbFileReader());
             } else {
@@ -0,0 +1,284 @@
+package org.opencb.opencga.storage.core.alignment.local;
+
+import org.opencb.biodata.models.alignment.RegionCoverage;
+import org.opencb.biodata.models.core.Region;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Created on 19/10/20.
+ *
+ * Reader of the multi-resolution coverage files written by {@link MultiResolutionCoverageBuilder}.
+ *
+ * The file contains, for each contig, the mean depth of consecutive windows at several window sizes, each one a multiple of the
+ * previous. Values are stored in independently compressed blocks, so a query only reads the blocks overlapping the region, from
+ * the coarsest resolution that satisfies the requested window size.
+ *
+ * File layout:
+ *  - int magic, int version, int header length
+ *  - header: window sizes, and for each contig its name, length, total depth and the offset and length of each block
+ *  - data: deflated blocks of {@link #BLOCK_SIZE} float values
+ */
+public class MultiResolutionCoverage implements Closeable {
+
+    public static final String COVERAGE_SUFFIX = ".coverage";
+
+    static final int MAGIC = 0x4F434356; // OCCV
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 4096;
+
+    private final RandomAccessFile file;
+    private final long dataOffset;
+    private final int[] windowSizes;
+    private final Map<String, Contig> contigs;
+
+    private static final class Contig {
+        private final String name;
+        private final int length;
+        private final long totalDepth;
+        private final int[] numWindows;
+        private final long[][] blockOffsets;
+        private final int[][] blockLengths;
+
+        Contig(String name, int length, long totalDepth, int[] numWindows, long[][] blockOffsets, int[][] blockLengths) {
+            this.name = name;
+            this.length = length;
+            this.totalDepth = totalDepth;
+            this.numWindows = numWindows;
+            this.blockOffsets = blockOffsets;
+            this.blockLengths = blockLengths;
+        }
+    }
+
+    private MultiResolutionCoverage(RandomAccessFile file) throws IOException {
+        this.file = file;
+        if (file.readInt() != MAGIC) {
+            throw new IOException("Not a multi-resolution coverage file");
+        }
+        int version = file.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported multi-resolution coverage file version " + version);
+        }
+        byte[] header = new byte[file.readInt()];
+        file.readFully(header);
+        dataOffset = file.getFilePointer();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(header));
+        windowSizes = new int[in.readInt()];
+        for (int i = 0; i < windowSizes.length; i++) {
+            windowSizes[i] = in.readInt();
+        }
+        int numContigs = in.readInt();
+        contigs = new LinkedHashMap<>(numContigs);
+        for (int i = 0; i < numContigs; i++) {
+            String name = in.readUTF();
+            int length = in.readInt();
+            long totalDepth = in.readLong();
+            int[] numWindows = new int[windowSizes.length];
+            long[][] blockOffsets = new long[windowSizes.length][];
+            int[][] blockLengths = new int[windowSizes.length][];
+            for (int level = 0; level < windowSizes.length; level++) {
+                numWindows[level] = in.readInt();
+                int numBlocks = numBlocks(numWindows[level]);
+                blockOffsets[level] = new long[numBlocks];
+                blockLengths[level] = new int[numBlocks];
+                for (int block = 0; block < numBlocks; block++) {
+                    blockOffsets[level][block] = in.readLong();
+                    blockLengths[level][block] = in.readInt();
+                }
+            }
+            contigs.put(name, new Contig(name, length, totalDepth, numWindows, blockOffsets, blockLengths));
+        }
+    }
+
+    public static MultiResolutionCoverage open(Path path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path.toFile(), "r");
+        try {
+            return new MultiResolutionCoverage(file);
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the path of the multi-resolution coverage file of an alignment file.
+     *
+     * @param alignmentPath Alignment file
+     * @return Coverage file path. The file might not exist.
+     */
+    public static Path getCoveragePath(Path alignmentPath) {
+        return alignmentPath.resolveSibling(alignmentPath.getFileName() + COVERAGE_SUFFIX);
+    }
+
+    public static boolean isMultiResolutionCoverage(Path path) {
+        return path.toString().endsWith(COVERAGE_SUFFIX);
+    }
+
+    static int numBlocks(int numWindows) {
+        return (numWindows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    public List<Integer> getWindowSizes() {
+        List<Integer> list = new ArrayList<>(windowSizes.length);
+        for (int windowSize : windowSizes) {
+            list.add(windowSize);
+        }
+        return list;
+    }
+
+    /**
+     * Check if the file has a resolution fine enough for the given window size.
+     *
+     * @param windowSize Window size
+     * @return If the window size is not smaller than the finest resolution
+     */
+    public boolean supportsWindowSize(int windowSize) {
+        return Math.max(1, windowSize) >= windowSizes[0];
+    }
+
+    /**
+     * @return Sum of the depth of all the positions
+     */
+    public long getTotalCounts() {
+        long totalCounts = 0;
+        for (Contig contig : contigs.values()) {
+            totalCounts += contig.totalDepth;
+        }
+        return totalCounts;
+    }
+
+    /**
+     * Get the mean depth of the region in windows of the given size.
+     * Values are read from the coarsest resolution whose window size is not greater than the requested one.
+     *
+     * @param region     Region
+     * @param windowSize Window size. Must not be smaller than the finest resolution. See {@link #supportsWindowSize}
+     * @return Region coverage, with no values if the contig is not in the file
+     * @throws IOException if the file can not be read
+     */
+    public RegionCoverage query(Region region, int windowSize) throws IOException {
+        windowSize = Math.max(1, windowSize);
+        if (windowSize < windowSizes[0]) {
+            throw new IllegalArgumentException("Window size " + windowSize + " is smaller than the finest resolution of the coverage file, "
+                    + windowSizes[0]);
+        }
+        Contig contig = getContig(region.getChromosome());
+        int start = Math.max(1, region.getStart());
+        int end = contig == null ? region.getEnd() : Math.min(region.getEnd(), contig.length);
+
+        RegionCoverage regionCoverage = new RegionCoverage();
+        regionCoverage.setChromosome(region.getChromosome());
+        regionCoverage.setStart(start);
+        regionCoverage.setEnd(end);
+        regionCoverage.setWindowSize(windowSize);
+        if (contig == null || start > end) {
+            regionCoverage.setValues(new float[0]);
+            return regionCoverage;
+        }
+
+        int level = 0;
+        while (level + 1 < windowSizes.length && windowSizes[level + 1] <= windowSize) {
+            level++;
+        }
+        int levelWindowSize = windowSizes[level];
+
+        float[] values = new float[(int) ((end - start + 1L + windowSize - 1) / windowSize)];
+        BlockReader reader = new BlockReader(contig, level);
+        try {
+            for (int i = 0; i < values.length; i++) {
+                // 0-based, end exclusive
+                long from = start - 1L + (long) i * windowSize;
+                long to = Math.min(end, from + windowSize);
+                double sum = 0;
+                for (int window = (int) (from / levelWindowSize); window <= (to - 1) / levelWindowSize; window++) {
+                    long windowStart = (long) window * levelWindowSize;
+                    long overlap = Math.min(to, windowStart + levelWindowSize) - Math.max(from, windowStart);
+                    sum += reader.get(window) * overlap;
+                }
+                values[i] = (float) (sum / (to - from));
+            }
+        } finally {
+            reader.end();
+        }
+        regionCoverage.setValues(values);
+        return regionCoverage;
+    }
+
+    private Contig getContig(String chromosome) {
+        Contig contig = contigs.get(chromosome);
+        if (contig == null) {
+            if (chromosome.startsWith("chr")) {
+                contig = contigs.get(chromosome.substring(3));
+            } else {
+                contig = contigs.get("chr" + chromosome);
+            }
+        }
+        return contig;
+    }
+
+    // Reads the values of one resolution of a contig, keeping the last decompressed block
+    private class BlockReader {
+        private final Contig contig;
+        private final int level;
+        private final Inflater inflater = new Inflater();
+        private int block = -1;
+        private float[] values;
+
+        BlockReader(Contig contig, int level) {
+            this.contig = contig;
+            this.level = level;
+        }
+
+        float get(int window) throws IOException {
+            if (window >= contig.numWindows[level]) {
+                return 0;
+            }
+            if (window / BLOCK_SIZE != block) {
+                read(window / BLOCK_SIZE);
+            }
+            return values[window % BLOCK_SIZE];
+        }
+
+        private void read(int newBlock) throws IOException {
+            byte[] compressed = new byte[contig.blockLengths[level][newBlock]];
+            synchronized (file) {
+                file.seek(dataOffset + contig.blockOffsets[level][newBlock]);
+                file.readFully(compressed);
+            }
+            int numValues = Math.min(BLOCK_SIZE, contig.numWindows[level] - newBlock * BLOCK_SIZE);
+            byte[] uncompressed = new byte[numValues * Float.BYTES];
+            inflater.reset();
+            inflater.setInput(compressed);
+            try {
+                int length = 0;
+                while (length < uncompressed.length) {
+                    int read = inflater.inflate(uncompressed, length, uncompressed.length - length);
+                    if (read == 0 && (inflater.finished() || inflater.needsInput())) {
+                        throw new IOException("Truncated coverage block " + newBlock + " of contig " + contig.name);
+                    }
+                    length += read;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupted coverage block " + newBlock + " of contig " + contig.name, e);
+            }
+            values = new float[numValues];
+            ByteBuffer.wrap(uncompressed).asFloatBuffer().get(values);
+            block = newBlock;
+        }
+
+        void end() {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,271 @@
+package org.opencb.opencga.storage.core.alignment.local;
+
+import htsjdk.samtools.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+
+import static org.opencb.opencga.storage.core.alignment.local.MultiResolutionCoverage.*;
+
+/**
+ * Created on 19/10/20.
+ *
+ * Computes the coverage of an indexed BAM file and writes it as a {@link MultiResolutionCoverage} file.
+ *
+ * Contigs are processed in parallel, each one reading its own region of the BAM file in chunks, so the memory used does not
+ * depend on the size of the contig. The first resolution uses the given window size, and each coarser resolution is
+ * {@link #ZOOM_FACTOR} times bigger, up to {@link #MAX_WINDOW_SIZE}.
+ *
+ * All the mapped reads are counted, as when computing the coverage directly from the BAM file with
+ * {@link org.opencb.biodata.tools.alignment.BamManager#coverage}, so both give the same values. Deletions and skipped regions
+ * do not add depth.
+ */
+public class MultiResolutionCoverageBuilder {
+
+    public static final int ZOOM_FACTOR = 10;
+    public static final int MAX_WINDOW_SIZE = 1000000;
+    private static final int CHUNK_SIZE = 1000000;
+
+    private final int[] windowSizes;
+    private final int numThreads;
+    private final Logger logger = LoggerFactory.getLogger(MultiResolutionCoverageBuilder.class);
+
+    public MultiResolutionCoverageBuilder(int windowSize, int numThreads) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive. Got " + windowSize);
+        }
+        this.windowSizes = getWindowSizes(windowSize);
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    static int[] getWindowSizes(int windowSize) {
+        List<Integer> list = new ArrayList<>();
+        long size = windowSize;
+        do {
+            list.add((int) size);
+            size *= ZOOM_FACTOR;
+        } while (size <= MAX_WINDOW_SIZE);
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Compute the coverage of a BAM file.
+     *
+     * @param bamPath    Indexed BAM file
+     * @param outputPath Output coverage file
+     * @throws IOException if the BAM file is not indexed, or there is any error reading or writing the files
+     */
+    public void build(Path bamPath, Path outputPath) throws IOException {
+        List<SAMSequenceRecord> sequences;
+        try (SamReader reader = open(bamPath)) {
+            if (!reader.hasIndex()) {
+                throw new IOException("Index not found for alignment file " + bamPath + ". Coverage requires an indexed file");
+            }
+            sequences = reader.getFileHeader().getSequenceDictionary().getSequences();
+        }
+        logger.info("Compute coverage of {} contigs at window sizes {} using {} threads", sequences.size(),
+                Arrays.toString(windowSizes), numThreads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        List<Future<ContigCoverage>> futures = new ArrayList<>(sequences.size());
+        List<ContigCoverage> contigs = new ArrayList<>(sequences.size());
+        try {
+            for (SAMSequenceRecord sequence : sequences) {
+                Path tmpPath = Paths.get(outputPath + "." + sequence.getSequenceIndex() + ".tmp");
+                futures.add(executor.submit(() -> buildContig(bamPath, sequence, tmpPath)));
+            }
+            for (Future<ContigCoverage> future : futures) {
+                contigs.add(future.get());
+            }
+            write(contigs, outputPath);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Error computing coverage of " + bamPath, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error computing coverage of " + bamPath, e.getCause());
+        } finally {
+            executor.shutdownNow();
+            for (SAMSequenceRecord sequence : sequences) {
+                Files.deleteIfExists(Paths.get(outputPath + "." + sequence.getSequenceIndex() + ".tmp"));
+            }
+        }
+    }
+
+    private ContigCoverage buildContig(Path bamPath, SAMSequenceRecord sequence, Path tmpPath) throws IOException {
+        ContigCoverage coverage = new ContigCoverage(sequence.getSequenceName(), sequence.getSequenceLength(), tmpPath);
+        int windowSize = windowSizes[0];
+        int coarsestWindowSize = windowSizes[windowSizes.length - 1];
+        // Chunks are a multiple of all the window sizes, so windows never cross chunk boundaries
+        int chunkLength = coarsestWindowSize * Math.max(1, CHUNK_SIZE / coarsestWindowSize);
+        long[] sums = new long[(chunkLength + windowSize - 1) / windowSize];
+
+        try (SamReader reader = open(bamPath); OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmpPath))) {
+            coverage.out = out;
+            for (long chunkStart = 0; chunkStart < coverage.length; chunkStart += chunkLength) {
+                int start = (int) chunkStart;
+                int end = (int) Math.min(coverage.length, chunkStart + chunkLength);
+                Arrays.fill(sums, 0);
+                try (SAMRecordIterator iterator = reader.queryOverlapping(coverage.name, start + 1, end)) {
+                    while (iterator.hasNext()) {
+                        SAMRecord record = iterator.next();
+                        if (record.getReadUnmappedFlag()) {
+                            continue;
+                        }
+                        for (AlignmentBlock block : record.getAlignmentBlocks()) {
+                            int blockStart = block.getReferenceStart() - 1;
+                            addDepth(sums, windowSize, start, end, blockStart, blockStart + block.getLength());
+                        }
+                    }
+                }
+                for (int level = 0; level < windowSizes.length; level++) {
+                    addWindows(coverage, level, sums, start, end);
+                }
+            }
+            coverage.flush();
+        } finally {
+            coverage.deflater.end();
+        }
+        logger.debug("Coverage of contig {} computed", coverage.name);
+        return coverage;
+    }
+
+    // Adds the bases of the interval [from, to) within the chunk [chunkStart, chunkEnd) to the fine grained windows
+    static void addDepth(long[] sums, int windowSize, int chunkStart, int chunkEnd, int from, int to) {
+        int pos = Math.max(from, chunkStart);
+        to = Math.min(to, chunkEnd);
+        while (pos < to) {
+            int window = (pos - chunkStart) / windowSize;
+            int windowEnd = Math.min(to, chunkStart + (window + 1) * windowSize);
+            sums[window] += windowEnd - pos;
+            pos = windowEnd;
+        }
+    }
+
+    // Aggregates the fine grained windows of a chunk into the windows of one resolution
+    private void addWindows(ContigCoverage coverage, int level, long[] sums, int chunkStart, int chunkEnd) throws IOException {
+        int windowSize = windowSizes[level];
+        int factor = windowSize / windowSizes[0];
+        int numSums = (chunkEnd - chunkStart + windowSizes[0] - 1) / windowSizes[0];
+        for (int i = 0; i < numSums; i += factor) {
+            long sum = 0;
+            for (int j = i; j < Math.min(numSums, i + factor); j++) {
+                sum += sums[j];
+            }
+            if (level == 0) {
+                coverage.totalDepth += sum;
+            }
+            long windowStart = chunkStart + (long) i * windowSizes[0];
+            coverage.add(level, (float) ((double) sum / Math.min(windowSize, chunkEnd - windowStart)));
+        }
+    }
+
+    private void write(List<ContigCoverage> contigs, Path outputPath) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        header.writeInt(windowSizes.length);
+        for (int windowSize : windowSizes) {
+            header.writeInt(windowSize);
+        }
+        header.writeInt(contigs.size());
+        long contigOffset = 0;
+        for (ContigCoverage contig : contigs) {
+            header.writeUTF(contig.name);
+            header.writeInt(contig.length);
+            header.writeLong(contig.totalDepth);
+            for (int level = 0; level < windowSizes.length; level++) {
+                header.writeInt(contig.numWindows[level]);
+                List<long[]> blocks = contig.blocks.get(level);
+                for (long[] block : blocks) {
+                    header.writeLong(contigOffset + block[0]);
+                    header.writeInt((int) block[1]);
+                }
+            }
+            contigOffset += contig.position;
+        }
+        header.flush();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(outputPath)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            for (ContigCoverage contig : contigs) {
+                Files.copy(contig.tmpPath, out);
+            }
+        }
+    }
+
+    private static SamReader open(Path bamPath) {
+        return SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(bamPath.toFile());
+    }
+
+    // Coverage of one contig. Compressed blocks of all the resolutions are written to a temporary file as they are filled
+    private final class ContigCoverage {
+        private final String name;
+        private final int length;
+        private final Path tmpPath;
+        private final float[][] buffers = new float[windowSizes.length][BLOCK_SIZE];
+        private final int[] numWindows = new int[windowSizes.length];
+        // Offset and length of each block in the temporary file
+        private final List<List<long[]>> blocks = new ArrayList<>(windowSizes.length);
+        private final Deflater deflater = new Deflater();
+        private final byte[] deflateBuffer = new byte[BLOCK_SIZE * Float.BYTES + 1024];
+        private OutputStream out;
+        private long position;
+        private long totalDepth;
+
+        private ContigCoverage(String name, int length, Path tmpPath) {
+            this.name = name;
+            this.length = length;
+            this.tmpPath = tmpPath;
+            for (int level = 0; level < windowSizes.length; level++) {
+                blocks.add(new ArrayList<>());
+            }
+        }
+
+        private void add(int level, float value) throws IOException {
+            buffers[level][numWindows[level] % BLOCK_SIZE] = value;
+            numWindows[level]++;
+            if (numWindows[level] % BLOCK_SIZE == 0) {
+                writeBlock(level, BLOCK_SIZE);
+            }
+        }
+
+        private void flush() throws IOException {
+            for (int level = 0; level < windowSizes.length; level++) {
+                int numValues = numWindows[level] % BLOCK_SIZE;
+                if (numValues > 0) {
+                    writeBlock(level, numValues);
+                }
+            }
+        }
+
+        private void writeBlock(int level, int numValues) throws IOException {
+            ByteBuffer bytes = ByteBuffer.allocate(numValues * Float.BYTES);
+            bytes.asFloatBuffer().put(buffers[level], 0, numValues);
+            deflater.reset();
+            deflater.setInput(bytes.array());
+            deflater.finish();
+            long blockStart = position;
+            while (!deflater.finished()) {
+                int compressedLength = deflater.deflate(deflateBuffer);
+                out.write(deflateBuffer, 0, compressedLength);
+                position += compressedLength;
+            }
+            blocks.get(level).add(new long[]{blockStart, position - blockStart});
+        }
+    }
+}
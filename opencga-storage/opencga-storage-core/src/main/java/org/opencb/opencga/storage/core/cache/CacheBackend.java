@@ -0,0 +1,37 @@
+package org.opencb.opencga.storage.core.cache;
+
+/**
+ * Created on 19/10/20.
+ *
+ * Storage for the cached query results used by the {@link CacheManager}.
+ * Implementations may keep the values in memory, or in a distributed store shared by several processes.
+ */
+public interface CacheBackend extends AutoCloseable {
+
+    /**
+     * Get a cached value.
+     *
+     * @param key Key
+     * @return    Cached value, or null if missing
+     */
+    Object get(String key);
+
+    /**
+     * Store a value.
+     *
+     * @param key    Key
+     * @param value  Value to store
+     */
+    void put(String key, Object value);
+
+    /**
+     * Remove all the values with keys starting with the given prefix.
+     *
+     * @param keyPrefix Key prefix
+     */
+    void clear(String keyPrefix);
+
+    @Override
+    void close();
+
+}
@@ -17,181 +17,212 @@
 package org.opencb.opencga.storage.core.cache;
 
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.commons.lang3.StringUtils;
+import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
-import org.opencb.commons.datastore.core.QueryResult;
 import org.opencb.opencga.storage.core.config.CacheConfiguration;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
-import org.redisson.Config;
-import org.redisson.Redisson;
-import org.redisson.RedissonClient;
-import org.redisson.client.RedisConnectionException;
-import org.redisson.codec.JsonJacksonCodec;
-import org.redisson.codec.KryoCodec;
-import org.redisson.core.RKeys;
-import org.redisson.core.RMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created by wasim on 26/10/16.
+ *
+ * Cache of query results. Results are stored in a {@link CacheBackend}, in memory by default ({@link LocalCacheBackend}),
+ * or in Redis ({@link RedisCacheBackend}) to share them between processes.
  */
 public class CacheManager {
 
-    private StorageConfiguration storageConfiguration;
-
-    private Config redissonConfig;
+    private CacheConfiguration cacheConfiguration;
     private Set<String> allowedTypesSet;
-    private RedissonClient redissonClient;
-    private boolean redisState;
+    private CacheBackend backend;
+    private volatile boolean backendState;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
 
+    /**
+     * Boolean QueryOption to read and write the result of a query from the cache.
+     */
+    public static final String CACHE = "cache";
+    public static final String VARIANT_TYPE = "var";
 
     private static final String PREFIX_DATABASE_KEY = "ocga:";
+    private static final Set<String> SKIP_OPTIONS = new HashSet<>(Arrays.asList(CACHE, "sId", QueryOptions.TIMEOUT));
+    private final Logger logger = LoggerFactory.getLogger(CacheManager.class);
 
     public CacheManager() {
     }
 
     public CacheManager(StorageConfiguration configuration) {
+        this(configuration == null ? null : configuration.getCache());
+    }
 
-        CacheConfiguration cache;
-
-        if (configuration != null && configuration.getCache() != null) {
-
-            this.storageConfiguration = configuration;
-
-            cache = configuration.getCache();
-            redissonConfig = new Config();
-
-            String host = (StringUtils.isNotEmpty(cache.getHost()))
-                    ? cache.getHost()
-                    : CacheConfiguration.DEFAULT_HOST;
-            redissonConfig.useSingleServer().setAddress(host);
-
-            String codec = (StringUtils.isNotEmpty(cache.getSerialization()))
-                    ? cache.getSerialization()
-                    : CacheConfiguration.DEFAULT_SERIALIZATION;
+    public CacheManager(CacheConfiguration cache) {
+        this(cache, cache == null || !cache.isActive() ? null : buildBackend(cache));
+    }
 
+    /**
+     * Create a CacheManager with a custom backend.
+     *
+     * @param cache   Cache configuration
+     * @param backend Backend to store the results
+     */
+    public CacheManager(CacheConfiguration cache, CacheBackend backend) {
+        if (cache != null) {
+            this.cacheConfiguration = cache;
             this.allowedTypesSet = new HashSet<>(Arrays.asList(cache.getAllowedTypes().split(",")));
-
-
-            if (StringUtils.isNotEmpty(cache.getPassword())) {
-                redissonConfig.useSingleServer().setPassword(cache.getPassword());
-            }
-
-            if ("KRYO".equalsIgnoreCase(codec)) {
-                redissonConfig.setCodec(new KryoCodec());
-            } else {
-                redissonConfig.setCodec(new JsonJacksonCodec());
-            }
-
-            redisState = true;
-
-//            redissonClient = Redisson.create(redissonConfig);
-            redissonClient = null;
+            this.backend = backend;
+            this.backendState = backend != null;
         }
     }
 
+    private static CacheBackend buildBackend(CacheConfiguration cache) {
+        if (CacheConfiguration.REDIS_BACKEND.equalsIgnoreCase(cache.getBackend())) {
+            return new RedisCacheBackend(cache);
+        } else {
+            return new LocalCacheBackend(cache.getLocalMaxSize());
+        }
+    }
 
-    public <T> QueryResult<T> get(String key) {
-
-        QueryResult<T> queryResult = new QueryResult<>();
+    /**
+     * Get a cached result.
+     *
+     * @param key Key, from {@link #createKey}
+     * @param <T> Result type
+     * @param <R> DataResult type
+     * @return    Cached result, or null if missing.
+     */
+    public <T, R extends DataResult<T>> R get(String key) {
         if (isActive()) {
-            long start = System.currentTimeMillis();
-            RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
-
             try {
-                // We only retrieve the first field of the HASH, which is the only one that exist.
-                Map<Integer, Map<String, Object>> result = map.getAll(new HashSet<>(Collections.singletonList(0)));
-
-                if (result != null && !result.isEmpty()) {
-                    Object resultMap = result.get(0).get("result");
-                    queryResult = (QueryResult<T>) resultMap;
-                    queryResult.setDbTime((int) (System.currentTimeMillis() - start));
+                R result = (R) backend.get(key);
+                if (result == null) {
+                    misses.incrementAndGet();
+                } else {
+                    hits.incrementAndGet();
                 }
-            } catch (RedisConnectionException e) {
-                redisState = false;
-                queryResult.setWarningMsg("Unable to connect to Redis Cache, Please query WITHOUT Cache (Falling back to Database)");
-                return queryResult;
+                return result;
+            } catch (RuntimeException e) {
+                onBackendError(e);
             }
         }
-        return queryResult;
+        return null;
     }
 
-    public void set(String key, Query query, QueryResult queryResult) {
-
+    /**
+     * Store a result, if it was slow enough to compute, and not too large.
+     *
+     * @param key         Key, from {@link #createKey}
+     * @param queryResult Result to store
+     * @return            If the result was stored
+     */
+    public boolean set(String key, DataResult<?> queryResult) {
         if (isActive()) {
-            if (queryResult.getDbTime() >= storageConfiguration.getCache().getSlowThreshold()
-                    && queryResult.getResult().size() >= storageConfiguration.getCache().getMaxResultSize()) {
-                RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
-                Map<String, Object> record = new HashMap<>();
-                record.put("query", query);
-                record.put("result", queryResult);
+            int numResults = queryResult.getResults() == null ? 0 : queryResult.getResults().size();
+            if (queryResult.getTime() >= cacheConfiguration.getSlowThreshold()
+                    && numResults <= cacheConfiguration.getMaxResultSize()) {
                 try {
-                    map.fastPut(0, record);
-                } catch (RedisConnectionException e) {
-                    redisState = false;
-                    queryResult.setWarningMsg("Unable to connect to Redis Cache, Please query WITHOUT Cache (Falling back to Database)");
+                    backend.put(key, queryResult);
+                    return true;
+                } catch (RuntimeException e) {
+                    onBackendError(e);
                 }
             }
         }
+        return false;
     }
 
     public String createKey(String studyId, String allowedType, Query query, QueryOptions queryOptions) {
+        return createKey(studyId, allowedType, query, queryOptions, null);
+    }
 
-        queryOptions.remove("cache");
-        queryOptions.remove("sId");
-
-        StringBuilder key = new StringBuilder(PREFIX_DATABASE_KEY);
-        key.append(studyId).append(":").append(allowedType);
-        SortedMap<String, SortedSet<Object>> map = new TreeMap<>();
-
+    /**
+     * Build a key for the given query.
+     * Keys are independent of the order of the params. Options that do not modify the result are skipped.
+     *
+     * @param prefix       Key prefix, e.g. study or database name. See {@link #clear(String)}
+     * @param allowedType  Type of result. See {@link #isTypeAllowed}
+     * @param query        Normalized query
+     * @param queryOptions Query options
+     * @param version      Version of the data. Results from a previous version won't be returned.
+     * @return             Key
+     */
+    public String createKey(String prefix, String allowedType, Query query, QueryOptions queryOptions, String version) {
+        SortedMap<String, List<String>> map = new TreeMap<>();
         for (String item : query.keySet()) {
-            map.put(item.toLowerCase(), new TreeSet<>(query.getAsStringList(item)));
+            map.put("q." + item.toLowerCase(), query.getAsStringList(item));
         }
-
         for (String item : queryOptions.keySet()) {
-            map.put(item.toLowerCase(), new TreeSet<>(queryOptions.getAsStringList(item)));
+            if (!SKIP_OPTIONS.contains(item)) {
+                map.put("o." + item.toLowerCase(), queryOptions.getAsStringList(item));
+            }
+        }
+        if (version != null) {
+            map.put("version", Collections.singletonList(version));
         }
 
         String sha1 = DigestUtils.sha1Hex(map.toString());
-        key.append(":").append(sha1);
+        return getKeyPrefix(prefix) + allowedType + ":" + sha1;
+    }
 
-        queryOptions.add("cache", "true");
-        return key.toString();
+    /**
+     * @return Number of calls to {@link #get} that returned a cached result
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return Number of calls to {@link #get} that did not find a cached result
+     */
+    public long getMisses() {
+        return misses.get();
     }
 
     public boolean isActive() {
-        return storageConfiguration.getCache().isActive() && redisState;
+        return cacheConfiguration != null && cacheConfiguration.isActive() && backendState;
     }
 
     public boolean isTypeAllowed(String type) {
-        return allowedTypesSet.contains(type);
+        return allowedTypesSet != null && allowedTypesSet.contains(type);
     }
 
     public void clear() {
-        RKeys redisKeys = getRedissonClient().getKeys();
-        redisKeys.deleteByPattern(PREFIX_DATABASE_KEY + "*");
+        if (backend != null) {
+            backend.clear(PREFIX_DATABASE_KEY);
+        }
     }
 
-    public void clear(Pattern pattern) {
-        RKeys redisKeys = getRedissonClient().getKeys();
-        redisKeys.deleteByPattern(pattern.toString());
+    /**
+     * Remove all the results with the given prefix.
+     *
+     * @param prefix Key prefix, as used in {@link #createKey}
+     */
+    public void clear(String prefix) {
+        if (backend != null) {
+            backend.clear(getKeyPrefix(prefix));
+        }
     }
 
     public void close() {
-        if (redissonClient != null) {
-            redissonClient.shutdown();
-            redissonClient = null;
+        if (backend != null) {
+            backend.close();
+            backend = null;
+            backendState = false;
         }
     }
 
-    private synchronized RedissonClient getRedissonClient() {
-        if (redissonClient == null) {
-            redissonClient = Redisson.create(redissonConfig);
-        }
-        return redissonClient;
+    private String getKeyPrefix(String prefix) {
+        return PREFIX_DATABASE_KEY + prefix + ":";
+    }
+
+    private void onBackendError(RuntimeException e) {
+        // Do not fail the query. Fall back to the database.
+        logger.warn("Unable to connect to the cache. Disable cache.", e);
+        backendState = false;
     }
 
 }
@@ -0,0 +1,142 @@
+package org.opencb.opencga.storage.core.cache;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.opencb.opencga.storage.core.variant.io.json.mixin.GenericRecordAvroJsonMixin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Created on 19/10/20.
+ *
+ * In memory cache, bounded by the total size in bytes of the stored values.
+ * The size of each value is estimated from its JSON serialization.
+ * The least recently used values are evicted first.
+ * Values are stored as given, so they should not be modified after being stored nor after being read.
+ */
+public class LocalCacheBackend implements CacheBackend {
+
+    private static final ObjectMapper SIZE_MAPPER = new ObjectMapper()
+            .addMixIn(GenericRecord.class, GenericRecordAvroJsonMixin.class)
+            .configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true);
+
+    private final long maxSize;
+    private final LinkedHashMap<String, Entry> map = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    private final Logger logger = LoggerFactory.getLogger(LocalCacheBackend.class);
+
+    /**
+     * Create a local cache.
+     *
+     * @param maxSize Max total size in bytes of the values in the cache.
+     */
+    public LocalCacheBackend(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public synchronized Object get(String key) {
+        Entry entry = map.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        // Estimate the size out of the lock
+        long valueSize;
+        try {
+            valueSize = estimateSize(value);
+        } catch (IOException e) {
+            logger.warn("Unable to estimate the size of the value. Skip cache.", e);
+            return;
+        }
+        put(key, value, valueSize);
+    }
+
+    synchronized void put(String key, Object value, long valueSize) {
+        if (valueSize > maxSize) {
+            // Too large. Do not evict all the cache for this value.
+            remove(key);
+            return;
+        }
+        Entry prev = map.put(key, new Entry(value, valueSize));
+        if (prev != null) {
+            size -= prev.size;
+        }
+        size += valueSize;
+
+        // Evict least recently used values
+        Iterator<Entry> iterator = map.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Estimate the size in memory of a value, as the length of its JSON serialization.
+     *
+     * @param value Value
+     * @return      Size in bytes
+     * @throws IOException if the value can not be serialized
+     */
+    public static long estimateSize(Object value) throws IOException {
+        CountingOutputStream out = new CountingOutputStream(NullOutputStream.NULL_OUTPUT_STREAM);
+        SIZE_MAPPER.writeValue(out, value);
+        return out.getByteCount();
+    }
+
+    @Override
+    public synchronized void clear(String keyPrefix) {
+        Iterator<Map.Entry<String, Entry>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                size -= entry.getValue().size;
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        map.clear();
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    /**
+     * @return Total size in bytes of the values in the cache
+     */
+    public synchronized long getSizeInBytes() {
+        return size;
+    }
+
+    private void remove(String key) {
+        Entry entry = map.remove(key);
+        if (entry != null) {
+            size -= entry.size;
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long size;
+
+        private Entry(Object value, long size) {
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
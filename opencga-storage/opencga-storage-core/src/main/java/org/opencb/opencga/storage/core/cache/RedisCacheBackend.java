@@ -0,0 +1,88 @@
+package org.opencb.opencga.storage.core.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.opencga.storage.core.config.CacheConfiguration;
+import org.redisson.Config;
+import org.redisson.Redisson;
+import org.redisson.RedissonClient;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.codec.KryoCodec;
+import org.redisson.core.RMap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Created on 19/10/20.
+ *
+ * Cache shared between processes, stored in Redis. The connection is created on the first access.
+ */
+public class RedisCacheBackend implements CacheBackend {
+
+    private final Config redissonConfig;
+    private RedissonClient redissonClient;
+
+    public RedisCacheBackend(CacheConfiguration cache) {
+        redissonConfig = new Config();
+
+        String host = StringUtils.isNotEmpty(cache.getHost())
+                ? cache.getHost()
+                : CacheConfiguration.DEFAULT_HOST;
+        redissonConfig.useSingleServer().setAddress(host);
+
+        if (StringUtils.isNotEmpty(cache.getPassword())) {
+            redissonConfig.useSingleServer().setPassword(cache.getPassword());
+        }
+
+        String codec = StringUtils.isNotEmpty(cache.getSerialization())
+                ? cache.getSerialization()
+                : CacheConfiguration.DEFAULT_SERIALIZATION;
+        if ("KRYO".equalsIgnoreCase(codec)) {
+            redissonConfig.setCodec(new KryoCodec());
+        } else {
+            redissonConfig.setCodec(new JsonJacksonCodec());
+        }
+    }
+
+    @Override
+    public Object get(String key) {
+        RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
+        // We only retrieve the first field of the HASH, which is the only one that exist.
+        Map<Integer, Map<String, Object>> result = map.getAll(new HashSet<>(Collections.singletonList(0)));
+        if (result != null && !result.isEmpty()) {
+            return result.get(0).get("result");
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
+        Map<String, Object> record = new HashMap<>();
+        record.put("result", value);
+        map.fastPut(0, record);
+    }
+
+    @Override
+    public void clear(String keyPrefix) {
+        getRedissonClient().getKeys().deleteByPattern(keyPrefix + "*");
+    }
+
+    @Override
+    public synchronized void close() {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+            redissonClient = null;
+        }
+    }
+
+    private synchronized RedissonClient getRedissonClient() {
+        if (redissonClient == null) {
+            redissonClient = Redisson.create(redissonConfig);
+        }
+        return redissonClient;
+    }
+}
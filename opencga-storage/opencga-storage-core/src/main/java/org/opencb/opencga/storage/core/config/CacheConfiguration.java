@@ -40,12 +40,26 @@ public class CacheConfiguration {
      */
     private String allowedTypes;
 
+    /**
+     * Accepted values are: local, redis.
+     */
+    private String backend;
+
+    /**
+     * Max size in bytes, summing all the cached queries, to keep in the local cache.
+     */
+    private long localMaxSize;
+
     public static final boolean DEFAULT_ACTVE = true;
     public static final String DEFAULT_SERIALIZATION = "json";
     public static final String DEFAULT_ALLOWED_TYPE = "aln,var";
     public static final String DEFAULT_HOST = "localhost:6379";
     public static final String DEFAULT_PASSWORD = "";
     public static final int DEFAULT_MAX_FILE_SIZE = 500;
+    public static final String LOCAL_BACKEND = "local";
+    public static final String REDIS_BACKEND = "redis";
+    public static final String DEFAULT_BACKEND = LOCAL_BACKEND;
+    public static final long DEFAULT_LOCAL_MAX_SIZE = 256L * 1024 * 1024;
 
     public CacheConfiguration() {
         this(DEFAULT_HOST, DEFAULT_ACTVE, DEFAULT_SERIALIZATION, 50, DEFAULT_MAX_FILE_SIZE, DEFAULT_PASSWORD,
@@ -61,6 +75,8 @@ public class CacheConfiguration {
         this.maxResultSize = maxFileSize;
         this.password = password;
         this.allowedTypes = allowedTypes;
+        this.backend = DEFAULT_BACKEND;
+        this.localMaxSize = DEFAULT_LOCAL_MAX_SIZE;
     }
 
     @Override
@@ -72,6 +88,8 @@ public class CacheConfiguration {
                 + ", slowThreshold=" + slowThreshold
                 + ", maxResultSize=" + maxResultSize
                 + ", allowedTypes='" + allowedTypes + '\''
+                + ", backend='" + backend + '\''
+                + ", localMaxSize=" + localMaxSize
                 + '}');
         return sb.toString();
     }
@@ -138,4 +156,22 @@ public class CacheConfiguration {
         this.allowedTypes = allowedTypes;
         return this;
     }
+
+    public String getBackend() {
+        return backend;
+    }
+
+    public CacheConfiguration setBackend(String backend) {
+        this.backend = backend;
+        return this;
+    }
+
+    public long getLocalMaxSize() {
+        return localMaxSize;
+    }
+
+    public CacheConfiguration setLocalMaxSize(long localMaxSize) {
+        this.localMaxSize = localMaxSize;
+        return this;
+    }
 }
@@ -0,0 +1,395 @@
+package org.opencb.opencga.storage.core.io.plain;
+
+import org.opencb.commons.io.DataReader;
+import org.opencb.opencga.core.common.UriUtils;
+import org.opencb.opencga.storage.core.io.managers.IOConnector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read lines from a BGZF compressed file, decompressing the blocks in parallel.
+ *
+ * BGZF files are a series of independent gzip blocks, each one with its compressed size in the header.
+ * Blocks are read sequentially from the input stream, and grouped in chunks. Each chunk is decompressed
+ * and split into lines by a pool of threads. Chunks are consumed in the same order they were read,
+ * so lines are returned in the same order as in the file.
+ *
+ * Created on 19/10/20.
+ */
+public class BgzfStringDataReader implements DataReader<String> {
+
+    private static final int BLOCKS_PER_CHUNK = 64;
+    // ID1 ID2 CM FLG MTIME(4) XFL OS XLEN(2)
+    private static final int GZIP_HEADER_LENGTH = 12;
+    // CRC32(4) ISIZE(4)
+    private static final int GZIP_FOOTER_LENGTH = 8;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final URI uri;
+    private final IOConnector ioConnector;
+    private final int numThreads;
+    protected static Logger logger = LoggerFactory.getLogger(BgzfStringDataReader.class);
+
+    private InputStream is;
+    private ExecutorService executorService;
+    private final Deque<Future<Chunk>> pendingChunks = new ArrayDeque<>();
+    private final Deque<String> lines = new ArrayDeque<>();
+    // Bytes from the last line of the previous chunk, not finished yet
+    private byte[] partialLine = EMPTY;
+    private boolean endOfBlocks;
+
+    private long bytesRead;
+    private BiConsumer<Long, Long> readBytesListener;
+
+    public BgzfStringDataReader(URI uri, IOConnector ioConnector, int numThreads) {
+        this.uri = Objects.requireNonNull(uri);
+        this.ioConnector = Objects.requireNonNull(ioConnector);
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    /**
+     * Check if the given file is compressed with BGZF.
+     *
+     * @param uri           File
+     * @param ioConnector   IOConnector to read the file
+     * @return              If the file starts with a BGZF block
+     * @throws IOException  if there is an error reading the file
+     */
+    public static boolean isBgzf(URI uri, IOConnector ioConnector) throws IOException {
+        String fileName = UriUtils.fileName(uri);
+        if (!fileName.endsWith(".gz") && !fileName.endsWith(".bgz")) {
+            return false;
+        }
+        try (InputStream is = ioConnector.newInputStreamRaw(uri)) {
+            byte[] header = new byte[GZIP_HEADER_LENGTH];
+            if (readFully(is, header, 0, header.length) != header.length || !isGzipHeader(header)) {
+                return false;
+            }
+            byte[] extra = new byte[uint16(header, 10)];
+            return readFully(is, extra, 0, extra.length) == extra.length && getBlockSize(extra) > 0;
+        }
+    }
+
+    @Override
+    public boolean open() {
+        try {
+            is = new BufferedInputStream(ioConnector.newInputStreamRaw(uri), 1024 * 1024);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        executorService = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread thread = new Thread(r, "bgzf-reader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Reading BGZF file with {} decompression threads", numThreads);
+        return true;
+    }
+
+    @Override
+    public boolean close() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+        try {
+            if (is != null) {
+                is.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> read() {
+        return read(1);
+    }
+
+    @Override
+    public List<String> read(int batchSize) {
+        List<String> batch = new ArrayList<>(batchSize);
+        try {
+            while (batch.size() < batchSize) {
+                String line = lines.poll();
+                if (line != null) {
+                    batch.add(line);
+                } else if (!nextChunk()) {
+                    // Last line without line break
+                    if (partialLine.length > 0) {
+                        batch.add(toLine(partialLine, 0, partialLine.length));
+                        partialLine = EMPTY;
+                    }
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return batch;
+    }
+
+    public BgzfStringDataReader setReadBytesListener(BiConsumer<Long, Long> readBytesListener) {
+        this.readBytesListener = readBytesListener;
+        return this;
+    }
+
+    /**
+     * Consume the next decompressed chunk, in order.
+     *
+     * @return  false if there are no more chunks
+     * @throws IOException if there is an error reading or decompressing the file
+     */
+    private boolean nextChunk() throws IOException {
+        submitChunks();
+        Future<Chunk> future = pendingChunks.poll();
+        if (future == null) {
+            return false;
+        }
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error decompressing BGZF file " + uri, e.getCause());
+        }
+        // Submit a new chunk as soon as possible, to keep all the threads busy
+        submitChunks();
+
+        if (chunk.head == null) {
+            partialLine = concat(partialLine, chunk.tail);
+        } else {
+            byte[] firstLine = concat(partialLine, chunk.head);
+            lines.add(toLine(firstLine, 0, firstLine.length));
+            lines.addAll(chunk.lines);
+            partialLine = chunk.tail;
+        }
+
+        bytesRead += chunk.compressedSize;
+        if (readBytesListener != null) {
+            readBytesListener.accept(bytesRead, chunk.compressedSize);
+        }
+        return true;
+    }
+
+    private void submitChunks() throws IOException {
+        while (!endOfBlocks && pendingChunks.size() < numThreads * 2) {
+            List<byte[]> blocks = new ArrayList<>(BLOCKS_PER_CHUNK);
+            for (int i = 0; i < BLOCKS_PER_CHUNK; i++) {
+                byte[] block = readBlock();
+                if (block == null) {
+                    endOfBlocks = true;
+                    break;
+                }
+                blocks.add(block);
+            }
+            if (!blocks.isEmpty()) {
+                pendingChunks.add(executorService.submit(() -> decompress(blocks)));
+            }
+        }
+    }
+
+    /**
+     * Read the next compressed BGZF block.
+     *
+     * @return  The whole block, including header and footer. Null if the end of the file was reached.
+     * @throws IOException if the block is truncated or is not a BGZF block
+     */
+    private byte[] readBlock() throws IOException {
+        byte[] header = new byte[GZIP_HEADER_LENGTH];
+        int read = readFully(is, header, 0, header.length);
+        if (read == 0) {
+            return null;
+        }
+        if (read != header.length || !isGzipHeader(header)) {
+            throw new IOException("Malformed BGZF block in file " + uri);
+        }
+        int xlen = uint16(header, 10);
+        byte[] extra = new byte[xlen];
+        if (readFully(is, extra, 0, xlen) != xlen) {
+            throw new EOFException("Truncated BGZF block in file " + uri);
+        }
+        int blockSize = getBlockSize(extra);
+        if (blockSize < GZIP_HEADER_LENGTH + xlen + GZIP_FOOTER_LENGTH) {
+            throw new IOException("Malformed BGZF block in file " + uri);
+        }
+        byte[] block = new byte[blockSize];
+        System.arraycopy(header, 0, block, 0, GZIP_HEADER_LENGTH);
+        System.arraycopy(extra, 0, block, GZIP_HEADER_LENGTH, xlen);
+        int remaining = blockSize - GZIP_HEADER_LENGTH - xlen;
+        if (readFully(is, block, GZIP_HEADER_LENGTH + xlen, remaining) != remaining) {
+            throw new EOFException("Truncated BGZF block in file " + uri);
+        }
+        return block;
+    }
+
+    static Chunk decompress(List<byte[]> blocks) throws IOException {
+        int totalSize = 0;
+        long compressedSize = 0;
+        for (byte[] block : blocks) {
+            totalSize += uint32(block, block.length - 4);
+            compressedSize += block.length;
+        }
+        byte[] data = new byte[totalSize];
+        int offset = 0;
+        Inflater inflater = new Inflater(true);
+        CRC32 crc32 = new CRC32();
+        try {
+            for (byte[] block : blocks) {
+                int cdataOffset = GZIP_HEADER_LENGTH + uint16(block, 10);
+                int cdataLength = block.length - cdataOffset - GZIP_FOOTER_LENGTH;
+                int isize = uint32(block, block.length - 4);
+                inflater.reset();
+                inflater.setInput(block, cdataOffset, cdataLength);
+                int inflated = 0;
+                while (inflated < isize && !inflater.finished()) {
+                    int n = inflater.inflate(data, offset + inflated, isize - inflated);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    inflated += n;
+                }
+                if (inflated != isize) {
+                    throw new IOException("Corrupted BGZF block. Expected " + isize + " bytes, got " + inflated);
+                }
+                crc32.reset();
+                crc32.update(data, offset, isize);
+                if ((int) crc32.getValue() != uint32(block, block.length - GZIP_FOOTER_LENGTH)) {
+                    throw new IOException("Corrupted BGZF block. CRC32 mismatch");
+                }
+                offset += isize;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted BGZF block", e);
+        } finally {
+            inflater.end();
+        }
+        return Chunk.split(data, compressedSize);
+    }
+
+    /**
+     * Decompressed data split into lines.
+     */
+    static final class Chunk {
+        // Bytes before the first line break. Null if the chunk does not contain any line break
+        private final byte[] head;
+        // Complete lines
+        private final List<String> lines;
+        // Bytes after the last line break
+        private final byte[] tail;
+        private final long compressedSize;
+
+        private Chunk(byte[] head, List<String> lines, byte[] tail, long compressedSize) {
+            this.head = head;
+            this.lines = lines;
+            this.tail = tail;
+            this.compressedSize = compressedSize;
+        }
+
+        static Chunk split(byte[] data, long compressedSize) {
+            int first = indexOf(data, 0);
+            if (first < 0) {
+                return new Chunk(null, Collections.emptyList(), data, compressedSize);
+            }
+            List<String> lines = new ArrayList<>();
+            int start = first + 1;
+            int end = indexOf(data, start);
+            while (end >= 0) {
+                lines.add(toLine(data, start, end));
+                start = end + 1;
+                end = indexOf(data, start);
+            }
+            return new Chunk(Arrays.copyOfRange(data, 0, first), lines, Arrays.copyOfRange(data, start, data.length), compressedSize);
+        }
+
+        private static int indexOf(byte[] data, int from) {
+            for (int i = from; i < data.length; i++) {
+                if (data[i] == '\n') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static String toLine(byte[] data, int start, int end) {
+        if (end > start && data[end - 1] == '\r') {
+            end--;
+        }
+        return new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        if (a.length == 0) {
+            return b;
+        } else if (b.length == 0) {
+            return a;
+        }
+        byte[] c = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+
+    private static boolean isGzipHeader(byte[] header) {
+        // ID1, ID2, CM = deflate, FLG.FEXTRA
+        return (header[0] & 0xFF) == 31 && (header[1] & 0xFF) == 139 && header[2] == 8 && (header[3] & 4) != 0;
+    }
+
+    /**
+     * Find the BGZF block size in the extra field of the gzip header.
+     *
+     * @param extra Gzip extra field
+     * @return      Total block size, or -1 if the "BC" subfield is missing
+     */
+    private static int getBlockSize(byte[] extra) {
+        int i = 0;
+        while (i + 4 <= extra.length) {
+            int slen = uint16(extra, i + 2);
+            if (extra[i] == 'B' && extra[i + 1] == 'C' && slen == 2 && i + 6 <= extra.length) {
+                return uint16(extra, i + 4) + 1;
+            }
+            i += 4 + slen;
+        }
+        return -1;
+    }
+
+    private static int uint16(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int uint32(byte[] b, int offset) {
+        return (b[offset] & 0xFF) | (b[offset + 1] & 0xFF) << 8 | (b[offset + 2] & 0xFF) << 16 | (b[offset + 3] & 0xFF) << 24;
+    }
+
+    private static int readFully(InputStream is, byte[] b, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int n = is.read(b, offset + total, length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,363 @@
+package org.opencb.opencga.storage.core.metadata;
+
+import java.util.Arrays;
+
+/**
+ * Metadata cache for resources identified by a numerical id within a study.
+ *
+ * Keys are stored as primitive longs (studyId &lt;&lt; 32 | id), so lookups do not allocate any object.
+ * Optionally, the size of the cache can be bounded. Least recently used entries are evicted first.
+ *
+ * The cache is split in segments to reduce lock contention.
+ *
+ * Created on 19/10/20.
+ */
+public class IntMetadataCache<R> {
+
+    private static final int NUM_SEGMENTS = 16;
+
+    private final Segment<R>[] segments;
+    private final IntBiFunction<R> function;
+
+    @FunctionalInterface
+    public interface IntBiFunction<R> {
+        R apply(int studyId, int id);
+    }
+
+    public IntMetadataCache(IntBiFunction<R> function) {
+        this(function, 0);
+    }
+
+    /**
+     * Create a new cache.
+     *
+     * @param function Function to compute values not in the cache
+     * @param maxSize  Max number of elements in the cache. Unbounded if 0 or negative.
+     */
+    @SuppressWarnings("unchecked")
+    public IntMetadataCache(IntBiFunction<R> function, int maxSize) {
+        this.function = function;
+        int segmentMaxSize = maxSize <= 0 ? 0 : Math.max(1, (maxSize + NUM_SEGMENTS - 1) / NUM_SEGMENTS);
+        segments = new Segment[NUM_SEGMENTS];
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            segments[i] = new Segment<>(segmentMaxSize);
+        }
+    }
+
+    /**
+     * Get a cached value.
+     *
+     * @param studyId Study id
+     * @param id      Resource id
+     * @return        Value
+     */
+    public R get(int studyId, int id) {
+        long key = toKey(studyId, id);
+        int hash = hash(key);
+        Segment<R> segment = segmentFor(hash);
+        R r = segment.get(key, hash);
+        if (r == null) {
+            // Compute out of the lock, so slow functions do not block the segment
+            r = function.apply(studyId, id);
+            if (r != null) {
+                r = segment.put(key, hash, r, true);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Get a cached value. Recompute if the stored value is equals to the given invalid value.
+     *
+     * @param studyId      Study id
+     * @param id           Resource id
+     * @param invalidValue Invalid value
+     * @return Value
+     */
+    public R get(int studyId, int id, R invalidValue) {
+        long key = toKey(studyId, id);
+        int hash = hash(key);
+        Segment<R> segment = segmentFor(hash);
+        R r = segment.get(key, hash);
+        if (r == null || r.equals(invalidValue)) {
+            r = function.apply(studyId, id);
+            if (r != null) {
+                segment.put(key, hash, r, false);
+            }
+        }
+        return r;
+    }
+
+    public void put(int studyId, int id, R value) {
+        long key = toKey(studyId, id);
+        int hash = hash(key);
+        segmentFor(hash).put(key, hash, value, false);
+    }
+
+    public void clear() {
+        for (Segment<R> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Remove all the entries from one study.
+     *
+     * @param studyId Study id
+     */
+    public void clear(int studyId) {
+        for (Segment<R> segment : segments) {
+            segment.clear(studyId);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<R> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    static long toKey(int studyId, int id) {
+        return (((long) studyId) << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private Segment<R> segmentFor(int hash) {
+        return segments[(hash >>> 28) & (NUM_SEGMENTS - 1)];
+    }
+
+    /**
+     * Open addressing hash table with a LRU double linked list.
+     * Entries are stored in parallel arrays, and linked by their index.
+     */
+    private static final class Segment<R> {
+        private static final int NONE = -1;
+        private static final int INITIAL_CAPACITY = 16;
+
+        // Max number of entries. 0 for unbounded
+        private final int maxSize;
+
+        // Entries
+        private long[] keys;
+        private Object[] values;
+        private int[] prev;
+        private int[] next;
+        // Most recently used entry
+        private int head;
+        // Least recently used entry
+        private int tail;
+        // Removed entries, linked with the "next" array
+        private int freeList;
+        // Number of entries ever allocated
+        private int used;
+        private int size;
+
+        // Hash table. Contains the index of the entry, or NONE
+        private int[] table;
+        private int mask;
+
+        Segment(int maxSize) {
+            this.maxSize = maxSize;
+            init(maxSize > 0 ? maxSize : INITIAL_CAPACITY);
+        }
+
+        private void init(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            prev = new int[capacity];
+            next = new int[capacity];
+            head = NONE;
+            tail = NONE;
+            freeList = NONE;
+            used = 0;
+            size = 0;
+            table = new int[tableSizeFor(capacity)];
+            Arrays.fill(table, NONE);
+            mask = table.length - 1;
+        }
+
+        private static int tableSizeFor(int capacity) {
+            // Keep the load factor under 0.5
+            return Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized R get(long key, int hash) {
+            int e = find(key, hash);
+            if (e == NONE) {
+                return null;
+            }
+            moveToHead(e);
+            return (R) values[e];
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized R put(long key, int hash, R value, boolean onlyIfAbsent) {
+            int e = find(key, hash);
+            if (e != NONE) {
+                moveToHead(e);
+                if (onlyIfAbsent) {
+                    return (R) values[e];
+                } else {
+                    values[e] = value;
+                    return value;
+                }
+            }
+            if (maxSize > 0 && size >= maxSize) {
+                remove(tail);
+            }
+            e = allocate();
+            keys[e] = key;
+            values[e] = value;
+            linkHead(e);
+            insert(hash, e);
+            size++;
+            return value;
+        }
+
+        synchronized void clear() {
+            init(maxSize > 0 ? maxSize : INITIAL_CAPACITY);
+        }
+
+        synchronized void clear(int studyId) {
+            int e = head;
+            while (e != NONE) {
+                int nextEntry = next[e];
+                if ((int) (keys[e] >>> 32) == studyId) {
+                    remove(e);
+                }
+                e = nextEntry;
+            }
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private int find(long key, int hash) {
+            int slot = hash & mask;
+            while (table[slot] != NONE) {
+                int e = table[slot];
+                if (keys[e] == key) {
+                    return e;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NONE;
+        }
+
+        private void insert(int hash, int e) {
+            int slot = hash & mask;
+            while (table[slot] != NONE) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = e;
+        }
+
+        private int allocate() {
+            int e;
+            if (freeList != NONE) {
+                e = freeList;
+                freeList = next[e];
+            } else {
+                if (used == keys.length) {
+                    grow();
+                }
+                e = used++;
+            }
+            return e;
+        }
+
+        private void grow() {
+            int capacity = keys.length * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+            table = new int[tableSizeFor(capacity)];
+            Arrays.fill(table, NONE);
+            mask = table.length - 1;
+            for (int e = head; e != NONE; e = next[e]) {
+                insert(hash(keys[e]), e);
+            }
+        }
+
+        private void remove(int e) {
+            unlink(e);
+            removeFromTable(e);
+            values[e] = null;
+            next[e] = freeList;
+            freeList = e;
+            size--;
+        }
+
+        /**
+         * Remove the entry from the hash table, shifting back the following entries of the cluster.
+         *
+         * @param e Entry to remove
+         */
+        private void removeFromTable(int e) {
+            int slot = hash(keys[e]) & mask;
+            while (table[slot] != e) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = NONE;
+            int j = slot;
+            while (true) {
+                j = (j + 1) & mask;
+                int other = table[j];
+                if (other == NONE) {
+                    return;
+                }
+                int ideal = hash(keys[other]) & mask;
+                // Move the entry to the empty slot, unless its ideal slot is cyclically in (slot, j]
+                boolean inRange = slot <= j ? (slot < ideal && ideal <= j) : (slot < ideal || ideal <= j);
+                if (!inRange) {
+                    table[slot] = other;
+                    table[j] = NONE;
+                    slot = j;
+                }
+            }
+        }
+
+        private void unlink(int e) {
+            int p = prev[e];
+            int n = next[e];
+            if (p == NONE) {
+                head = n;
+            } else {
+                next[p] = n;
+            }
+            if (n == NONE) {
+                tail = p;
+            } else {
+                prev[n] = p;
+            }
+        }
+
+        private void linkHead(int e) {
+            prev[e] = NONE;
+            next[e] = head;
+            if (head != NONE) {
+                prev[head] = e;
+            }
+            head = e;
+            if (tail == NONE) {
+                tail = e;
+            }
+        }
+
+        private void moveToHead(int e) {
+            if (head != e) {
+                unlink(e);
+                linkHead(e);
+            }
+        }
+    }
+}
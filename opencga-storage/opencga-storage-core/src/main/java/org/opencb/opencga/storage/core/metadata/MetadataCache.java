@@ -1,14 +1,18 @@
 package org.opencb.opencga.storage.core.metadata;
 
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 /**
  * Created by jacobo on 27/02/19.
+ *
+ * Values are stored in one map per study, so no composed key needs to be built for each lookup.
+ * For resources identified by a numerical id, use {@link IntMetadataCache}.
  */
 public class MetadataCache<ID, R> {
 
-    private final ConcurrentHashMap<String, R> cache;
+    private final ConcurrentHashMap<Integer, Map<ID, R>> cache;
     private final BiFunction<Integer, ID, R> function;
 
     public MetadataCache(BiFunction<Integer, ID, R> function) {
@@ -24,16 +28,16 @@ public class MetadataCache<ID, R> {
      * @return        Value
      */
     public R get(int studyId, ID id) {
-        String key = getKey(studyId, id);
+        Map<ID, R> studyCache = getStudyCache(studyId);
 
         // Avoid unnecessary synchronize blocks.
         // ConcurrentHashMap::get does not have any synchronization block
-        R r = cache.get(key);
+        R r = studyCache.get(id);
         if (r != null) {
             return r;
         } else {
             // Use this method to avoid executing the function twice
-            return cache.computeIfAbsent(key, k -> this.function.apply(studyId, id));
+            return studyCache.computeIfAbsent(id, k -> this.function.apply(studyId, id));
         }
     }
 
@@ -46,14 +50,14 @@ public class MetadataCache<ID, R> {
      * @return Value
      */
     public R get(int studyId, ID id, R invalidValue) {
-        String key = getKey(studyId, id);
+        Map<ID, R> studyCache = getStudyCache(studyId);
 
         // Avoid unnecessary synchronize blocks.
         // ConcurrentHashMap::get does not have any synchronization block
-        R r = cache.get(key);
+        R r = studyCache.get(id);
         if (r == null || r.equals(invalidValue)) {
             // Use this method to avoid executing the function twice
-            return cache.compute(key, (k, v) -> {
+            return studyCache.compute(id, (k, v) -> {
                 if (v == null || v.equals(invalidValue)) {
                     return this.function.apply(studyId, id);
                 } else {
@@ -66,15 +70,28 @@ public class MetadataCache<ID, R> {
     }
 
     public void put(int studyId, ID id, R value) {
-        cache.put(getKey(studyId, id), value);
+        getStudyCache(studyId).put(id, value);
     }
 
     public void clear() {
         cache.clear();
     }
 
-    private String getKey(int studyId, ID id) {
-        return studyId + "_" + id;
+    /**
+     * Remove all the entries from one study.
+     *
+     * @param studyId Study id
+     */
+    public void clear(int studyId) {
+        cache.remove(studyId);
+    }
+
+    private Map<ID, R> getStudyCache(int studyId) {
+        Map<ID, R> studyCache = cache.get(studyId);
+        if (studyCache == null) {
+            studyCache = cache.computeIfAbsent(studyId, k -> new ConcurrentHashMap<>());
+        }
+        return studyCache;
     }
 
 }
@@ -43,7 +43,9 @@ import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
@@ -62,6 +64,10 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     private static final int DEFAULT_LOCK_DURATION = 5000;
     private static final int DEFAULT_TIMEOUT = 60000;
     public static final String SECONDARY_INDEX_PREFIX = "__SECONDARY_INDEX_COHORT_";
+    // Project counter incremented on every operation that modifies the metadata. See {@link #getMetadataVersion}
+    private static final String METADATA_VERSION_COUNTER = "metadataVersion";
+    // Time in milliseconds to reuse the last read of the metadata version counter
+    private static final long METADATA_VERSION_TTL = 1000;
 
     protected static Logger logger = LoggerFactory.getLogger(VariantStorageMetadataManager.class);
 
@@ -73,19 +79,60 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     private final TaskMetadataDBAdaptor taskDBAdaptor;
 
     private final MetadataCache<String, Integer> sampleIdCache;
-    private final MetadataCache<Integer, String> sampleNameCache;
-    private final MetadataCache<Integer, Boolean> sampleIdIndexedCache;
-    private final MetadataCache<Integer, LinkedHashSet<Integer>> sampleIdsFromFileIdCache;
+    private final IntMetadataCache<String> sampleNameCache;
+    private final IntMetadataCache<Boolean> sampleIdIndexedCache;
+    private final IntMetadataCache<LinkedHashSet<Integer>> sampleIdsFromFileIdCache;
 
     private final MetadataCache<String, Integer> fileIdCache;
-    private final MetadataCache<Integer, String> fileNameCache;
-    private final MetadataCache<Integer, Boolean> fileIdIndexedCache;
-    private final MetadataCache<Integer, Set<Integer>> fileIdsFromSampleIdCache;
+    private final IntMetadataCache<String> fileNameCache;
+    private final IntMetadataCache<Boolean> fileIdIndexedCache;
+    private final IntMetadataCache<Set<Integer>> fileIdsFromSampleIdCache;
 
     private final MetadataCache<String, Integer> cohortIdCache;
-    private final MetadataCache<Integer, String> cohortNameCache;
+    private final IntMetadataCache<String> cohortNameCache;
+
+    // Last known version (timestamp) of each StudyMetadata. Used to invalidate caches after updates from other processes.
+    private final Map<Integer, Long> studyVersions = new ConcurrentHashMap<>();
+
+    // Last read of the shared metadata version counter, and when it was read
+    private volatile long sharedMetadataVersion;
+    private volatile long sharedMetadataVersionTime;
+    // Modifications of files, samples and cohorts made from this manager, and how many of them are already published
+    // in the shared counter. See {@link #flushMetadataVersion}
+    private final AtomicLong localMetadataVersion = new AtomicLong();
+    private volatile long publishedLocalMetadataVersion;
+    private final String managerId = UUID.randomUUID().toString();
+
+    // Cached metadata of each study. See {@link StudySnapshot}
+    private final Map<Integer, StudySnapshot> snapshots = new ConcurrentHashMap<>();
+    private final long snapshotTtl;
 
     public VariantStorageMetadataManager(VariantStorageMetadataDBAdaptorFactory dbAdaptorFactory) {
+        this(dbAdaptorFactory, 0);
+    }
+
+    /**
+     * Create a VariantStorageMetadataManager.
+     *
+     * @param dbAdaptorFactory  Factory for the metadata DBAdaptors
+     * @param cacheMaxSize      Max number of elements for each id-based cache. Unbounded if 0 or negative.
+     */
+    public VariantStorageMetadataManager(VariantStorageMetadataDBAdaptorFactory dbAdaptorFactory, int cacheMaxSize) {
+        this(dbAdaptorFactory, cacheMaxSize, VariantStorageOptions.METADATA_SNAPSHOT_TTL.defaultValue());
+    }
+
+    /**
+     * Create a VariantStorageMetadataManager.
+     *
+     * @param dbAdaptorFactory  Factory for the metadata DBAdaptors
+     * @param cacheMaxSize      Max number of elements for each id-based cache. Unbounded if 0 or negative.
+     *                          See {@link VariantStorageOptions#METADATA_CACHE_SIZE}
+     * @param snapshotTtl       Max time in milliseconds to keep a snapshot of the metadata of each study, even if the
+     *                          metadata version did not change. Disabled if 0 or negative.
+     *                          See {@link VariantStorageOptions#METADATA_SNAPSHOT_TTL}
+     */
+    public VariantStorageMetadataManager(VariantStorageMetadataDBAdaptorFactory dbAdaptorFactory, int cacheMaxSize, long snapshotTtl) {
+        this.snapshotTtl = snapshotTtl;
         this.projectDBAdaptor = dbAdaptorFactory.buildProjectMetadataDBAdaptor();
         this.studyDBAdaptor = dbAdaptorFactory.buildStudyMetadataDBAdaptor();
         this.fileDBAdaptor = dbAdaptorFactory.buildFileMetadataDBAdaptor();
@@ -93,59 +140,59 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         this.cohortDBAdaptor = dbAdaptorFactory.buildCohortMetadataDBAdaptor();
         this.taskDBAdaptor = dbAdaptorFactory.buildTaskDBAdaptor();
         sampleIdCache = new MetadataCache<>(sampleDBAdaptor::getSampleId);
-        sampleNameCache = new MetadataCache<>((studyId, sampleId) -> {
+        sampleNameCache = new IntMetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.getName();
-        });
-        sampleIdIndexedCache = new MetadataCache<>((studyId, sampleId) -> {
+        }, cacheMaxSize);
+        sampleIdIndexedCache = new IntMetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.isIndexed();
-        });
-        sampleIdsFromFileIdCache = new MetadataCache<>((studyId, fileId) -> {
+        }, cacheMaxSize);
+        sampleIdsFromFileIdCache = new IntMetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.getSamples();
-        });
+        }, cacheMaxSize);
 
         fileIdCache = new MetadataCache<>(fileDBAdaptor::getFileId);
-        fileNameCache = new MetadataCache<>((studyId, fileId) -> {
+        fileNameCache = new IntMetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.getName();
-        });
-        fileIdIndexedCache = new MetadataCache<>((studyId, fileId) -> {
+        }, cacheMaxSize);
+        fileIdIndexedCache = new IntMetadataCache<>((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.isIndexed();
-        });
-        fileIdsFromSampleIdCache = new MetadataCache<>((studyId, sampleId) -> {
+        }, cacheMaxSize);
+        fileIdsFromSampleIdCache = new IntMetadataCache<>((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = getSampleMetadata(studyId, sampleId);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.getFiles();
-        });
+        }, cacheMaxSize);
 
         cohortIdCache = new MetadataCache<>(cohortDBAdaptor::getCohortId);
-        cohortNameCache = new MetadataCache<>((studyId, cohortId) -> {
+        cohortNameCache = new IntMetadataCache<>((studyId, cohortId) -> {
             CohortMetadata cohortMetadata = cohortDBAdaptor.getCohortMetadata(studyId, cohortId, null);
             if (cohortMetadata == null) {
                 throw VariantQueryException.cohortNotFound(cohortId, studyId, getAvailableCohorts(studyId));
             }
             return cohortMetadata.getName();
-        });
+        }, cacheMaxSize);
     }
 
     public Lock lockStudy(int studyId) throws StorageEngineException {
@@ -181,7 +228,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
 
         Lock lock = lockStudy(studyId);
         try {
-            StudyMetadata sm = getStudyMetadata(studyId);
+            StudyMetadata sm = readStudyMetadata(studyId);
 
             sm = updater.update(sm);
 
@@ -198,16 +245,196 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         if (studyId == null) {
             return null;
         } else {
-            return studyDBAdaptor.getStudyMetadata(studyId, null);
+            return getStudyMetadata(studyId);
         }
     }
 
+    /**
+     * Get the StudyMetadata. If the metadata snapshots are enabled, the returned object is shared, and must not be modified.
+     * Use {@link #updateStudyMetadata} to modify it.
+     *
+     * @param id Study id
+     * @return   StudyMetadata
+     */
     public StudyMetadata getStudyMetadata(int id) {
-        return studyDBAdaptor.getStudyMetadata(id, null);
+        StudySnapshot snapshot = getSnapshot(id);
+        if (snapshot == null) {
+            return readStudyMetadata(id);
+        } else {
+            return snapshot.studyMetadata;
+        }
+    }
+
+    private StudyMetadata readStudyMetadata(int id) {
+        return checkStudyVersion(studyDBAdaptor.getStudyMetadata(id, null));
     }
 
     public void unsecureUpdateStudyMetadata(StudyMetadata sm) {
+        // The timestamp is used as version stamp to invalidate the caches from other processes
+        sm.setTimeStamp(System.currentTimeMillis());
         studyDBAdaptor.updateStudyMetadata(sm);
+        snapshots.remove(sm.getId());
+        incrementMetadataVersionUnchecked();
+    }
+
+    /**
+     * Version of the whole metadata, used to validate cached values.
+     *
+     * The version is made of a counter shared by all the processes, and the modifications made from this manager that are
+     * not yet published in the shared counter. Any modification made from this manager changes the version immediately.
+     * Modifications from other processes are seen once they are published, and after at most {@value #METADATA_VERSION_TTL}ms,
+     * as the shared counter is read at most once in that time.
+     *
+     * The shared counter is incremented once per operation, not on every write: on every update of the project or a study,
+     * and on every task status change, which publishes the pending modifications of files, samples and cohorts.
+     * See {@link #flushMetadataVersion}.
+     *
+     * @return Version of the metadata
+     * @throws StorageEngineException if there is an error reading the version
+     */
+    public String getMetadataVersion() throws StorageEngineException {
+        // Read the local versions before the shared one. See flushMetadataVersion
+        long localVersion = localMetadataVersion.get();
+        long publishedLocalVersion = publishedLocalMetadataVersion;
+        long sharedVersion = getSharedMetadataVersion();
+        if (localVersion == publishedLocalVersion) {
+            return String.valueOf(sharedVersion);
+        } else {
+            // Pending modifications are only valid within this manager
+            return sharedVersion + ":" + managerId + ":" + localVersion;
+        }
+    }
+
+    // Last read of the shared counter, read again if older than METADATA_VERSION_TTL
+    private long getSharedMetadataVersion() throws StorageEngineException {
+        long now = System.currentTimeMillis();
+        if (now - sharedMetadataVersionTime > METADATA_VERSION_TTL) {
+            sharedMetadataVersion = projectDBAdaptor.getLastId(null, METADATA_VERSION_COUNTER);
+            sharedMetadataVersionTime = now;
+        }
+        return sharedMetadataVersion;
+    }
+
+    /**
+     * Publish the modifications of files, samples and cohorts made from this manager, so other processes see a new
+     * metadata version. Executed automatically on every task status change, e.g. when an operation finishes.
+     *
+     * @throws StorageEngineException if there is an error incrementing the version
+     */
+    public void flushMetadataVersion() throws StorageEngineException {
+        if (localMetadataVersion.get() != publishedLocalMetadataVersion) {
+            incrementMetadataVersion();
+        }
+    }
+
+    private void incrementMetadataVersion() throws StorageEngineException {
+        long localVersion = localMetadataVersion.get();
+        sharedMetadataVersion = projectDBAdaptor.generateId(null, METADATA_VERSION_COUNTER);
+        sharedMetadataVersionTime = System.currentTimeMillis();
+        // Set after the shared version. Modifications made while incrementing the counter remain pending
+        publishedLocalMetadataVersion = localVersion;
+    }
+
+    // Update of the project or a study. Increments the shared version
+    private void incrementMetadataVersionUnchecked() {
+        try {
+            incrementMetadataVersion();
+        } catch (StorageEngineException e) {
+            throw VariantQueryException.internalException(e);
+        }
+    }
+
+    // Modification of a file, sample or cohort. Only changes the local version until the next flush
+    private void incrementLocalMetadataVersion() {
+        localMetadataVersion.incrementAndGet();
+    }
+
+    /**
+     * Get the snapshot of the given study. A new snapshot is created if missing, if the shared metadata version changed,
+     * or if expired.
+     *
+     * @param studyId Study id
+     * @return        The snapshot, or null if disabled or the study does not exist.
+     */
+    private StudySnapshot getSnapshot(int studyId) {
+        if (snapshotTtl <= 0) {
+            return null;
+        }
+        long metadataVersion;
+        try {
+            metadataVersion = getSharedMetadataVersion();
+        } catch (StorageEngineException e) {
+            throw VariantQueryException.internalException(e);
+        }
+        StudySnapshot snapshot = snapshots.get(studyId);
+        if (snapshot != null && snapshot.isValid(metadataVersion, snapshotTtl)) {
+            return snapshot;
+        }
+        // Read within the compute block, so concurrent invalidations wait until the new snapshot is stored.
+        return snapshots.compute(studyId, (id, prev) -> {
+            if (prev != null && prev.isValid(metadataVersion, snapshotTtl)) {
+                return prev;
+            }
+            StudyMetadata sm = readStudyMetadata(id);
+            return sm == null ? null : new StudySnapshot(sm, metadataVersion);
+        });
+    }
+
+    /**
+     * Drop the cached snapshot of a study. Next read will go to the database.
+     *
+     * @param studyId Study id
+     */
+    public void invalidateSnapshot(int studyId) {
+        snapshots.remove(studyId);
+    }
+
+    /**
+     * Drop all the cached values from a study if its version (timestamp) changed since the last time it was read.
+     *
+     * @param sm StudyMetadata
+     * @return   same StudyMetadata
+     */
+    private StudyMetadata checkStudyVersion(StudyMetadata sm) {
+        if (sm != null && sm.getTimeStamp() != null) {
+            Long prevVersion = studyVersions.put(sm.getId(), sm.getTimeStamp());
+            if (prevVersion != null && !prevVersion.equals(sm.getTimeStamp())) {
+                logger.debug("StudyMetadata '{}' updated. Invalidate metadata caches", sm.getName());
+                clearCaches(sm.getId());
+            }
+        }
+        return sm;
+    }
+
+    private void clearCaches(int studyId) {
+        sampleIdCache.clear(studyId);
+        sampleNameCache.clear(studyId);
+        sampleIdIndexedCache.clear(studyId);
+        sampleIdsFromFileIdCache.clear(studyId);
+        fileIdCache.clear(studyId);
+        fileNameCache.clear(studyId);
+        fileIdIndexedCache.clear(studyId);
+        fileIdsFromSampleIdCache.clear(studyId);
+        cohortIdCache.clear(studyId);
+        cohortNameCache.clear(studyId);
+        StudySnapshot snapshot = snapshots.get(studyId);
+        if (snapshot != null) {
+            snapshot.clearResources();
+        }
+    }
+
+    /**
+     * Update the version of the StudyMetadata, so other processes drop their cached values.
+     * Does not take the study lock, as the callers might be already holding it. Only the timestamp is modified, atomically,
+     * so a concurrent update of the StudyMetadata is never overwritten.
+     *
+     * @param studyId Study id
+     */
+    private void updateStudyVersion(int studyId) {
+        clearCaches(studyId);
+        studyDBAdaptor.updateStudyTimeStamp(studyId, System.currentTimeMillis());
+        snapshots.remove(studyId);
+        incrementMetadataVersionUnchecked();
     }
 
     @Deprecated
@@ -262,7 +489,9 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         logger.debug("Timestamp : {} -> {}", studyConfiguration.getTimeStamp(), timeStamp);
         studyConfiguration.setTimeStamp(timeStamp);
 
-        return studyDBAdaptor.updateStudyConfiguration(studyConfiguration, options);
+        DataResult result = studyDBAdaptor.updateStudyConfiguration(studyConfiguration, options);
+        incrementMetadataVersionUnchecked();
+        return result;
     }
 
     public Integer getStudyIdOrNull(Object studyObj) {
@@ -466,6 +695,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
 
             lock.checkLocked();
             projectDBAdaptor.updateProjectMetadata(projectMetadata, updateCounters);
+            incrementMetadataVersionUnchecked();
             return projectMetadata;
         } finally {
             lock.unlock();
@@ -525,11 +755,12 @@ public class VariantStorageMetadataManager implements AutoCloseable {
 
     public void updateVariantFileMetadata(int studyId, VariantFileMetadata metadata) throws StorageEngineException {
         fileDBAdaptor.updateVariantFileMetadata(studyId, metadata);
+        incrementLocalMetadataVersion();
     }
 
     public void updateVariantFileMetadata(String study, VariantFileMetadata metadata) throws StorageEngineException {
         int studyId = getStudyId(study);
-        fileDBAdaptor.updateVariantFileMetadata(studyId, metadata);
+        updateVariantFileMetadata(studyId, metadata);
     }
 
     public void removeVariantFileMetadata(int studyId, int fileId) throws StorageEngineException {
@@ -538,6 +769,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         } catch (IOException e) {
             throw new StorageEngineException("Error deleting VariantFileMetadata for file " + fileId, e);
         }
+        incrementLocalMetadataVersion();
     }
 
     public FileMetadata getFileMetadata(int studyId, Object fileObj) {
@@ -545,13 +777,23 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         if (fileId == null) {
             return null;
         } else {
-            return fileDBAdaptor.getFileMetadata(studyId, fileId, null);
+            StudySnapshot snapshot = getSnapshot(studyId);
+            if (snapshot == null) {
+                return fileDBAdaptor.getFileMetadata(studyId, fileId, null);
+            } else {
+                return snapshot.files.computeIfAbsent(fileId, id -> fileDBAdaptor.getFileMetadata(studyId, id, null));
+            }
         }
     }
 
     public void unsecureUpdateFileMetadata(int studyId, FileMetadata file) {
         file.setStudyId(studyId);
         fileDBAdaptor.updateFileMetadata(studyId, file, null);
+        StudySnapshot snapshot = snapshots.get(studyId);
+        if (snapshot != null) {
+            snapshot.files.remove(file.getId());
+        }
+        incrementLocalMetadataVersion();
     }
 
     public <E extends Exception> FileMetadata updateFileMetadata(int studyId, int fileId, UpdateFunction<FileMetadata, E> update)
@@ -559,7 +801,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         getFileName(studyId, fileId); // Check file exists
         Lock lock = fileDBAdaptor.lock(studyId, fileId, DEFAULT_LOCK_DURATION, DEFAULT_TIMEOUT);
         try {
-            FileMetadata fileMetadata = getFileMetadata(studyId, fileId);
+            FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             fileMetadata = update.update(fileMetadata);
             lock.checkLocked();
             unsecureUpdateFileMetadata(studyId, fileMetadata);
@@ -671,8 +913,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             logger.info("Register file " + name + " as INDEXED");
         }
         fileDBAdaptor.addIndexedFiles(studyId, fileIds);
-        fileIdsFromSampleIdCache.clear();
-        fileIdIndexedCache.clear();
+        updateStudyVersion(studyId);
     }
 
     public void removeIndexedFiles(int studyId, Collection<Integer> fileIds) throws StorageEngineException {
@@ -701,6 +942,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             });
         }
         fileDBAdaptor.removeIndexedFiles(studyId, fileIds);
+        updateStudyVersion(studyId);
     }
 
     public Iterator<FileMetadata> fileMetadataIterator(int studyId) {
@@ -708,12 +950,22 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     }
 
     public SampleMetadata getSampleMetadata(int studyId, int sampleId) {
-        return sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
+        StudySnapshot snapshot = getSnapshot(studyId);
+        if (snapshot == null) {
+            return sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
+        } else {
+            return snapshot.samples.computeIfAbsent(sampleId, id -> sampleDBAdaptor.getSampleMetadata(studyId, id, null));
+        }
     }
 
     public void unsecureUpdateSampleMetadata(int studyId, SampleMetadata sample) {
         sample.setStudyId(studyId);
         sampleDBAdaptor.updateSampleMetadata(studyId, sample, null);
+        StudySnapshot snapshot = snapshots.get(studyId);
+        if (snapshot != null) {
+            snapshot.samples.remove(sample.getId());
+        }
+        incrementLocalMetadataVersion();
     }
 
     public <E extends Exception> SampleMetadata updateSampleMetadata(int studyId, int sampleId, UpdateFunction<SampleMetadata, E> update)
@@ -721,7 +973,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         getSampleName(studyId, sampleId); // Check sample exists
         Lock lock = sampleDBAdaptor.lock(studyId, sampleId, DEFAULT_LOCK_DURATION, DEFAULT_TIMEOUT);
         try {
-            SampleMetadata sample = getSampleMetadata(studyId, sampleId);
+            SampleMetadata sample = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             sample = update.update(sample);
             lock.checkLocked();
             unsecureUpdateSampleMetadata(studyId, sample);
@@ -844,13 +1096,23 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         if (cohortId == null) {
             return null;
         } else {
-            return cohortDBAdaptor.getCohortMetadata(studyId, cohortId, null);
+            StudySnapshot snapshot = getSnapshot(studyId);
+            if (snapshot == null) {
+                return cohortDBAdaptor.getCohortMetadata(studyId, cohortId, null);
+            } else {
+                return snapshot.cohorts.computeIfAbsent(cohortId, id -> cohortDBAdaptor.getCohortMetadata(studyId, id, null));
+            }
         }
     }
 
     public void unsecureUpdateCohortMetadata(int studyId, CohortMetadata cohort) {
         cohort.setStudyId(studyId);
         cohortDBAdaptor.updateCohortMetadata(studyId, cohort, null);
+        StudySnapshot snapshot = snapshots.get(studyId);
+        if (snapshot != null) {
+            snapshot.cohorts.remove(cohort.getId());
+        }
+        incrementLocalMetadataVersion();
     }
 
     public <E extends Exception> CohortMetadata updateCohortMetadata(int studyId, int cohortId, UpdateFunction<CohortMetadata, E> update)
@@ -858,7 +1120,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         getCohortName(studyId, cohortId); // Check cohort exists
         Lock lock = cohortDBAdaptor.lock(studyId, cohortId, DEFAULT_LOCK_DURATION, DEFAULT_TIMEOUT);
         try {
-            CohortMetadata cohortMetadata = getCohortMetadata(studyId, cohortId);
+            CohortMetadata cohortMetadata = cohortDBAdaptor.getCohortMetadata(studyId, cohortId, null);
             cohortMetadata = update.update(cohortMetadata);
             lock.checkLocked();
             unsecureUpdateCohortMetadata(studyId, cohortMetadata);
@@ -874,6 +1136,11 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             throw VariantQueryException.cohortNotFound(cohort.toString(), studyId, this);
         }
         cohortDBAdaptor.removeCohort(studyId, cohortId);
+        StudySnapshot snapshot = snapshots.get(studyId);
+        if (snapshot != null) {
+            snapshot.cohorts.remove(cohortId);
+        }
+        incrementLocalMetadataVersion();
     }
 
     public Integer getCohortId(int studyId, String cohortName) {
@@ -1059,6 +1326,8 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             task.setId(newTaskId(studyId));
         }
         taskDBAdaptor.updateTask(studyId, task, null);
+        // Publish the modifications made by the task, once per status change
+        flushMetadataVersion();
     }
 
     public <E extends Exception> TaskMetadata updateTask(int studyId, int taskId, UpdateFunction<TaskMetadata, E> update)
@@ -1292,7 +1561,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             sampleMetadata = new SampleMetadata(studyId, sampleId, sample);
             update = true;
         } else {
-            sampleMetadata = getSampleMetadata(studyId, sampleId);
+            sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
         }
         if (fileId != null) {
             sampleMetadata.getFiles().add(fileId);
@@ -1640,6 +1909,45 @@ public class VariantStorageMetadataManager implements AutoCloseable {
 
     @Override
     public void close() throws IOException {
+        try {
+            flushMetadataVersion();
+        } catch (StorageEngineException e) {
+            logger.warn("Unable to publish the metadata version", e);
+        }
         studyDBAdaptor.close();
     }
+
+    /**
+     * Snapshot of the metadata of one study.
+     * Contains the StudyMetadata, and the samples, files and cohorts read since the snapshot was created.
+     *
+     * Snapshots are dropped when the shared metadata version changes, so published changes from other processes are seen,
+     * and after a configurable time. Changes made through this manager invalidate the affected entries.
+     * Values are copy-on-write: they are shared by all the readers and never modified. Updates always read a new copy
+     * from the database, and replace the entry in the snapshot.
+     */
+    private static final class StudySnapshot {
+        private final StudyMetadata studyMetadata;
+        private final long metadataVersion;
+        private final long creationTime;
+        private final Map<Integer, SampleMetadata> samples = new ConcurrentHashMap<>();
+        private final Map<Integer, FileMetadata> files = new ConcurrentHashMap<>();
+        private final Map<Integer, CohortMetadata> cohorts = new ConcurrentHashMap<>();
+
+        StudySnapshot(StudyMetadata studyMetadata, long metadataVersion) {
+            this.studyMetadata = studyMetadata;
+            this.metadataVersion = metadataVersion;
+            this.creationTime = System.currentTimeMillis();
+        }
+
+        boolean isValid(long currentMetadataVersion, long ttl) {
+            return metadataVersion == currentMetadataVersion && System.currentTimeMillis() - creationTime <= ttl;
+        }
+
+        void clearResources() {
+            samples.clear();
+            files.clear();
+            cohorts.clear();
+        }
+    }
 }
@@ -35,4 +35,14 @@ public interface ProjectMetadataAdaptor extends AutoCloseable {
     }
 
     int generateId(Integer studyId, String idType) throws StorageEngineException;
+
+    /**
+     * Get the last value generated by {@link #generateId(Integer, String)}, without modifying it.
+     *
+     * @param studyId Study id
+     * @param idType  Type of id
+     * @return        Last generated value, or 0 if none.
+     * @throws StorageEngineException if there is an error reading the counter
+     */
+    int getLastId(Integer studyId, String idType) throws StorageEngineException;
 }
@@ -50,6 +50,15 @@ public interface StudyMetadataDBAdaptor extends AutoCloseable {
 
     void updateStudyMetadata(StudyMetadata sm);
 
+    /**
+     * Update the timestamp of the StudyMetadata, without modifying any other field.
+     * Concurrent updates of the StudyMetadata must not be lost, as this might be executed without holding the study lock.
+     *
+     * @param studyId   Study id
+     * @param timeStamp New timestamp
+     */
+    void updateStudyTimeStamp(int studyId, long timeStamp);
+
     Map<String, Integer> getStudies(QueryOptions options);
 
     default List<String> getStudyNames(QueryOptions options) {
@@ -22,6 +22,7 @@ import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
 import org.opencb.cellbase.client.config.ClientConfiguration;
 import org.opencb.cellbase.client.rest.CellBaseClient;
@@ -31,6 +32,7 @@ import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.core.response.VariantQueryResult;
 import org.opencb.opencga.storage.core.StorageEngine;
 import org.opencb.opencga.storage.core.StoragePipelineResult;
+import org.opencb.opencga.storage.core.cache.CacheManager;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.exceptions.StoragePipelineException;
@@ -70,6 +72,7 @@ import java.net.URI;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -85,6 +88,10 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
     private final AtomicReference<VariantSearchManager> variantSearchManager = new AtomicReference<>();
     private final List<VariantQueryExecutor> lazyVariantQueryExecutorsList = new ArrayList<>();
+    private final AtomicReference<CacheManager> cacheManager = new AtomicReference<>();
+    private final AtomicReference<ParsedVariantQueryCache> parsedQueryCache = new AtomicReference<>();
+    // Incremented every time the data is modified from this process. Part of the version of the cached query results.
+    private final AtomicLong queryCacheVersion = new AtomicLong();
     private CellBaseUtils cellBaseUtils;
 
     public static final String REMOVE_OPERATION_NAME = TaskMetadata.Type.REMOVE.name().toLowerCase();
@@ -148,7 +155,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
      * @throws StorageEngineException  if there si any error loading the variants
      * */
     public void importData(URI inputFile, ObjectMap params) throws StorageEngineException, IOException {
-        VariantImporter variantImporter = newVariantImporter();
+        VariantImporter variantImporter = newVariantImporter().setOptions(getMergedOptions(params));
         variantImporter.importData(inputFile);
     }
 
@@ -164,7 +171,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
      * */
     public void importData(URI inputFile, VariantMetadata metadata, List<StudyConfiguration> studies, ObjectMap params)
             throws StorageEngineException, IOException {
-        VariantImporter variantImporter = newVariantImporter();
+        VariantImporter variantImporter = newVariantImporter().setOptions(getMergedOptions(params));
         variantImporter.importData(inputFile, metadata, studies);
     }
 
@@ -277,7 +284,11 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         // Merge with configuration
         ObjectMap options = getMergedOptions(params);
         VariantAnnotationManager annotationManager = newVariantAnnotationManager(options);
-        return annotationManager.annotate(query, options);
+        try {
+            return annotationManager.annotate(query, options);
+        } finally {
+            invalidateQueryCache();
+        }
     }
 
     /**
@@ -295,7 +306,11 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         ObjectMap options = getMergedOptions(params);
         options.put(VariantAnnotationManager.LOAD_FILE, inputFile.toString());
         VariantAnnotationManager annotationManager = newVariantAnnotationManager(options);
-        return annotationManager.annotate(new Query(), options);
+        try {
+            return annotationManager.annotate(new Query(), options);
+        } finally {
+            invalidateQueryCache();
+        }
     }
 
     /**
@@ -344,10 +359,12 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
     public void saveAnnotation(String name, ObjectMap params) throws StorageEngineException, VariantAnnotatorException {
         newVariantAnnotationManager(params).saveAnnotation(name, params);
+        invalidateQueryCache();
     }
 
     public void deleteAnnotation(String name, ObjectMap params) throws StorageEngineException, VariantAnnotatorException {
         newVariantAnnotationManager(params).deleteAnnotation(name, params);
+        invalidateQueryCache();
     }
 
     public DataResult<VariantAnnotation> getAnnotation(String name, Query query, QueryOptions options) throws StorageEngineException {
@@ -425,7 +442,11 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
      */
     public void calculateStats(String study, List<String> cohorts, QueryOptions options) throws StorageEngineException, IOException {
         VariantStatisticsManager statisticsManager = newVariantStatisticsManager();
-        statisticsManager.calculateStatistics(study, cohorts, options);
+        try {
+            statisticsManager.calculateStatistics(study, cohorts, options);
+        } finally {
+            invalidateQueryCache();
+        }
     }
 
     public void calculateStats(String study, Map<String, ? extends Collection<String>> cohorts, QueryOptions options)
@@ -435,7 +456,11 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         VariantStorageMetadataManager metadataManager = getMetadataManager();
         metadataManager.registerCohorts(study, cohorts);
 
-        statisticsManager.calculateStatistics(study, new ArrayList<>(cohorts.keySet()), options);
+        try {
+            statisticsManager.calculateStatistics(study, new ArrayList<>(cohorts.keySet()), options);
+        } finally {
+            invalidateQueryCache();
+        }
     }
 
     /**
@@ -785,6 +810,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
      *    Invalidates the cohorts with removed samples
      * If error:
      *    Updates remove status with ERROR
+     * In any case, discards the cached query results. See {@link #invalidateQueryCache}.
      *
      * @param study    Study
      * @param fileIds  Removed file ids
@@ -793,6 +819,15 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
      * @throws StorageEngineException StorageEngineException
      */
     protected void postRemoveFiles(String study, List<Integer> fileIds, int taskId, boolean error) throws StorageEngineException {
+        try {
+            updateMetadataAfterRemoveFiles(study, fileIds, taskId, error);
+        } finally {
+            invalidateQueryCache();
+        }
+    }
+
+    private void updateMetadataAfterRemoveFiles(String study, List<Integer> fileIds, int taskId, boolean error)
+            throws StorageEngineException {
         VariantStorageMetadataManager metadataManager = getMetadataManager();
         metadataManager.updateStudyMetadata(study, studyMetadata -> {
             if (error) {
@@ -940,7 +975,97 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         addDefaultLimit(options, getOptions());
         addDefaultSampleLimit(query, getOptions());
         query = preProcessQuery(query, options);
-        return getVariantQueryExecutor(query, options).get(query, options);
+        VariantQueryExecutor executor = getVariantQueryExecutor(query, options);
+
+        CacheManager cacheManager = getCacheManager();
+        if (!options.getBoolean(CacheManager.CACHE, false)
+                || !cacheManager.isActive() || !cacheManager.isTypeAllowed(CacheManager.VARIANT_TYPE)) {
+            return executor.get(query, options);
+        }
+        // Get the version before executing the query, so a concurrent modification won't be hidden by this result
+        String key = cacheManager.createKey(dbName, CacheManager.VARIANT_TYPE, query, options, getQueryCacheVersion());
+        VariantQueryResult<Variant> result = cacheManager.get(key);
+        if (result == null) {
+            result = executor.get(query, options);
+            // The local cache keeps the given object. Store a copy, so the caller can modify the returned result.
+            cacheManager.set(key, copyQueryResult(result));
+            return result;
+        } else {
+            logger.debug("Variant query result read from cache");
+            return copyQueryResult(result);
+        }
+    }
+
+    // Deep copy of the result, so the cached result is never shared with the caller
+    private static VariantQueryResult<Variant> copyQueryResult(VariantQueryResult<Variant> result) {
+        VariantQueryResult<Variant> copy = new VariantQueryResult<>(result);
+        if (result.getResults() != null) {
+            List<Variant> variants = new ArrayList<>(result.getResults().size());
+            for (Variant variant : result.getResults()) {
+                variants.add(copyVariant(variant));
+            }
+            copy.setResults(variants);
+        }
+        if (result.getAttributes() != null) {
+            copy.setAttributes(new ObjectMap(result.getAttributes()));
+        }
+        return copy;
+    }
+
+    // The avro builder copies all the fields. The samples position is not part of the avro model.
+    private static Variant copyVariant(Variant variant) {
+        Variant copy = new Variant(VariantAvro.newBuilder(variant.getImpl()).build());
+        for (int i = 0; i < variant.getStudies().size(); i++) {
+            Map<String, Integer> samplesPosition = variant.getStudies().get(i).getSamplesPosition();
+            if (samplesPosition != null) {
+                copy.getStudies().get(i).setSamplesPosition(new LinkedHashMap<>(samplesPosition));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Get the cache of query results. Only used by queries with the {@link CacheManager#CACHE} option.
+     *
+     * @return CacheManager
+     */
+    public CacheManager getCacheManager() {
+        if (cacheManager.get() == null) {
+            cacheManager.compareAndSet(null, new CacheManager(configuration));
+        }
+        return cacheManager.get();
+    }
+
+    /**
+     * Version of the data, used to build the cache keys.
+     * Any change in the metadata, e.g. a new file indexed, a new cohort or a new annotation, produces a different version.
+     * Changes from other processes are seen once their operation publishes them, after at most a few seconds.
+     * See {@link VariantStorageMetadataManager#getMetadataVersion}.
+     * Changes made from this process are also tracked with {@link #invalidateQueryCache}.
+     *
+     * @return Version of the data
+     */
+    protected String getQueryCacheVersion() {
+        try {
+            return queryCacheVersion.get() + ":" + getMetadataManager().getMetadataVersion();
+        } catch (StorageEngineException e) {
+            throw VariantQueryException.internalException(e);
+        }
+    }
+
+    /**
+     * Discard all the cached query results from this database.
+     */
+    public void invalidateQueryCache() {
+        queryCacheVersion.incrementAndGet();
+        CacheManager cacheManager = this.cacheManager.get();
+        if (cacheManager != null) {
+            cacheManager.clear(dbName);
+        }
+        ParsedVariantQueryCache parsedQueryCache = this.parsedQueryCache.get();
+        if (parsedQueryCache != null) {
+            parsedQueryCache.clear();
+        }
     }
 
     @Override
@@ -1006,6 +1131,23 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
     }
 
     public Query preProcessQuery(Query originalQuery, QueryOptions options) {
+        ParsedVariantQueryCache parsedQueryCache = getParsedQueryCache();
+        if (parsedQueryCache == null) {
+            return parseQuery(originalQuery, options);
+        } else {
+            return parsedQueryCache.get(originalQuery, options, getQueryCacheVersion(), this::parseQuery);
+        }
+    }
+
+    /**
+     * Pre-process the query without using the cache of pre-processed queries.
+     * Storage engines requiring extra pre-processing steps should override this method.
+     *
+     * @param originalQuery Query to pre-process. Must not be modified.
+     * @param options       Query options
+     * @return              New pre-processed query
+     */
+    protected Query parseQuery(Query originalQuery, QueryOptions options) {
         try {
             return getVariantQueryParser().preProcessQuery(originalQuery, options);
         } catch (StorageEngineException e) {
@@ -1013,6 +1155,17 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         }
     }
 
+    private ParsedVariantQueryCache getParsedQueryCache() {
+        int size = getOptions().getInt(QUERY_PARSED_CACHE_SIZE.key(), QUERY_PARSED_CACHE_SIZE.defaultValue());
+        if (size <= 0) {
+            return null;
+        }
+        if (parsedQueryCache.get() == null) {
+            parsedQueryCache.compareAndSet(null, new ParsedVariantQueryCache(size));
+        }
+        return parsedQueryCache.get();
+    }
+
     protected VariantQueryParser getVariantQueryParser() throws StorageEngineException {
         return new VariantQueryParser(getCellBaseUtils(), getMetadataManager());
     }
@@ -1071,6 +1224,10 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
             }
         }
         lazyVariantQueryExecutorsList.clear();
+        CacheManager cacheManager = this.cacheManager.getAndSet(null);
+        if (cacheManager != null) {
+            cacheManager.close();
+        }
     }
 }
 
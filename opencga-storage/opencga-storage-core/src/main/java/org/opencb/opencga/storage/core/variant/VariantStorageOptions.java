@@ -18,6 +18,7 @@ public enum VariantStorageOptions implements ConfigurationOption {
 
     TRANSFORM_BATCH_SIZE("transform.batchSize", 200),
     TRANSFORM_THREADS("transform.numThreads", 4),
+    TRANSFORM_BGZF_THREADS("transform.bgzf.numThreads", 4), // Threads to decompress BGZF input files. Disabled if 0.
     TRANSFORM_FORMAT("transform.format", "avro"),
     TRANSFORM_FAIL_ON_MALFORMED_VARIANT("transform.failOnMalformed", true),
     TRANSFORM_COMPRESSION("transform.compression", "gzip"),
@@ -43,6 +44,7 @@ public enum VariantStorageOptions implements ConfigurationOption {
     ANNOTATE("annotate", false), // Do annotate after step.
     ANNOTATION_BATCH_SIZE("annotation.batchSize", 100),
     ANNOTATION_FILE_FORMAT("annotation.file.format", "json"),
+    ANNOTATION_FILE_DUMP("annotation.file.dump", false), // Write the annotation to a file before loading it. Otherwise, load directly.
     ANNOTATION_NUM_THREADS("annotation.numThreads", 8),
     ANNOTATION_OVERWEITE("annotation.overwrite"),
 
@@ -55,12 +57,23 @@ public enum VariantStorageOptions implements ConfigurationOption {
 
     INDEX_SEARCH("indexSearch", false), // Build secondary indexes using search engine.
 
+    EXPORT_NUM_THREADS("export.numThreads", 1),      // Export genomic shards in parallel into one BGZF file. Only vcf.gz and json.gz.
+    EXPORT_SHARD_SIZE("export.shardSize", 5000000),  // Length in bases of each genomic shard exported in parallel.
+    EXPORT_INDEX("export.index", false),             // Write a tabix index next to the vcf.gz files exported in parallel.
+
+    IMPORT_BATCH_SIZE("import.batchSize", 1000),     // Variants converted and written together when importing exported data.
+    IMPORT_THREADS("import.numThreads", 5),
+
     QUERY_DEFAULT_TIMEOUT("query.timeout.default", 10000), // Default timeout for DBAdaptor operations. Only used if none is provided.
     QUERY_MAX_TIMEOUT("query.timeout.max", 30000),         // Max allowed timeout for DBAdaptor operations
     QUERY_LIMIT_DEFAULT("query.limit.default", 1000),
     QUERY_LIMIT_MAX("query.limit.max", 5000),
     QUERY_SAMPLE_LIMIT_DEFAULT("query.sample.limit.default", 100),
     QUERY_SAMPLE_LIMIT_MAX("query.sample.limit.max", 1000),
+    QUERY_PARSED_CACHE_SIZE("query.parsed.cache.size", 1000), // Max number of pre-processed queries to keep in memory. Disabled if 0.
+
+    METADATA_SNAPSHOT_TTL("metadata.snapshot.ttl", 60000L), // (ms) Max time to keep the metadata of a study cached. Disabled if 0.
+    METADATA_CACHE_SIZE("metadata.cache.size", 100000),   // Max number of elements for each id-based metadata cache. Unbounded if 0.
 
     // Search intersect options
     INTERSECT_ACTIVE("search.intersect.active", true),                       // Allow intersect queries with the SearchEngine (Solr)
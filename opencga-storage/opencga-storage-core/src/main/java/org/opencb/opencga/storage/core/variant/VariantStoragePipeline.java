@@ -49,6 +49,7 @@ import org.opencb.opencga.storage.core.StoragePipeline;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
+import org.opencb.opencga.storage.core.io.plain.BgzfStringDataReader;
 import org.opencb.opencga.storage.core.io.plain.StringDataReader;
 import org.opencb.opencga.storage.core.io.plain.StringDataWriter;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
@@ -262,15 +263,27 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
 
         //Reader
         long fileSize;
-        StringDataReader stringReader;
+        DataReader<String> stringReader;
+        int bgzfThreads = options.getInt(
+                VariantStorageOptions.TRANSFORM_BGZF_THREADS.key(),
+                VariantStorageOptions.TRANSFORM_BGZF_THREADS.defaultValue());
         try {
-            stringReader = stdin ? new StringDataReader(System.in) : new StringDataReader(input, ioConnectorProvider);
             fileSize = stdin ? -1 : ioConnectorProvider.size(input);
+            ProgressLogger progressLogger = new ProgressLogger("Transforming file:", fileSize, 200);
+            if (stdin) {
+                stringReader = new StringDataReader(System.in)
+                        .setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
+            } else if (bgzfThreads > 0 && BgzfStringDataReader.isBgzf(input, ioConnectorProvider)) {
+                // Decompress BGZF blocks in parallel. Lines are still returned in order.
+                stringReader = new BgzfStringDataReader(input, ioConnectorProvider, bgzfThreads)
+                        .setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
+            } else {
+                stringReader = new StringDataReader(input, ioConnectorProvider)
+                        .setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
+            }
         } catch (IOException e) {
             throw StorageEngineException.ioException(e);
         }
-        ProgressLogger progressLogger = new ProgressLogger("Transforming file:", fileSize, 200);
-        stringReader.setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
 
         VariantSetStatsCalculator statsCalculator = new VariantSetStatsCalculator(studyId, metadata);
 
@@ -149,6 +149,18 @@ public interface VariantDBAdaptor extends VariantIterable, AutoCloseable {
 
     DataResult groupBy(Query query, List<String> fields, QueryOptions options);
 
+    /**
+     * Determine if the query can be resumed from the last variant of a
+     * {@link org.opencb.opencga.storage.core.variant.query.VariantQueryCursor}, given in the options.
+     *
+     * @param query     Query to execute
+     * @param options   Query Options
+     * @return  True if the DBAdaptor reads the cursor and returns the variants sorted
+     */
+    default boolean supportsCursor(Query query, QueryOptions options) {
+        return false;
+    }
+
     default List<Integer> getReturnedStudies(Query query, QueryOptions options) {
         return VariantQueryUtils.getIncludeStudies(query, options, getMetadataManager());
     }
@@ -68,6 +68,7 @@ import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import static org.opencb.biodata.models.core.Region.normalizeChromosome;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantField.*;
@@ -122,6 +123,27 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
 
         preAnnotate(query, doCreate, doLoad, params);
 
+        boolean dumpFile = params.getBoolean(VariantStorageOptions.ANNOTATION_FILE_DUMP.key(),
+                VariantStorageOptions.ANNOTATION_FILE_DUMP.defaultValue());
+        if (doCreate && doLoad && !dumpFile) {
+            dbAdaptor.getMetadataManager().updateProjectMetadata(projectMetadata -> {
+                checkCurrentAnnotation(variantAnnotator, projectMetadata, overwrite);
+                return projectMetadata;
+            });
+
+            long start = System.currentTimeMillis();
+            logger.info("Starting annotation, without intermediate file");
+            logger.info("Query : {} ", query.toJson());
+            annotateAndLoad(query, params);
+            logger.info("Finished annotation {}ms", System.currentTimeMillis() - start);
+
+            dbAdaptor.getMetadataManager().updateProjectMetadata(projectMetadata -> {
+                updateCurrentAnnotation(variantAnnotator, projectMetadata, overwrite);
+                return projectMetadata;
+            });
+            return numAnnotationsToLoad.get();
+        }
+
         URI annotationFile;
         if (doCreate) {
             dbAdaptor.getMetadataManager().updateProjectMetadata(projectMetadata -> {
@@ -194,32 +216,8 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
 
         try {
             DataReader<Variant> variantDataReader = getVariantDataReader(query, iteratorQueryOptions, params);
-            ProgressLogger progressLogger;
-            if (params.getBoolean(QueryOptions.SKIP_COUNT, false)) {
-                progressLogger = new ProgressLogger("Annotated variants:", iteratorQueryOptions.getLong(QueryOptions.LIMIT, 0), 200);
-            } else {
-                ObjectMap finalParams = params;
-                progressLogger = new ProgressLogger("Annotated variants:", () -> {
-                    long limit = iteratorQueryOptions.getLong(QueryOptions.LIMIT, 0);
-                    if (limit > 0) {
-                        return limit;
-                    }
-                    return countVariantsToAnnotate(query, finalParams);
-                }, 200);
-            }
-            Task<Variant, VariantAnnotation> annotationTask = variantList -> {
-                List<VariantAnnotation> variantAnnotationList;
-                long start = System.currentTimeMillis();
-                logger.debug("Annotating batch of {} genomic variants.", variantList.size());
-                variantAnnotationList = variantAnnotator.annotate(variantList);
-                progressLogger.increment(variantList.size(),
-                        () -> ", up to position " + variantList.get(variantList.size() - 1).toString());
-                numAnnotationsToLoad.addAndGet(variantList.size());
-
-                logger.debug("Annotated batch of {} genomic variants. Time: {}s", variantList.size(),
-                        (System.currentTimeMillis() - start) / 1000.0);
-                return variantAnnotationList;
-            };
+            ProgressLogger progressLogger = newAnnotationProgressLogger(query, iteratorQueryOptions, params);
+            Task<Variant, VariantAnnotation> annotationTask = newAnnotationTask(progressLogger);
 
             final DataWriter<VariantAnnotation> variantAnnotationDataWriter;
             if (avro) {
@@ -248,6 +246,75 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
         return fileUri;
     }
 
+    /**
+     * Annotate the variants from the database and load the annotations directly, without any intermediate file.
+     * Variants are read, annotated and written to the database within the same {@link ParallelTaskRunner}.
+     *
+     * @param query    Query for those variants to annotate.
+     * @param params   Specific params.
+     * @throws IOException if there is an error loading the annotations
+     * @throws StorageEngineException if there is a problem running the {@link ParallelTaskRunner}
+     */
+    protected void annotateAndLoad(Query query, ObjectMap params) throws IOException, StorageEngineException {
+        QueryOptions iteratorQueryOptions = getIteratorQueryOptions(query, params);
+
+        int batchSize = params.getInt(
+                VariantStorageOptions.ANNOTATION_BATCH_SIZE.key(),
+                VariantStorageOptions.ANNOTATION_BATCH_SIZE.defaultValue());
+        int numThreads = params.getInt(
+                VariantStorageOptions.ANNOTATION_NUM_THREADS.key(),
+                VariantStorageOptions.ANNOTATION_NUM_THREADS.defaultValue());
+
+        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                .setNumTasks(numThreads)
+                .setBatchSize(batchSize)
+                .setAbortOnFail(true)
+                .setSorted(false).build();
+
+        DataReader<Variant> variantDataReader = getVariantDataReader(query, iteratorQueryOptions, params);
+        ProgressLogger progressLogger = newAnnotationProgressLogger(query, iteratorQueryOptions, params);
+        try {
+            // Progress is logged by the annotation task. Do not use a second progress logger for the loader.
+            ParallelTaskRunner<Variant, ?> ptr = buildLoadAnnotationParallelTaskRunner(variantDataReader,
+                    () -> newAnnotationTask(progressLogger), config, null, params);
+            ptr.run();
+        } catch (ExecutionException e) {
+            throw new StorageEngineException("Error annotating variants", e);
+        }
+
+        postLoadAnnotation();
+    }
+
+    protected ProgressLogger newAnnotationProgressLogger(Query query, QueryOptions iteratorQueryOptions, ObjectMap params) {
+        if (params.getBoolean(QueryOptions.SKIP_COUNT, false)) {
+            return new ProgressLogger("Annotated variants:", iteratorQueryOptions.getLong(QueryOptions.LIMIT, 0), 200);
+        } else {
+            return new ProgressLogger("Annotated variants:", () -> {
+                long limit = iteratorQueryOptions.getLong(QueryOptions.LIMIT, 0);
+                if (limit > 0) {
+                    return limit;
+                }
+                return countVariantsToAnnotate(query, params);
+            }, 200);
+        }
+    }
+
+    protected Task<Variant, VariantAnnotation> newAnnotationTask(ProgressLogger progressLogger) {
+        return variantList -> {
+            List<VariantAnnotation> variantAnnotationList;
+            long start = System.currentTimeMillis();
+            logger.debug("Annotating batch of {} genomic variants.", variantList.size());
+            variantAnnotationList = variantAnnotator.annotate(variantList);
+            progressLogger.increment(variantList.size(),
+                    () -> ", up to position " + variantList.get(variantList.size() - 1).toString());
+            numAnnotationsToLoad.addAndGet(variantList.size());
+
+            logger.debug("Annotated batch of {} genomic variants. Time: {}s", variantList.size(),
+                    (System.currentTimeMillis() - start) / 1000.0);
+            return variantAnnotationList;
+        };
+    }
+
     protected DataReader<Variant> getVariantDataReader(Query query, QueryOptions iteratorQueryOptions, ObjectMap params) {
         return new VariantDBReader(dbAdaptor, query, iteratorQueryOptions);
     }
@@ -307,7 +374,8 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
         reader = newVariantAnnotationDataReader(uri);
         try {
             ProgressLogger progressLogger = new ProgressLogger("Loaded annotations: ", numAnnotationsToLoad.get());
-            ParallelTaskRunner<VariantAnnotation, ?> ptr = buildLoadAnnotationParallelTaskRunner(reader, config, progressLogger, params);
+            ParallelTaskRunner<VariantAnnotation, ?> ptr = buildLoadAnnotationParallelTaskRunner(reader,
+                    () -> annotations -> annotations, config, progressLogger, params);
             ptr.run();
         } catch (ExecutionException e) {
             throw new StorageEngineException("Error loading variant annotation", e);
@@ -317,11 +385,24 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
 
     }
 
-    protected ParallelTaskRunner<VariantAnnotation, ?> buildLoadAnnotationParallelTaskRunner(
-            DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config, ProgressLogger progressLogger, ObjectMap params) {
+    /**
+     * Build the ParallelTaskRunner to load the annotations into the database.
+     *
+     * @param reader            Input reader
+     * @param annotationTask    Task to obtain the annotations from the input elements.
+     *                          Either the variant annotator or an identity task when reading from a file.
+     * @param config            ParallelTaskRunner config
+     * @param progressLogger    Loaded annotations progress logger. Might be null
+     * @param params            Specific params.
+     * @param <T>               Input type
+     * @return                  ParallelTaskRunner
+     */
+    protected <T> ParallelTaskRunner<T, ?> buildLoadAnnotationParallelTaskRunner(
+            DataReader<T> reader, Supplier<Task<T, VariantAnnotation>> annotationTask, ParallelTaskRunner.Config config,
+            ProgressLogger progressLogger, ObjectMap params) {
         return new ParallelTaskRunner<>(reader,
-                        () -> newVariantAnnotationDBWriter(dbAdaptor, new QueryOptions(params))
-                                .setProgressLogger(progressLogger), null, config);
+                        () -> annotationTask.get().then(newVariantAnnotationDBWriter(dbAdaptor, new QueryOptions(params))
+                                .setProgressLogger(progressLogger)), null, config);
     }
 
     protected DataReader<VariantAnnotation> newVariantAnnotationDataReader(URI uri) throws IOException {
@@ -447,6 +528,10 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
                         return sampleMetadata;
                     });
                 }
+                if (!fileIds.isEmpty()) {
+                    // Update the study version, so any cached query result from other processes is discarded
+                    metadataManager.updateStudyMetadata(studyId, studyMetadata -> studyMetadata);
+                }
             }
         }
     }
@@ -18,13 +18,24 @@ package org.opencb.opencga.storage.core.variant.io;
 
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.IndexFactory;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.variant.vcf.VCFCodec;
+import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.formats.variant.vcf4.io.VariantVcfReader;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.metadata.Individual;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantFileMetadata;
+import org.opencb.biodata.models.variant.metadata.VariantFileHeader;
+import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
 import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.commons.ProgressLogger;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.io.DataWriter;
@@ -35,18 +46,21 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantMetadataFactory;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.io.VariantWriterFactory.VariantOutputFormat;
 import org.opencb.opencga.storage.core.variant.io.db.VariantDBReader;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.io.*;
 import java.net.URI;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Prints the result of a given query in the selected output format, and the associated metadata.
@@ -61,6 +75,8 @@ public class VariantExporter {
     public static final String METADATA_FILE_EXTENSION = ".meta.json.gz";
     public static final String TPED_FILE_EXTENSION = ".tped";
     public static final String TFAM_FILE_EXTENSION = ".tfam";
+    public static final String TABIX_FILE_EXTENSION = ".tbi";
+    private static final int SHARD_BATCH_SIZE = 100;
     protected final VariantStorageEngine engine;
     protected final VariantWriterFactory variantWriterFactory;
     protected final VariantMetadataFactory metadataFactory;
@@ -99,9 +115,25 @@ public class VariantExporter {
             ioConnectorProvider.checkWritable(outputFile);
         }
 
-        try (OutputStream os = VariantWriterFactory.getOutputStream(outputFile, outputFormat, ioConnectorProvider)) {
-            boolean logProgress = !VariantWriterFactory.isStandardOutput(outputFile);
-            exportData(os, outputFormat, variantsFile, query, queryOptions, logProgress);
+        ObjectMap options = engine.getMergedOptions(queryOptions);
+        int numThreads = options.getInt(VariantStorageOptions.EXPORT_NUM_THREADS.key(),
+                VariantStorageOptions.EXPORT_NUM_THREADS.defaultValue());
+        int shardSize = options.getInt(VariantStorageOptions.EXPORT_SHARD_SIZE.key(),
+                VariantStorageOptions.EXPORT_SHARD_SIZE.defaultValue());
+        List<Region> shards = numThreads > 1
+                ? getShards(outputFile, outputFormat, variantsFile, query, queryOptions, shardSize)
+                : Collections.emptyList();
+        if (shards.isEmpty()) {
+            try (OutputStream os = VariantWriterFactory.getOutputStream(outputFile, outputFormat, ioConnectorProvider)) {
+                boolean logProgress = !VariantWriterFactory.isStandardOutput(outputFile);
+                exportData(os, outputFormat, variantsFile, query, queryOptions, logProgress);
+            }
+        } else {
+            exportShards(outputFile, outputFormat, query, queryOptions, shards, numThreads);
+            if (outputFormat == VariantOutputFormat.VCF_GZ && options.getBoolean(VariantStorageOptions.EXPORT_INDEX.key(),
+                    VariantStorageOptions.EXPORT_INDEX.defaultValue())) {
+                writeTabixIndex(outputFile);
+            }
         }
         if (metadataFactory != null && !VariantWriterFactory.isStandardOutput(outputFile)) {
             VariantMetadata metadata = metadataFactory.makeVariantMetadata(query, queryOptions);
@@ -141,7 +173,10 @@ public class VariantExporter {
                 if (finalQueryOptions.getBoolean(QueryOptions.SKIP_COUNT) || variantsFile != null) {
                     return 0L;
                 }
-                Long count = engine.count(finalQuery).first();
+                // Only an estimation for the progress. Do not run an exact count
+                long count = engine.get(finalQuery, new QueryOptions(QueryOptions.LIMIT, 0)
+                        .append(QueryOptions.COUNT, true)
+                        .append(VariantStorageOptions.APPROXIMATE_COUNT.key(), true)).getNumMatches();
                 long limit = finalQueryOptions.getLong(QueryOptions.LIMIT, Long.MAX_VALUE);
                 long skip = finalQueryOptions.getLong(QueryOptions.SKIP, 0);
                 count = Math.min(limit, count - skip);
@@ -172,6 +207,230 @@ public class VariantExporter {
 
     }
 
+    /**
+     * Split the export in genomic shards, to be serialized in parallel.
+     * Only for block compressed text formats written into a file, and queries without region, gene or id filters.
+     * Shards are built from the contigs declared in the header of the studies, so nothing is returned if any study lacks them,
+     * or if any indexed file has variants in a chromosome not declared in the header.
+     *
+     * @param outputFile   Output file
+     * @param outputFormat Output format
+     * @param variantsFile Optional variants file
+     * @param query        Query
+     * @param queryOptions Query options
+     * @param shardSize    Length of each shard
+     * @return List of regions, sorted in genomic order. Empty if the export can not be sharded.
+     * @throws StorageEngineException  If there is any error reading the metadata of the indexed files
+     */
+    protected List<Region> getShards(URI outputFile, VariantOutputFormat outputFormat, URI variantsFile,
+                                     Query query, QueryOptions queryOptions, int shardSize) throws StorageEngineException {
+        if (VariantWriterFactory.isStandardOutput(outputFile) || variantsFile != null
+                || (outputFormat != VariantOutputFormat.VCF_GZ && outputFormat != VariantOutputFormat.JSON_GZ)
+                || queryOptions.getInt(QueryOptions.LIMIT, 0) > 0 || queryOptions.getInt(QueryOptions.SKIP, 0) > 0) {
+            return Collections.emptyList();
+        }
+        VariantQueryParser.VariantQueryXref xrefs = VariantQueryParser.parseXrefs(query);
+        if (VariantQueryUtils.isValidParam(query, VariantQueryParam.REGION) || !xrefs.getGenes().isEmpty() || !xrefs.getIds().isEmpty()
+                || !xrefs.getOtherXrefs().isEmpty() || !xrefs.getVariants().isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Integer> studyIds = VariantQueryUtils.getIncludeStudies(query, queryOptions, engine.getMetadataManager());
+        if (studyIds.isEmpty()) {
+            studyIds = engine.getMetadataManager().getStudyIds();
+        }
+        // Contig lengths, in the order of the header. Integer.MAX_VALUE if unknown
+        Map<String, Integer> contigs = new LinkedHashMap<>();
+        for (Integer studyId : studyIds) {
+            VariantFileHeader header = engine.getMetadataManager().getStudyMetadata(studyId).getVariantHeader();
+            boolean hasContigs = false;
+            for (VariantFileHeaderComplexLine line : header.getComplexLines()) {
+                if (line.getKey().equalsIgnoreCase("contig")) {
+                    hasContigs = true;
+                    String lengthStr = line.getGenericFields() == null ? null : line.getGenericFields().get("length");
+                    int length = StringUtils.isNumeric(lengthStr) ? Integer.parseInt(lengthStr) : Integer.MAX_VALUE;
+                    contigs.merge(line.getId(), length, Math::max);
+                }
+            }
+            if (!hasContigs) {
+                logger.info("Unable to export in parallel. Missing contigs from the header of study "
+                        + engine.getMetadataManager().getStudyName(studyId));
+                return Collections.emptyList();
+            }
+        }
+
+        // Variants from chromosomes not declared in the header would be missing from the shards
+        Set<String> declaredChromosomes = new HashSet<>();
+        for (String contig : contigs.keySet()) {
+            declaredChromosomes.add(removeChrPrefix(contig));
+        }
+        for (Integer studyId : studyIds) {
+            Set<String> chromosomes = getIndexedChromosomes(studyId);
+            if (chromosomes == null) {
+                logger.info("Unable to export in parallel. Missing chromosome stats from the indexed files of study "
+                        + engine.getMetadataManager().getStudyName(studyId));
+                return Collections.emptyList();
+            }
+            for (String chromosome : chromosomes) {
+                if (!declaredChromosomes.contains(removeChrPrefix(chromosome))) {
+                    logger.info("Unable to export in parallel. Chromosome '" + chromosome + "' not declared in the header of study "
+                            + engine.getMetadataManager().getStudyName(studyId));
+                    return Collections.emptyList();
+                }
+            }
+        }
+
+        List<Region> shards = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : contigs.entrySet()) {
+            String chromosome = entry.getKey();
+            int length = entry.getValue();
+            int start = 1;
+            // Last shard of each chromosome is open ended
+            while (length != Integer.MAX_VALUE && length - start >= shardSize) {
+                shards.add(new Region(chromosome, start, start + shardSize - 1));
+                start += shardSize;
+            }
+            shards.add(new Region(chromosome, start, Integer.MAX_VALUE));
+        }
+        return shards;
+    }
+
+    // Chromosomes with variants in any indexed file of the study, from the file stats. Null if any file lacks them
+    private Set<String> getIndexedChromosomes(int studyId) throws StorageEngineException {
+        Set<Integer> indexedFiles = engine.getMetadataManager().getIndexedFiles(studyId);
+        Set<String> chromosomes = new HashSet<>();
+        int numFiles = 0;
+        Iterator<VariantFileMetadata> iterator = engine.getMetadataManager().variantFileMetadataIterator(studyId, new QueryOptions());
+        while (iterator.hasNext()) {
+            VariantFileMetadata fileMetadata = iterator.next();
+            if (!StringUtils.isNumeric(fileMetadata.getId()) || !indexedFiles.contains(Integer.valueOf(fileMetadata.getId()))) {
+                continue;
+            }
+            if (fileMetadata.getStats() == null || fileMetadata.getStats().getChromosomeCounts() == null
+                    || fileMetadata.getStats().getChromosomeCounts().isEmpty()) {
+                return null;
+            }
+            chromosomes.addAll(fileMetadata.getStats().getChromosomeCounts().keySet());
+            numFiles++;
+        }
+        return numFiles == indexedFiles.size() ? chromosomes : null;
+    }
+
+    /**
+     * Export the variants of each shard in parallel, each one into independent BGZF blocks.
+     * Shards are concatenated in order, so the output is a single valid block compressed file.
+     *
+     * @param outputFile   Output file
+     * @param outputFormat Output format
+     * @param query        Query
+     * @param queryOptions Query options
+     * @param shards       Genomic shards, in order
+     * @param numThreads   Number of shards to export in parallel
+     * @throws IOException  If there is any IO error
+     * @throws StorageEngineException  If there is any error exporting variants
+     */
+    protected void exportShards(URI outputFile, VariantOutputFormat outputFormat, Query query, QueryOptions queryOptions,
+                                List<Region> shards, int numThreads)
+            throws IOException, StorageEngineException {
+        logger.info("Export " + shards.size() + " shards using " + numThreads + " threads");
+        ProgressLogger progressLogger = new ProgressLogger("Export shards", shards.size(), 200);
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        // Keep a bounded number of serialized shards in memory, waiting to be written in order
+        Deque<Future<byte[]>> pending = new ArrayDeque<>();
+        Iterator<Region> iterator = shards.iterator();
+        try (OutputStream os = new BufferedOutputStream(ioConnectorProvider.newOutputStreamRaw(outputFile))) {
+            if (outputFormat == VariantOutputFormat.VCF_GZ) {
+                os.write(exportShard(outputFormat, query, queryOptions, null));
+            }
+            while (iterator.hasNext() || !pending.isEmpty()) {
+                while (iterator.hasNext() && pending.size() < numThreads * 2) {
+                    Region shard = iterator.next();
+                    pending.add(executor.submit(() -> exportShard(outputFormat, query, queryOptions, shard)));
+                }
+                os.write(pending.removeFirst().get());
+                progressLogger.increment(1);
+            }
+            os.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageEngineException("Error exporting variants", e);
+        } catch (ExecutionException e) {
+            throw new StorageEngineException("Error exporting variants", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Serialize the variants of one shard into BGZF blocks, without the EOF marker.
+     *
+     * @param outputFormat Output format
+     * @param query        Query
+     * @param queryOptions Query options
+     * @param shard        Shard to export. If null, export only the header
+     * @return Compressed blocks
+     * @throws IOException  If there is any IO error
+     */
+    protected byte[] exportShard(VariantOutputFormat outputFormat, Query query, QueryOptions queryOptions, @Nullable Region shard)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BlockCompressedOutputStream os = new BlockCompressedOutputStream(bytes, (File) null)) {
+            DataWriter<Variant> writer = variantWriterFactory.newDataWriter(outputFormat, os, query, queryOptions);
+            if (writer instanceof VcfDataWriter) {
+                ((VcfDataWriter<?>) writer).setWriteHeader(shard == null);
+            }
+            writer.open();
+            writer.pre();
+            if (shard != null) {
+                Query shardQuery = new Query(query).append(VariantQueryParam.REGION.key(), shard.toString());
+                QueryOptions shardOptions = new QueryOptions(queryOptions).append(QueryOptions.SORT, true);
+                try (VariantDBIterator iterator = engine.iterator(shardQuery, shardOptions)) {
+                    List<Variant> batch = new ArrayList<>(SHARD_BATCH_SIZE);
+                    while (iterator.hasNext()) {
+                        Variant variant = iterator.next();
+                        // Region filters return overlapping variants. Keep only the variants starting within the shard
+                        if (startsInShard(variant, shard)) {
+                            batch.add(variant);
+                        }
+                        if (batch.size() == SHARD_BATCH_SIZE) {
+                            writer.write(batch);
+                            batch = new ArrayList<>(SHARD_BATCH_SIZE);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        writer.write(batch);
+                    }
+                } catch (Exception e) {
+                    throw new IOException("Error exporting shard " + shard, e);
+                }
+            }
+            writer.post();
+            writer.close();
+        }
+        byte[] blocks = bytes.toByteArray();
+        return Arrays.copyOf(blocks, blocks.length - BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK.length);
+    }
+
+    private static boolean startsInShard(Variant variant, Region shard) {
+        return removeChrPrefix(variant.getChromosome()).equals(removeChrPrefix(shard.getChromosome()))
+                && (variant.getStart() >= shard.getStart() || shard.getStart() == 1)
+                && variant.getStart() <= shard.getEnd();
+    }
+
+    private static String removeChrPrefix(String chromosome) {
+        return StringUtils.startsWithIgnoreCase(chromosome, "chr") ? chromosome.substring(3) : chromosome;
+    }
+
+    protected void writeTabixIndex(URI outputFile) throws IOException {
+        if (outputFile.getScheme() != null && !outputFile.getScheme().equals("file")) {
+            logger.warn("Unable to index remote file " + outputFile);
+            return;
+        }
+        File file = new File(outputFile.getPath());
+        Index index = IndexFactory.createTabixIndex(file, new VCFCodec(), TabixFormat.VCF, null);
+        index.write(new File(file.getPath() + TABIX_FILE_EXTENSION));
+    }
+
     protected void writeMetadata(VariantMetadata metadata, URI metadataFile) throws IOException {
         if (metadataFile.toString().endsWith(TFAM_FILE_EXTENSION)) {
             // Write .tfam file
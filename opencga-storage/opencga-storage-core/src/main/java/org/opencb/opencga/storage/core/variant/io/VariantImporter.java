@@ -17,6 +17,7 @@
 package org.opencb.opencga.storage.core.variant.io;
 
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.StudyConfiguration;
 import org.opencb.opencga.storage.core.metadata.VariantMetadataConverter;
@@ -34,11 +35,21 @@ import java.util.List;
 public abstract class VariantImporter {
 
     protected final VariantDBAdaptor dbAdaptor;
+    protected ObjectMap options = new ObjectMap();
 
     public VariantImporter(VariantDBAdaptor dbAdaptor) {
         this.dbAdaptor = dbAdaptor;
     }
 
+    public ObjectMap getOptions() {
+        return options;
+    }
+
+    public VariantImporter setOptions(ObjectMap options) {
+        this.options = options == null ? new ObjectMap() : options;
+        return this;
+    }
+
     public void importData(URI inputUri) throws StorageEngineException, IOException {
         VariantMetadataImporter metadataImporter = new VariantMetadataImporter();
         VariantMetadata metadata = metadataImporter.importMetaData(inputUri, dbAdaptor.getMetadataManager());
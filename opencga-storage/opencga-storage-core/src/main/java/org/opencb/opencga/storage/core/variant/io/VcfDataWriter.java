@@ -32,6 +32,7 @@ public abstract class VcfDataWriter<T> implements DataWriter<T> {
     private VariantContextWriter variantContextWriter;
     private VariantContextConverter<T> converter;
     private List<String> samples;
+    private boolean writeHeader = true;
 
     protected VcfDataWriter(VariantMetadata metadata, List<String> annotations, OutputStream outputStream) {
         this.metadata = metadata;
@@ -79,6 +80,17 @@ public abstract class VcfDataWriter<T> implements DataWriter<T> {
         return this;
     }
 
+    /**
+     * Skip writing the header, to produce a block of records that will be appended to another VCF.
+     *
+     * @param writeHeader Write the header. True by default
+     * @return this
+     */
+    public VcfDataWriter<T> setWriteHeader(boolean writeHeader) {
+        this.writeHeader = writeHeader;
+        return this;
+    }
+
     @Override
     public boolean pre() {
         String study = metadata.getStudies().get(0).getId();
@@ -90,7 +102,11 @@ public abstract class VcfDataWriter<T> implements DataWriter<T> {
         VCFHeader vcfHeader = new VariantStudyMetadataToVCFHeaderConverter().convert(metadata.getStudies().get(0), annotations);
         // Warning: Calling to vcfHeader.getSequenceDictionary() may fail if any contig has null length
         variantContextWriter = VcfUtils.createVariantContextWriter(outputStream, null, Options.ALLOW_MISSING_FIELDS_IN_HEADER);
-        variantContextWriter.writeHeader(vcfHeader);
+        if (writeHeader) {
+            variantContextWriter.writeHeader(vcfHeader);
+        } else {
+            variantContextWriter.setHeader(vcfHeader);
+        }
         converter = newConverter(study, samples, annotations);
 
         return true;
@@ -71,7 +71,7 @@ public abstract class AbstractTwoPhasedVariantQueryExecutor extends VariantQuery
         // TODO: Allow exact count with "approximateCount=false"
         if (shouldGetApproximateCount(options)) {
             int limit = options.getInt(QueryOptions.LIMIT, -1);
-            int skip = options.getInt(QueryOptions.SKIP, 0);
+            int skip = getSkip(options);
             if (limit >= 0 && limit > numResults) {
                 if (skip > 0 && numResults == 0) {
                     // Skip could be greater than numTotalResults. Approximate count
@@ -134,7 +134,17 @@ public abstract class AbstractTwoPhasedVariantQueryExecutor extends VariantQuery
         return options.getInt(QueryOptions.LIMIT);
     }
 
+    /**
+     * Number of results to skip. If the query is resumed from a {@link VariantQueryCursor}, the skip is the cursor position.
+     *
+     * @param options Options of the query
+     * @return        Number of results skipped
+     */
     protected int getSkip(QueryOptions options) {
+        VariantQueryCursor cursor = VariantQueryCursor.fromOptions(options);
+        if (cursor != null) {
+            return (int) cursor.getPosition();
+        }
         return Math.max(0, options.getInt(QueryOptions.SKIP));
     }
 
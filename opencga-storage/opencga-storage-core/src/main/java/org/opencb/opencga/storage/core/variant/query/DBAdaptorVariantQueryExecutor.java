@@ -38,6 +38,17 @@ public class DBAdaptorVariantQueryExecutor extends VariantQueryExecutor {
         }
     }
 
+    @Override
+    protected boolean supportsCursor(Query query, QueryOptions options) {
+        return dbAdaptor.supportsCursor(query, options);
+    }
+
+    @Override
+    protected String getCursorExecutorId() {
+        // All executors using the same dbAdaptor share the same order
+        return dbAdaptor.getClass().getSimpleName();
+    }
+
     @Override
     public DataResult<Long> count(Query query) {
         return dbAdaptor.count(query);
@@ -0,0 +1,125 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.cache.CacheManager;
+
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Created on 19/10/20.
+ *
+ * Bounded cache of pre-processed queries. Avoids resolving again the same names through the metadata manager, or
+ * expanding again the same genes, for queries repeated at a high rate, like paginated queries.
+ *
+ * The key is built from the canonicalized query, the query options, and a version stamp that must change on every
+ * metadata modification. Pagination options are not part of the key.
+ *
+ * The cache is bounded by number of queries. The least recently used query is evicted first.
+ */
+public class ParsedVariantQueryCache {
+
+    /** Options not used to pre-process the query. */
+    public static final Set<String> IGNORED_OPTIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            QueryOptions.LIMIT,
+            QueryOptions.SKIP,
+            QueryOptions.COUNT,
+            QueryOptions.SKIP_COUNT,
+            QueryOptions.TIMEOUT,
+            QueryOptions.SORT,
+            QueryOptions.ORDER,
+            VariantQueryCursor.CURSOR,
+            CacheManager.CACHE)));
+
+    private final Map<String, Query> cache;
+
+    public ParsedVariantQueryCache(int maxEntries) {
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, Query>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Query> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Get the pre-processed query from the cache, or pre-process and store it if missing.
+     *
+     * @param query   Query to pre-process
+     * @param options Query options
+     * @param version Version stamp of the metadata
+     * @param parser  Function to pre-process the query
+     * @return        A copy of the pre-processed query. Can be modified.
+     */
+    public Query get(Query query, QueryOptions options, String version, BiFunction<Query, QueryOptions, Query> parser) {
+        String key = buildKey(query, options, version);
+        Query parsedQuery = cache.get(key);
+        if (parsedQuery == null) {
+            parsedQuery = parser.apply(query, options);
+            cache.put(key, copy(parsedQuery));
+        } else {
+            // Pagination options are not part of the key. Validate them again.
+            VariantQueryParser.checkQueryOptions(options);
+            parsedQuery = copy(parsedQuery);
+        }
+        return parsedQuery;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    protected static String buildKey(Query query, QueryOptions options, String version) {
+        Map<String, String> map = new TreeMap<>();
+        if (query != null) {
+            for (Map.Entry<String, Object> entry : query.entrySet()) {
+                putValue(map, "q." + entry.getKey(), entry.getValue());
+            }
+        }
+        if (options != null) {
+            for (Map.Entry<String, Object> entry : options.entrySet()) {
+                if (!IGNORED_OPTIONS.contains(entry.getKey())) {
+                    putValue(map, "o." + entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return version + map;
+    }
+
+    private static void putValue(Map<String, String> map, String key, Object value) {
+        String str;
+        if (value == null) {
+            return;
+        } else if (value instanceof Collection) {
+            StringJoiner joiner = new StringJoiner(",");
+            for (Object o : ((Collection<?>) value)) {
+                joiner.add(String.valueOf(o));
+            }
+            str = joiner.toString();
+        } else {
+            str = value.toString();
+        }
+        if (!str.isEmpty()) {
+            map.put(key, str);
+        }
+    }
+
+    private static Query copy(Query query) {
+        Query copy = new Query();
+        for (Map.Entry<String, Object> entry : query.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof List) {
+                value = new ArrayList<>((List<?>) value);
+            } else if (value instanceof Set) {
+                value = new LinkedHashSet<>((Set<?>) value);
+            }
+            copy.put(entry.getKey(), value);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,142 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.api.ParamConstants;
+import org.opencb.opencga.core.response.VariantQueryResult;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Opaque continuation token used for deep pagination.
+ *
+ * Contains the last variant returned, the executor that produced it, and the number of results returned so far.
+ * Executors able to resume the query from the last variant (e.g. using a start row or a range filter)
+ * will use the variant key. Otherwise, the cursor is translated into a regular client side skip.
+ *
+ * Created on 19/10/20.
+ */
+public class VariantQueryCursor {
+
+    public static final String CURSOR = ParamConstants.CURSOR_PARAM;
+    /**
+     * Executor id used when the results can not be resumed from the last variant key.
+     */
+    public static final String SKIP_EXECUTOR = "skip";
+
+    private static final String VERSION = "v1";
+    private static final String SEPARATOR = "|";
+
+    private final String executor;
+    private final Variant lastVariant;
+    private final long position;
+
+    public VariantQueryCursor(String executor, Variant lastVariant, long position) {
+        this.executor = executor;
+        this.lastVariant = lastVariant;
+        this.position = position;
+    }
+
+    /**
+     * Read the cursor from the query options, if any.
+     *
+     * @param options Query options
+     * @return        The cursor, or null if missing
+     * @throws VariantQueryException if the cursor is not valid
+     */
+    public static VariantQueryCursor fromOptions(QueryOptions options) {
+        if (options == null) {
+            return null;
+        }
+        String cursor = options.getString(CURSOR);
+        if (StringUtils.isEmpty(cursor)) {
+            return null;
+        }
+        return decode(cursor);
+    }
+
+    public static VariantQueryCursor decode(String cursor) {
+        String[] split;
+        try {
+            split = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\" + SEPARATOR, 4);
+        } catch (IllegalArgumentException e) {
+            throw VariantQueryException.malformedParam(CURSOR, cursor, "Invalid cursor");
+        }
+        if (split.length != 4 || !split[0].equals(VERSION)) {
+            throw VariantQueryException.malformedParam(CURSOR, cursor, "Invalid cursor");
+        }
+        try {
+            return new VariantQueryCursor(split[1], new Variant(split[3]), Long.parseLong(split[2]));
+        } catch (RuntimeException e) {
+            throw VariantQueryException.malformedParam(CURSOR, cursor, "Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String cursor = VERSION + SEPARATOR + executor + SEPARATOR + position + SEPARATOR + lastVariant.toString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Translate the cursor into a client side skip. Used by executors that can not resume the query from the last variant.
+     *
+     * @param options Query options with the cursor
+     * @return        New query options, without the cursor
+     */
+    public QueryOptions toSkipOptions(QueryOptions options) {
+        QueryOptions skipOptions = new QueryOptions(options);
+        skipOptions.remove(CURSOR);
+        skipOptions.put(QueryOptions.SKIP, position);
+        return skipOptions;
+    }
+
+    /**
+     * Build the cursor for the next page, and add it to the result.
+     * The cursor is only added if the result is full (i.e. numResults equals the limit).
+     *
+     * @param result    Query result
+     * @param options   Options used to obtain the result
+     * @param executor  Executor id to store in the cursor. {@link #SKIP_EXECUTOR} if the executor can not resume from a variant
+     * @param <T>       Result type
+     * @return          The same result
+     */
+    public static <T> VariantQueryResult<T> setNextCursor(VariantQueryResult<T> result, QueryOptions options, String executor) {
+        int limit = options.getInt(QueryOptions.LIMIT, -1);
+        List<T> results = result.getResults();
+        if (limit <= 0 || results == null || results.isEmpty() || results.size() < limit
+                || !(results.get(results.size() - 1) instanceof Variant)) {
+            result.setNextCursor(null);
+            return result;
+        }
+        VariantQueryCursor cursor = fromOptions(options);
+        long position = cursor == null ? Math.max(0, options.getLong(QueryOptions.SKIP, 0)) : cursor.getPosition();
+        Variant lastVariant = (Variant) results.get(results.size() - 1);
+        result.setNextCursor(new VariantQueryCursor(executor, lastVariant, position + results.size()).encode());
+        return result;
+    }
+
+    public String getExecutor() {
+        return executor;
+    }
+
+    public Variant getLastVariant() {
+        return lastVariant;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public String toString() {
+        return "VariantQueryCursor{"
+                + "executor='" + executor + '\''
+                + ", lastVariant=" + lastVariant
+                + ", position=" + position
+                + '}';
+    }
+}
@@ -36,7 +36,10 @@ public abstract class VariantQueryExecutor implements VariantIterable {
 
     public final VariantQueryResult<Variant> get(Query query, QueryOptions options) {
         try {
-            return (VariantQueryResult<Variant>) getOrIterator(query, options, false);
+            options = resolveCursor(query, options);
+            VariantQueryResult<Variant> result = (VariantQueryResult<Variant>) getOrIterator(query, options, false);
+            String executor = supportsCursor(query, options) ? getCursorExecutorId() : VariantQueryCursor.SKIP_EXECUTOR;
+            return VariantQueryCursor.setNextCursor(result, options, executor);
         } catch (StorageEngineException e) {
             throw VariantQueryException.internalException(e);
         }
@@ -46,12 +49,49 @@ public abstract class VariantQueryExecutor implements VariantIterable {
     public final VariantDBIterator iterator(Query query, QueryOptions options) {
         try {
 //            query = parser.preProcessQuery(query, options);
+            options = resolveCursor(query, options);
             return (VariantDBIterator) getOrIterator(query, options, true);
         } catch (StorageEngineException e) {
             throw VariantQueryException.internalException(e);
         }
     }
 
+    /**
+     * Determine if this executor is able to resume the given query from the last variant stored in a {@link VariantQueryCursor}.
+     * Executors returning true must read the {@link VariantQueryCursor#CURSOR} from the options, and return the variants
+     * in the same order in the first and the following pages.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         True if the cursor can be used to resume the query
+     * @throws StorageEngineException if there is an error
+     */
+    protected boolean supportsCursor(Query query, QueryOptions options) throws StorageEngineException {
+        return false;
+    }
+
+    protected String getCursorExecutorId() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Cursors generated by other executors, or not supported by this executor, are translated into a client side skip.
+     *
+     * @param query    Query to execute
+     * @param options  Options for the query
+     * @return         Options to use
+     * @throws StorageEngineException if there is an error
+     */
+    private QueryOptions resolveCursor(Query query, QueryOptions options) throws StorageEngineException {
+        VariantQueryCursor cursor = VariantQueryCursor.fromOptions(options);
+        if (cursor != null) {
+            if (!cursor.getExecutor().equals(getCursorExecutorId()) || !supportsCursor(query, options)) {
+                return cursor.toSkipOptions(options);
+            }
+        }
+        return options;
+    }
+
     public void setDefaultTimeout(QueryOptions options) {
         setDefaultTimeout(options, getOptions());
     }
@@ -59,6 +59,17 @@ public class VariantQueryParser {
 
         preProcessStudyParams(query, options);
 
+        checkQueryOptions(options);
+
+        return query;
+    }
+
+    /**
+     * Validate the pagination options.
+     *
+     * @param options Query options
+     */
+    public static void checkQueryOptions(QueryOptions options) {
         if (options != null && options.getLong(QueryOptions.LIMIT) < 0) {
             throw VariantQueryException.malformedParam(QueryOptions.LIMIT, options.getString(QueryOptions.LIMIT),
                     "Invalid negative limit");
@@ -69,7 +80,10 @@ public class VariantQueryParser {
                     "Invalid negative skip");
         }
 
-        return query;
+        if (options != null && VariantQueryCursor.fromOptions(options) != null && options.getLong(QueryOptions.SKIP) > 0) {
+            throw VariantQueryException.malformedParam(QueryOptions.SKIP, options.getString(QueryOptions.SKIP),
+                    "Can not combine skip with " + VariantQueryCursor.CURSOR);
+        }
     }
 
     protected void preProcessAnnotationParams(Query query) {
@@ -18,9 +18,12 @@ package org.opencb.opencga.storage.core.alignment.adaptors;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.Test;
+import org.opencb.biodata.models.alignment.RegionCoverage;
+import org.opencb.biodata.models.core.Region;
 import org.opencb.opencga.core.common.TimeUtils;
 import org.opencb.opencga.storage.core.alignment.AlignmentStorageEngine;
 import org.opencb.opencga.storage.core.alignment.AlignmentStorageOptions;
+import org.opencb.opencga.storage.core.alignment.local.LocalAlignmentDBAdaptor;
 import org.opencb.opencga.storage.core.alignment.local.LocalAlignmentStorageEngine;
 import org.opencb.opencga.storage.core.config.StorageConfiguration;
 
@@ -32,9 +35,11 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 /**
  * Created by pfurio on 26/10/16.
@@ -79,6 +84,32 @@ public class DefaultAlignmentDBAdaptorTest {
         assertTrue(Files.exists(tmpRootDir.resolve("HG00096.chrom20.small.bam.bw")));
     }
 
+    @Test
+    public void coverageQueryRegions() throws Exception {
+        Path path = Paths.get(getClass().getResource("/HG00096.chrom20.small.bam").toURI());
+        LocalAlignmentDBAdaptor dbAdaptor = new LocalAlignmentDBAdaptor();
+        List<Region> regions = Arrays.asList(
+                new Region("20", 60000, 62000),
+                new Region("20", 62001, 65000),
+                new Region("20", 100000, 101000));
+
+        for (int maxCoverage : new int[]{Integer.MAX_VALUE, 5}) {
+            List<RegionCoverage> expected = new ArrayList<>();
+            for (Region region : regions) {
+                expected.addAll(dbAdaptor.coverageQuery(path, region, 0, maxCoverage, 1).getResults());
+            }
+            List<RegionCoverage> actual = dbAdaptor.coverageQuery(path, regions, 0, maxCoverage, 1).getResults();
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getChromosome(), actual.get(i).getChromosome());
+                assertEquals(expected.get(i).getStart(), actual.get(i).getStart());
+                assertEquals(expected.get(i).getEnd(), actual.get(i).getEnd());
+                assertArrayEquals(expected.get(i).getValues(), actual.get(i).getValues(), 0);
+            }
+        }
+    }
+
     //    @Test
 //    public void iterator() throws Exception {
 //        String inputPath = getClass().getResource("/HG00096.chrom20.small.bam").getPath();
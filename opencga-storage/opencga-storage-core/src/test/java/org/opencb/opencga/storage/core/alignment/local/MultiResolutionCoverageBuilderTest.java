@@ -0,0 +1,124 @@
+package org.opencb.opencga.storage.core.alignment.local;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.biodata.models.alignment.RegionCoverage;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.tools.alignment.BamManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MultiResolutionCoverageBuilderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testGetWindowSizes() {
+        assertArrayEquals(new int[]{1, 10, 100, 1000, 10000, 100000, 1000000}, MultiResolutionCoverageBuilder.getWindowSizes(1));
+        assertArrayEquals(new int[]{50, 500, 5000, 50000, 500000}, MultiResolutionCoverageBuilder.getWindowSizes(50));
+        assertArrayEquals(new int[]{2000000}, MultiResolutionCoverageBuilder.getWindowSizes(2000000));
+    }
+
+    @Test
+    public void testAddDepth() {
+        long[] sums = new long[3];
+        // Chunk [100, 125) in windows of 10
+        MultiResolutionCoverageBuilder.addDepth(sums, 10, 100, 125, 95, 113);
+        MultiResolutionCoverageBuilder.addDepth(sums, 10, 100, 125, 118, 140);
+        assertArrayEquals(new long[]{10, 5, 5}, sums);
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+        Path bamPath = copyBam();
+        Path coveragePath = MultiResolutionCoverage.getCoveragePath(bamPath);
+
+        new MultiResolutionCoverageBuilder(1, 4).build(bamPath, coveragePath);
+
+        Region region = new Region("20", 60001, 80000);
+        try (MultiResolutionCoverage coverage = MultiResolutionCoverage.open(coveragePath)) {
+            assertEquals(Arrays.asList(1, 10, 100, 1000, 10000, 100000, 1000000), coverage.getWindowSizes());
+            assertTrue(coverage.getTotalCounts() > 0);
+
+            float[] values = coverage.query(region, 1).getValues();
+            assertEquals(20000, values.length);
+
+            // Same values as computing the coverage from the BAM file
+            assertArrayEquals(bamCoverage(bamPath, region), values, 0);
+
+            // Coarser windows are the mean of the finest windows
+            for (int windowSize : new int[]{10, 100, 250, 1000, 3000}) {
+                RegionCoverage regionCoverage = coverage.query(region, windowSize);
+                assertEquals(windowSize, regionCoverage.getWindowSize());
+                assertEquals((values.length + windowSize - 1) / windowSize, regionCoverage.getValues().length);
+                for (int i = 0; i < regionCoverage.getValues().length; i++) {
+                    double sum = 0;
+                    int to = Math.min(values.length, (i + 1) * windowSize);
+                    for (int j = i * windowSize; j < to; j++) {
+                        sum += values[j];
+                    }
+                    assertEquals(sum / (to - i * windowSize), regionCoverage.getValues()[i], 0.001);
+                }
+            }
+
+            // Chromosome aliases and unknown contigs
+            assertArrayEquals(values, coverage.query(new Region("chr20", 60001, 80000), 1).getValues(), 0);
+            assertEquals(0, coverage.query(new Region("1", 1, 1000), 1).getValues().length);
+
+            // Coverage of the alignment file is read from the coverage file
+            RegionCoverage regionCoverage = new LocalAlignmentDBAdaptor()
+                    .coverageQuery(bamPath, region, 0, Integer.MAX_VALUE, 100).first();
+            assertArrayEquals(coverage.query(region, 100).getValues(), regionCoverage.getValues(), 0);
+            assertEquals(coverage.getTotalCounts(), new LocalAlignmentDBAdaptor().getTotalCounts(bamPath).first().longValue());
+        }
+    }
+
+    @Test
+    public void testFinerWindowSizeFromBam() throws Exception {
+        Path bamPath = copyBam();
+        Path coveragePath = MultiResolutionCoverage.getCoveragePath(bamPath);
+
+        new MultiResolutionCoverageBuilder(10, 4).build(bamPath, coveragePath);
+
+        Region region = new Region("20", 60001, 80000);
+        try (MultiResolutionCoverage coverage = MultiResolutionCoverage.open(coveragePath)) {
+            assertFalse(coverage.supportsWindowSize(1));
+            assertTrue(coverage.supportsWindowSize(10));
+            try {
+                coverage.query(region, 1);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("finest resolution"));
+            }
+        }
+
+        // Window sizes finer than the precomputed ones are computed from the BAM file
+        RegionCoverage regionCoverage = new LocalAlignmentDBAdaptor()
+                .coverageQuery(bamPath, region, 0, Integer.MAX_VALUE, 1).first();
+        assertArrayEquals(bamCoverage(bamPath, region), regionCoverage.getValues(), 0);
+    }
+
+    private Path copyBam() throws Exception {
+        Path bamPath = temporaryFolder.getRoot().toPath().resolve("HG00096.chrom20.small.bam");
+        Files.copy(Paths.get(getClass().getResource("/HG00096.chrom20.small.bam").toURI()), bamPath);
+        Files.copy(Paths.get(getClass().getResource("/HG00096.chrom20.small.bam.bai").toURI()),
+                bamPath.resolveSibling("HG00096.chrom20.small.bam.bai"));
+        return bamPath;
+    }
+
+    private static float[] bamCoverage(Path bamPath, Region region) throws Exception {
+        BamManager bamManager = new BamManager(bamPath);
+        try {
+            return bamManager.coverage(region, 1).getValues();
+        } finally {
+            bamManager.close();
+        }
+    }
+}
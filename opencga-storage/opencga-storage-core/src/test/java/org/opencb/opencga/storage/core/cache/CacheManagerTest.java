@@ -0,0 +1,161 @@
+package org.opencb.opencga.storage.core.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.config.CacheConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CacheManagerTest {
+
+    private CacheConfiguration configuration;
+    private LocalCacheBackend backend;
+    private CacheManager cacheManager;
+    private long resultSize;
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = new CacheConfiguration()
+                .setSlowThreshold(0)
+                .setMaxResultSize(100);
+        // Room for 10 results of 99 elements
+        resultSize = LocalCacheBackend.estimateSize(result(99));
+        backend = new LocalCacheBackend(resultSize * 10);
+        cacheManager = new CacheManager(configuration, backend);
+    }
+
+    @Test
+    public void testDefaultBackend() {
+        CacheManager cacheManager = new CacheManager(new CacheConfiguration().setSlowThreshold(0));
+        assertTrue(cacheManager.isActive());
+        String key = cacheManager.createKey("db", CacheManager.VARIANT_TYPE, new Query(), new QueryOptions(), "1");
+        assertNull(cacheManager.get(key));
+        assertTrue(cacheManager.set(key, result(10)));
+        assertEquals(10, cacheManager.get(key).getNumResults());
+        cacheManager.close();
+        assertFalse(cacheManager.isActive());
+
+        assertFalse(new CacheManager(new CacheConfiguration().setActive(false)).isActive());
+    }
+
+    @Test
+    public void testCreateKey() {
+        Query query = new Query("region", "1:1000-2000").append("type", "SNV,INDEL");
+        QueryOptions options = new QueryOptions(QueryOptions.LIMIT, 10);
+        String key = cacheManager.createKey("db", CacheManager.VARIANT_TYPE, query, options, "1");
+        assertTrue(key.startsWith("ocga:db:var:"));
+
+        // Independent of the order of the params
+        Query query2 = new Query("type", "SNV,INDEL").append("region", "1:1000-2000");
+        QueryOptions options2 = new QueryOptions(QueryOptions.LIMIT, 10).append(CacheManager.CACHE, true);
+        assertEquals(key, cacheManager.createKey("db", CacheManager.VARIANT_TYPE, query2, options2, "1"));
+        // The input options are not modified
+        assertTrue(options2.getBoolean(CacheManager.CACHE));
+
+        // Different values, version or prefix
+        assertNotEquals(key, cacheManager.createKey("db", CacheManager.VARIANT_TYPE, query.append("type", "INDEL,SNV"), options, "1"));
+        assertNotEquals(key, cacheManager.createKey("db", CacheManager.VARIANT_TYPE, query2, options2, "2"));
+        assertNotEquals(key, cacheManager.createKey("db2", CacheManager.VARIANT_TYPE, query2, options2, "1"));
+        assertNotEquals(key, cacheManager.createKey("db", CacheManager.VARIANT_TYPE, query2,
+                new QueryOptions(QueryOptions.LIMIT, 11), "1"));
+    }
+
+    @Test
+    public void testSet() {
+        String key = cacheManager.createKey("db", CacheManager.VARIANT_TYPE, new Query(), new QueryOptions(), "1");
+        assertFalse(cacheManager.set(key, result(101)));
+        assertNull(cacheManager.get(key));
+
+        configuration.setSlowThreshold(50);
+        DataResult<Integer> result = result(10);
+        result.setTime(10);
+        assertFalse(cacheManager.set(key, result));
+        assertNull(cacheManager.get(key));
+        result.setTime(60);
+        assertTrue(cacheManager.set(key, result));
+        assertSame(result, cacheManager.get(key));
+    }
+
+    @Test
+    public void testEstimateSize() throws Exception {
+        assertTrue(resultSize > 0);
+        assertTrue(LocalCacheBackend.estimateSize(result(1)) < resultSize);
+        // Same number of results, larger values
+        DataResult<String> result = new DataResult<>(0, Collections.emptyList(), 99,
+                new ArrayList<>(Collections.nCopies(99, "a long string value")), 99);
+        assertTrue(LocalCacheBackend.estimateSize(result) > resultSize);
+    }
+
+    @Test
+    public void testMaxSize() {
+        for (int i = 0; i < 100; i++) {
+            String key = cacheManager.createKey("db", CacheManager.VARIANT_TYPE, new Query("id", String.valueOf(i)),
+                    new QueryOptions(), "1");
+            cacheManager.set(key, result(99));
+            assertTrue(backend.getSizeInBytes() <= resultSize * 10);
+        }
+        assertEquals(10, backend.size());
+        assertEquals(resultSize * 10, backend.getSizeInBytes());
+
+        // Larger than the whole cache. Not stored, and nothing evicted.
+        String key = cacheManager.createKey("db", CacheManager.VARIANT_TYPE, new Query("id", "large"), new QueryOptions(), "1");
+        configuration.setMaxResultSize(10000);
+        cacheManager.set(key, result(5000));
+        assertNull(cacheManager.get(key));
+        assertEquals(10, backend.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsed() {
+        String first = cacheManager.createKey("db", CacheManager.VARIANT_TYPE, new Query("id", "first"), new QueryOptions(), "1");
+        cacheManager.set(first, result(99));
+        for (int i = 0; i < 100; i++) {
+            String key = cacheManager.createKey("db", CacheManager.VARIANT_TYPE, new Query("id", String.valueOf(i)),
+                    new QueryOptions(), "1");
+            cacheManager.set(key, result(99));
+            assertNotNull(cacheManager.get(first));
+        }
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        String key1 = cacheManager.createKey("db1", CacheManager.VARIANT_TYPE, new Query(), new QueryOptions(), "1");
+        String key2 = cacheManager.createKey("db2", CacheManager.VARIANT_TYPE, new Query(), new QueryOptions(), "1");
+        cacheManager.set(key1, result(1));
+        cacheManager.set(key2, result(1));
+
+        cacheManager.clear("db1");
+        assertNull(cacheManager.get(key1));
+        assertNotNull(cacheManager.get(key2));
+        assertEquals(backend.getSizeInBytes(), LocalCacheBackend.estimateSize(result(1)));
+
+        cacheManager.clear();
+        assertNull(cacheManager.get(key2));
+        assertEquals(0, backend.getSizeInBytes());
+    }
+
+    @Test
+    public void testBackendError() {
+        cacheManager = new CacheManager(configuration, new LocalCacheBackend(1000) {
+            @Override
+            public synchronized Object get(String key) {
+                throw new IllegalStateException("Connection lost");
+            }
+        });
+        assertTrue(cacheManager.isActive());
+        assertNull(cacheManager.get("key"));
+        assertFalse(cacheManager.isActive());
+    }
+
+    private DataResult<Integer> result(int numResults) {
+        List<Integer> results = new ArrayList<>(Collections.nCopies(numResults, 0));
+        return new DataResult<>(0, Collections.emptyList(), numResults, results, numResults);
+    }
+}
@@ -0,0 +1,67 @@
+package org.opencb.opencga.storage.core.io.plain;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.opencga.storage.core.io.managers.LocalIOConnector;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class BgzfStringDataReaderTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRead() throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("##fileformat=VCFv4.2");
+        lines.add("#CHROM\tPOS\tID\tREF\tALT");
+        for (int i = 0; i < 100000; i++) {
+            lines.add("1\t" + i + "\t.\tA\tC");
+        }
+
+        File file = temporaryFolder.newFile("file.vcf.gz");
+        try (OutputStream os = new BlockCompressedOutputStream(file)) {
+            os.write((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        URI uri = file.toURI();
+        LocalIOConnector ioConnector = new LocalIOConnector();
+        assertTrue(BgzfStringDataReader.isBgzf(uri, ioConnector));
+
+        for (int numThreads : new int[]{1, 4}) {
+            for (int batchSize : new int[]{1, 7, 1000}) {
+                BgzfStringDataReader reader = new BgzfStringDataReader(uri, ioConnector, numThreads);
+                reader.open();
+                List<String> read = new ArrayList<>();
+                List<String> batch;
+                while (!(batch = reader.read(batchSize)).isEmpty()) {
+                    assertTrue(batch.size() <= batchSize);
+                    read.addAll(batch);
+                }
+                reader.close();
+                assertEquals(lines, read);
+            }
+        }
+    }
+
+    @Test
+    public void testNotBgzf() throws IOException {
+        File file = temporaryFolder.newFile("file.vcf.gz");
+        try (OutputStream os = new GZIPOutputStream(new FileOutputStream(file))) {
+            os.write("#CHROM\tPOS\n".getBytes(StandardCharsets.UTF_8));
+        }
+        assertFalse(BgzfStringDataReader.isBgzf(file.toURI(), new LocalIOConnector()));
+    }
+}
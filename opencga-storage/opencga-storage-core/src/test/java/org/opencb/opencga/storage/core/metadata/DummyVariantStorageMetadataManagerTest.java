@@ -0,0 +1,172 @@
+package org.opencb.opencga.storage.core.metadata;
+
+import org.junit.Test;
+import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageTest;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DummyVariantStorageMetadataManagerTest extends VariantStorageMetadataManagerTest implements DummyVariantStorageTest {
+
+    @Test
+    public void testSnapshotCopyOnWrite() throws Exception {
+        VariantStorageMetadataManager metadataManager = newMetadataManager(60000);
+        StudyMetadata study = metadataManager.createStudy("study");
+        metadataManager.registerFile(study.getId(), "file.vcf", Arrays.asList("s1", "s2"));
+        int sampleId = metadataManager.getSampleId(study.getId(), "s1");
+
+        // Decoded once, and shared by all the readers
+        StudyMetadata studyMetadata = metadataManager.getStudyMetadata(study.getId());
+        SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(study.getId(), sampleId);
+        assertSame(studyMetadata, metadataManager.getStudyMetadata(study.getId()));
+        assertSame(sampleMetadata, metadataManager.getSampleMetadata(study.getId(), sampleId));
+        assertEquals("s1", sampleMetadata.getName());
+
+        // Updates work on a new copy, and replace the shared value
+        metadataManager.updateStudyMetadata(study.getId(), sm -> {
+            sm.getAttributes().put("key", "value");
+            return sm;
+        });
+        metadataManager.updateSampleMetadata(study.getId(), sampleId, sample -> {
+            sample.getAttributes().put("key", "value");
+            return sample;
+        });
+        assertFalse(studyMetadata.getAttributes().containsKey("key"));
+        assertFalse(sampleMetadata.getAttributes().containsKey("key"));
+        assertEquals("value", metadataManager.getStudyMetadata(study.getId()).getAttributes().getString("key"));
+        assertEquals("value", metadataManager.getSampleMetadata(study.getId(), sampleId).getAttributes().getString("key"));
+    }
+
+    @Test
+    public void testSnapshotExpires() throws Exception {
+        // Two managers over the same metadata, as two different processes
+        VariantStorageMetadataManager writer = newMetadataManager(0);
+        VariantStorageMetadataManager reader = newMetadataManager(1000);
+        StudyMetadata study = writer.createStudy("study");
+        writer.registerFile(study.getId(), "file.vcf", Arrays.asList("s1", "s2"));
+        int sampleId = writer.getSampleId(study.getId(), "s1");
+
+        writer.flushMetadataVersion();
+        assertFalse(reader.getSampleMetadata(study.getId(), sampleId).getAttributes().containsKey("key"));
+
+        // Sample updates are not published until the next task status change, so the metadata version does not change
+        writer.updateSampleMetadata(study.getId(), sampleId, sample -> {
+            sample.getAttributes().put("key", "value");
+            return sample;
+        });
+
+        // Not seen until the snapshot expires
+        assertFalse(reader.getSampleMetadata(study.getId(), sampleId).getAttributes().containsKey("key"));
+
+        Thread.sleep(1500);
+        assertEquals("value", reader.getSampleMetadata(study.getId(), sampleId).getAttributes().getString("key"));
+    }
+
+    @Test
+    public void testSnapshotMetadataVersion() throws Exception {
+        VariantStorageMetadataManager writer = newMetadataManager(0);
+        VariantStorageMetadataManager reader = newMetadataManager(60000);
+        StudyMetadata study = writer.createStudy("study");
+        writer.registerFile(study.getId(), "file.vcf", Arrays.asList("s1", "s2"));
+        int sampleId = writer.getSampleId(study.getId(), "s1");
+        writer.flushMetadataVersion();
+
+        assertFalse(reader.getStudyMetadata(study.getId()).getAttributes().containsKey("key"));
+        assertFalse(reader.getSampleMetadata(study.getId(), sampleId).getAttributes().containsKey("key"));
+
+        writer.updateStudyMetadata(study.getId(), sm -> {
+            sm.getAttributes().put("key", "value");
+            return sm;
+        });
+        writer.updateSampleMetadata(study.getId(), sampleId, sample -> {
+            sample.getAttributes().put("key", "value");
+            return sample;
+        });
+        writer.flushMetadataVersion();
+
+        // Seen once the reader reads the new metadata version, long before the snapshot expires
+        Thread.sleep(1100);
+        assertEquals("value", reader.getStudyMetadata(study.getId()).getAttributes().getString("key"));
+        assertEquals("value", reader.getSampleMetadata(study.getId(), sampleId).getAttributes().getString("key"));
+    }
+
+    @Test
+    public void testSnapshotInvalidation() throws Exception {
+        VariantStorageMetadataManager writer = newMetadataManager(0);
+        VariantStorageMetadataManager reader = newMetadataManager(60000);
+        StudyMetadata study = writer.createStudy("study");
+        writer.registerFile(study.getId(), "file.vcf", Arrays.asList("s1", "s2"));
+        int sampleId = writer.getSampleId(study.getId(), "s1");
+
+        assertFalse(reader.getStudyMetadata(study.getId()).getAttributes().containsKey("key"));
+        writer.updateStudyMetadata(study.getId(), sm -> {
+            sm.getAttributes().put("key", "value");
+            return sm;
+        });
+        // The reader reuses its last read of the metadata version for a while
+        assertFalse(reader.getStudyMetadata(study.getId()).getAttributes().containsKey("key"));
+
+        // Explicit invalidation
+        reader.invalidateSnapshot(study.getId());
+        assertEquals("value", reader.getStudyMetadata(study.getId()).getAttributes().getString("key"));
+
+        // Changes made through the same manager are seen immediately
+        assertFalse(reader.getSampleMetadata(study.getId(), sampleId).getAttributes().containsKey("key"));
+        reader.updateSampleMetadata(study.getId(), sampleId, sample -> {
+            sample.getAttributes().put("key", "value");
+            return sample;
+        });
+        SampleMetadata sampleMetadata = reader.getSampleMetadata(study.getId(), sampleId);
+        assertEquals("value", sampleMetadata.getAttributes().getString("key"));
+
+        reader.updateStudyMetadata(study.getId(), sm -> {
+            sm.getAttributes().put("key", "other");
+            return sm;
+        });
+        assertEquals("other", reader.getStudyMetadata(study.getId()).getAttributes().getString("key"));
+    }
+
+    @Test
+    public void testMetadataVersionPublishedPerTask() throws Exception {
+        VariantStorageMetadataManager writer = newMetadataManager(0);
+        VariantStorageMetadataManager reader = newMetadataManager(0);
+        StudyMetadata study = writer.createStudy("study");
+        writer.registerFile(study.getId(), "file.vcf", Arrays.asList("s1", "s2"));
+        int sampleId = writer.getSampleId(study.getId(), "s1");
+        writer.flushMetadataVersion();
+        Thread.sleep(1100);
+
+        String writerVersion = writer.getMetadataVersion();
+        String readerVersion = reader.getMetadataVersion();
+        assertEquals(writerVersion, readerVersion);
+
+        // Sample updates change the version of the writer, but are not published
+        writer.updateSampleMetadata(study.getId(), sampleId, sample -> sample);
+        writer.updateSampleMetadata(study.getId(), sampleId, sample -> sample);
+        assertNotEquals(writerVersion, writer.getMetadataVersion());
+        Thread.sleep(1100);
+        assertEquals(readerVersion, reader.getMetadataVersion());
+
+        // Published once by the task
+        TaskMetadata task = writer.addRunningTask(study.getId(), "load", Arrays.asList(writer.getFileId(study.getId(), "file.vcf")));
+        String taskVersion = writer.getMetadataVersion();
+        assertNotEquals(readerVersion, taskVersion);
+        writer.setStatus(study.getId(), task.getId(), TaskMetadata.Status.READY);
+        // Nothing pending, so the task status change does not increment the version
+        assertEquals(taskVersion, writer.getMetadataVersion());
+
+        // The reader reuses its last read of the version for a while
+        assertEquals(readerVersion, reader.getMetadataVersion());
+        Thread.sleep(1100);
+        assertEquals(taskVersion, reader.getMetadataVersion());
+    }
+
+    private VariantStorageMetadataManager newMetadataManager(long snapshotTtl) {
+        return new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory(), 0, snapshotTtl);
+    }
+}
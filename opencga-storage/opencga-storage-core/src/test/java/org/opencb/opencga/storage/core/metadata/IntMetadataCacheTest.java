@@ -0,0 +1,92 @@
+package org.opencb.opencga.storage.core.metadata;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IntMetadataCacheTest {
+
+    @Test
+    public void testGet() {
+        AtomicInteger calls = new AtomicInteger();
+        IntMetadataCache<String> cache = new IntMetadataCache<>((studyId, id) -> {
+            calls.incrementAndGet();
+            return studyId + "_" + id;
+        });
+
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("1_" + i, cache.get(1, i));
+            assertEquals("2_" + i, cache.get(2, i));
+        }
+        assertEquals(20000, calls.get());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("1_" + i, cache.get(1, i));
+        }
+        assertEquals(20000, calls.get());
+        assertEquals(20000, cache.size());
+    }
+
+    @Test
+    public void testNegativeIds() {
+        IntMetadataCache<String> cache = new IntMetadataCache<>((studyId, id) -> studyId + "_" + id);
+        assertEquals("1_-1", cache.get(1, -1));
+        assertEquals("-1_1", cache.get(-1, 1));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testInvalidValue() {
+        AtomicInteger calls = new AtomicInteger();
+        IntMetadataCache<Boolean> cache = new IntMetadataCache<>((studyId, id) -> calls.incrementAndGet() > 1);
+
+        assertEquals(false, cache.get(1, 1, false));
+        assertEquals(true, cache.get(1, 1, false));
+        assertEquals(true, cache.get(1, 1, false));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testMaxSize() {
+        AtomicInteger calls = new AtomicInteger();
+        IntMetadataCache<String> cache = new IntMetadataCache<>((studyId, id) -> {
+            calls.incrementAndGet();
+            return studyId + "_" + id;
+        }, 160);
+
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("1_" + i, cache.get(1, i));
+            // Keep the first element as the most recently used
+            assertEquals("1_0", cache.get(1, 0));
+            assertTrue(cache.size() <= 160);
+        }
+        int numCalls = calls.get();
+        assertEquals("1_0", cache.get(1, 0));
+        assertEquals(numCalls, calls.get());
+    }
+
+    @Test
+    public void testClearStudy() {
+        AtomicInteger calls = new AtomicInteger();
+        IntMetadataCache<String> cache = new IntMetadataCache<>((studyId, id) -> {
+            calls.incrementAndGet();
+            return studyId + "_" + id;
+        });
+        for (int i = 0; i < 1000; i++) {
+            cache.get(1, i);
+            cache.get(2, i);
+        }
+        cache.clear(1);
+        assertEquals(1000, cache.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("2_" + i, cache.get(2, i));
+        }
+        assertEquals(2000, calls.get());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("1_" + i, cache.get(1, i));
+        }
+        assertEquals(3000, calls.get());
+    }
+}
@@ -43,6 +43,49 @@ public abstract class VariantStorageMetadataManagerTest extends VariantStorageBa
         Assert.assertEquals("DONE", Collections.singletonList("MyTask2"), getTasks(study, Collections.singletonList(TaskMetadata.Status.DONE)));
     }
 
+    @Test(timeout = 60000)
+    public void testIndexedFilesWithinStudyLock() throws StorageEngineException {
+        StudyMetadata study = metadataManager.createStudy("study");
+        int fileId = metadataManager.registerFile(study.getId(), "file.vcf", Arrays.asList("s1", "s2"));
+
+        // The study lock is not reentrant. Indexed files are modified while holding it
+        metadataManager.updateStudyMetadata(study.getId(), sm -> {
+            metadataManager.addIndexedFiles(sm.getId(), Collections.singletonList(fileId));
+            return sm;
+        });
+        Assert.assertEquals(Collections.singleton(fileId), metadataManager.getIndexedFiles(study.getId()));
+        Assert.assertTrue(metadataManager.getFileMetadata(study.getId(), fileId).isIndexed());
+
+        metadataManager.updateStudyMetadata(study.getId(), sm -> {
+            metadataManager.removeIndexedFiles(sm.getId(), Collections.singletonList(fileId));
+            return sm;
+        });
+        Assert.assertEquals(Collections.emptySet(), metadataManager.getIndexedFiles(study.getId()));
+        Assert.assertFalse(metadataManager.getFileMetadata(study.getId(), fileId).isIndexed());
+    }
+
+    @Test
+    public void testIndexedFilesOnlyUpdateStudyTimeStamp() throws Exception {
+        StudyMetadata study = metadataManager.createStudy("study");
+        int fileId = metadataManager.registerFile(study.getId(), "file.vcf", Arrays.asList("s1", "s2"));
+        metadataManager.updateStudyMetadata(study.getId(), sm -> {
+            sm.getAttributes().put("key", "value");
+            return sm;
+        });
+        long timeStamp = metadataManager.getStudyMetadata(study.getId()).getTimeStamp();
+        String metadataVersion = metadataManager.getMetadataVersion();
+
+        Thread.sleep(10);
+        metadataManager.addIndexedFiles(study.getId(), Collections.singletonList(fileId));
+
+        StudyMetadata sm = metadataManager.getStudyMetadata(study.getId());
+        Assert.assertTrue(sm.getTimeStamp() > timeStamp);
+        Assert.assertEquals("value", sm.getAttributes().getString("key"));
+        Assert.assertEquals(study.getName(), sm.getName());
+        Assert.assertNotEquals(metadataVersion, metadataManager.getMetadataVersion());
+        Assert.assertEquals(Collections.singleton(fileId), metadataManager.getIndexedFiles(study.getId()));
+    }
+
     public List<String> getTasks(StudyMetadata study, List<TaskMetadata.Status> status) {
         return Arrays.stream(Iterators.toArray(metadataManager.taskIterator(study.getId(), status), TaskMetadata.class))
                 .map(TaskMetadata::getName)
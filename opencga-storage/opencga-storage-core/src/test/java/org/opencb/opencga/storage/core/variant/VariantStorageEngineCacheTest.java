@@ -0,0 +1,106 @@
+package org.opencb.opencga.storage.core.variant;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.common.UriUtils;
+import org.opencb.opencga.core.response.VariantQueryResult;
+import org.opencb.opencga.storage.core.cache.CacheManager;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Created on 19/10/20.
+ */
+public class VariantStorageEngineCacheTest extends VariantStorageBaseTest implements DummyVariantStorageTest {
+
+    private final QueryOptions cacheOptions = new QueryOptions(CacheManager.CACHE, true);
+
+    @Before
+    public void setUp() throws Exception {
+        variantStorageEngine.getConfiguration().getCache()
+                .setActive(true)
+                .setSlowThreshold(0)
+                .setMaxResultSize(1000);
+        runDefaultETL(smallInputUri, variantStorageEngine, newStudyMetadata(),
+                new QueryOptions(VariantStorageOptions.ANNOTATE.key(), false));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.writeAndClear(getTmpRootDir());
+    }
+
+    @Test
+    public void testCachedResultsAreCopies() throws Exception {
+        List<String> expected = toJson(variantStorageEngine.get(new Query(), new QueryOptions()));
+        assertFalse(expected.isEmpty());
+
+        for (int i = 0; i < 3; i++) {
+            VariantQueryResult<Variant> result = variantStorageEngine.get(new Query(), cacheOptions);
+            assertEquals(expected, toJson(result));
+
+            // Modify the returned variants
+            StudyEntry studyEntry = result.first().getStudies().get(0);
+            studyEntry.getSamplesData().get(0).set(0, "1/1");
+            studyEntry.getSamplesPosition().clear();
+            result.first().setId("modified");
+            result.getResults().clear();
+        }
+    }
+
+    @Test
+    public void testSecondQueryFromCache() throws Exception {
+        CacheManager cacheManager = variantStorageEngine.getCacheManager();
+        Query query = new Query(VariantQueryParam.REGION.key(), "1");
+        // The engine may be shared with other tests
+        long hits = cacheManager.getHits();
+        long misses = cacheManager.getMisses();
+
+        List<String> expected = toJson(variantStorageEngine.get(query, cacheOptions));
+        assertEquals(hits, cacheManager.getHits());
+        assertEquals(misses + 1, cacheManager.getMisses());
+
+        assertEquals(expected, toJson(variantStorageEngine.get(query, cacheOptions)));
+        assertEquals(hits + 1, cacheManager.getHits());
+        assertEquals(misses + 1, cacheManager.getMisses());
+
+        // Queries without the cache option are not read from the cache
+        variantStorageEngine.get(query, new QueryOptions());
+        assertEquals(hits + 1, cacheManager.getHits());
+        assertEquals(misses + 1, cacheManager.getMisses());
+    }
+
+    @Test
+    public void testInvalidateOnRemoveFiles() throws Exception {
+        List<String> expected = toJson(variantStorageEngine.get(new Query(), cacheOptions));
+        assertEquals(expected, toJson(variantStorageEngine.get(new Query(), cacheOptions)));
+
+        variantStorageEngine.removeFiles(STUDY_NAME, Collections.singletonList(UriUtils.fileName(smallInputUri)));
+
+        List<String> afterRemove = toJson(variantStorageEngine.get(new Query(), new QueryOptions()));
+        assertNotEquals(expected, afterRemove);
+        assertEquals(afterRemove, toJson(variantStorageEngine.get(new Query(), cacheOptions)));
+    }
+
+    private List<String> toJson(VariantQueryResult<Variant> result) {
+        List<String> list = new ArrayList<>(result.getResults().size());
+        for (Variant variant : result.getResults()) {
+            list.add(variant.toJson() + " " + variant.getStudies().stream().map(StudyEntry::getSamplesPosition)
+                    .collect(Collectors.toList()));
+        }
+        return list;
+    }
+}
@@ -47,6 +47,7 @@ import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.annotation.annotators.CellBaseRestVariantAnnotator;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryCursor;
 import org.opencb.opencga.storage.core.variant.stats.DefaultVariantStatisticsManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -297,6 +298,55 @@ public abstract class VariantDBAdaptorTest extends VariantStorageBaseTest {
         limitSkip(new Query(ANNOT_POLYPHEN.key(), "<0.5"), new QueryOptions(QueryOptions.SORT, true));
     }
 
+    @Test
+    public void testGetAllVariants_cursor() {
+        cursorPages(new Query(), new QueryOptions());
+    }
+
+    @Test
+    public void testGetAllVariants_cursor_sorted() {
+        cursorPages(new Query(), new QueryOptions(QueryOptions.SORT, true));
+    }
+
+    @Test
+    public void testGetAllVariants_cursor_sorted_descending() {
+        cursorPages(new Query(), new QueryOptions(QueryOptions.SORT, true).append(QueryOptions.ORDER, QueryOptions.DESCENDING));
+    }
+
+    @Test
+    public void testGetAllVariants_cursor_sorted_filters() {
+        cursorPages(new Query(ANNOT_POLYPHEN.key(), "<0.5"), new QueryOptions(QueryOptions.SORT, true));
+    }
+
+    public void cursorPages(Query query, QueryOptions options) {
+        List<String> expected = variantStorageEngine.get(new Query(query), new QueryOptions(options)).getResults()
+                .stream()
+                .map(Variant::toString)
+                .collect(Collectors.toList());
+        for (int batchSize : new int[]{50, 100, 1000}) {
+            List<String> variants = new ArrayList<>();
+            String cursor = null;
+            do {
+                QueryOptions pageOptions = new QueryOptions(options).append(QueryOptions.LIMIT, batchSize);
+                if (cursor != null) {
+                    pageOptions.put(VariantQueryCursor.CURSOR, cursor);
+                }
+                VariantQueryResult<Variant> result = variantStorageEngine.get(new Query(query), pageOptions);
+                for (Variant variant : result.getResults()) {
+                    variants.add(variant.toString());
+                }
+                cursor = result.getNextCursor();
+            } while (cursor != null);
+            if (options.getBoolean(QueryOptions.SORT)) {
+                // No gaps, no duplicates, same order
+                assertEquals(expected, variants);
+            } else {
+                assertEquals(expected.size(), variants.size());
+                assertEquals(new HashSet<>(expected), new HashSet<>(variants));
+            }
+        }
+    }
+
     public void limitSkip(Query query, QueryOptions options) {
         VariantQueryResult<Variant> expected = query(query, options);
         int numVariants = expected.getNumResults();
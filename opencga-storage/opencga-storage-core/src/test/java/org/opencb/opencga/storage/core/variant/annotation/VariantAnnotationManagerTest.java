@@ -21,6 +21,9 @@ import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnno
 import org.opencb.opencga.storage.core.variant.annotation.annotators.VariantAnnotatorFactory;
 
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -122,6 +125,61 @@ public abstract class VariantAnnotationManagerTest extends VariantStorageBaseTes
 
     }
 
+    @Test
+    public void testAnnotateWithoutFile() throws Exception {
+        VariantStorageEngine variantStorageEngine = getVariantStorageEngine();
+        runDefaultETL(smallInputUri, variantStorageEngine, newStudyMetadata(),
+                new ObjectMap(VariantStorageOptions.ANNOTATE.key(), false));
+
+        variantStorageEngine.getOptions()
+                .append(VariantStorageOptions.ANNOTATOR_CLASS.key(), TestAnnotator.class.getName())
+                .append(VariantStorageOptions.ANNOTATOR.key(), VariantAnnotatorFactory.AnnotationEngine.OTHER);
+
+        URI outDir = newOutputUri();
+        long numAnnotations = variantStorageEngine.annotate(new Query(), new ObjectMap(TestAnnotator.ANNOT_KEY, "v1")
+                .append(DefaultVariantAnnotationManager.OUT_DIR, outDir)
+                .append(DefaultVariantAnnotationManager.FILE_NAME, "annotation"));
+
+        // Annotations are loaded directly, and no file is written
+        assertEquals(variantStorageEngine.count(new Query()).first().longValue(), numAnnotations);
+        checkAnnotationSnapshot(variantStorageEngine, VariantAnnotationManager.CURRENT, VariantAnnotationManager.CURRENT, "v1", null);
+        assertFalse(Files.exists(Paths.get(outDir.resolve("annotation.annot.json.gz"))));
+        assertEquals("v1", variantStorageEngine.getMetadataManager().getProjectMetadata().getAnnotation().getCurrent().getAnnotator().getVersion());
+    }
+
+    @Test
+    public void testAnnotateWithFileDump() throws Exception {
+        VariantStorageEngine variantStorageEngine = getVariantStorageEngine();
+        runDefaultETL(smallInputUri, variantStorageEngine, newStudyMetadata(),
+                new ObjectMap(VariantStorageOptions.ANNOTATE.key(), false));
+
+        variantStorageEngine.getOptions()
+                .append(VariantStorageOptions.ANNOTATOR_CLASS.key(), TestAnnotator.class.getName())
+                .append(VariantStorageOptions.ANNOTATOR.key(), VariantAnnotatorFactory.AnnotationEngine.OTHER);
+
+        URI outDir = newOutputUri();
+        long numAnnotations = variantStorageEngine.annotate(new Query(), new ObjectMap(TestAnnotator.ANNOT_KEY, "v1")
+                .append(VariantStorageOptions.ANNOTATION_FILE_DUMP.key(), true)
+                .append(DefaultVariantAnnotationManager.OUT_DIR, outDir)
+                .append(DefaultVariantAnnotationManager.FILE_NAME, "annotation"));
+
+        // Annotations are written to a file, and then loaded from it
+        URI annotationFile = outDir.resolve("annotation.annot.json.gz");
+        assertTrue(Files.exists(Paths.get(annotationFile)));
+        assertEquals(variantStorageEngine.count(new Query()).first().longValue(), numAnnotations);
+        checkAnnotationSnapshot(variantStorageEngine, VariantAnnotationManager.CURRENT, VariantAnnotationManager.CURRENT, "v1", null);
+
+        // Overwrite with the direct load
+        variantStorageEngine.annotate(new Query(), new ObjectMap(TestAnnotator.ANNOT_KEY, "v2")
+                .append(VariantStorageOptions.ANNOTATION_OVERWEITE.key(), true));
+        checkAnnotationSnapshot(variantStorageEngine, VariantAnnotationManager.CURRENT, VariantAnnotationManager.CURRENT, "v2", null);
+
+        // The dumped file can be loaded again
+        variantStorageEngine.annotate(new Query(), new ObjectMap(VariantAnnotationManager.LOAD_FILE, annotationFile.toString())
+                .append(VariantStorageOptions.ANNOTATION_OVERWEITE.key(), true));
+        checkAnnotationSnapshot(variantStorageEngine, VariantAnnotationManager.CURRENT, VariantAnnotationManager.CURRENT, "v1", null);
+    }
+
     public void testQueries(VariantStorageEngine variantStorageEngine) throws StorageEngineException {
         long count = variantStorageEngine.count(new Query()).first();
         long partialCount = 0;
@@ -109,7 +109,14 @@ public class DummyFileMetadataDBAdaptor implements FileMetadataDBAdaptor {
 
     @Override
     public Iterator<VariantFileMetadata> iterator(Query query, QueryOptions options) throws IOException {
-        return Collections.emptyIterator();
+        List<Integer> studies = query.getAsIntegerList(VariantFileMetadataQueryParam.STUDY_ID.key());
+        List<Integer> files = query.getAsIntegerList(VariantFileMetadataQueryParam.FILE_ID.key());
+        return VARIANT_FILE_METADATAS.entrySet()
+                .stream()
+                .filter(e -> studies.isEmpty() || studies.contains(Integer.valueOf(e.getKey().split("_")[0])))
+                .filter(e -> files.isEmpty() || files.contains(Integer.valueOf(e.getValue().getId())))
+                .map(Map.Entry::getValue)
+                .iterator();
     }
 
     @Override
@@ -17,9 +17,11 @@
 package org.opencb.opencga.storage.core.variant.dummy;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SequenceWriter;
+import org.apache.avro.generic.GenericRecord;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
@@ -29,6 +31,7 @@ import org.opencb.opencga.storage.core.metadata.adaptors.SampleMetadataDBAdaptor
 import org.opencb.opencga.storage.core.metadata.adaptors.StudyMetadataDBAdaptor;
 import org.opencb.opencga.storage.core.metadata.adaptors.TaskMetadataDBAdaptor;
 import org.opencb.opencga.storage.core.metadata.models.*;
+import org.opencb.opencga.storage.core.variant.io.json.mixin.GenericRecordAvroJsonMixin;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -37,9 +40,10 @@ import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
@@ -56,8 +60,14 @@ public class DummyStudyMetadataDBAdaptor implements StudyMetadataDBAdaptor, Samp
     public static Map<Integer, Map<Integer, CohortMetadata>> COHORT_METADATA_MAP = new ConcurrentHashMap<>();
     public static Map<Integer, Map<Integer, TaskMetadata>> TASK_METADATA_MAP = new ConcurrentHashMap<>();
 
-    private static Map<Integer, java.util.concurrent.locks.Lock> LOCK_STUDIES = new ConcurrentHashMap<>();
+    // Not reentrant, like the locks of the real implementations
+    private static Map<Integer, Semaphore> LOCK_STUDIES = new ConcurrentHashMap<>();
     private static AtomicInteger NUM_PRINTS = new AtomicInteger();
+    // Like a real database, the StudyMetadata is never shared with the callers
+    private static final ObjectMapper COPY_MAPPER = new ObjectMapper()
+            .addMixIn(GenericRecord.class, GenericRecordAvroJsonMixin.class)
+            .configure(MapperFeature.REQUIRE_SETTERS_FOR_GETTERS, true)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
 
     @Override
     public List<String> getStudyNames(QueryOptions options) {
@@ -105,15 +115,16 @@ public class DummyStudyMetadataDBAdaptor implements StudyMetadataDBAdaptor, Samp
 
     @Override
     public Lock lock(int studyId, long lockDuration, long timeout, String lockName) throws StorageEngineException {
-        if (!LOCK_STUDIES.containsKey(studyId)) {
-            LOCK_STUDIES.put(studyId, new ReentrantLock());
-        }
+        Semaphore semaphore = LOCK_STUDIES.computeIfAbsent(studyId, id -> new Semaphore(1));
         try {
-            LOCK_STUDIES.get(studyId).tryLock(timeout, TimeUnit.MILLISECONDS);
+            if (!semaphore.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new StorageEngineException("Unable to lock study " + studyId,
+                        new TimeoutException("Timeout waiting " + timeout + "ms for the study lock"));
+            }
             return new Lock(studyId) {
                 @Override
                 public void unlock0() {
-                    LOCK_STUDIES.get(studyId).unlock();
+                    semaphore.release();
                 }
 
                 @Override
@@ -129,12 +140,28 @@ public class DummyStudyMetadataDBAdaptor implements StudyMetadataDBAdaptor, Samp
 
     @Override
     public StudyMetadata getStudyMetadata(int id, Long timeStamp) {
-        return STUDY_METADATA_MAP.get(id);
+        return copy(STUDY_METADATA_MAP.get(id));
     }
 
     @Override
     public void updateStudyMetadata(StudyMetadata sm) {
-        STUDY_METADATA_MAP.put(sm.getId(), sm);
+        STUDY_METADATA_MAP.put(sm.getId(), copy(sm));
+    }
+
+    @Override
+    public void updateStudyTimeStamp(int studyId, long timeStamp) {
+        STUDY_METADATA_MAP.computeIfPresent(studyId, (id, sm) -> copy(sm).setTimeStamp(timeStamp));
+    }
+
+    private static StudyMetadata copy(StudyMetadata sm) {
+        if (sm == null) {
+            return null;
+        }
+        try {
+            return COPY_MAPPER.readValue(COPY_MAPPER.writeValueAsBytes(sm), StudyMetadata.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
@@ -20,6 +20,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
@@ -33,11 +34,13 @@ import java.io.*;
 import java.net.URI;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.junit.Assert.*;
 
 /**
@@ -121,6 +124,104 @@ public class VariantExporterTest extends VariantStorageBaseTest implements Dummy
         assertEquals(expectedVariants.size(), numVariants);
     }
 
+    @Test
+    public void exportShardedJsonTest() throws Exception {
+        addContigs(2000);
+        URI outputDir = newOutputUri();
+        URI expectedFile = outputDir.resolve("variant.json.gz");
+        variantStorageEngine.exportData(expectedFile, VariantOutputFormat.JSON_GZ, null, new Query(), new QueryOptions());
+
+        URI outputFile = outputDir.resolve("variant.sharded.json.gz");
+        variantStorageEngine.exportData(outputFile, VariantOutputFormat.JSON_GZ, null, new Query(), new QueryOptions()
+                .append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 4)
+                .append(VariantStorageOptions.EXPORT_SHARD_SIZE.key(), 500));
+
+        assertTrue(Paths.get(outputFile.getPath() + VariantExporter.METADATA_FILE_EXTENSION).toFile().exists());
+        List<String> expectedVariants = new ArrayList<>();
+        for (Variant variant : new VariantJsonReader(Collections.emptyMap(), expectedFile.getPath())) {
+            expectedVariants.add(variant.toString());
+        }
+        List<String> variants = new ArrayList<>();
+        for (Variant variant : new VariantJsonReader(Collections.emptyMap(), outputFile.getPath())) {
+            variants.add(variant.toString());
+        }
+        assertFalse(expectedVariants.isEmpty());
+        assertEquals(expectedVariants, variants);
+    }
+
+    @Test
+    public void exportShardedVcfTest() throws Exception {
+        addContigs(2000);
+        URI outputDir = newOutputUri();
+        URI expectedFile = outputDir.resolve("variant.vcf.gz");
+        variantStorageEngine.exportData(expectedFile, VariantOutputFormat.VCF_GZ, null, new Query(), new QueryOptions());
+
+        URI outputFile = outputDir.resolve("variant.sharded.vcf.gz");
+        variantStorageEngine.exportData(outputFile, VariantOutputFormat.VCF_GZ, null, new Query(), new QueryOptions()
+                .append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 4)
+                .append(VariantStorageOptions.EXPORT_SHARD_SIZE.key(), 500)
+                .append(VariantStorageOptions.EXPORT_INDEX.key(), true));
+
+        assertTrue(Paths.get(outputFile.getPath() + VariantExporter.TABIX_FILE_EXTENSION).toFile().exists());
+        List<String> expectedRecords = readVcfRecords(expectedFile);
+        assertFalse(expectedRecords.isEmpty());
+        assertEquals(expectedRecords, readVcfRecords(outputFile));
+    }
+
+    @Test
+    public void exportShardedVcfUndeclaredContigTest() throws Exception {
+        // Do not declare the chromosome of the first variant
+        String undeclared = variantStorageEngine.get(new Query(), new QueryOptions(QueryOptions.LIMIT, 1)).first().getChromosome();
+        addContigs(2000, undeclared);
+        URI outputDir = newOutputUri();
+        URI expectedFile = outputDir.resolve("variant.vcf.gz");
+        variantStorageEngine.exportData(expectedFile, VariantOutputFormat.VCF_GZ, null, new Query(), new QueryOptions());
+
+        URI outputFile = outputDir.resolve("variant.sharded.vcf.gz");
+        variantStorageEngine.exportData(outputFile, VariantOutputFormat.VCF_GZ, null, new Query(), new QueryOptions()
+                .append(VariantStorageOptions.EXPORT_NUM_THREADS.key(), 4)
+                .append(VariantStorageOptions.EXPORT_SHARD_SIZE.key(), 500));
+
+        List<String> expectedRecords = readVcfRecords(expectedFile);
+        assertThat(expectedRecords.get(0), startsWith(undeclared + "\t"));
+        assertEquals(expectedRecords, readVcfRecords(outputFile));
+    }
+
+    // Data lines of a VCF file. Checks there is only one header
+    private List<String> readVcfRecords(URI vcfFile) throws IOException {
+        int headers = 0;
+        List<String> records = new ArrayList<>();
+        try (InputStream is = new GZIPInputStream(new FileInputStream(vcfFile.getPath()));
+             BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.startsWith("#CHROM")) {
+                    headers++;
+                } else if (!line.startsWith("#")) {
+                    records.add(line);
+                }
+            }
+        }
+        assertEquals(1, headers);
+        return records;
+    }
+
+    private void addContigs(int length, String... excluded) throws Exception {
+        List<String> chromosomes = new ArrayList<>();
+        for (int chr = 1; chr <= 22; chr++) {
+            chromosomes.add(String.valueOf(chr));
+        }
+        chromosomes.addAll(Arrays.asList("X", "Y", "MT"));
+        chromosomes.removeAll(Arrays.asList(excluded));
+        variantStorageEngine.getMetadataManager().updateStudyMetadata(STUDY_NAME, sm -> {
+            for (String chromosome : chromosomes) {
+                sm.getVariantHeader().getComplexLines().add(new VariantFileHeaderComplexLine("contig", chromosome, null, null, null,
+                        Collections.singletonMap("length", String.valueOf(length))));
+            }
+            return sm;
+        });
+    }
+
     @Test
     public void exportTpedTest() throws Exception {
         URI output = newOutputUri().resolve("variant" + VariantExporter.TPED_FILE_EXTENSION);
@@ -0,0 +1,191 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
+
+public class ParsedVariantQueryCacheTest {
+
+    private final Logger logger = LoggerFactory.getLogger(ParsedVariantQueryCacheTest.class);
+    private VariantStorageMetadataManager mm;
+    private VariantQueryParser parser;
+    private AtomicInteger parseCount;
+    private BiFunction<Query, QueryOptions, Query> parseFunction;
+
+    @Before
+    public void setUp() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        mm = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = mm.createStudy("study").getId();
+        for (int i = 0; i < 20; i++) {
+            List<String> samples = new ArrayList<>();
+            for (int s = 0; s < 10; s++) {
+                samples.add("S" + i + "_" + s);
+            }
+            mm.addIndexedFiles(studyId, Arrays.asList(mm.registerFile(studyId, "F" + i, samples)));
+        }
+        mm.updateStudyMetadata("study", studyMetadata -> {
+            studyMetadata.getAttributes().put(VariantStorageOptions.LOADED_GENOTYPES.key(), "./.,0/0,0/1,1/1");
+            return studyMetadata;
+        });
+        parser = new VariantQueryParser(null, mm);
+        parseCount = new AtomicInteger();
+        parseFunction = (query, options) -> {
+            parseCount.incrementAndGet();
+            return parser.preProcessQuery(query, options);
+        };
+    }
+
+    @Test
+    public void testGet() {
+        ParsedVariantQueryCache cache = new ParsedVariantQueryCache(10);
+        Query query = new Query(STUDY.key(), "study").append(GENOTYPE.key(), "S1_1:0/1;S2_3:1/1").append(FILE.key(), "F1");
+
+        Query expected = parser.preProcessQuery(query, new QueryOptions());
+        assertEquals(expected, cache.get(query, new QueryOptions(), "v1", parseFunction));
+        Query cached = cache.get(query, new QueryOptions(QueryOptions.LIMIT, 10).append(QueryOptions.SKIP, 20), "v1", parseFunction);
+        assertEquals(expected, cached);
+        assertEquals(1, parseCount.get());
+
+        // Returned queries can be modified
+        cached.put(REGION.key(), "1:1000-2000");
+        cached.getAsStringList(INCLUDE_SAMPLE.key()).clear();
+        assertEquals(expected, cache.get(query, new QueryOptions(), "v1", parseFunction));
+        assertEquals(1, parseCount.get());
+    }
+
+    @Test
+    public void testInvalidate() {
+        ParsedVariantQueryCache cache = new ParsedVariantQueryCache(10);
+        Query query = new Query(STUDY.key(), "study").append(SAMPLE.key(), "S1_1");
+
+        cache.get(query, new QueryOptions(), "v1", parseFunction);
+        cache.get(query, new QueryOptions(), "v2", parseFunction);
+        assertEquals(2, parseCount.get());
+        cache.get(query, new QueryOptions(QueryOptions.INCLUDE, "id,studies"), "v2", parseFunction);
+        assertEquals(3, parseCount.get());
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.get(query, new QueryOptions(), "v2", parseFunction);
+        assertEquals(4, parseCount.get());
+    }
+
+    @Test
+    public void testBuildKey() {
+        assertEquals(ParsedVariantQueryCache.buildKey(new Query(SAMPLE.key(), "S1,S2").append(FILE.key(), ""), null, "v1"),
+                ParsedVariantQueryCache.buildKey(new Query(SAMPLE.key(), Arrays.asList("S1", "S2")),
+                        new QueryOptions(QueryOptions.LIMIT, 10), "v1"));
+        assertNotEquals(ParsedVariantQueryCache.buildKey(new Query(SAMPLE.key(), "S1,S2"), null, "v1"),
+                ParsedVariantQueryCache.buildKey(new Query(SAMPLE.key(), "S2,S1"), null, "v1"));
+        assertNotEquals(ParsedVariantQueryCache.buildKey(new Query(SAMPLE.key(), "S1"), null, "v1"),
+                ParsedVariantQueryCache.buildKey(new Query(SAMPLE.key(), "S1"), null, "v2"));
+    }
+
+    @Test(expected = VariantQueryException.class)
+    public void testInvalidOptions() {
+        ParsedVariantQueryCache cache = new ParsedVariantQueryCache(10);
+        Query query = new Query(STUDY.key(), "study");
+        cache.get(query, new QueryOptions(), "v1", parseFunction);
+        cache.get(query, new QueryOptions(QueryOptions.LIMIT, -1), "v1", parseFunction);
+    }
+
+    @Test
+    public void testMaxSize() {
+        ParsedVariantQueryCache cache = new ParsedVariantQueryCache(5);
+        for (int i = 0; i < 20; i++) {
+            cache.get(new Query(STUDY.key(), "study").append(FILE.key(), "F" + i), new QueryOptions(), "v1", parseFunction);
+            assertTrue(cache.size() <= 5);
+        }
+        assertEquals(20, parseCount.get());
+    }
+
+    @Test
+    public void testMetadataVersion() throws Exception {
+        ParsedVariantQueryCache cache = new ParsedVariantQueryCache(10);
+        Query query = new Query(STUDY.key(), "study").append(SAMPLE.key(), "S1_1");
+        int studyId = mm.getStudyId("study");
+
+        cache.get(query, new QueryOptions(), mm.getMetadataVersion(), parseFunction);
+        cache.get(query, new QueryOptions(), mm.getMetadataVersion(), parseFunction);
+        assertEquals(1, parseCount.get());
+
+        // Any change in the samples, cohorts or files produces a new version
+        String version = mm.getMetadataVersion();
+        mm.updateSampleMetadata(studyId, mm.getSampleId(studyId, "S1_1"), sample -> sample);
+        assertNotEquals(version, mm.getMetadataVersion());
+        cache.get(query, new QueryOptions(), mm.getMetadataVersion(), parseFunction);
+        assertEquals(2, parseCount.get());
+
+        version = mm.getMetadataVersion();
+        mm.registerCohort("study", "ALL", Arrays.asList("S1_1", "S1_2"));
+        assertNotEquals(version, mm.getMetadataVersion());
+        cache.get(query, new QueryOptions(), mm.getMetadataVersion(), parseFunction);
+        assertEquals(3, parseCount.get());
+
+        version = mm.getMetadataVersion();
+        mm.updateFileMetadata(studyId, mm.getFileId(studyId, "F1"), file -> file);
+        assertNotEquals(version, mm.getMetadataVersion());
+        cache.get(query, new QueryOptions(), mm.getMetadataVersion(), parseFunction);
+        assertEquals(4, parseCount.get());
+
+        // Reading the metadata does not change the version
+        version = mm.getMetadataVersion();
+        mm.getStudyMetadata(studyId);
+        mm.getSampleMetadata(studyId, mm.getSampleId(studyId, "S1_1"));
+        assertEquals(version, mm.getMetadataVersion());
+    }
+
+    @Test
+    @Ignore("Benchmark. Not executed as part of the build")
+    public void benchmarkParseQuery() throws Exception {
+        int numQueries = 20;
+        int numRepetitions = 500;
+        List<Query> queries = new ArrayList<>(numQueries);
+        for (int i = 0; i < numQueries; i++) {
+            queries.add(new Query(STUDY.key(), "study")
+                    .append(GENOTYPE.key(), "S" + i + "_1:0/1,1/1;S" + i + "_2:1/1")
+                    .append(FILE.key(), "F" + i)
+                    .append(INCLUDE_SAMPLE.key(), "S" + i + "_1,S" + i + "_2,S" + i + "_3"));
+        }
+
+        long start = System.nanoTime();
+        for (int r = 0; r < numRepetitions; r++) {
+            for (Query query : queries) {
+                parser.preProcessQuery(query, new QueryOptions(QueryOptions.SKIP, r));
+            }
+        }
+        long parseTime = System.nanoTime() - start;
+
+        ParsedVariantQueryCache cache = new ParsedVariantQueryCache(numQueries);
+        start = System.nanoTime();
+        for (int r = 0; r < numRepetitions; r++) {
+            for (Query query : queries) {
+                // Read the version for every query, as the storage engine does
+                cache.get(query, new QueryOptions(QueryOptions.SKIP, r), mm.getMetadataVersion(), parseFunction);
+            }
+        }
+        long cacheTime = System.nanoTime() - start;
+
+        assertEquals(numQueries, parseCount.get());
+        int total = numQueries * numRepetitions;
+        logger.info("Parse {} queries : {}ms. Average : {}ns/query", total, parseTime / 1000000, parseTime / total);
+        logger.info("Parse {} queries with cache : {}ms. Average : {}ns/query", total, cacheTime / 1000000, cacheTime / total);
+    }
+}
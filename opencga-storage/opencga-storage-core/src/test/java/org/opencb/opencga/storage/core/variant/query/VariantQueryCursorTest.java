@@ -0,0 +1,53 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.response.VariantQueryResult;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class VariantQueryCursorTest {
+
+    @Test(expected = VariantQueryException.class)
+    public void testDecodeInvalid() {
+        VariantQueryCursor.decode("not a cursor");
+    }
+
+    @Test
+    public void testToSkipOptions() {
+        VariantQueryCursor cursor = new VariantQueryCursor(VariantQueryCursor.SKIP_EXECUTOR, new Variant("1:1000:A:C"), 20);
+        QueryOptions options = cursor.toSkipOptions(new QueryOptions(QueryOptions.LIMIT, 10).append(VariantQueryCursor.CURSOR, cursor.encode()));
+
+        assertFalse(options.containsKey(VariantQueryCursor.CURSOR));
+        assertEquals(20, options.getInt(QueryOptions.SKIP));
+        assertEquals(10, options.getInt(QueryOptions.LIMIT));
+    }
+
+    @Test
+    public void testSetNextCursor() {
+        VariantQueryResult<Variant> result = new VariantQueryResult<>(0, 2, -1, Collections.emptyList(),
+                Arrays.asList(new Variant("1:1000:A:C"), new Variant("2:2000:A:C")), null, null);
+        QueryOptions options = new QueryOptions(QueryOptions.LIMIT, 2).append(QueryOptions.SKIP, 4);
+
+        VariantQueryCursor.setNextCursor(result, options, "MyExecutor");
+        VariantQueryCursor cursor = VariantQueryCursor.decode(result.getNextCursor());
+        assertEquals("MyExecutor", cursor.getExecutor());
+        assertEquals("2:2000:A:C", cursor.getLastVariant().toString());
+        assertEquals(6, cursor.getPosition());
+
+        // Continue from the cursor
+        options = new QueryOptions(QueryOptions.LIMIT, 2).append(VariantQueryCursor.CURSOR, result.getNextCursor());
+        VariantQueryCursor.setNextCursor(result, options, "MyExecutor");
+        assertEquals(8, VariantQueryCursor.decode(result.getNextCursor()).getPosition());
+
+        // Last page
+        options = new QueryOptions(QueryOptions.LIMIT, 3);
+        VariantQueryCursor.setNextCursor(result, options, "MyExecutor");
+        assertNull(result.getNextCursor());
+    }
+}
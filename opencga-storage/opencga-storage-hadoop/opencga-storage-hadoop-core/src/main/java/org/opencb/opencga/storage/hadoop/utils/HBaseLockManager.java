@@ -29,9 +29,8 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.Arrays;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeoutException;
+import java.util.Map;
+import java.util.concurrent.*;
 
 /**
  * Concurrent lock using an HBase cell.
@@ -57,6 +56,10 @@ import java.util.concurrent.TimeoutException;
  * Unlock:
  *      HBase.put(row, column, "");
  *
+ * Within the same JVM, only one thread at a time competes for each lock cell. The rest of the threads wait in
+ * arrival order, and are woken up as soon as the lock is released. While the lock is taken, the lock cell is
+ * polled with an exponential backoff with jitter, never waiting beyond the expiration date of the current lock.
+ *
  * Created on 19/05/16.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
@@ -68,6 +71,9 @@ public class HBaseLockManager {
     private static final String LOCK_PREFIX_SEPARATOR = "-";
     private static final String CURRENT = "CURRENT" + LOCK_PREFIX_SEPARATOR;
     private static final String REFRESH = "REFRESH" + LOCK_PREFIX_SEPARATOR;
+    private static final long MIN_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 500;
+    private static final Map<String, LocalLockQueue> LOCAL_LOCK_QUEUES = new ConcurrentHashMap<>();
     protected static final ExecutorService THREAD_POOL = Executors.newCachedThreadPool(
             new ThreadFactoryBuilder()
                     .setNameFormat("hbase-lock-%d")
@@ -130,37 +136,57 @@ public class HBaseLockManager {
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
 
-        lockValue = readLockValue(row, column);
-        do {
-            // If the lock is taken, wait
-            while (isLockTaken(lockValue)) {
-                Thread.sleep(100);
+        String queueKey = getLocalLockQueueKey(row, column);
+        LocalLockQueue queue = acquireLocalLockQueue(queueKey);
+        boolean contender = false;
+        try {
+            contender = queue.contenders.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+            if (!contender) {
+                throw new TimeoutException("Unable to get the lock");
+            }
+            long backoff = MIN_BACKOFF_MILLIS;
+            while (true) {
+                long releases = queue.getReleases();
                 lockValue = readLockValue(row, column);
                 //Check if the lock is still valid
                 if (stopWatch.getTime() > timeout) {
                     throw new TimeoutException("Unable to get the lock");
                 }
-            }
-            //Check if the lock is still valid
-            if (stopWatch.getTime() > timeout) {
-                throw new TimeoutException("Unable to get the lock");
-            }
 
-            // Append token to the lock cell
-            appendToken(token, lockDuration, row, column);
+                if (isLockTaken(lockValue)) {
+                    // If the lock is taken, wait until it is released, it expires, or the backoff delay.
+                    long delay = Math.min(jitter(backoff), getCurrentLockExpireDate(lockValue) - System.currentTimeMillis() + 1);
+                    queue.awaitRelease(releases, Math.min(delay, timeout - stopWatch.getTime() + 1));
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+                    continue;
+                }
 
-            lockValue = readLockValue(row, column);
+                // Append token to the lock cell
+                appendToken(token, lockDuration, row, column);
 
-            // Get the first non expired lock
-            for (String lock : lockValue) {
-                if (!isLockExpired(lock)) {
-                    readToken = readLockToken(lock);
+                lockValue = readLockValue(row, column);
+
+                // Get the first non expired lock
+                for (String lock : lockValue) {
+                    if (!isLockExpired(lock)) {
+                        readToken = readLockToken(lock);
+                        break;
+                    }
+                }
+
+                // You win the lock if the first available lock is yours.
+                if (readToken.equals(token)) {
                     break;
                 }
+                queue.awaitRelease(releases, jitter(backoff));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
             }
-
-            // You win the lock if the first available lock is yours.
-        } while (!readToken.equals(token));
+        } finally {
+            if (contender) {
+                queue.contenders.release();
+            }
+            releaseLocalLockQueue(queueKey);
+        }
 
         logger.debug("Won the lock with token " + token + " (" + token.hashCode() + ") from lock: " + Arrays.toString(lockValue));
         // Overwrite the lock with the winner current lock. Remove previous expired locks
@@ -269,6 +295,11 @@ public class HBaseLockManager {
 
         logger.debug("Unlock lock with token " + lockToken);
         clearLock(row, column);
+        // Wake up the threads from this JVM waiting for this lock, if any
+        LocalLockQueue queue = LOCAL_LOCK_QUEUES.get(getLocalLockQueueKey(row, column));
+        if (queue != null) {
+            queue.signalRelease();
+        }
     }
 
     private void appendToken(String token, long lockDuration, byte[] row, byte[] qualifier) throws IOException {
@@ -355,6 +386,24 @@ public class HBaseLockManager {
         return getCurrentLockToken(lockValue) != null;
     }
 
+    /**
+     * Get the expiration date of the current lock, considering the refresh entries.
+     * @param lockValue lock values
+     * @return Expiration date of the current lock, or 0 if there is no current lock
+     */
+    protected static long getCurrentLockExpireDate(String[] lockValue) {
+        String currentToken = getCurrentLockToken(lockValue);
+        long expireDate = 0;
+        if (currentToken != null) {
+            for (String lock : lockValue) {
+                if ((lock.startsWith(CURRENT) || lock.startsWith(REFRESH)) && readLockToken(lock).equals(currentToken)) {
+                    expireDate = Math.max(expireDate, readExpireDate(lock));
+                }
+            }
+        }
+        return expireDate;
+    }
+
     protected static boolean isLockExpired(String lock) {
         long expireDate = readExpireDate(lock);
         return expireDate < System.currentTimeMillis();
@@ -391,6 +440,60 @@ public class HBaseLockManager {
         }
     }
 
+    private static long jitter(long backoff) {
+        return ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1);
+    }
+
+    private String getLocalLockQueueKey(byte[] row, byte[] column) {
+        return tableName + LOCK_SEPARATOR + Bytes.toStringBinary(row) + LOCK_SEPARATOR + Bytes.toStringBinary(column);
+    }
+
+    // Get or create the queue, registering the current thread as user
+    private static LocalLockQueue acquireLocalLockQueue(String key) {
+        return LOCAL_LOCK_QUEUES.compute(key, (k, queue) -> {
+            if (queue == null) {
+                queue = new LocalLockQueue();
+            }
+            queue.users++;
+            return queue;
+        });
+    }
+
+    // Unregister the current thread from the queue. The queue is removed when it has no more users
+    private static void releaseLocalLockQueue(String key) {
+        LOCAL_LOCK_QUEUES.computeIfPresent(key, (k, queue) -> --queue.users == 0 ? null : queue);
+    }
+
+    static int getNumLocalLockQueues() {
+        return LOCAL_LOCK_QUEUES.size();
+    }
+
+    /**
+     * Threads from this JVM competing for the same lock cell.
+     */
+    private static final class LocalLockQueue {
+        // Fair semaphore, so the threads compete for the lock in arrival order
+        private final Semaphore contenders = new Semaphore(1, true);
+        private long releases = 0;
+        // Threads waiting or competing for the lock. Only modified within the map operations
+        private int users = 0;
+
+        synchronized long getReleases() {
+            return releases;
+        }
+
+        synchronized void signalRelease() {
+            releases++;
+            notifyAll();
+        }
+
+        synchronized void awaitRelease(long lastReleases, long millis) throws InterruptedException {
+            if (releases == lastReleases && millis > 0) {
+                wait(millis);
+            }
+        }
+    }
+
     private byte[] getColumnFamily() {
         return columnFamily;
     }
@@ -281,9 +281,12 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         int fileId = Integer.valueOf(helper.getFileMetadata().getId());
 
         // Config
+        int numTasks = options.getInt(VariantStorageOptions.LOAD_THREADS.key(), VariantStorageOptions.LOAD_THREADS.defaultValue());
         ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                .setNumTasks(1) // Increasing the numTasks may produce wrong results writing the sampleIndex
+                .setNumTasks(numTasks)
                 .setBatchSize(1)
+                // The SampleIndexDBLoader expects the variants in the same order they were read
+                .setSorted(true)
                 .setReadQueuePutTimeout(1000).build();
 
         // Reader
@@ -291,10 +294,6 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         VariantSliceReader sliceReader = new VariantSliceReader(
                 helper.getChunkSize(), variantReader.then(dedupTask), studyId, fileId, progressLogger);
 
-        // Archive Writer
-        VariantHBaseArchiveDataWriter archiveWriter = new VariantHBaseArchiveDataWriter(helper, table, dbAdaptor.getHBaseManager());
-        // Variants Writer
-        VariantHadoopDBWriter hadoopDBWriter = newVariantHadoopDBWriter();
         // Sample Index Writer
         List<Integer> sampleIds = new ArrayList<>(getMetadataManager().getFileMetadata(studyId, fileId).getSamples());
         SampleIndexDBLoader sampleIndexDBLoader;
@@ -307,23 +306,45 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
                     getOptions());
         }
 
-        // TaskMetadata
         String archiveFields = options.getString(ARCHIVE_FIELDS.key());
         String nonRefFilter = options.getString(ARCHIVE_NON_REF_FILTER.key());
-        GroupedVariantsTask task = new GroupedVariantsTask(archiveWriter, hadoopDBWriter, sampleIndexDBLoader,
-                null, archiveFields, nonRefFilter);
-
-
-        ParallelTaskRunner<ImmutablePair<Long, List<Variant>>, VcfSlice> ptr =
-                new ParallelTaskRunner<>(sliceReader, task, null, config);
+        List<VariantHadoopDBWriter> hadoopDBWriters = new ArrayList<>(numTasks);
+        ParallelTaskRunner<ImmutablePair<Long, List<Variant>>, ?> ptr;
+        if (numTasks == 1) {
+            // One single task writing the archive slices, the variants and the sample index
+            VariantHadoopDBWriter hadoopDBWriter = newVariantHadoopDBWriter();
+            hadoopDBWriters.add(hadoopDBWriter);
+            GroupedVariantsTask task = new GroupedVariantsTask(
+                    new VariantHBaseArchiveDataWriter(helper, table, dbAdaptor.getHBaseManager()), hadoopDBWriter,
+                    sampleIndexDBLoader, null, archiveFields, nonRefFilter);
+            ptr = new ParallelTaskRunner<>(sliceReader, task, null, config);
+        } else {
+            // Each task writes the archive slices and the variants with its own writers.
+            List<Task<ImmutablePair<Long, List<Variant>>, Variant>> tasks = new ArrayList<>(numTasks);
+            for (int i = 0; i < numTasks; i++) {
+                VariantHadoopDBWriter hadoopDBWriter = newVariantHadoopDBWriter();
+                hadoopDBWriters.add(hadoopDBWriter);
+                tasks.add(new ParallelGroupedVariantsTask(new VariantHBaseArchiveDataWriter(helper, table, dbAdaptor.getHBaseManager()),
+                        hadoopDBWriter, archiveFields, nonRefFilter));
+            }
+            ptr = new ParallelTaskRunner<>(sliceReader, tasks, sampleIndexDBLoader, config);
+        }
         try {
             ptr.run();
         } catch (ExecutionException e) {
             throw new StorageEngineException("Error loading file " + input, e);
         }
 
-        logLoadResults(variantReader.getVariantFileMetadata(), dedupTask.getDiscardedVariants(), hadoopDBWriter.getSkippedRefBlock(),
-                hadoopDBWriter.getLoadedVariants(), hadoopDBWriter.getSkippedRefVariants());
+        int skippedRefBlock = 0;
+        int loadedVariants = 0;
+        int skippedRefVariants = 0;
+        for (VariantHadoopDBWriter hadoopDBWriter : hadoopDBWriters) {
+            skippedRefBlock += hadoopDBWriter.getSkippedRefBlock();
+            loadedVariants += hadoopDBWriter.getLoadedVariants();
+            skippedRefVariants += hadoopDBWriter.getSkippedRefVariants();
+        }
+        logLoadResults(variantReader.getVariantFileMetadata(), dedupTask.getDiscardedVariants(), skippedRefBlock,
+                loadedVariants, skippedRefVariants);
 
         if (sampleIndexDBLoader != null) {
             // Update list of loaded genotypes
@@ -463,4 +484,57 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
         }
     }
 
+    /**
+     * Writes the archive slices and the variants of each slice, as {@link GroupedVariantsTask}. Several instances can be
+     * executed in parallel.
+     *
+     * Variants covering more than one slice are written from every slice, as in the single task load. Returns the written
+     * variants, in the same order, to be used by the SampleIndexDBLoader.
+     */
+    protected static class ParallelGroupedVariantsTask implements Task<ImmutablePair<Long, List<Variant>>, Variant> {
+        private final VariantToVcfSliceConverterTask converterTask;
+        private final VariantHBaseArchiveDataWriter archiveWriter;
+        private final VariantHadoopDBWriter hadoopDBWriter;
+
+        ParallelGroupedVariantsTask(VariantHBaseArchiveDataWriter archiveWriter, VariantHadoopDBWriter hadoopDBWriter,
+                                    String fields, String nonRefFilter) {
+            this.converterTask = new VariantToVcfSliceConverterTask(null, fields, nonRefFilter);
+            this.archiveWriter = Objects.requireNonNull(archiveWriter);
+            this.hadoopDBWriter = Objects.requireNonNull(hadoopDBWriter);
+        }
+
+        @Override
+        public void pre() throws Exception {
+            archiveWriter.open();
+            archiveWriter.pre();
+
+            hadoopDBWriter.open();
+            hadoopDBWriter.pre();
+
+            converterTask.pre();
+        }
+
+        @Override
+        public List<Variant> apply(List<ImmutablePair<Long, List<Variant>>> batch) {
+            List<Variant> variants = new ArrayList<>();
+            for (ImmutablePair<Long, List<Variant>> pair : batch) {
+                variants.addAll(pair.getRight());
+            }
+            hadoopDBWriter.write(variants);
+            archiveWriter.write(converterTask.apply(batch));
+            return variants;
+        }
+
+        @Override
+        public void post() throws Exception {
+            archiveWriter.post();
+            archiveWriter.close();
+
+            hadoopDBWriter.post();
+            hadoopDBWriter.close();
+
+            converterTask.post();
+        }
+    }
+
 }
@@ -26,6 +26,7 @@ import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantType;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.ObjectMap;
@@ -526,9 +527,11 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
             }
 
             // Execute main operation
+            // Fill gaps reads only the archive rows from the given files. Fill missing reads the whole archive table.
+            long estimatedInputSize = fillGaps ? countFileVariants(studyId, fileIds) : -1;
             String taskDescription = jobOperationName + " of samples " + (fillGaps ? sampleIds.toString() : "\"ALL\"")
                     + " into variants table '" + getVariantTableName() + '\'';
-            getMRExecutor().run(FillGapsDriver.class, args, options, taskDescription);
+            getMRExecutor().run(FillGapsDriver.class, args, options, taskDescription, estimatedInputSize);
 
             // Write results
             if (!fillGaps) {
@@ -538,7 +541,7 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
 
             // Consolidate sample index table
             taskDescription = "Consolidate sample index table";
-            getMRExecutor().run(SampleIndexConsolidationDrive.class, args, options, taskDescription);
+            getMRExecutor().run(SampleIndexConsolidationDrive.class, args, options, taskDescription, estimatedInputSize);
 
         } catch (RuntimeException e) {
             exception = e;
@@ -560,6 +563,26 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
 
     }
 
+    /**
+     * Count the number of variants from a set of files, from the file stats.
+     *
+     * @param studyId Study id
+     * @param fileIds File ids
+     * @return Number of variants, or -1 if unknown for any file.
+     * @throws StorageEngineException on error reading the metadata
+     */
+    private long countFileVariants(int studyId, Collection<Integer> fileIds) throws StorageEngineException {
+        long numVariants = 0;
+        for (Integer fileId : fileIds) {
+            VariantFileMetadata fileMetadata = getMetadataManager().getVariantFileMetadata(studyId, fileId, null).first();
+            if (fileMetadata == null || fileMetadata.getStats() == null) {
+                return -1;
+            }
+            numVariants += fileMetadata.getStats().getNumVariants();
+        }
+        return numVariants;
+    }
+
     public HadoopVariantStoragePipeline newStoragePipeline(boolean connected, Map<? extends String, ?> extraOptions)
             throws StorageEngineException {
         ObjectMap options = getMergedOptions(extraOptions);
@@ -822,8 +845,8 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
     }
 
     @Override
-    public Query preProcessQuery(Query originalQuery, QueryOptions options) {
-        Query query = super.preProcessQuery(originalQuery, options);
+    protected Query parseQuery(Query originalQuery, QueryOptions options) {
+        Query query = super.parseQuery(originalQuery, options);
 
         VariantStorageMetadataManager metadataManager;
         CellBaseUtils cellBaseUtils;
@@ -989,7 +1012,7 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
 
     public MRExecutor getMRExecutor() throws StorageEngineException {
         if (mrExecutor == null) {
-            mrExecutor = MRExecutorFactory.getMRExecutor(getOptions());
+            mrExecutor = MRExecutorFactory.getMRExecutor(getOptions(), getHadoopConfiguration());
         }
         return mrExecutor;
     }
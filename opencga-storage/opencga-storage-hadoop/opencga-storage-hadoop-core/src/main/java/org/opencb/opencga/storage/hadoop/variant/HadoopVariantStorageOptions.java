@@ -40,9 +40,14 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     MR_HBASE_SCAN_CACHING("storage.hadoop.mr.scan.caching", 50),
 
     /**
-     * MapReduce executor. Could be either 'system' or 'ssh'.
+     * MapReduce executor. Could be either 'system', 'ssh' or 'local'.
      */
     MR_EXECUTOR("storage.hadoop.mr.executor", "system"),
+    /**
+     * Max estimated number of input variants to run a MapReduce job in-process, using the local job runner.
+     * Only used when the caller provides an estimation. Disabled if 0.
+     */
+    MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE("storage.hadoop.mr.executor.local.maxInputSize", 0),
 
     MR_EXECUTOR_SSH_HOST("storage.hadoop.mr.executor.ssh.host"),
     MR_EXECUTOR_SSH_USER("storage.hadoop.mr.executor.ssh.user"),
@@ -76,6 +76,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.METADATA_CACHE_SIZE;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.METADATA_SNAPSHOT_TTL;
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.SEARCH_INDEX_LAST_TIMESTAMP;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
@@ -120,7 +122,9 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
         ObjectMap options = configuration.getVariantEngine(HadoopVariantStorageEngine.STORAGE_ENGINE_ID).getOptions();
         HBaseVariantStorageMetadataDBAdaptorFactory factory = new HBaseVariantStorageMetadataDBAdaptorFactory(
                 hBaseManager, tableNameGenerator.getMetaTableName(), conf);
-        this.studyConfigurationManager.set(new VariantStorageMetadataManager(factory));
+        this.studyConfigurationManager.set(new VariantStorageMetadataManager(factory,
+                options.getInt(METADATA_CACHE_SIZE.key(), METADATA_CACHE_SIZE.defaultValue()),
+                options.getLong(METADATA_SNAPSHOT_TTL.key(), METADATA_SNAPSHOT_TTL.defaultValue())));
         this.variantFileMetadataDBAdaptor = factory.buildFileMetadataDBAdaptor();
 
         clientSideSkip = !options.getBoolean(PhoenixHelper.PHOENIX_SERVER_OFFSET_AVAILABLE, true);
@@ -55,6 +55,7 @@ import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexAnnotat
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * Created on 23/11/16.
@@ -172,8 +173,9 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
     }
 
     @Override
-    protected ParallelTaskRunner<VariantAnnotation, ?> buildLoadAnnotationParallelTaskRunner(
-            DataReader<VariantAnnotation> reader, ParallelTaskRunner.Config config, ProgressLogger progressLogger, ObjectMap params) {
+    protected <T> ParallelTaskRunner<T, ?> buildLoadAnnotationParallelTaskRunner(
+            DataReader<T> reader, Supplier<Task<T, VariantAnnotation>> annotationTask, ParallelTaskRunner.Config config,
+            ProgressLogger progressLogger, ObjectMap params) {
 
         if (VariantPhoenixHelper.DEFAULT_TABLE_TYPE == PTableType.VIEW
                 || params.getBoolean(HadoopVariantStorageOptions.VARIANT_TABLE_INDEXES_SKIP.key(), false)) {
@@ -190,11 +192,11 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
                     dbAdaptor.getHBaseManager(),
                     dbAdaptor.getTableNameGenerator(),
                     GenomeHelper.COLUMN_FAMILY_BYTES);
-            return new ParallelTaskRunner<>(reader, task, writer, config);
+            return new ParallelTaskRunner<>(reader, () -> annotationTask.get().then(task), writer, config);
         } else {
             return new ParallelTaskRunner<>(reader,
-                    () -> dbAdaptor.newAnnotationLoader(new QueryOptions(params))
-                            .setProgressLogger(progressLogger), null, config);
+                    () -> annotationTask.get().then(dbAdaptor.newAnnotationLoader(new QueryOptions(params))
+                            .setProgressLogger(progressLogger)), null, config);
         }
     }
 
@@ -205,6 +207,13 @@ public class HadoopDefaultVariantAnnotationManager extends DefaultVariantAnnotat
         updateSampleIndexAnnotation(params);
     }
 
+    @Override
+    protected void annotateAndLoad(Query query, ObjectMap params) throws IOException, StorageEngineException {
+        super.annotateAndLoad(query, params);
+
+        updateSampleIndexAnnotation(params);
+    }
+
     protected void updateSampleIndexAnnotation(ObjectMap params) throws IOException, StorageEngineException {
         VariantStorageMetadataManager metadataManager = dbAdaptor.getMetadataManager();
         SampleIndexAnnotationLoader indexAnnotationLoader = new SampleIndexAnnotationLoader(
@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.function.BiConsumer;
@@ -33,6 +34,10 @@ import static org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.Variant
 
 public class VariantRow {
 
+    // The converter is not thread safe, but is expensive to create. Keep one instance per thread.
+    private static final ThreadLocal<HBaseToVariantAnnotationConverter> ANNOTATION_CONVERTER = ThreadLocal.withInitial(
+            () -> new HBaseToVariantAnnotationConverter(GenomeHelper.COLUMN_FAMILY_BYTES, -1));
+
     private final Result result;
     private final ResultSet resultSet;
     private Variant variant;
@@ -71,7 +76,7 @@ public class VariantRow {
 
     public VariantAnnotation getVariantAnnotation() {
         if (variantAnnotation == null) {
-            HBaseToVariantAnnotationConverter c = new HBaseToVariantAnnotationConverter(GenomeHelper.COLUMN_FAMILY_BYTES, -1);
+            HBaseToVariantAnnotationConverter c = ANNOTATION_CONVERTER.get();
             if (result != null) {
                 variantAnnotation = c.convert(result);
             } else {
@@ -272,6 +277,15 @@ public class VariantRow {
 
         String getSampleData(int idx);
 
+        /**
+         * Decode only the given positions of the sample data, without materializing the whole array.
+         *
+         * @param positions    Positions to read. Negative or out of range positions are filled with the missing value.
+         * @param missingValue Value for missing positions
+         * @return Mutable list with one element per position
+         */
+        List<String> getMutableSampleData(int[] positions, String missingValue);
+
     }
 
     public interface StatsColumn extends Column {
@@ -303,6 +317,7 @@ public class VariantRow {
         protected final byte[] valueArray;
         protected final int valueOffset;
         protected final int valueLength;
+        private ImmutableBytesWritable ptr;
 
         BytesColumn(Cell cell) {
             valueArray = cell.getValueArray();
@@ -328,14 +343,24 @@ public class VariantRow {
             return get(arrayIndex, PFloat.INSTANCE);
         }
 
+        public int getArrayLength() {
+            return PArrayDataType.getArrayLength(resetPtr(), PVarchar.INSTANCE, null);
+        }
+
         private <T> T get(int arrayIndex, PDataType<T> pDataType) {
-            ImmutableBytesWritable ptr = new ImmutableBytesWritable(
-                    valueArray,
-                    valueOffset,
-                    valueLength);
+            ImmutableBytesWritable ptr = resetPtr();
             PhoenixHelper.positionAtArrayElement(ptr, arrayIndex, pDataType, null);
             return (T) pDataType.toObject(ptr);
         }
+
+        private ImmutableBytesWritable resetPtr() {
+            if (ptr == null) {
+                ptr = new ImmutableBytesWritable(valueArray, valueOffset, valueLength);
+            } else {
+                ptr.set(valueArray, valueOffset, valueLength);
+            }
+            return ptr;
+        }
     }
 
     private static class BytesSampleColumn extends BytesColumn implements SampleColumn {
@@ -396,6 +421,23 @@ public class VariantRow {
         public String getSampleData(int idx) {
             return super.getString(idx);
         }
+
+        @Override
+        public List<String> getMutableSampleData(int[] positions, String missingValue) {
+            List<String> sampleData = new ArrayList<>(positions.length);
+            if (positions.length == 0) {
+                return sampleData;
+            }
+            int length = getArrayLength();
+            for (int position : positions) {
+                if (position < 0 || position >= length) {
+                    sampleData.add(missingValue);
+                } else {
+                    sampleData.add(getString(position));
+                }
+            }
+            return sampleData;
+        }
     }
 
     private static class BytesFileColumn extends BytesColumn implements FileColumn {
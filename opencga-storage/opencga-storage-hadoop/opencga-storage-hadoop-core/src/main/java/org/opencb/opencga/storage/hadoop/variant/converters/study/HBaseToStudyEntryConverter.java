@@ -198,14 +198,28 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
         Map<Integer, List<Pair<String, PhoenixArray>>> filesMap = new HashMap<>();
         Map<Integer, Map<Integer, VariantStats>> stats = new HashMap<>();
         Map<Integer, List<VariantScore>> scores = new HashMap<>();
+        // Formats map per study. Null values if there is no need to remap the sample data.
+        Map<Integer, int[]> formatsMaps = new HashMap<>();
 
         Variant variant = row.walker()
                 .onStudy(studies::add)
                 .onFillMissing(fillMissing::put)
                 .onSample(sampleColumn -> {
-                    studies.add(sampleColumn.getStudyId());
-                    sampleDataMap.computeIfAbsent(sampleColumn.getStudyId(), s -> new ArrayList<>())
-                            .add(Pair.of(sampleColumn.getSampleId(), sampleColumn.getMutableSampleData()));
+                    int studyId = sampleColumn.getStudyId();
+                    studies.add(studyId);
+                    int[] formatsMap;
+                    if (formatsMaps.containsKey(studyId)) {
+                        formatsMap = formatsMaps.get(studyId);
+                    } else {
+                        formatsMap = getFormatsMap(studyId, getFixedFormat(getStudyMetadata(studyId)));
+                        formatsMaps.put(studyId, formatsMap);
+                    }
+                    // Decode only the projected fields
+                    List<String> sampleData = formatsMap == null
+                            ? sampleColumn.getMutableSampleData()
+                            : sampleColumn.getMutableSampleData(formatsMap, UNKNOWN_SAMPLE_DATA);
+                    sampleDataMap.computeIfAbsent(studyId, s -> new ArrayList<>())
+                            .add(Pair.of(sampleColumn.getSampleId(), sampleData));
                 })
                 .onFile(fileColumn -> {
                     studies.add(fileColumn.getStudyId());
@@ -247,7 +261,7 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
             List<Pair<Integer, List<String>>> samplesData = sampleDataMap.getOrDefault(studyId, Collections.emptyList());
             List<Pair<String, PhoenixArray>> files = filesMap.getOrDefault(studyId, Collections.emptyList());
 
-            StudyEntry studyEntry = convert(samplesData, files, variant, studyMetadata, fillMissingColumnValue);
+            StudyEntry studyEntry = convert(samplesData, files, variant, studyMetadata, fillMissingColumnValue, true);
             studyEntry.setScores(scores.getOrDefault(studyId, Collections.emptyList()));
 
             for (Map.Entry<Integer, VariantStats> entry : stats.getOrDefault(studyId, Collections.emptyMap()).entrySet()) {
@@ -268,10 +282,18 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
     protected StudyEntry convert(List<Pair<Integer, List<String>>> sampleDataMap,
                                  List<Pair<String, PhoenixArray>> filesMap,
                                  Variant variant, StudyMetadata studyMetadata, int fillMissingColumnValue) {
+        return convert(sampleDataMap, filesMap, variant, studyMetadata, fillMissingColumnValue, false);
+    }
+
+    private StudyEntry convert(List<Pair<Integer, List<String>>> sampleDataMap,
+                               List<Pair<String, PhoenixArray>> filesMap,
+                               Variant variant, StudyMetadata studyMetadata, int fillMissingColumnValue,
+                               boolean remappedSampleData) {
         List<String> fixedFormat = getFixedFormat(studyMetadata);
         StudyEntry studyEntry = newStudyEntry(studyMetadata, fixedFormat);
 
-        int[] formatsMap = getFormatsMap(studyMetadata.getId(), fixedFormat);
+        // Sample data already remapped while decoding
+        int[] formatsMap = remappedSampleData ? null : getFormatsMap(studyMetadata.getId(), fixedFormat);
 
         for (Pair<Integer, List<String>> pair : sampleDataMap) {
             Integer sampleId = pair.getKey();
@@ -0,0 +1,31 @@
+package org.opencb.opencga.storage.hadoop.variant.executors;
+
+import org.apache.hadoop.util.Tool;
+import org.apache.tools.ant.types.Commandline;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+
+/**
+ * Execute all the MapReduce jobs in-process, using the local job runner.
+ *
+ * Created on 19/10/20.
+ */
+public class LocalMRExecutor extends MRExecutor {
+
+    @Override
+    public <T extends Tool> int run(Class<T> execClass, String[] args, ObjectMap options) throws StorageEngineException {
+        return runInProcess(execClass, args, options);
+    }
+
+    @Override
+    public int run(String executable, String args) throws StorageEngineException {
+        String className = executable.substring(executable.lastIndexOf(' ') + 1);
+        Class<? extends Tool> execClass;
+        try {
+            execClass = Class.forName(className).asSubclass(Tool.class);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new StorageEngineException("Unable to execute '" + executable + "' in-process", e);
+        }
+        return runInProcess(execClass, Commandline.translateCommandline(args), getOptions());
+    }
+}
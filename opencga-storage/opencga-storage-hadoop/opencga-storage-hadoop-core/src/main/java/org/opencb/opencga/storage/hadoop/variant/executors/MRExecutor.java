@@ -16,8 +16,12 @@
 
 package org.opencb.opencga.storage.hadoop.variant.executors;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.hadoop.util.StopWatch;
 import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
 import org.apache.tools.ant.types.Commandline;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
@@ -40,9 +44,23 @@ public abstract class MRExecutor {
 
     private ObjectMap options;
     private List<String> env;
+    private Configuration conf;
 
     public MRExecutor init(ObjectMap options) {
+        return init(options, null);
+    }
+
+    /**
+     * Initialize the executor.
+     *
+     * @param options Options
+     * @param conf    Hadoop configuration of the storage engine, used by the jobs executed in-process.
+     *                If null, a default HBase configuration is used.
+     * @return this
+     */
+    public MRExecutor init(ObjectMap options, Configuration conf) {
         this.options = options;
+        this.conf = conf;
         env = options.getAsStringList(MR_HADOOP_ENV.key());
         return this;
     }
@@ -65,14 +83,41 @@ public abstract class MRExecutor {
 
     public <T extends Tool> void run(Class<T> execClass, String[] args, ObjectMap options, String taskDescription)
             throws StorageEngineException {
+        run(execClass, args, options, taskDescription, -1);
+    }
+
+    /**
+     * Execute a MapReduce job.
+     *
+     * Jobs with an estimated input size smaller than MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE are executed in-process with
+     * the local job runner, avoiding the overhead of starting a new JVM and submitting the job to YARN.
+     *
+     * @param execClass          Tool to execute
+     * @param args               Tool arguments
+     * @param options            Options
+     * @param taskDescription    Task description
+     * @param estimatedInputSize Estimated number of input variants. Negative if unknown.
+     * @param <T>                Tool type
+     * @throws StorageEngineException if the execution fails
+     */
+    public <T extends Tool> void run(Class<T> execClass, String[] args, ObjectMap options, String taskDescription,
+                                     long estimatedInputSize)
+            throws StorageEngineException {
         Logger logger = LoggerFactory.getLogger(MRExecutor.class);
+        long localMaxInputSize = options.getLong(MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.key(), MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.defaultValue());
 
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
         logger.info("------------------------------------------------------");
         logger.info(taskDescription);
         logger.info("------------------------------------------------------");
-        int exitValue = run(execClass, args, options);
+        int exitValue;
+        if (estimatedInputSize >= 0 && estimatedInputSize < localMaxInputSize) {
+            logger.info("Estimated input size of {} variants. Execute in-process", estimatedInputSize);
+            exitValue = runInProcess(execClass, args, options);
+        } else {
+            exitValue = run(execClass, args, options);
+        }
         logger.info("------------------------------------------------------");
         logger.info("Exit value: {}", exitValue);
         logger.info("Total time: {}s", (stopWatch.now(TimeUnit.MILLISECONDS)) / 1000.0);
@@ -96,6 +141,23 @@ public abstract class MRExecutor {
 
     public abstract int run(String executable, String args) throws StorageEngineException;
 
+    protected <T extends Tool> int runInProcess(Class<T> execClass, String[] args, ObjectMap options) throws StorageEngineException {
+        // Copy the configuration, so the local framework is not set for the jobs submitted to the cluster
+        Configuration conf;
+        if (this.conf == null) {
+            conf = HBaseConfiguration.create();
+        } else {
+            conf = new Configuration(false);
+            HBaseConfiguration.merge(conf, this.conf);
+        }
+        conf.set(MRConfig.FRAMEWORK_NAME, MRConfig.LOCAL_FRAMEWORK_NAME);
+        try {
+            return ToolRunner.run(conf, execClass.newInstance(), args);
+        } catch (Exception e) {
+            throw new StorageEngineException("Error executing " + execClass.getSimpleName() + " in-process", e);
+        }
+    }
+
     protected ObjectMap getOptions() {
         return options;
     }
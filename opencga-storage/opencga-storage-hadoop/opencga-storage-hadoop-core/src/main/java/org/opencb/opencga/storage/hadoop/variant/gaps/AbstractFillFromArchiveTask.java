@@ -191,24 +191,21 @@ public abstract class AbstractFillFromArchiveTask implements Task<Result, Abstra
                 continue;
             }
             VcfSlice nonRefVcfSlice = vcfSlicePair.getNonRefVcfSlice();
-            ListIterator<VcfSliceProtos.VcfRecord> nonRefIterator = nonRefVcfSlice == null
-                    ? Collections.<VcfSliceProtos.VcfRecord>emptyList().listIterator()
-                    : nonRefVcfSlice.getRecordsList().listIterator();
             VcfSlice refVcfSlice = vcfSlicePair.getRefVcfSlice();
-            ListIterator<VcfSliceProtos.VcfRecord> refIterator = refVcfSlice == null
-                    ? Collections.<VcfSliceProtos.VcfRecord>emptyList().listIterator()
-                    : refVcfSlice.getRecordsList().listIterator();
-
 
             Set<Integer> sampleIds = fileToSampleIds.get(fileId);
+            List<Put> puts = new ArrayList<>(variants.size());
             for (Variant variant : variants) {
-                Put put = putsMap.computeIfAbsent(variant, this::createPut);
+                puts.add(putsMap.computeIfAbsent(variant, this::createPut));
+            }
 
-                StopWatch stopWatch = new StopWatch().start();
-                VariantOverlappingStatus overlappingStatus = fillGapsTask.fillGaps(variant, sampleIds, put, sampleIndexPuts, fileId,
-                        nonRefVcfSlice, nonRefIterator, refVcfSlice, refIterator);
-                increment("OVERLAPPING_STATUS_" + String.valueOf(overlappingStatus), context.fileBatch, 1);
-                increment("OVERLAPPING_STATUS_" + String.valueOf(overlappingStatus), context.fileBatch, stopWatch);
+            // Process the whole VcfSlice against all the variants from this file at once
+            StopWatch stopWatch = new StopWatch().start();
+            VariantOverlappingStatus[] overlappingStatus = fillGapsTask.fillGaps(variants, puts, sampleIds, sampleIndexPuts, fileId,
+                    nonRefVcfSlice, refVcfSlice);
+            increment("FILL_GAPS", context.fileBatch, stopWatch);
+            for (VariantOverlappingStatus status : overlappingStatus) {
+                increment("OVERLAPPING_STATUS_" + String.valueOf(status), context.fileBatch, 1);
             }
             context.clearVcfSlice(fileId);
         }
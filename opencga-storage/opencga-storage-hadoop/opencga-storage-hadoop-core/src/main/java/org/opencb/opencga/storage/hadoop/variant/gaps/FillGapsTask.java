@@ -27,7 +27,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static org.opencb.opencga.storage.hadoop.variant.gaps.VariantOverlappingStatus.*;
 
@@ -41,7 +40,13 @@ public class FillGapsTask {
     private final StudyEntryToHBaseConverter studyConverter;
     private final StudyMetadata studyMetadata;
     private final Map<Integer, LinkedHashMap<String, Integer>> fileToSamplePositions = new HashMap<>();
+    private final Map<Integer, FileSamples> fileSamplesMap = new HashMap<>();
     private Map<String, Integer> sampleIdMap = new HashMap<>();
+    // Remapped genotypes for simplified new multi-allelic variants. e.g. 1/2 -> 2/2
+    private final Map<String, String> simplifiedGenotypes = new HashMap<>();
+    // Reusable buffers with the overlapping records, and the slice each record comes from
+    private final List<VcfSliceProtos.VcfRecord> overlappingRecords = new ArrayList<>();
+    private final List<VcfSliceProtos.VcfSlice> overlappingSlices = new ArrayList<>();
     private final VariantMerger variantMerger;
     // fill-gaps-when-missing-gt
     private final boolean skipReferenceVariants;
@@ -84,22 +89,72 @@ public class FillGapsTask {
                                              Integer fileId,
                                              VcfSliceProtos.VcfSlice nonRefVcfSlice, ListIterator<VcfSliceProtos.VcfRecord> nonRefIterator,
                                              VcfSliceProtos.VcfSlice refVcfSlice, ListIterator<VcfSliceProtos.VcfRecord> refIterator) {
+        FileSamples fileSamples = getFileSamples(fileId);
+        return fillGaps(variant, fileSamples.getMissingMask(missingSamples), missingSamples, put, sampleIndexPuts, fileSamples,
+                nonRefVcfSlice, nonRefIterator, refVcfSlice, refIterator);
+    }
+
+    /**
+     * Fill the gaps of a batch of variants from one file, reading the VcfSlices only once.
+     *
+     * All the variants must be sorted, and share the same set of missing samples.
+     * The missing samples are resolved only once for the whole batch.
+     *
+     * @param variants          Sorted variants to fill
+     * @param puts              Puts for each variant, in the same order
+     * @param missingSamples    Missing samples from this file
+     * @param sampleIndexPuts   List to add the pending sample index puts
+     * @param fileId            File to read
+     * @param nonRefVcfSlice    NonRef VcfSlice from this file. May be null
+     * @param refVcfSlice       Ref VcfSlice from this file. May be null
+     * @return                  Overlapping status for each variant
+     */
+    public VariantOverlappingStatus[] fillGaps(List<Variant> variants, List<Put> puts, Set<Integer> missingSamples,
+                                               List<Put> sampleIndexPuts, Integer fileId,
+                                               VcfSliceProtos.VcfSlice nonRefVcfSlice, VcfSliceProtos.VcfSlice refVcfSlice) {
+        ListIterator<VcfSliceProtos.VcfRecord> nonRefIterator = nonRefVcfSlice == null
+                ? Collections.<VcfSliceProtos.VcfRecord>emptyList().listIterator()
+                : nonRefVcfSlice.getRecordsList().listIterator();
+        ListIterator<VcfSliceProtos.VcfRecord> refIterator = refVcfSlice == null
+                ? Collections.<VcfSliceProtos.VcfRecord>emptyList().listIterator()
+                : refVcfSlice.getRecordsList().listIterator();
+
+        FileSamples fileSamples = getFileSamples(fileId);
+        boolean[] missingMask = fileSamples.getMissingMask(missingSamples);
+        VariantOverlappingStatus[] overlappingStatus = new VariantOverlappingStatus[variants.size()];
+        for (int i = 0; i < variants.size(); i++) {
+            overlappingStatus[i] = fillGaps(variants.get(i), missingMask, missingSamples, puts.get(i), sampleIndexPuts, fileSamples,
+                    nonRefVcfSlice, nonRefIterator, refVcfSlice, refIterator);
+        }
+        return overlappingStatus;
+    }
+
+    private VariantOverlappingStatus fillGaps(Variant variant, boolean[] missingMask, Set<Integer> missingSamples, Put put,
+                                              List<Put> sampleIndexPuts, FileSamples fileSamples,
+                                              VcfSliceProtos.VcfSlice nonRefVcfSlice,
+                                              ListIterator<VcfSliceProtos.VcfRecord> nonRefIterator,
+                                              VcfSliceProtos.VcfSlice refVcfSlice,
+                                              ListIterator<VcfSliceProtos.VcfRecord> refIterator) {
         final VariantOverlappingStatus overlappingStatus;
+        Integer fileId = fileSamples.fileId;
 
         // Three scenarios:
         //  Overlap with NO_VARIATION,
         //  Overlap with another variant
         //  No overlap
 
-        List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> overlappingRecords = new ArrayList<>(1);
+        overlappingRecords.clear();
+        overlappingSlices.clear();
         if (nonRefVcfSlice != null) {
-            boolean isVariantAlreadyLoaded = getOverlappingVariants(variant, fileId, nonRefVcfSlice, nonRefIterator, overlappingRecords);
+            boolean isVariantAlreadyLoaded = getOverlappingVariants(variant, fileId, nonRefVcfSlice, nonRefIterator,
+                    overlappingSlices, overlappingRecords);
             if (isVariantAlreadyLoaded) {
                 return VariantOverlappingStatus.NONE;
             }
         }
         if (refVcfSlice != null) {
-            boolean isVariantAlreadyLoaded = getOverlappingVariants(variant, fileId, refVcfSlice, refIterator, overlappingRecords);
+            boolean isVariantAlreadyLoaded = getOverlappingVariants(variant, fileId, refVcfSlice, refIterator,
+                    overlappingSlices, overlappingRecords);
             if (isVariantAlreadyLoaded) {
                 String msg = "Found that the variant " + variant + " was already loaded in refVcfSlice!";
 //                throw new IllegalStateException(msg);
@@ -107,8 +162,7 @@ public class FillGapsTask {
             }
         }
 
-        final VcfSliceProtos.VcfRecord vcfRecord;
-        final VcfSliceProtos.VcfSlice vcfSlice;
+        final int overlappingIdx;
         if (overlappingRecords.isEmpty()) {
             if (skipReferenceVariants) {
                 // We are not reading reference blocks, so there gaps are expected and read as HOM_REF
@@ -128,49 +182,58 @@ public class FillGapsTask {
             }
         } else if (overlappingRecords.size() > 1) {
             // Discard ref_blocks
-            List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> realVariants = overlappingRecords
-                    .stream()
-                    .filter(pair -> pair.getRight().getType() != VariantProto.VariantType.NO_VARIATION)
-                    .collect(Collectors.toList());
-            if (realVariants.size() > 1) {
-                // Check if all the variants are different versions of the same multi-allelic variant
-                Set<String> calls = new HashSet<>();
-                for (Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord> pair : realVariants) {
-                    String call = pair.getValue().getCall();
-                    if (call.isEmpty()) {
-                        calls.add(null);
-                    } else {
-                        calls.add(call.substring(0, call.lastIndexOf(':')));
+            int realVariants = 0;
+            int selectedIdx = -1;
+            // Check if all the variants are different versions of the same multi-allelic variant
+            boolean sameCall = true;
+            String firstCall = null;
+            int firstCallLength = 0;
+            for (int i = 0; i < overlappingRecords.size(); i++) {
+                VcfSliceProtos.VcfRecord vcfRecord = overlappingRecords.get(i);
+                if (vcfRecord.getType() == VariantProto.VariantType.NO_VARIATION) {
+                    continue;
+                }
+                realVariants++;
+                String call = vcfRecord.getCall();
+                if (call.isEmpty()) {
+                    sameCall = false;
+                } else if (sameCall) {
+                    int callLength = call.lastIndexOf(':');
+                    if (firstCall == null) {
+                        firstCall = call;
+                        firstCallLength = callLength;
+                    } else if (callLength != firstCallLength || !call.regionMatches(0, firstCall, 0, callLength)) {
+                        sameCall = false;
                     }
                 }
-                // All the variants are from the same call. Select any.
-                if (calls.size() == 1 && !calls.contains(null)) {
-                    realVariants = Collections.singletonList(realVariants.stream()
-                            .min(Comparator.comparing(pair -> pair.getValue().getCall())).get());
+                // Keep the first real variant, or the smallest call if all of them are from the same call
+                if (selectedIdx < 0 || sameCall && call.compareTo(overlappingRecords.get(selectedIdx).getCall()) < 0) {
+                    selectedIdx = i;
                 }
             }
-            // If there is only one real variant, use it
-            if (realVariants.size() == 1) {
-                vcfRecord = realVariants.get(0).getRight();
-                vcfSlice = realVariants.get(0).getLeft();
+            // If there is only one real variant, use it.
+            // If all the variants are from the same call, select any.
+            if (realVariants == 1 || realVariants > 1 && sameCall) {
+                overlappingIdx = selectedIdx;
             } else {
 //                String msg = "Found multiple overlaps for variant " + variant + " in file " + fileId;
 //                if (!quiet) {
 ////                    throw new IllegalStateException(msg);
 //                    logger.warn(msg);
 //                }
-                return processMultipleOverlappings(variant, missingSamples, put, sampleIndexPuts, fileId);
+                return processMultipleOverlappings(variant, missingMask, missingSamples, put, sampleIndexPuts, fileSamples);
             }
         } else {
-            vcfRecord = overlappingRecords.get(0).getRight();
-            vcfSlice = overlappingRecords.get(0).getLeft();
+            overlappingIdx = 0;
         }
-        Variant archiveVariant = convertToVariant(vcfSlice, vcfRecord, fileId);
+        Variant archiveVariant = convertToVariant(overlappingSlices.get(overlappingIdx), overlappingRecords.get(overlappingIdx),
+                fileSamples);
 
         if (archiveVariant.getType().equals(VariantType.NO_VARIATION)) {
             overlappingStatus = processReferenceOverlap(missingSamples, put, variant, archiveVariant);
         } else {
-            overlappingStatus = processVariantOverlap(variant, missingSamples, put, sampleIndexPuts, archiveVariant);
+            overlappingStatus = processVariantOverlap(variant, missingMask, missingSamples, put, sampleIndexPuts, archiveVariant,
+                    fileSamples);
         }
         return overlappingStatus;
     }
@@ -221,7 +284,15 @@ public class FillGapsTask {
     }
 
     protected VariantOverlappingStatus processVariantOverlap(Variant variant, Set<Integer> missingSamples, Put put,
-                                                             List<Put> sampleIndexPuts, Variant archiveVariant) {
+                                                             List<Put> sampleIndexPuts, Variant archiveVariant, Integer fileId) {
+        FileSamples fileSamples = getFileSamples(fileId);
+        return processVariantOverlap(variant, fileSamples.getMissingMask(missingSamples), missingSamples, put, sampleIndexPuts,
+                archiveVariant, fileSamples);
+    }
+
+    private VariantOverlappingStatus processVariantOverlap(Variant variant, boolean[] missingMask, Set<Integer> missingSamples,
+                                                           Put put, List<Put> sampleIndexPuts, Variant archiveVariant,
+                                                           FileSamples fileSamples) {
         VariantOverlappingStatus overlappingStatus = VARIANT;
 
         Variant mergedVariant = new Variant(
@@ -265,32 +336,7 @@ public class FillGapsTask {
 
                 for (int idx = 0; idx < archiveStudyEntry.getSamplesPosition().size(); idx++) {
                     String gt = archiveStudyEntry.getSampleData(idx).get(0);
-                    switch (gt) {
-                        case "0/0":
-                        case "0|0":
-                        case "0":
-                            break;
-                        case "1/1":
-                            gt = "2/2";
-                            break;
-                        case "0/1":
-                            gt = "0/2";
-                            break;
-                        case "1":
-                            gt = "2";
-                            break;
-                        default:
-                            Genotype genotype = new Genotype(gt);
-                            int[] allelesIdx = genotype.getAllelesIdx();
-                            for (int i = 0; i < allelesIdx.length; i++) {
-                                if (allelesIdx[i] > 0) {
-                                    allelesIdx[i] = 2;
-                                }
-                            }
-                            gt = genotype.toString();
-                            break;
-                    }
-                    samplesData.add(Collections.singletonList(gt));
+                    samplesData.add(fileSamples.getGenotypeData(getSimplifiedGenotype(gt)));
                 }
             } else {
                 studyEntry.setFormat(Collections.emptyList());
@@ -303,19 +349,23 @@ public class FillGapsTask {
         }
 
         if (studyEntry.getFormatPositions().containsKey("GT")) {
-            int samplePosition = 0;
             Integer gtIdx = studyEntry.getFormatPositions().get("GT");
-            for (String sampleName : studyEntry.getOrderedSamplesName()) {
-                Integer sampleId = getSampleId(sampleName);
-                if (missingSamples.contains(sampleId)) {
-                    String gt = studyEntry.getSamplesData().get(samplePosition).get(gtIdx);
+            // The simplified variant shares the samples position from the file, so there is no need to translate positions
+            boolean sameSamplesPosition = studyEntry.getSamplesPosition() == fileSamples.samplePosition;
+            List<List<String>> samplesData = studyEntry.getSamplesData();
+            List<String> samplesName = sameSamplesPosition ? null : studyEntry.getOrderedSamplesName();
+            for (int samplePosition = 0; samplePosition < samplesData.size(); samplePosition++) {
+                int fileSamplePosition = sameSamplesPosition
+                        ? samplePosition
+                        : fileSamples.samplePosition.get(samplesName.get(samplePosition));
+                if (missingMask[fileSamplePosition]) {
+                    String gt = samplesData.get(samplePosition).get(gtIdx);
                     // Only genotypes without the main alternate (0/2, 2/3, ...) should be written as pending.
                     if (SampleIndexSchema.validGenotype(gt) && !hasMainAlternate(gt)) {
-                        Put sampleIndexPut = buildSampleIndexPut(variant, put, sampleId, gt);
+                        Put sampleIndexPut = buildSampleIndexPut(variant, put, fileSamples.sampleIds[fileSamplePosition], gt);
                         sampleIndexPuts.add(sampleIndexPut);
                     }
                 }
-                samplePosition++;
             }
         }
 
@@ -331,11 +381,9 @@ public class FillGapsTask {
 
     private VariantOverlappingStatus processVariantFile(Variant variant, Set<Integer> missingSamples, Put put, Integer fileId,
                                                         VariantOverlappingStatus overlappingStatus, String gt) {
-        LinkedHashMap<String, Integer> samplePosition = getSamplePosition(fileId);
-        List<List<String>> samplesData = new ArrayList<>(samplePosition.size());
-        for (int i = 0; i < samplePosition.size(); i++) {
-            samplesData.add(Collections.singletonList(gt));
-        }
+        FileSamples fileSamples = getFileSamples(fileId);
+        LinkedHashMap<String, Integer> samplePosition = fileSamples.samplePosition;
+        List<List<String>> samplesData = fileSamples.getSamplesData(gt);
 
         VariantBuilder builder = Variant.newBuilder(
                 variant.getChromosome(),
@@ -355,18 +403,25 @@ public class FillGapsTask {
 
     protected VariantOverlappingStatus processMultipleOverlappings(Variant variant, Set<Integer> missingSamples, Put put,
                                                                    List<Put> sampleIndexPuts, Integer fileId) {
+        FileSamples fileSamples = getFileSamples(fileId);
+        return processMultipleOverlappings(variant, fileSamples.getMissingMask(missingSamples), missingSamples, put, sampleIndexPuts,
+                fileSamples);
+    }
+
+    private VariantOverlappingStatus processMultipleOverlappings(Variant variant, boolean[] missingMask, Set<Integer> missingSamples,
+                                                                 Put put, List<Put> sampleIndexPuts, FileSamples fileSamples) {
         VariantOverlappingStatus overlappingStatus = MULTI;
+        Integer fileId = fileSamples.fileId;
 
         String gt = "2/2";
-        LinkedHashMap<String, Integer> samplePosition = getSamplePosition(fileId);
-        List<List<String>> samplesData = new ArrayList<>(samplePosition.size());
-        for (int i = 0; i < samplePosition.size(); i++) {
-            samplesData.add(Collections.singletonList(gt));
-        }
+        LinkedHashMap<String, Integer> samplePosition = fileSamples.samplePosition;
+        List<List<String>> samplesData = fileSamples.getSamplesData(gt);
 
-        for (Integer sampleId : missingSamples) {
-            Put sampleIndexPut = buildSampleIndexPut(variant, put, sampleId, gt);
-            sampleIndexPuts.add(sampleIndexPut);
+        for (int i = 0; i < missingMask.length; i++) {
+            if (missingMask[i]) {
+                Put sampleIndexPut = buildSampleIndexPut(variant, put, fileSamples.sampleIds[i], gt);
+                sampleIndexPuts.add(sampleIndexPut);
+            }
         }
 
         VariantBuilder builder = Variant.newBuilder(
@@ -390,7 +445,7 @@ public class FillGapsTask {
         return overlappingStatus;
     }
 
-    private Put buildSampleIndexPut(Variant variant, Put put, Integer sampleId, String gt) {
+    private Put buildSampleIndexPut(Variant variant, Put put, int sampleId, String gt) {
         Put sampleIndexPut = new Put(
                 SampleIndexSchema.toRowKey(sampleId, variant.getChromosome(), variant.getStart()),
                 put.getTimeStamp());
@@ -405,6 +460,18 @@ public class FillGapsTask {
     public boolean getOverlappingVariants(Variant variant, int fileId,
                                           VcfSliceProtos.VcfSlice vcfSlice, ListIterator<VcfSliceProtos.VcfRecord> iterator,
                                           List<Pair<VcfSliceProtos.VcfSlice, VcfSliceProtos.VcfRecord>> overlappingRecords) {
+        List<VcfSliceProtos.VcfRecord> records = new ArrayList<>(1);
+        boolean isAlreadyPresent = getOverlappingVariants(variant, fileId, vcfSlice, iterator, new ArrayList<>(1), records);
+        for (VcfSliceProtos.VcfRecord vcfRecord : records) {
+            overlappingRecords.add(ImmutablePair.of(vcfSlice, vcfRecord));
+        }
+        return isAlreadyPresent;
+    }
+
+    private boolean getOverlappingVariants(Variant variant, int fileId,
+                                           VcfSliceProtos.VcfSlice vcfSlice, ListIterator<VcfSliceProtos.VcfRecord> iterator,
+                                           List<VcfSliceProtos.VcfSlice> overlappingSlices,
+                                           List<VcfSliceProtos.VcfRecord> overlappingRecords) {
         String chromosome = vcfSlice.getChromosome();
         int position = vcfSlice.getPosition();
         Integer resetPosition = null;
@@ -435,7 +502,8 @@ public class FillGapsTask {
                     break;
                 }
 
-                overlappingRecords.add(ImmutablePair.of(vcfSlice, vcfRecord));
+                overlappingSlices.add(vcfSlice);
+                overlappingRecords.add(vcfRecord);
             } else if (isRegionAfterVariantStart(start, end, variant)) {
                 if (resetPosition == null) {
                     resetPosition = Math.max(iterator.previousIndex() - 1, firstIndex);
@@ -518,15 +586,53 @@ public class FillGapsTask {
     }
 
     protected Variant convertToVariant(VcfSliceProtos.VcfSlice vcfSlice, VcfSliceProtos.VcfRecord vcfRecord, Integer fileId) {
-        VcfRecordProtoToVariantConverter converter = new VcfRecordProtoToVariantConverter(vcfSlice.getFields(),
-                getSamplePosition(fileId), fileId.toString(), studyMetadata.getName());
-        return converter.convert(vcfRecord, vcfSlice.getChromosome(), vcfSlice.getPosition());
+        return convertToVariant(vcfSlice, vcfRecord, getFileSamples(fileId));
+    }
+
+    private Variant convertToVariant(VcfSliceProtos.VcfSlice vcfSlice, VcfSliceProtos.VcfRecord vcfRecord, FileSamples fileSamples) {
+        return fileSamples.getConverter(vcfSlice.getFields()).convert(vcfRecord, vcfSlice.getChromosome(), vcfSlice.getPosition());
+    }
+
+    /**
+     * Remap the alleles of a genotype from the archive, so the main alternate becomes the secondary alternate "&lt;*&gt;".
+     *
+     * @param gt Genotype from the archive
+     * @return   Genotype with all the alternate alleles as "2"
+     */
+    protected String getSimplifiedGenotype(String gt) {
+        switch (gt) {
+            case "0/0":
+            case "0|0":
+            case "0":
+                return gt;
+            case "1/1":
+                return "2/2";
+            case "0/1":
+                return "0/2";
+            case "1":
+                return "2";
+            default:
+                return simplifiedGenotypes.computeIfAbsent(gt, key -> {
+                    Genotype genotype = new Genotype(key);
+                    int[] allelesIdx = genotype.getAllelesIdx();
+                    for (int i = 0; i < allelesIdx.length; i++) {
+                        if (allelesIdx[i] > 0) {
+                            allelesIdx[i] = 2;
+                        }
+                    }
+                    return genotype.toString();
+                });
+        }
     }
 
     protected Integer getSampleId(String sampleName) {
         return sampleIdMap.computeIfAbsent(sampleName, s -> metadataManager.getSampleId(studyMetadata.getId(), sampleName));
     }
 
+    private FileSamples getFileSamples(Integer fileId) {
+        return fileSamplesMap.computeIfAbsent(fileId, FileSamples::new);
+    }
+
     protected LinkedHashMap<String, Integer> getSamplePosition(Integer fileId) {
         return fileToSamplePositions.computeIfAbsent(fileId, missingFileId -> {
             LinkedHashMap<String, Integer> map = new LinkedHashMap<>();
@@ -554,4 +660,69 @@ public class FillGapsTask {
         }
     }
 
+    /**
+     * Samples information from one file, resolved only once.
+     * Sample ids are stored in a primitive array, indexed by the position of the sample in the file.
+     */
+    private final class FileSamples {
+        private final Integer fileId;
+        private final LinkedHashMap<String, Integer> samplePosition;
+        private final int[] sampleIds;
+        private final Map<String, List<String>> genotypeData = new HashMap<>();
+        private VcfSliceProtos.VcfFields fields;
+        private VcfRecordProtoToVariantConverter converter;
+
+        private FileSamples(Integer fileId) {
+            this.fileId = fileId;
+            samplePosition = getSamplePosition(fileId);
+            sampleIds = new int[samplePosition.size()];
+            for (Map.Entry<String, Integer> entry : samplePosition.entrySet()) {
+                sampleIds[entry.getValue()] = getSampleId(entry.getKey());
+            }
+        }
+
+        /**
+         * Translate the set of missing samples into a mask, indexed by sample position.
+         *
+         * @param missingSamples Missing samples
+         * @return Missing mask
+         */
+        private boolean[] getMissingMask(Set<Integer> missingSamples) {
+            boolean[] missingMask = new boolean[sampleIds.length];
+            for (int i = 0; i < sampleIds.length; i++) {
+                missingMask[i] = missingSamples.contains(sampleIds[i]);
+            }
+            return missingMask;
+        }
+
+        private List<String> getGenotypeData(String gt) {
+            return genotypeData.computeIfAbsent(gt, Collections::singletonList);
+        }
+
+        /**
+         * Get the samples data for a variant where all the samples from the file have the same genotype.
+         * A new list is returned every time, but all the samples share the same immutable sample data.
+         *
+         * @param gt Genotype
+         * @return Samples data
+         */
+        private List<List<String>> getSamplesData(String gt) {
+            List<String> sampleData = getGenotypeData(gt);
+            List<List<String>> samplesData = new ArrayList<>(sampleIds.length);
+            for (int i = 0; i < sampleIds.length; i++) {
+                samplesData.add(sampleData);
+            }
+            return samplesData;
+        }
+
+        private VcfRecordProtoToVariantConverter getConverter(VcfSliceProtos.VcfFields fields) {
+            // All the records from the same VcfSlice share the same fields
+            if (this.fields != fields) {
+                this.fields = fields;
+                converter = new VcfRecordProtoToVariantConverter(fields, samplePosition, fileId.toString(), studyMetadata.getName());
+            }
+            return converter;
+        }
+    }
+
 }
@@ -71,6 +71,12 @@ public class SampleIndexVariantQueryExecutor extends AbstractTwoPhasedVariantQue
         return false;
     }
 
+    @Override
+    protected boolean supportsCursor(Query query, QueryOptions options) {
+        // Variants are always returned in the order of the SampleIndex, so the query can be resumed from the last variant
+        return true;
+    }
+
     @Override
     public DataResult<Long> count(Query query) {
         throw new UnsupportedOperationException("Count not implemented in " + getClass());
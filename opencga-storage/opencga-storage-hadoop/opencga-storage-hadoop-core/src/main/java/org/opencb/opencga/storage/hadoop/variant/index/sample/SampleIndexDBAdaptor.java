@@ -23,6 +23,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.QueryO
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.IntersectMultiVariantKeyIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.UnionMultiVariantKeyIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryCursor;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.index.IndexUtils;
@@ -90,6 +91,8 @@ public class SampleIndexDBAdaptor implements VariantIterable {
             throw new VariantQueryException("At least one sample expected to query SampleIndex!");
         }
         QueryOperation operation = query.getQueryOperation();
+        VariantQueryCursor cursor = VariantQueryCursor.fromOptions(options);
+        Variant resumeAfter = cursor == null ? null : cursor.getLastVariant();
 
         if (samples.size() == 1) {
             String sample = samples.entrySet().iterator().next().getKey();
@@ -100,7 +103,7 @@ public class SampleIndexDBAdaptor implements VariantIterable {
                 return VariantDBIterator.emptyIterator();
             } else {
                 logger.info("Single sample indexes iterator");
-                SingleSampleIndexVariantDBIterator iterator = internalIterator(query.forSample(sample, gts));
+                SingleSampleIndexVariantDBIterator iterator = internalIterator(query.forSample(sample, gts), resumeAfter);
                 return applyLimitSkip(iterator, options);
             }
         }
@@ -114,7 +117,7 @@ public class SampleIndexDBAdaptor implements VariantIterable {
 
             if (query.isNegated(sample)) {
                 if (!gts.isEmpty()) {
-                    negatedIterators.add(internalIterator(query.forSample(sample, gts)));
+                    negatedIterators.add(internalIterator(query.forSample(sample, gts), resumeAfter));
                 }
                 // Skip if GTs to query is empty!
                 // Otherwise, it will return ALL genotypes instead of none
@@ -123,7 +126,7 @@ public class SampleIndexDBAdaptor implements VariantIterable {
                     // If empty, should find none. Add empty iterator for this sample
                     iterators.add(VariantDBIterator.emptyIterator());
                 } else {
-                    iterators.add(internalIterator(query.forSample(sample, gts)));
+                    iterators.add(internalIterator(query.forSample(sample, gts), resumeAfter));
                 }
             }
         }
@@ -158,14 +161,15 @@ public class SampleIndexDBAdaptor implements VariantIterable {
      * Partially processed iterator. Internal usage only.
      *
      * @param query SingleSampleIndexQuery
+     * @param resumeAfter Only return variants after this one. Used to resume the query from a cursor. Nullable.
      * @return SingleSampleIndexVariantDBIterator
      */
-    private SingleSampleIndexVariantDBIterator internalIterator(SingleSampleIndexQuery query) {
+    private SingleSampleIndexVariantDBIterator internalIterator(SingleSampleIndexQuery query, Variant resumeAfter) {
         String tableName = tableNameGenerator.getSampleIndexTableName(toStudyId(query.getStudy()));
 
         try {
             return hBaseManager.act(tableName, table -> {
-                return new SingleSampleIndexVariantDBIterator(table, query, family, this);
+                return new SingleSampleIndexVariantDBIterator(table, query, family, this, resumeAfter);
             });
         } catch (IOException e) {
             throw VariantQueryException.internalException(e);
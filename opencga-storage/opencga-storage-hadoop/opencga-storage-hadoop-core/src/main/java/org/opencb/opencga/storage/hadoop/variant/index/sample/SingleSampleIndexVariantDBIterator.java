@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Created on 03/07/18.
@@ -29,6 +30,20 @@ public class SingleSampleIndexVariantDBIterator extends VariantDBIterator {
     protected int count = 0;
 
     public SingleSampleIndexVariantDBIterator(Table table, SingleSampleIndexQuery query, byte[] family, SampleIndexDBAdaptor dbAdaptor) {
+        this(table, query, family, dbAdaptor, null);
+    }
+
+    /**
+     * Creates a SampleIndex iterator.
+     *
+     * @param table         SampleIndex table
+     * @param query         Query
+     * @param family        Column family
+     * @param dbAdaptor     SampleIndexDBAdaptor
+     * @param resumeAfter   If present, only return variants after this one. Regions before the variant are not scanned.
+     */
+    public SingleSampleIndexVariantDBIterator(Table table, SingleSampleIndexQuery query, byte[] family, SampleIndexDBAdaptor dbAdaptor,
+                                              Variant resumeAfter) {
         List<Region> regions;
         if (CollectionUtils.isEmpty(query.getRegions())) {
             // If no regions are defined, get a list of one null element to initialize the stream.
@@ -36,11 +51,25 @@ public class SingleSampleIndexVariantDBIterator extends VariantDBIterator {
         } else {
             regions = VariantQueryUtils.mergeRegions(query.getRegions());
         }
+        if (resumeAfter != null) {
+            // Discard regions completely before the variant to resume from
+            regions = regions.stream()
+                    .filter(region -> region == null
+                            || region.getChromosome().compareTo(resumeAfter.getChromosome()) > 0
+                            || (region.getChromosome().equals(resumeAfter.getChromosome()) && region.getEnd() >= resumeAfter.getStart()))
+                    .collect(Collectors.toList());
+        }
 
         Iterator<Iterator<Variant>> iterators = regions.stream()
                 .map(region -> {
                     // One scan per region
                     Scan scan = dbAdaptor.parse(query, region);
+                    if (resumeAfter != null && (region == null
+                            || region.overlaps(resumeAfter.getChromosome(), resumeAfter.getStart(), resumeAfter.getStart()))) {
+                        // Start the scan from the batch containing the variant
+                        int sampleId = SampleIndexSchema.sampleIdFromRowKey(scan.getStartRow());
+                        scan.setStartRow(SampleIndexSchema.toRowKey(sampleId, resumeAfter.getChromosome(), resumeAfter.getStart()));
+                    }
                     HBaseToSampleIndexConverter converter = new HBaseToSampleIndexConverter(dbAdaptor.getConfiguration());
                     SampleIndexEntryFilter filter = dbAdaptor.buildSampleIndexEntryFilter(query, region);
                     try {
@@ -57,7 +86,20 @@ public class SingleSampleIndexVariantDBIterator extends VariantDBIterator {
                         throw VariantQueryException.internalException(e);
                     }
                 }).iterator();
-        iterator = Iterators.concat(iterators);
+        if (resumeAfter == null) {
+            iterator = Iterators.concat(iterators);
+        } else {
+            // Only the first batch may contain variants before the variant to resume from
+            iterator = Iterators.filter(Iterators.concat(iterators), variant -> isAfter(variant, resumeAfter));
+        }
+    }
+
+    private static boolean isAfter(Variant variant, Variant other) {
+        int compare = variant.getChromosome().compareTo(other.getChromosome());
+        if (compare == 0) {
+            compare = SampleIndexSchema.INTRA_CHROMOSOME_VARIANT_COMPARATOR.compare(variant, other);
+        }
+        return compare > 0;
     }
 
     @Override
@@ -140,4 +140,18 @@ public class HBaseProjectMetadataDBAdaptor extends AbstractHBaseDBAdaptor implem
         }
     }
 
+    @Override
+    public int getLastId(Integer studyId, String idType) throws StorageEngineException {
+        try {
+            ensureTableExists();
+            return hBaseManager.act(tableName, (table) -> {
+                byte[] column = getCounterColumn(studyId, idType);
+                byte[] value = table.get(new Get(getProjectRowKey()).addColumn(family, column)).getValue(family, column);
+                return value == null ? 0 : (int) Bytes.toLong(value);
+            });
+        } catch (IOException e) {
+            throw new StorageEngineException("Error reading ID counter", e);
+        }
+    }
+
 }
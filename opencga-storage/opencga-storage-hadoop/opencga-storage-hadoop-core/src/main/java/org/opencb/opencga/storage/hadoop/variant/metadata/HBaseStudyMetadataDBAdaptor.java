@@ -57,6 +57,7 @@ import static org.opencb.opencga.storage.hadoop.variant.metadata.HBaseVariantMet
 public class HBaseStudyMetadataDBAdaptor extends AbstractHBaseDBAdaptor implements StudyMetadataDBAdaptor {
 
     private static Logger logger = LoggerFactory.getLogger(HBaseStudyMetadataDBAdaptor.class);
+    private static final int UPDATE_TIMESTAMP_MAX_ATTEMPTS = 10;
 
 
     public HBaseStudyMetadataDBAdaptor(VariantTableHelper helper) {
@@ -183,6 +184,36 @@ public class HBaseStudyMetadataDBAdaptor extends AbstractHBaseDBAdaptor implemen
         putValue(getStudyMetadataRowKey(sm.getId()), Type.STUDY, sm, sm.getTimeStamp());
     }
 
+    @Override
+    public void updateStudyTimeStamp(int studyId, long timeStamp) {
+        byte[] rowKey = getStudyMetadataRowKey(studyId);
+        try {
+            boolean updated = hBaseManager.act(tableName, table -> {
+                // The StudyMetadata is stored as a single value. Compare and set, so a concurrent update is not overwritten
+                for (int i = 0; i < UPDATE_TIMESTAMP_MAX_ATTEMPTS; i++) {
+                    Result result = table.get(new Get(rowKey).addColumn(family, getValueColumn()));
+                    byte[] value = result.getValue(family, getValueColumn());
+                    if (value == null) {
+                        return true;
+                    }
+                    StudyMetadata sm = objectMapper.readValue(value, StudyMetadata.class).setTimeStamp(timeStamp);
+                    Put put = new Put(rowKey);
+                    put.addColumn(family, getValueColumn(), timeStamp, objectMapper.writeValueAsBytes(sm));
+                    if (table.checkAndPut(rowKey, family, getValueColumn(), value, put)) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+            if (!updated) {
+                throw new IllegalStateException("Unable to update the timestamp of the study " + studyId
+                        + " after " + UPDATE_TIMESTAMP_MAX_ATTEMPTS + " attempts");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @Override
     public BiMap<String, Integer> getStudies(QueryOptions options) {
         Map<String, Integer> studies = readValue(getStudiesSummaryRowKey(), Map.class);
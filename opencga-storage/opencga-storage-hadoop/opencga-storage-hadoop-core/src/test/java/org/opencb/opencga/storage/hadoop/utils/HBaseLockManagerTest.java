@@ -230,4 +230,41 @@ public class HBaseLockManagerTest extends VariantStorageBaseTest implements Hado
         assertNull(s);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testGetCurrentExpireDate() {
+        long e = System.currentTimeMillis() + 1000;
+
+        assertEquals(0, HBaseLockManager.getCurrentLockExpireDate(new String[]{}));
+        assertEquals(0, HBaseLockManager.getCurrentLockExpireDate(new String[]{"CURRENT-abc:123"}));
+        assertEquals(e, HBaseLockManager.getCurrentLockExpireDate(new String[]{"CURRENT-abc:" + e}));
+        assertEquals(e + 500, HBaseLockManager.getCurrentLockExpireDate(new String[]{"CURRENT-abc:" + e, "REFRESH-abc:" + (e + 500)}));
+        assertEquals(e, HBaseLockManager.getCurrentLockExpireDate(new String[]{"CURRENT-abc:123", "REFRESH-abc:" + e}));
+    }
+
+    @Test
+    public void testWakeUpOnUnlock() throws Exception {
+        int lockId = 5;
+        Lock lock = hbaseLock.lock(getColumn(lockId), 10000, 1000);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> future = executorService.submit(() -> {
+            Lock lock2 = hbaseLock.lock(getColumn(lockId), 10000, 20000);
+            locked.countDown();
+            lock2.unlock();
+            return null;
+        });
+        assertFalse(locked.await(2, TimeUnit.SECONDS));
+        assertEquals(1, HBaseLockManager.getNumLocalLockQueues());
+
+        lock.unlock();
+        // Taken before the first lock expires
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        future.get();
+        executorService.shutdown();
+
+        // Queues without waiting threads are removed
+        assertEquals(0, HBaseLockManager.getNumLocalLockQueues());
+    }
+
+}
@@ -94,6 +94,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -478,12 +479,16 @@ public interface HadoopVariantStorageTest /*extends VariantStorageManagerTestUti
         private static Configuration staticConfiguration;
         private final Configuration configuration;
 
+        // Number of jobs executed in-process with the local job runner
+        public static final AtomicInteger IN_PROCESS_RUNS = new AtomicInteger();
+
         public TestMRExecutor() {
-            this.configuration = new Configuration(staticConfiguration);
+            this(new Configuration(staticConfiguration));
         }
 
         public TestMRExecutor(Configuration configuration) {
             this.configuration = configuration;
+            init(new ObjectMap(), configuration);
         }
 
         public static void setStaticConfiguration(Configuration staticConfiguration) {
@@ -511,6 +516,12 @@ public interface HadoopVariantStorageTest /*extends VariantStorageManagerTestUti
             }
         }
 
+        @Override
+        protected <T extends Tool> int runInProcess(Class<T> execClass, String[] args, ObjectMap options) throws StorageEngineException {
+            IN_PROCESS_RUNS.incrementAndGet();
+            return super.runInProcess(execClass, args, options);
+        }
+
         @Override
         public int run(String executable, String args) {
             try {
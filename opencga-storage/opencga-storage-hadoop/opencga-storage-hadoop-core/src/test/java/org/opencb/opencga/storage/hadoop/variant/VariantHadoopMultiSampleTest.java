@@ -596,6 +596,53 @@ public class VariantHadoopMultiSampleTest extends VariantStorageBaseTest impleme
 //        assertEquals("0/1", variants.get("1:13000:T:G").getStudy(studyName).getSampleData("s2", "GT"));
     }
 
+    @Test
+    public void testLoadMultipleThreadsSameAsSingleTask() throws Exception {
+        clearDB(DB_NAME);
+        HadoopVariantStorageEngine variantStorageEngine = getVariantStorageEngine();
+        VariantHadoopDBAdaptor dbAdaptor = variantStorageEngine.getDBAdaptor();
+        VariantStorageMetadataManager metadataManager = dbAdaptor.getMetadataManager();
+
+        ObjectMap params = new ObjectMap(VariantStorageOptions.TRANSFORM_FORMAT.key(), "avro");
+        // With one thread, the file is loaded with the single GroupedVariantsTask, as before the parallel load
+        StudyMetadata study1 = new StudyMetadata(0, "study_1_thread");
+        loadFile(SMALL_VCF_TEST_FILE_NAME, study1, new ObjectMap(params).append(VariantStorageOptions.LOAD_THREADS.key(), 1));
+        StudyMetadata study4 = new StudyMetadata(0, "study_4_threads");
+        loadFile(SMALL_VCF_TEST_FILE_NAME, study4, new ObjectMap(params).append(VariantStorageOptions.LOAD_THREADS.key(), 4));
+
+        // Same variants and genotypes
+        Map<String, List<List<String>>> expectedVariants = new LinkedHashMap<>();
+        variantStorageEngine.iterator(new Query(VariantQueryParam.STUDY.key(), study1.getName()), new QueryOptions())
+                .forEachRemaining(v -> expectedVariants.put(v.toString(), v.getStudies().get(0).getSamplesData()));
+        Map<String, List<List<String>>> actualVariants = new LinkedHashMap<>();
+        variantStorageEngine.iterator(new Query(VariantQueryParam.STUDY.key(), study4.getName()), new QueryOptions())
+                .forEachRemaining(v -> actualVariants.put(v.toString(), v.getStudies().get(0).getSamplesData()));
+        assertNotEquals(0, expectedVariants.size());
+        assertEquals(expectedVariants, actualVariants);
+
+        // Same sample index
+        int studyId1 = metadataManager.getStudyId(study1.getName());
+        int studyId4 = metadataManager.getStudyId(study4.getName());
+        Iterator<Result> expectedIt = dbAdaptor.getHBaseManager().getScanner(
+                dbAdaptor.getTableNameGenerator().getSampleIndexTableName(studyId1), new Scan()).iterator();
+        Iterator<Result> actualIt = dbAdaptor.getHBaseManager().getScanner(
+                dbAdaptor.getTableNameGenerator().getSampleIndexTableName(studyId4), new Scan()).iterator();
+        int numRows = 0;
+        while (expectedIt.hasNext()) {
+            assertTrue(actualIt.hasNext());
+            NavigableMap<byte[], byte[]> expected = expectedIt.next().getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+            NavigableMap<byte[], byte[]> actual = actualIt.next().getFamilyMap(GenomeHelper.COLUMN_FAMILY_BYTES);
+            assertEquals(expected.keySet().stream().map(Bytes::toString).collect(Collectors.toList()),
+                    actual.keySet().stream().map(Bytes::toString).collect(Collectors.toList()));
+            for (byte[] key : expected.keySet()) {
+                assertArrayEquals(Bytes.toString(key), expected.get(key), actual.get(key));
+            }
+            numRows++;
+        }
+        assertFalse(actualIt.hasNext());
+        assertNotEquals(0, numRows);
+    }
+
     @Test
     public void testMultiSampleFile() throws Exception {
 
@@ -2,10 +2,15 @@ package org.opencb.opencga.storage.hadoop.variant.converters.study;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
 import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.schema.types.PVarcharArray;
 import org.apache.phoenix.schema.types.PhoenixArray;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
@@ -17,6 +22,10 @@ import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
@@ -27,6 +36,7 @@ import java.util.*;
  */
 public class HBaseToStudyEntryConverterTest {
 
+    private final Logger logger = LoggerFactory.getLogger(HBaseToStudyEntryConverterTest.class);
     private HBaseToStudyEntryConverter converter;
     private StudyMetadata sm;
     private VariantStorageMetadataManager mm;
@@ -156,6 +166,120 @@ public class HBaseToStudyEntryConverterTest {
         Assert.assertEquals(s.toString(), expected, s);
     }
 
+    @Test
+    public void testConvertRowWithFormatProjection() throws Exception {
+        mm.updateStudyMetadata(sm.getId(), s -> {
+            s.getAttributes().put(VariantStorageOptions.EXTRA_FORMAT_FIELDS.key(), "AD,DP");
+            return s;
+        });
+
+        Variant variant = new Variant("1:1000:A:C");
+        List<Cell> cells = new ArrayList<>();
+        cells.add(sampleCell(variant, sm.getId(), 1, "0/0", "1,2", "10"));
+        cells.add(sampleCell(variant, sm.getId(), 3, "0/1", "3,4"));
+        Result result = Result.create(cells);
+
+        converter.setFormats(listOf("DP", "XX", "GT"));
+        StudyEntry s = converter.convert(result).get(sm.getId());
+
+        StudyEntry expected = new StudyEntry("1", Collections.emptyList(), listOf("DP", "XX", "GT"))
+                .addSampleData("S1", listOf("10", ".", "0/0"))
+                .addSampleData("S2", listOf(".", ".", "?/?"))
+                .addSampleData("S3", listOf(".", ".", "0/1"))
+                .addSampleData("S4", listOf(".", ".", "?/?"))
+                .addSampleData("S5", listOf(".", ".", "?/?"))
+                .addSampleData("S6", listOf(".", ".", "?/?"));
+        Assert.assertEquals(s.toString(), expected, s);
+    }
+
+    @Test
+    public void testConvertWideRowsWithFormatProjection() throws Exception {
+        int numSamples = 500;
+        Pair<Integer, List<Result>> wideRows = createWideRows(numSamples, 20);
+        int studyId = wideRows.getKey();
+
+        HBaseToStudyEntryConverter fullConverter = new HBaseToStudyEntryConverter(mm, null);
+        HBaseToStudyEntryConverter gtConverter = new HBaseToStudyEntryConverter(mm, null).setFormats(listOf("GT"));
+
+        for (Result result : wideRows.getValue()) {
+            StudyEntry full = fullConverter.convert(result).get(studyId);
+            StudyEntry gt = gtConverter.convert(result).get(studyId);
+
+            Assert.assertEquals(listOf("GT"), gt.getFormat());
+            Assert.assertEquals(numSamples, gt.getSamplesData().size());
+            for (int i = 0; i < numSamples; i++) {
+                Assert.assertEquals(full.getSamplesData().get(i).get(0), gt.getSamplesData().get(i).get(0));
+                Assert.assertEquals(1, gt.getSamplesData().get(i).size());
+            }
+        }
+    }
+
+    @Test
+    @Ignore("Benchmark. Not executed as part of the build")
+    public void benchmarkConvertWideRows() throws Exception {
+        int numSamples = 2000;
+        int numVariants = 200;
+        Pair<Integer, List<Result>> wideRows = createWideRows(numSamples, numVariants);
+        int studyId = wideRows.getKey();
+
+        HBaseToStudyEntryConverter fullConverter = new HBaseToStudyEntryConverter(mm, null);
+        HBaseToStudyEntryConverter gtConverter = new HBaseToStudyEntryConverter(mm, null).setFormats(listOf("GT"));
+
+        // Warm up
+        for (Result result : wideRows.getValue()) {
+            fullConverter.convert(result);
+            gtConverter.convert(result);
+        }
+
+        long fullTime = 0;
+        long gtTime = 0;
+        for (Result result : wideRows.getValue()) {
+            long start = System.nanoTime();
+            fullConverter.convert(result).get(studyId);
+            fullTime += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            gtConverter.convert(result).get(studyId);
+            gtTime += System.nanoTime() - start;
+        }
+        logger.info("Convert {} rows with {} samples, all formats : {}ms", numVariants, numSamples, fullTime / 1000000);
+        logger.info("Convert {} rows with {} samples, only GT : {}ms", numVariants, numSamples, gtTime / 1000000);
+    }
+
+    // Registers a new study with one file of numSamples samples and extra formats, and builds numVariants rows with all the samples
+    private Pair<Integer, List<Result>> createWideRows(int numSamples, int numVariants) throws Exception {
+        int studyId = mm.createStudy("WIDE").getId();
+        List<String> samples = new ArrayList<>(numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            samples.add("W" + i);
+        }
+        int fileId = mm.registerFile(studyId, "wide.vcf", samples);
+        mm.addIndexedFiles(studyId, Collections.singletonList(fileId));
+        mm.updateStudyMetadata(studyId, s -> {
+            s.getAttributes().put(VariantStorageOptions.EXTRA_FORMAT_FIELDS.key(), "AD,DP,GQ,PL");
+            s.getAttributes().put(VariantStorageOptions.MERGE_MODE.key(), VariantStorageEngine.MergeMode.BASIC);
+            return s;
+        });
+        List<Integer> sampleIds = new ArrayList<>(mm.getSampleIdsFromFileId(studyId, fileId));
+
+        List<Result> results = new ArrayList<>(numVariants);
+        for (int v = 0; v < numVariants; v++) {
+            Variant variant = new Variant("1:" + (1000 + v) + ":A:C");
+            List<Cell> cells = new ArrayList<>(numSamples);
+            for (int i = 0; i < numSamples; i++) {
+                String gt = i % 3 == 0 ? "0/1" : "1/1";
+                cells.add(sampleCell(variant, studyId, sampleIds.get(i), gt, i + "," + v, "20", "99", "255,0,255"));
+            }
+            results.add(Result.create(cells));
+        }
+        return Pair.of(studyId, results);
+    }
+
+    private Cell sampleCell(Variant variant, int studyId, int sampleId, String... values) {
+        return new KeyValue(VariantPhoenixKeyFactory.generateVariantRowKey(variant), GenomeHelper.COLUMN_FAMILY_BYTES,
+                VariantPhoenixHelper.buildSampleColumnKey(studyId, sampleId), PVarcharArray.INSTANCE.toBytes(arrayOf(values)));
+    }
+
     @Test
     public void testGetAlternateCoordinate() {
         Assert.assertEquals(new AlternateCoordinate("1", 10035, 10035, "A", "<NON_REF>", VariantType.NO_VARIATION),
@@ -5,6 +5,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
@@ -20,6 +21,9 @@ import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadata
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
 import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -35,6 +39,7 @@ import static junit.framework.TestCase.assertTrue;
  */
 public class FillGapsTaskTest {
 
+    private final Logger logger = LoggerFactory.getLogger(FillGapsTaskTest.class);
     private VariantStorageMetadataManager metadataManager;
     private StudyMetadata studyMetadata;
     private VariantToVcfSliceConverter toSliceConverter;
@@ -297,6 +302,125 @@ public class FillGapsTaskTest {
         assertEquals("100:A:C,G:0", studyEntry.getFiles().get(0).getCall());
     }
 
+    @Test
+    public void testFillGapsBatch() {
+        for (boolean simplifiedNewMultiAllelicVariants : new boolean[]{false, true}) {
+            FillGapsTask task = new FillGapsTask(this.studyMetadata, new GenomeHelper(new Configuration()), false,
+                    simplifiedNewMultiAllelicVariants, metadataManager);
+
+            VcfSliceProtos.VcfSlice nonRefVcfSlice = toSliceConverter.convert(Arrays.asList(
+                    variantFile1("1:200:A:C"),
+                    variantFile1("1:300:A:C"),
+                    variantFile1("1:300:A:G"),
+                    variantFile1("1:500:A:C")));
+            VcfSliceProtos.VcfSlice refVcfSlice = toSliceConverter.convert(Arrays.asList(variantFile1("1:100:A:<*>")));
+            List<Variant> variants = Arrays.asList(
+                    new Variant("1:100:A:T"),
+                    new Variant("1:200:A:T"),
+                    new Variant("1:200:A:C"),
+                    new Variant("1:300:A:T"),
+                    new Variant("1:400:A:T"),
+                    new Variant("1:500:A:C"));
+            List<Put> puts = new ArrayList<>();
+            for (Variant variant : variants) {
+                puts.add(new Put(VariantPhoenixKeyFactory.generateVariantRowKey(variant)));
+            }
+            List<Put> sampleIndexPuts = new ArrayList<>();
+
+            VariantOverlappingStatus[] status = task.fillGaps(variants, puts, new HashSet<>(Arrays.asList(1, 2)), sampleIndexPuts, 1,
+                    nonRefVcfSlice, refVcfSlice);
+
+            assertEquals(Arrays.asList(
+                    VariantOverlappingStatus.REFERENCE,
+                    VariantOverlappingStatus.VARIANT,
+                    VariantOverlappingStatus.NONE,
+                    VariantOverlappingStatus.MULTI,
+                    VariantOverlappingStatus.GAP,
+                    VariantOverlappingStatus.NONE), Arrays.asList(status));
+
+            StudyEntry studyEntry = putToVariant(puts.get(0)).getStudies().get(0);
+            assertEquals("0/0", studyEntry.getSampleData("S1", "GT"));
+            assertEquals("./.", studyEntry.getSampleData("S2", "GT"));
+            assertEquals("100:A:<*>:0", studyEntry.getFiles().get(0).getCall());
+
+            studyEntry = putToVariant(puts.get(1)).getStudies().get(0);
+            assertEquals("0/2", studyEntry.getSampleData("S1", "GT"));
+            assertEquals("2/2", studyEntry.getSampleData("S2", "GT"));
+            assertEquals("200:A:C:0", studyEntry.getFiles().get(0).getCall());
+
+            assertTrue(puts.get(2).isEmpty());
+
+            studyEntry = putToVariant(puts.get(3)).getStudies().get(0);
+            assertEquals("<*>", studyEntry.getSecondaryAlternates().get(0).getAlternate());
+            assertEquals("2/2", studyEntry.getSampleData("S1", "GT"));
+            assertEquals("2/2", studyEntry.getSampleData("S2", "GT"));
+
+            assertFalse(puts.get(4).isEmpty());
+            assertTrue(puts.get(5).isEmpty());
+
+            // Pending sample index entries for the genotypes without the main alternate, 1:200:A:T and 1:300:A:T
+            assertEquals(4, sampleIndexPuts.size());
+            for (int i = 0; i < sampleIndexPuts.size(); i++) {
+                int position = i < 2 ? 200 : 300;
+                int sampleId = metadataManager.getSampleId(studyMetadata.getId(), i % 2 == 0 ? "S1" : "S2");
+                assertTrue(Arrays.equals(SampleIndexSchema.toRowKey(sampleId, "1", position), sampleIndexPuts.get(i).getRow()));
+            }
+        }
+    }
+
+    @Test
+    @Ignore("Benchmark. Not executed as part of the build")
+    public void benchmarkFillGapsBatch() {
+        int numVariants = 900;
+        int numRepetitions = 200;
+        List<Variant> archiveVariants = new ArrayList<>(numVariants);
+        List<Variant> variants = new ArrayList<>(numVariants);
+        for (int i = 0; i < numVariants; i++) {
+            int position = 100 + i;
+            if (i % 3 == 0) {
+                archiveVariants.add(variantFile1("1:" + position + ":A:<*>"));
+            } else if (i % 50 == 1) {
+                archiveVariants.add(variantFile1("1:" + position + ":AAA:"));
+            } else {
+                archiveVariants.add(variantFile1("1:" + position + ":A:C"));
+            }
+            variants.add(new Variant("1:" + position + ":A:T"));
+        }
+        VcfSliceProtos.VcfSlice nonRefVcfSlice = toSliceConverter.convert(archiveVariants.stream()
+                .filter(v -> !v.getType().equals(VariantType.NO_VARIATION)).collect(Collectors.toList()));
+        VcfSliceProtos.VcfSlice refVcfSlice = toSliceConverter.convert(archiveVariants.stream()
+                .filter(v -> v.getType().equals(VariantType.NO_VARIATION)).collect(Collectors.toList()));
+        Set<Integer> missingSamples = new HashSet<>(Arrays.asList(1, 2));
+        FillGapsTask task = new FillGapsTask(this.studyMetadata, new GenomeHelper(new Configuration()), false, false, metadataManager);
+
+        long start = System.nanoTime();
+        for (int r = 0; r < numRepetitions; r++) {
+            ListIterator<VcfSliceProtos.VcfRecord> nonRefIterator = nonRefVcfSlice.getRecordsList().listIterator();
+            ListIterator<VcfSliceProtos.VcfRecord> refIterator = refVcfSlice.getRecordsList().listIterator();
+            for (Variant variant : variants) {
+                Put put = new Put(VariantPhoenixKeyFactory.generateVariantRowKey(variant));
+                task.fillGaps(variant, missingSamples, put, new ArrayList<>(), 1, nonRefVcfSlice, nonRefIterator, refVcfSlice, refIterator);
+            }
+        }
+        long variantTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int r = 0; r < numRepetitions; r++) {
+            List<Put> puts = new ArrayList<>(numVariants);
+            for (Variant variant : variants) {
+                puts.add(new Put(VariantPhoenixKeyFactory.generateVariantRowKey(variant)));
+            }
+            task.fillGaps(variants, puts, missingSamples, new ArrayList<>(), 1, nonRefVcfSlice, refVcfSlice);
+        }
+        long batchTime = System.nanoTime() - start;
+
+        int total = numVariants * numRepetitions;
+        logger.info("Fill gaps of {} variants one by one : {}ms. Average : {}ns/variant",
+                total, variantTime / 1000000, variantTime / total);
+        logger.info("Fill gaps of {} variants in batches : {}ms. Average : {}ns/variant",
+                total, batchTime / 1000000, batchTime / total);
+    }
+
     protected Variant fillGaps(FillGapsTask task,
                                VariantOverlappingStatus expected, String variant, VcfSliceProtos.VcfSlice nonRefVcfSlice) {
         return fillGaps(task, expected, variant, nonRefVcfSlice, VcfSliceProtos.VcfSlice.newBuilder().build());
@@ -77,6 +77,14 @@ public class FillGapsTest extends VariantStorageBaseTest implements HadoopVarian
         testFillGapsPlatinumFiles(new ObjectMap(HadoopVariantStorageOptions.ARCHIVE_FILE_BATCH_SIZE.key(), 2));
     }
 
+    @Test
+    public void testFillGapsPlatinumFilesInProcess() throws Exception {
+        // Small jobs are executed in-process, with the configuration of the storage engine
+        int inProcessRuns = TestMRExecutor.IN_PROCESS_RUNS.get();
+        testFillGapsPlatinumFiles(new ObjectMap(HadoopVariantStorageOptions.MR_EXECUTOR_LOCAL_MAX_INPUT_SIZE.key(), Long.MAX_VALUE));
+        assertTrue(TestMRExecutor.IN_PROCESS_RUNS.get() > inProcessRuns);
+    }
+
     public void testFillGapsPlatinumFiles(ObjectMap options) throws Exception {
         StudyMetadata studyMetadata = loadPlatinum(options
                 .append(VariantStorageOptions.MERGE_MODE.key(), VariantStorageEngine.MergeMode.BASIC), 12877, 12880);
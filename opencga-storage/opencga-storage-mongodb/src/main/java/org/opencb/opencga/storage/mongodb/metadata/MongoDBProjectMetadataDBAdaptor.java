@@ -81,6 +81,14 @@ public class MongoDBProjectMetadataDBAdaptor implements ProjectMetadataAdaptor {
         return generateId(idType, true);
     }
 
+    @Override
+    public int getLastId(Integer studyId, String idType) {
+        Document document = collection.find(QUERY, new Document(COUNTERS_FIELD + '.' + idType, true), new QueryOptions()).first();
+        Document counters = document == null ? null : document.get(COUNTERS_FIELD, Document.class);
+        Integer id = counters == null ? null : counters.getInteger(idType);
+        return id == null ? 0 : id;
+    }
+
     private int generateId(String idType, boolean retry) throws StorageEngineException {
         String field = COUNTERS_FIELD + '.' + idType;
         Document projection = new Document(field, true);
@@ -156,6 +156,12 @@ public class MongoDBStudyMetadataDBAdaptor extends AbstractMongoDBAdaptor<StudyM
         update(studyMetadata.getId(), studyMetadata);
     }
 
+    @Override
+    public void updateStudyTimeStamp(int studyId, long timeStamp) {
+        // Single field update. Does not overwrite concurrent modifications
+        collection.update(new Document("_id", studyId), Updates.set("timeStamp", timeStamp), null);
+    }
+
     @Override
     public void close() {
     }
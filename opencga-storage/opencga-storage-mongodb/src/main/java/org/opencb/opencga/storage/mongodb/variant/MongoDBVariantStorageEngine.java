@@ -66,6 +66,8 @@ import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.METADATA_CACHE_SIZE;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.METADATA_SNAPSHOT_TTL;
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.RESUME;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
@@ -476,13 +478,15 @@ public class MongoDBVariantStorageEngine extends VariantStorageEngine {
             MongoDataStore db = mongoDataStoreManager.get(
                     getMongoCredentials().getMongoDbName(),
                     getMongoCredentials().getMongoDBConfiguration());
-            metadataManager = new VariantStorageMetadataManager(new MongoDBVariantStorageMetadataDBAdaptorFactory(db, options));
+            metadataManager = new VariantStorageMetadataManager(new MongoDBVariantStorageMetadataDBAdaptorFactory(db, options),
+                    options.getInt(METADATA_CACHE_SIZE.key(), METADATA_CACHE_SIZE.defaultValue()),
+                    options.getLong(METADATA_SNAPSHOT_TTL.key(), METADATA_SNAPSHOT_TTL.defaultValue()));
             return metadataManager;
         }
     }
 
     @Override
-    public Query preProcessQuery(Query originalQuery, QueryOptions options) {
+    protected Query parseQuery(Query originalQuery, QueryOptions options) {
         if (isValidParam(originalQuery, SAMPLE_MENDELIAN_ERROR)) {
             throw VariantQueryException.unsupportedVariantQueryFilter(SAMPLE_MENDELIAN_ERROR, getStorageEngineId());
         }
@@ -490,7 +494,7 @@ public class MongoDBVariantStorageEngine extends VariantStorageEngine {
             throw VariantQueryException.unsupportedVariantQueryFilter(SAMPLE_DE_NOVO, getStorageEngineId());
         }
 
-        Query query = super.preProcessQuery(originalQuery, options);
+        Query query = super.parseQuery(originalQuery, options);
         List<String> studyNames = metadataManager.getStudyNames();
 
         if (isValidParam(query, VariantQueryParam.STUDY)
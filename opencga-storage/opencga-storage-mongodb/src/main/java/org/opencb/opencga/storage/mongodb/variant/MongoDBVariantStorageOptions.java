@@ -17,6 +17,7 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
     COLLECTION_STAGE("storage.mongodb.collection.stage", "stage"),
     COLLECTION_ANNOTATION("storage.mongodb.collection.annotation", "annot"),
     COLLECTION_TRASH("storage.mongodb.collection.trash", "trash"),
+    COLLECTION_CHUNK_COUNTS("storage.mongodb.collection.chunkCounts", "chunk_counts"),
 
     ALREADY_LOADED_VARIANTS("storage.mongodb.alreadyLoadedVariants", 0),
 
@@ -286,6 +286,9 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         boolean resume = isResume(options);
         StudyMetadata studyMetadata = getStudyMetadata();
         boolean stdin = options.getBoolean(STDIN.key(), STDIN.defaultValue());
+        // Resumed loads can not tell which variants were counted before the failure
+        boolean updateChunkCounts = dbAdaptor.getChunkCounts().startUpdate(studyId, !resume);
+        boolean success = false;
 
         try {
             //Dedup task
@@ -322,7 +325,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
 
             // Writer -- MongoDBVariantDirectLoader
             MongoDBVariantDirectLoader loader = new MongoDBVariantDirectLoader(dbAdaptor, studyMetadata, fileId, resume,
-                    progressLogger);
+                    progressLogger, updateChunkCounts);
 
             // Runner
             ParallelTaskRunner<Document, ?> ptr;
@@ -357,6 +360,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
 
             fileMetadata.setId(String.valueOf(fileId));
             dbAdaptor.getMetadataManager().updateVariantFileMetadata(String.valueOf(studyId), fileMetadata);
+            success = true;
         } catch (ExecutionException e) {
             try {
                 getMetadataManager().atomicSetStatus(studyId, TaskMetadata.Status.ERROR, DIRECT_LOAD.key(),
@@ -367,6 +371,8 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             }
 
             throw new StorageEngineException("Error executing direct load", e);
+        } finally {
+            dbAdaptor.getChunkCounts().endUpdate(studyId, success);
         }
     }
 
@@ -580,13 +586,18 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
                 }
             });
             Runtime.getRuntime().addShutdownHook(hook);
+            // Resumed merges can not tell which variants were counted before the failure
+            boolean updateChunkCounts = dbAdaptor.getChunkCounts().startUpdate(studyMetadata.getId(), !isResumeMerge(options));
+            boolean success = false;
             try {
-                writeResult = mergeByChromosome(fileIds, batchSize, loadThreads, studyMetadata);
+                writeResult = mergeByChromosome(fileIds, batchSize, loadThreads, studyMetadata, updateChunkCounts);
+                success = true;
             } catch (Exception e) {
                 getMetadataManager().atomicSetStatus(getStudyId(), TaskMetadata.Status.ERROR, MERGE.key(), fileIds);
                 throw e;
             } finally {
                 Runtime.getRuntime().removeShutdownHook(hook);
+                dbAdaptor.getChunkCounts().endUpdate(studyMetadata.getId(), success);
             }
             getMetadataManager().atomicSetStatus(getStudyId(), TaskMetadata.Status.DONE, MERGE.key(), fileIds);
         }
@@ -636,7 +647,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
     }
 
     private MongoDBVariantWriteResult mergeByChromosome(List<Integer> fileIds, int batchSize, int loadThreads,
-                                                        StudyMetadata studyMetadata)
+                                                        StudyMetadata studyMetadata, boolean updateChunkCounts)
             throws StorageEngineException {
         MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
         MongoDBVariantStageReader reader = new MongoDBVariantStageReader(stageCollection, studyMetadata.getId());
@@ -657,7 +668,8 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
                 ignoreOverlapping, release);
         MongoDBVariantMergeLoader variantLoader = new MongoDBVariantMergeLoader(
                 dbAdaptor.getVariantsCollection(), stageCollection, dbAdaptor.getStudiesCollection(),
-                studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger);
+                studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger,
+                updateChunkCounts ? dbAdaptor.getChunkCounts() : null);
 
         ParallelTaskRunner<Document, MongoDBOperations> ptrMerge;
         ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
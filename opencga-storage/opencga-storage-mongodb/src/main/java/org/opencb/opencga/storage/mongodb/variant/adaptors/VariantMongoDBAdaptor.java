@@ -18,6 +18,7 @@ package org.opencb.opencga.storage.mongodb.variant.adaptors;
 
 import com.mongodb.BasicDBList;
 import com.mongodb.MongoClient;
+import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import htsjdk.variant.vcf.VCFConstants;
@@ -44,6 +45,7 @@ import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.*;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManager;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryCursor;
 import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
 import org.opencb.opencga.storage.mongodb.auth.MongoCredentials;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageEngine;
@@ -86,6 +88,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
     private final StorageConfiguration storageConfiguration;
     private final MongoCredentials credentials;
     private final VariantMongoDBQueryParser queryParser;
+    private VariantMongoDBChunkCounts chunkCounts;
 
     private VariantStorageMetadataManager metadataManager;
     private final ObjectMap configuration;
@@ -125,6 +128,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
                 : storageEngineConfiguration.getOptions();
 
         queryParser = new VariantMongoDBQueryParser(variantStorageMetadataManager);
+        chunkCounts = new VariantMongoDBChunkCounts(variantsCollection, getChunkCountsCollection(), variantStorageMetadataManager);
         NUMBER_INSTANCES.incrementAndGet();
     }
 
@@ -132,6 +136,15 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         return variantsCollection;
     }
 
+    /**
+     * Get the variants collection from the driver, for the bulk operations not available in {@link MongoDBCollection}.
+     *
+     * @return Variants collection
+     */
+    public MongoCollection<Document> getVariantsNativeCollection() {
+        return db.getDb().getCollection(collectionName);
+    }
+
     public MongoDBCollection getStageCollection(int studyId) {
         String stageCollectionName = configuration.getString(COLLECTION_STAGE.key(), COLLECTION_STAGE.defaultValue());
         // Ensure retro-compatibility.
@@ -168,6 +181,14 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         return db.getCollection(configuration.getString(COLLECTION_TRASH.key(), COLLECTION_TRASH.defaultValue()));
     }
 
+    private MongoDBCollection getChunkCountsCollection() {
+        return db.getCollection(configuration.getString(COLLECTION_CHUNK_COUNTS.key(), COLLECTION_CHUNK_COUNTS.defaultValue()));
+    }
+
+    public VariantMongoDBChunkCounts getChunkCounts() {
+        return chunkCounts;
+    }
+
     protected MongoDataStore getDB() {
         return db;
     }
@@ -221,9 +242,21 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
                         nin(FILES_FIELD + '.' + FILEID_FIELD, otherIndexedFiles)
                 )
         );
-        removeFilesFromStageCollection(studiesToRemoveQuery, studyId, fileIds);
+        boolean updateChunkCounts = chunkCounts.startUpdate(studyId, true);
+        boolean success = false;
+        try {
+            removeFilesFromStageCollection(studiesToRemoveQuery, studyId, fileIds);
+            if (updateChunkCounts) {
+                // Discount the variants that are going to lose the study
+                chunkCounts.subtract(studyId, studiesToRemoveQuery);
+            }
 
-        return removeFilesFromVariantsCollection(studiesToRemoveQuery, studyMetadata, fileIds, timestamp);
+            DataResult result = removeFilesFromVariantsCollection(studiesToRemoveQuery, studyMetadata, fileIds, timestamp);
+            success = true;
+            return result;
+        } finally {
+            chunkCounts.endUpdate(studyId, success);
+        }
     }
 
     private void removeFilesFromStageCollection(Bson studiesToRemoveQuery, Integer studyId, List<Integer> fileIds) {
@@ -341,9 +374,18 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         Bson query = queryParser.parseQuery(new Query(STUDY.key(), studyId));
 
         boolean purge = options.getBoolean("purge", true);
-
-        logger.info("Remove study from variants collection - step 1/" + (purge ? '2' : '1'));
-        DataResult result = removeStudyFromVariants(studyId, query, timestamp);
+        chunkCounts.startUpdate(studyId, true);
+        boolean success = false;
+        DataResult result;
+        try {
+            logger.info("Remove study from variants collection - step 1/" + (purge ? '2' : '1'));
+            result = removeStudyFromVariants(studyId, query, timestamp);
+            // The study has no variants left
+            chunkCounts.clear(studyId);
+            success = true;
+        } finally {
+            chunkCounts.endUpdate(studyId, success);
+        }
 
         if (purge) {
             logger.info("Remove study from variants collection - step 2/2");
@@ -483,7 +525,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         }
 
         VariantQueryFields selectVariantElements = VariantQueryUtils.parseVariantQueryFields(query, options, metadataManager);
-        Document mongoQuery = queryParser.parseQuery(query);
+        Document mongoQuery = addCursorFilter(queryParser.parseQuery(query), options);
         Document projection = queryParser.createProjection(query, options, selectVariantElements);
 
         if (options.getBoolean("explain", false)) {
@@ -638,7 +680,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
 
     private VariantDBIterator iteratorFinal(final Query query, final QueryOptions options) {
         VariantQueryFields selectVariantElements = VariantQueryUtils.parseVariantQueryFields(query, options, metadataManager);
-        Document mongoQuery = queryParser.parseQuery(query);
+        Document mongoQuery = addCursorFilter(queryParser.parseQuery(query), options);
         Document projection = queryParser.createProjection(query, options, selectVariantElements);
         DocumentToVariantConverter converter = getDocumentToVariantConverter(query, selectVariantElements);
         options.putIfAbsent(MongoDBCollection.BATCH_SIZE, 100);
@@ -658,6 +700,40 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         }
     }
 
+    @Override
+    public boolean supportsCursor(Query query, QueryOptions options) {
+        // Sorted queries are sorted by _id, so they can be resumed from the last _id
+        return options != null && (options.getBoolean(QueryOptions.SORT, false)
+                || "_id".equals(options.getString(QueryOptions.SORT))
+                || options.containsKey(VariantQueryCursor.CURSOR));
+    }
+
+    /**
+     * Resume the query after the last variant of the {@link VariantQueryCursor}, if any.
+     * Forces the results to be sorted by _id, ascending unless other order is given.
+     *
+     * @param mongoQuery    Parsed query
+     * @param options       Query options. Might be modified
+     * @return              Query with the cursor filter
+     */
+    private Document addCursorFilter(Document mongoQuery, QueryOptions options) {
+        VariantQueryCursor cursor = VariantQueryCursor.fromOptions(options);
+        if (cursor == null) {
+            return mongoQuery;
+        }
+        options.put(QueryOptions.SORT, "_id");
+        options.putIfAbsent(QueryOptions.ORDER, QueryOptions.ASCENDING);
+        String order = options.getString(QueryOptions.ORDER);
+        boolean descending = order.equalsIgnoreCase(QueryOptions.DESCENDING) || order.equalsIgnoreCase("desc") || order.equals("-1");
+        String lastId = VariantMongoDBQueryParser.STRING_ID_CONVERTER.buildId(cursor.getLastVariant());
+        Document cursorFilter = new Document("_id", new Document(descending ? "$lt" : "$gt", lastId));
+        if (mongoQuery.isEmpty()) {
+            return cursorFilter;
+        } else {
+            return new Document("$and", Arrays.asList(mongoQuery, cursorFilter));
+        }
+    }
+
     public MongoDBIterator<Document> nativeIterator(Query query, QueryOptions options, boolean persistent) {
         if (query == null) {
             query = new Query();
@@ -686,44 +762,96 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         // 20000] } ] },
         //                                  totalCount: {$sum: 1}}})
 
-        QueryOptions options = new QueryOptions();
-
         // If interval is not provided is set to the value that returns 200 values
         if (regionIntervalSize <= 0) {
-//            regionIntervalSize = options.getInt("interval", (region.getEnd() - region.getStart()) / 200);
             regionIntervalSize = (region.getEnd() - region.getStart()) / 200;
         }
 
-        Document start = new Document("$gt", region.getStart());
-        start.append("$lt", region.getEnd());
+        long dbTimeStart = System.currentTimeMillis();
+        Document mongoQuery = queryParser.parseQuery(query);
+        Map<Long, Long> counts = new HashMap<>();
+
+        // Only variants starting in the open interval (start, end) are counted
+        int firstPosition = region.getStart() + 1;
+        int lastPosition = region.getEnd() - 1;
+        // Chunks fully contained in the region
+        int firstChunk = (firstPosition + CHUNK_SIZE_SMALL - 1) / CHUNK_SIZE_SMALL;
+        int lastChunk = (lastPosition + 1) / CHUNK_SIZE_SMALL - 1;
+
+        Integer countersStudy = null;
+        if (regionIntervalSize % CHUNK_SIZE_SMALL == 0 && firstChunk <= lastChunk) {
+            countersStudy = chunkCounts.getCountersStudy(query);
+        }
+        if (countersStudy == null) {
+            aggregateFrequency(mongoQuery, region.getChromosome(), region.getStart(), region.getEnd(), regionIntervalSize, counts);
+        } else {
+            // Read the fully covered chunks from the counters. Aggregate only the partially covered chunks at the edges.
+            List<String> types = query.getAsStringList(TYPE.key());
+            chunkCounts.count(countersStudy, region.getChromosome(), firstChunk, lastChunk, regionIntervalSize, types, counts);
+            int firstChunkStart = firstChunk * CHUNK_SIZE_SMALL;
+            if (firstPosition < firstChunkStart) {
+                aggregateFrequency(mongoQuery, region.getChromosome(), region.getStart(), firstChunkStart, regionIntervalSize, counts);
+            }
+            int lastChunkEnd = (lastChunk + 1) * CHUNK_SIZE_SMALL - 1;
+            if (lastChunkEnd < lastPosition) {
+                aggregateFrequency(mongoQuery, region.getChromosome(), lastChunkEnd, region.getEnd(), regionIntervalSize, counts);
+            }
+        }
+        long dbTimeEnd = System.currentTimeMillis();
 
-        BasicDBList andArr = new BasicDBList();
-        andArr.add(new Document(DocumentToVariantConverter.CHROMOSOME_FIELD, region.getChromosome()));
-        andArr.add(new Document(DocumentToVariantConverter.START_FIELD, start));
+        // Create DBObject for all the intervals, with or without features inside them
+        BasicDBList resultList = new BasicDBList();
+        int firstChunkId = queryParser.getChunkId(region.getStart(), regionIntervalSize);
+        int lastChunkId = queryParser.getChunkId(region.getEnd(), regionIntervalSize);
+        for (int chunkId = firstChunkId; chunkId <= lastChunkId; chunkId++) {
+            Long count = counts.get((long) chunkId);
+            Document intervalObj = new Document();
+            intervalObj.put("_id", chunkId);
+            intervalObj.put("start", queryParser.getChunkStart(chunkId, regionIntervalSize));
+            intervalObj.put("end", queryParser.getChunkEnd(chunkId, regionIntervalSize));
+            intervalObj.put("chromosome", region.getChromosome());
+            if (count == null) {
+                intervalObj.put("features_count", 0);
+            } else {
+                intervalObj.put("features_count", Math.log(count));
+            }
+            resultList.add(intervalObj);
+        }
 
-        // Parsing the rest of options
-        Document mongoQuery = queryParser.parseQuery(query);
+        return new DataResult(((Long) (dbTimeEnd - dbTimeStart)).intValue(), Collections.emptyList(), resultList.size(), resultList,
+                resultList.size());
+    }
+
+    /**
+     * Count the variants matching the query starting in the open interval (start, end), grouped by intervals.
+     *
+     * @param mongoQuery   Parsed query
+     * @param chromosome   Chromosome
+     * @param start        Start position, exclusive
+     * @param end          End position, exclusive
+     * @param intervalSize Interval size
+     * @param counts       Number of variants per interval id
+     */
+    private void aggregateFrequency(Document mongoQuery, String chromosome, int start, int end, int intervalSize,
+                                    Map<Long, Long> counts) {
+        Document startFilter = new Document("$gt", start);
+        startFilter.append("$lt", end);
+
+        BasicDBList andArr = new BasicDBList();
+        andArr.add(new Document(DocumentToVariantConverter.CHROMOSOME_FIELD, chromosome));
+        andArr.add(new Document(DocumentToVariantConverter.START_FIELD, startFilter));
         if (!mongoQuery.isEmpty()) {
             andArr.add(mongoQuery);
         }
         Document match = new Document("$match", new Document("$and", andArr));
 
-//        qb.and("_at.chunkIds").in(chunkIds);
-//        qb.and(DBObjectToVariantConverter.END_FIELD).greaterThanEquals(region.getStart());
-//        qb.and(DBObjectToVariantConverter.START_FIELD).lessThanEquals(region.getEnd());
-//
-//        List<String> chunkIds = getChunkIds(region);
-//        DBObject regionObject = new Document("_at.chunkIds", new Document("$in", chunkIds))
-//                .append(DBObjectToVariantConverter.END_FIELD, new Document("$gte", region.getStart()))
-//                .append(DBObjectToVariantConverter.START_FIELD, new Document("$lte", region.getEnd()));
-
         BasicDBList divide1 = new BasicDBList();
         divide1.add("$start");
-        divide1.add(regionIntervalSize);
+        divide1.add(intervalSize);
 
         BasicDBList divide2 = new BasicDBList();
         divide2.add(new Document("$mod", divide1));
-        divide2.add(regionIntervalSize);
+        divide2.add(intervalSize);
 
         BasicDBList subtractList = new BasicDBList();
         subtractList.add(new Document("$divide", divide1));
@@ -734,57 +862,12 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         Document g = new Document("_id", subtract);
         g.append("features_count", totalCount);
         Document group = new Document("$group", g);
-        Document sort = new Document("$sort", new Document("_id", 1));
-
-//        logger.info("getAllIntervalFrequencies - (>·_·)>");
-//        System.out.println(options.toString());
-//        System.out.println(match.toString());
-//        System.out.println(group.toString());
-//        System.out.println(sort.toString());
 
-        long dbTimeStart = System.currentTimeMillis();
-        DataResult output = variantsCollection.aggregate(/*"$histogram", */Arrays.asList(match, group, sort), options);
-        long dbTimeEnd = System.currentTimeMillis();
-
-        Map<Long, Document> ids = new HashMap<>();
-        // Create DBObject for intervals with features inside them
-        for (Document intervalObj : (List<Document>) output.getResults()) {
-            Long auxId = Math.round((Double) intervalObj.get("_id")); //is double
-
-            Document intervalVisited = ids.get(auxId);
-            if (intervalVisited == null) {
-                intervalObj.put("_id", auxId);
-                intervalObj.put("start", queryParser.getChunkStart(auxId.intValue(), regionIntervalSize));
-                intervalObj.put("end", queryParser.getChunkEnd(auxId.intValue(), regionIntervalSize));
-                intervalObj.put("chromosome", region.getChromosome());
-                intervalObj.put("features_count", Math.log((int) intervalObj.get("features_count")));
-                ids.put(auxId, intervalObj);
-            } else {
-                Double sum = (Double) intervalVisited.get("features_count") + Math.log((int) intervalObj.get("features_count"));
-                intervalVisited.put("features_count", sum.intValue());
-            }
-        }
-
-        // Create DBObject for intervals without features inside them
-        BasicDBList resultList = new BasicDBList();
-        int firstChunkId = queryParser.getChunkId(region.getStart(), regionIntervalSize);
-        int lastChunkId = queryParser.getChunkId(region.getEnd(), regionIntervalSize);
-        Document intervalObj;
-        for (int chunkId = firstChunkId; chunkId <= lastChunkId; chunkId++) {
-            intervalObj = ids.get((long) chunkId);
-            if (intervalObj == null) {
-                intervalObj = new Document();
-                intervalObj.put("_id", chunkId);
-                intervalObj.put("start", queryParser.getChunkStart(chunkId, regionIntervalSize));
-                intervalObj.put("end", queryParser.getChunkEnd(chunkId, regionIntervalSize));
-                intervalObj.put("chromosome", region.getChromosome());
-                intervalObj.put("features_count", 0);
-            }
-            resultList.add(intervalObj);
+        DataResult<Document> output = variantsCollection.aggregate(Arrays.asList(match, group), new QueryOptions());
+        for (Document intervalObj : output.getResults()) {
+            long intervalId = Math.round(((Number) intervalObj.get("_id")).doubleValue()); //is double
+            counts.merge(intervalId, ((Number) intervalObj.get("features_count")).longValue(), Long::sum);
         }
-
-        return new DataResult(((Long) (dbTimeEnd - dbTimeStart)).intValue(), Collections.emptyList(), resultList.size(), resultList,
-                resultList.size());
     }
 
     @Override
@@ -919,26 +1002,33 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         return updateStats(variantStatsWrappers, sm, timestamp, options);
     }
 
+    /**
+     * Write the stats of a batch of variants.
+     *
+     * Each document is written in a single pass with a $push of the new cohorts stats.
+     * If overwriting, the $push only matches documents without any of the cohorts, which is the common case.
+     * Only the documents with stats from a previous calculation require an extra $pull and $push.
+     *
+     * @param variantStatsWrappers  Stats to write
+     * @param studyMetadata         Study metadata
+     * @param timestamp             Timestamp of the operation
+     * @param options               Options
+     * @return                      Combined result of all the updates
+     */
     @Override
     public DataResult updateStats(List<VariantStatsWrapper> variantStatsWrappers, StudyMetadata studyMetadata,
                                    long timestamp, QueryOptions options) {
-//        MongoCollection<Document> coll = db.getDb().getCollection(collectionName);
-//        BulkWriteOperation pullBuilder = coll.initializeUnorderedBulkOperation();
-//        BulkWriteOperation pushBuilder = coll.initializeUnorderedBulkOperation();
-
-        List<Bson> pullQueriesBulkList = new LinkedList<>();
-        List<Bson> pullUpdatesBulkList = new LinkedList<>();
+        List<String> ids = new ArrayList<>(variantStatsWrappers.size());
+        List<Bson> pullUpdatesBulkList = new ArrayList<>(variantStatsWrappers.size());
 
-        List<Bson> pushQueriesBulkList = new LinkedList<>();
-        List<Bson> pushUpdatesBulkList = new LinkedList<>();
+        List<Bson> pushQueriesBulkList = new ArrayList<>(variantStatsWrappers.size());
+        List<Bson> pushUpdatesBulkList = new ArrayList<>(variantStatsWrappers.size());
 
-        long start = System.nanoTime();
+        StopWatch watch = StopWatch.createStarted();
         DocumentToVariantStatsConverter statsConverter = new DocumentToVariantStatsConverter(metadataManager);
-//        VariantSource variantSource = queryOptions.get(VariantStorageEngine.VARIANT_SOURCE, VariantSource.class);
         DocumentToVariantConverter variantConverter = getDocumentToVariantConverter(new Query(), options);
         boolean overwrite = options.getBoolean(VariantStorageOptions.STATS_OVERWRITE.key(), false);
 
-        // TODO make unset of 'st' if already present?
         for (VariantStatsWrapper wrapper : variantStatsWrappers) {
             Map<String, VariantStats> cohortStats = wrapper.getCohortStats();
 
@@ -946,38 +1036,36 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
                 continue;
             }
             List<Document> cohorts = statsConverter.convertCohortsToStorageType(cohortStats, studyMetadata.getId());
-            // remove when we remove fileId
-//            List cohorts = statsConverter.convertCohortsToStorageType(cohortStats, variantSource.getStudyId());   // TODO use when we
-// remove fileId
 
-            // add cohorts, overwriting old values if that cid, fid and sid already exists: remove and then add
+            // add cohorts, overwriting old values if that cid and sid already exists.
+            // Push only if the variant has none of the cohorts:
             // db.variants.update(
-            //      {_id:<id>},
-            //      {$pull:{st:{cid:{$in:["Cohort 1","cohort 2"]}, fid:{$in:["file 1", "file 2"]}, sid:{$in:["study 1", "study 2"]}}}}
+            //      {_id:<id>, st:{$not:{$elemMatch:{$or:[{cid:"Cohort 1", sid:"study 1"}, {cid:"Cohort 2", sid:"study 1"}]}}}},
+            //      {$push:{st:{$each: [{cid:"Cohort 1", ... , defaultValue:3},{cid:"Cohort 2", ... , defaultValue:3}] }}}
             // )
+            // Variants with any of the cohorts are cleaned and pushed again:
             // db.variants.update(
             //      {_id:<id>},
-            //      {$push:{st:{$each: [{cid:"Cohort 1", fid:"file 1", ... , defaultValue:3},{cid:"Cohort 2", ... , defaultValue:3}] }}}
+            //      {$pull:{st:{$or:[{cid:"Cohort 1", sid:"study 1"}, {cid:"Cohort 2", sid:"study 1"}]}}}
             // )
 
             if (!cohorts.isEmpty()) {
-                String id = variantConverter.buildStorageId(new Variant(wrapper.getChromosome(), wrapper.getStart(), wrapper.getEnd(),
-                        wrapper.getReference(), wrapper.getAlternate()).setSv(wrapper.getSv()));
+                String id = variantConverter.buildStorageId(wrapper.getChromosome(), wrapper.getStart(),
+                        wrapper.getReference(), wrapper.getAlternate(), wrapper.getSv());
+                ids.add(id);
 
                 Document find = new Document("_id", id);
                 if (overwrite) {
                     List<Document> idsList = new ArrayList<>(cohorts.size());
                     for (Document cohort : cohorts) {
-                        Document ids = new Document()
+                        Document cohortIds = new Document()
                                 .append(DocumentToVariantStatsConverter.COHORT_ID, cohort.get(DocumentToVariantStatsConverter.COHORT_ID))
                                 .append(DocumentToVariantStatsConverter.STUDY_ID, cohort.get(DocumentToVariantStatsConverter.STUDY_ID));
-                        idsList.add(ids);
+                        idsList.add(cohortIds);
                     }
-                    Document pull = new Document("$pull",
-                            new Document(DocumentToVariantConverter.STATS_FIELD,
-                                    new Document("$or", idsList)));
-                    pullQueriesBulkList.add(find);
-                    pullUpdatesBulkList.add(pull);
+                    Document cohortsFilter = new Document("$or", idsList);
+                    pullUpdatesBulkList.add(new Document("$pull", new Document(DocumentToVariantConverter.STATS_FIELD, cohortsFilter)));
+                    find.append(DocumentToVariantConverter.STATS_FIELD, new Document("$not", new Document("$elemMatch", cohortsFilter)));
                 }
 
                 Bson push = combine(pushEach(DocumentToVariantConverter.STATS_FIELD, cohorts), getSetIndexNotSynchronized(timestamp));
@@ -986,16 +1074,64 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
             }
         }
 
-        // TODO handle if the variant didn't had that studyId in the files array
-        // TODO check the substitution is done right if the stats are already present
-        if (overwrite) {
-            variantsCollection.update(pullQueriesBulkList, pullUpdatesBulkList, new QueryOptions());
+        if (ids.isEmpty()) {
+            return new DataResult().setTime((int) watch.getTime());
         }
+
         DataResult writeResult = variantsCollection.update(pushQueriesBulkList, pushUpdatesBulkList, new QueryOptions());
-        if (writeResult.getNumMatches() != pushQueriesBulkList.size()) {
-            logger.warn("Could not update stats from some variants: {} != {}, {} non loaded stats", writeResult.getNumMatches(),
-                    pushQueriesBulkList.size(), (pushQueriesBulkList.size() - writeResult.getNumMatches()));
+        long numMatches = writeResult.getNumMatches();
+        long numUpdated = writeResult.getNumUpdated();
+
+        if (numMatches != ids.size()) {
+            // Some variants were not updated. Either they were not found, or they have stats from a previous calculation.
+            // Variants updated by the first $push are marked with the timestamp of this operation.
+            Set<String> notFoundIds = new LinkedHashSet<>(ids);
+            Set<String> previousStatsIds = new HashSet<>();
+            Bson projection = Projections.include(DocumentToVariantConverter.INDEX_FIELD + '.'
+                    + DocumentToVariantConverter.INDEX_TIMESTAMP_FIELD);
+            for (Document document : variantsCollection.find(in("_id", ids), projection, new QueryOptions()).getResults()) {
+                String id = document.getString("_id");
+                notFoundIds.remove(id);
+                Document index = document.get(DocumentToVariantConverter.INDEX_FIELD, Document.class);
+                Object indexTimestamp = index == null ? null : index.get(DocumentToVariantConverter.INDEX_TIMESTAMP_FIELD);
+                if (overwrite && !(indexTimestamp instanceof Number && ((Number) indexTimestamp).longValue() == timestamp)) {
+                    previousStatsIds.add(id);
+                }
+            }
+
+            if (!previousStatsIds.isEmpty()) {
+                // Remove the old stats and push again, only in the variants with stats from a previous calculation
+                List<Bson> queries = new ArrayList<>(previousStatsIds.size());
+                List<Bson> pullUpdates = new ArrayList<>(previousStatsIds.size());
+                List<Bson> pushUpdates = new ArrayList<>(previousStatsIds.size());
+                for (int i = 0; i < ids.size(); i++) {
+                    if (previousStatsIds.contains(ids.get(i))) {
+                        queries.add(new Document("_id", ids.get(i)));
+                        pullUpdates.add(pullUpdatesBulkList.get(i));
+                        pushUpdates.add(pushUpdatesBulkList.get(i));
+                    }
+                }
+                variantsCollection.update(queries, pullUpdates, new QueryOptions());
+                DataResult secondWriteResult = variantsCollection.update(queries, pushUpdates, new QueryOptions());
+                numMatches += secondWriteResult.getNumMatches();
+                numUpdated += secondWriteResult.getNumUpdated();
+            }
+
+            if (numMatches != ids.size()) {
+                String warningMsg = "Could not update stats from " + (ids.size() - numMatches) + " out of " + ids.size()
+                        + " variants. Variants not found: " + String.join(", ", notFoundIds);
+                logger.warn(warningMsg);
+                List<Event> events = new ArrayList<>();
+                if (writeResult.getEvents() != null) {
+                    events.addAll(writeResult.getEvents());
+                }
+                events.add(new Event(Event.Type.WARNING, warningMsg));
+                writeResult.setEvents(events);
+            }
         }
+        writeResult.setNumMatches(numMatches);
+        writeResult.setNumUpdated(numUpdated);
+        writeResult.setTime((int) watch.getTime());
 
         return writeResult;
     }
@@ -1320,6 +1456,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
     @Override
     public void setVariantStorageMetadataManager(VariantStorageMetadataManager variantStorageMetadataManager) {
         this.metadataManager = variantStorageMetadataManager;
+        this.chunkCounts = new VariantMongoDBChunkCounts(variantsCollection, getChunkCountsCollection(), variantStorageMetadataManager);
     }
 
 }
@@ -0,0 +1,334 @@
+package org.opencb.opencga.storage.mongodb.variant.adaptors;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Updates.*;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryUtils.*;
+import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter.STUDYID_FIELD;
+
+/**
+ * Number of variants of each study per chunk of {@link VariantMongoDBAdaptor#CHUNK_SIZE_SMALL} bases, split by variant type.
+ *
+ * Used to serve region histograms without scanning the variants collection. Operations modifying the variants of a study
+ * update the counters incrementally, and the counters are not used while any of these operations is running. If the
+ * counters were not valid when an operation started, or the operation failed, they are rebuilt by the next operation to
+ * finish successfully.
+ *
+ * Created on 19/10/20.
+ */
+public class VariantMongoDBChunkCounts {
+
+    public static final String STUDY_FIELD = "sid";
+    public static final String CHROMOSOME_FIELD = "chr";
+    public static final String CHUNK_FIELD = "chunk";
+    public static final String COUNT_FIELD = "n";
+    public static final String TYPES_FIELD = "t";
+    public static final String READY_FIELD = "ready";
+    public static final String RUNNING_FIELD = "running";
+
+    private static final int CHUNK_SIZE = VariantMongoDBAdaptor.CHUNK_SIZE_SMALL;
+    private static final int BATCH_SIZE = 1000;
+    private static final QueryOptions MULTI = new QueryOptions(MongoDBCollection.MULTI, true);
+    private static final QueryOptions UPSERT = new QueryOptions(MongoDBCollection.UPSERT, true);
+    private static final QueryOptions UPSERT_RETURN_OLD = new QueryOptions(MongoDBCollection.UPSERT, true).append("returnNew", false);
+    private static final QueryOptions RETURN_NEW = new QueryOptions("returnNew", true);
+
+    private final MongoDBCollection variantsCollection;
+    private final MongoDBCollection chunkCountsCollection;
+    private final VariantStorageMetadataManager metadataManager;
+    private boolean indexed = false;
+
+    private final Logger logger = LoggerFactory.getLogger(VariantMongoDBChunkCounts.class);
+
+    public VariantMongoDBChunkCounts(MongoDBCollection variantsCollection, MongoDBCollection chunkCountsCollection,
+                                     VariantStorageMetadataManager metadataManager) {
+        this.variantsCollection = variantsCollection;
+        this.chunkCountsCollection = chunkCountsCollection;
+        this.metadataManager = metadataManager;
+    }
+
+    /**
+     * Register an operation modifying the variants of a study. Counters are not used until all the operations finish.
+     * Must be followed by a call to {@link #endUpdate}.
+     *
+     * @param studyId     Study id
+     * @param incremental If the operation is able to update the counters incrementally
+     * @return If the counters must be updated incrementally by the operation. Otherwise, they will be rebuilt at the end.
+     */
+    public boolean startUpdate(int studyId, boolean incremental) {
+        createIndexes();
+        Document status = chunkCountsCollection.findAndUpdate(eq("_id", statusId(studyId)), null, null, inc(RUNNING_FIELD, 1),
+                UPSERT_RETURN_OLD).first();
+        boolean neverBuilt = status == null || !status.containsKey(READY_FIELD);
+        boolean ready;
+        if (neverBuilt) {
+            // Counters never built. Studies without indexed files start with empty counters
+            ready = metadataManager.getIndexedFiles(studyId).isEmpty();
+            if (ready) {
+                clear(studyId);
+            }
+        } else {
+            ready = status.getBoolean(READY_FIELD, false);
+        }
+        if (neverBuilt || ready && !incremental) {
+            setReady(studyId, ready && incremental);
+        }
+        return ready && incremental;
+    }
+
+    /**
+     * Register the end of an operation started with {@link #startUpdate}.
+     * If the counters are not valid, and there are no other operations running, rebuild them.
+     *
+     * @param studyId Study id
+     * @param success If the operation finished successfully. Otherwise, the counters are no longer valid.
+     */
+    public void endUpdate(int studyId, boolean success) {
+        Bson update = success
+                ? inc(RUNNING_FIELD, -1)
+                : combine(inc(RUNNING_FIELD, -1), set(READY_FIELD, false));
+        Document status = chunkCountsCollection.findAndUpdate(eq("_id", statusId(studyId)), null, null, update, RETURN_NEW).first();
+        if (success && status != null && !status.getBoolean(READY_FIELD, false) && status.getInteger(RUNNING_FIELD, 0) <= 0) {
+            rebuild(studyId);
+        }
+    }
+
+    /**
+     * Count the variants that are new in the study.
+     *
+     * @param studyId  Study id
+     * @param variants Variants that did not have the study before
+     */
+    public void add(int studyId, Collection<Variant> variants) {
+        Map<String, Map<Integer, Map<String, Integer>>> counts = new HashMap<>();
+        for (Variant variant : variants) {
+            counts.computeIfAbsent(variant.getChromosome(), c -> new HashMap<>())
+                    .computeIfAbsent(variant.getStart() / CHUNK_SIZE, c -> new HashMap<>())
+                    .merge(variant.getType().name(), 1, Integer::sum);
+        }
+        addCounts(studyId, counts, 1);
+    }
+
+    /**
+     * Discount the variants that are going to be removed from the study.
+     *
+     * @param studyId       Study id
+     * @param variantsQuery Query over the variants collection matching the variants to be removed from the study
+     */
+    public void subtract(int studyId, Bson variantsQuery) {
+        addCounts(studyId, aggregate(variantsQuery), -1);
+    }
+
+    /**
+     * Remove all the counters of a study. Used when the study is removed.
+     *
+     * @param studyId Study id
+     */
+    public void clear(int studyId) {
+        chunkCountsCollection.remove(and(eq(STUDY_FIELD, studyId), exists(CHROMOSOME_FIELD)), MULTI);
+    }
+
+    /**
+     * Compute again all the counters of a study, reading all the variants of the study once, one chromosome at a time.
+     * Only used to repair counters that are not valid. Refused while there are operations running, as the last one
+     * to finish will rebuild the counters if needed. The counters are only marked as ready if no operation started
+     * during the rebuild. Otherwise, that operation will rebuild them when it finishes.
+     *
+     * @param studyId Study id
+     * @return If the counters were rebuilt
+     */
+    public boolean rebuild(int studyId) {
+        Document status = chunkCountsCollection.find(eq("_id", statusId(studyId)), new QueryOptions()).first();
+        if (status != null && status.getInteger(RUNNING_FIELD, 0) > 0) {
+            logger.warn("Unable to rebuild chunk counts of study {} with {} operations running", studyId,
+                    status.getInteger(RUNNING_FIELD));
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        createIndexes();
+        setReady(studyId, false);
+        clear(studyId);
+
+        Bson studyFilter = eq(DocumentToVariantConverter.STUDIES_FIELD + '.' + STUDYID_FIELD, studyId);
+        List<String> chromosomes = variantsCollection.distinct(DocumentToVariantConverter.CHROMOSOME_FIELD, studyFilter, String.class)
+                .getResults();
+        for (String chromosome : chromosomes) {
+            addCounts(studyId, aggregate(and(studyFilter, eq(DocumentToVariantConverter.CHROMOSOME_FIELD, chromosome))), 1);
+        }
+        chunkCountsCollection.update(and(eq("_id", statusId(studyId)), not(gt(RUNNING_FIELD, 0))), set(READY_FIELD, true),
+                new QueryOptions());
+        logger.info("Rebuilt chunk counts of study {} for {} chromosomes in {}s", studyId, chromosomes.size(),
+                (System.currentTimeMillis() - start) / 1000.0);
+        return true;
+    }
+
+    // Number of variants matching the filter per chromosome, chunk and variant type
+    private Map<String, Map<Integer, Map<String, Integer>>> aggregate(Bson filter) {
+        Document match = new Document("$match", filter);
+        Document chunkStart = new Document("$subtract", Arrays.asList("$" + DocumentToVariantConverter.START_FIELD,
+                new Document("$mod", Arrays.asList("$" + DocumentToVariantConverter.START_FIELD, CHUNK_SIZE))));
+        Document group = new Document("$group", new Document("_id", new Document()
+                .append(CHROMOSOME_FIELD, "$" + DocumentToVariantConverter.CHROMOSOME_FIELD)
+                .append(CHUNK_FIELD, chunkStart)
+                .append(TYPES_FIELD, "$" + DocumentToVariantConverter.TYPE_FIELD))
+                .append(COUNT_FIELD, new Document("$sum", 1)));
+
+        Map<String, Map<Integer, Map<String, Integer>>> counts = new HashMap<>();
+        for (Document result : variantsCollection.aggregate(Arrays.asList(match, group), new QueryOptions()).getResults()) {
+            Document id = result.get("_id", Document.class);
+            counts.computeIfAbsent(id.getString(CHROMOSOME_FIELD), c -> new HashMap<>())
+                    .computeIfAbsent(((Number) id.get(CHUNK_FIELD)).intValue() / CHUNK_SIZE, c -> new HashMap<>())
+                    .merge(id.getString(TYPES_FIELD), ((Number) result.get(COUNT_FIELD)).intValue(), Integer::sum);
+        }
+        return counts;
+    }
+
+    // Add the counts to the counters, creating the missing chunks, with one bulk update per batch of chunks
+    private void addCounts(int studyId, Map<String, Map<Integer, Map<String, Integer>>> counts, int sign) {
+        List<Bson> queries = new ArrayList<>(BATCH_SIZE);
+        List<Bson> updates = new ArrayList<>(BATCH_SIZE);
+        for (Map.Entry<String, Map<Integer, Map<String, Integer>>> chromosomeEntry : counts.entrySet()) {
+            String chromosome = chromosomeEntry.getKey();
+            for (Map.Entry<Integer, Map<String, Integer>> chunkEntry : chromosomeEntry.getValue().entrySet()) {
+                int chunk = chunkEntry.getKey();
+                List<Bson> chunkUpdates = new ArrayList<>(chunkEntry.getValue().size() + 4);
+                int total = 0;
+                for (Map.Entry<String, Integer> typeEntry : chunkEntry.getValue().entrySet()) {
+                    chunkUpdates.add(inc(TYPES_FIELD + '.' + typeEntry.getKey(), sign * typeEntry.getValue()));
+                    total += typeEntry.getValue();
+                }
+                chunkUpdates.add(inc(COUNT_FIELD, sign * total));
+                chunkUpdates.add(setOnInsert(STUDY_FIELD, studyId));
+                chunkUpdates.add(setOnInsert(CHROMOSOME_FIELD, chromosome));
+                chunkUpdates.add(setOnInsert(CHUNK_FIELD, chunk));
+                queries.add(eq("_id", buildId(studyId, chromosome, chunk)));
+                updates.add(combine(chunkUpdates));
+                if (queries.size() == BATCH_SIZE) {
+                    chunkCountsCollection.update(queries, updates, UPSERT);
+                    queries.clear();
+                    updates.clear();
+                }
+            }
+        }
+        if (!queries.isEmpty()) {
+            chunkCountsCollection.update(queries, updates, UPSERT);
+        }
+    }
+
+    /**
+     * Check if the given query can be answered using the chunk counters.
+     * Only queries filtering by one single study, and optionally by a list of variant types, are supported.
+     *
+     * @param query Query
+     * @return Study id, or null if the query can not be answered with the counters.
+     */
+    public Integer getCountersStudy(Query query) {
+        Set<VariantQueryParam> params = validParams(query, true);
+        params.remove(VariantQueryParam.STUDY);
+        params.remove(VariantQueryParam.TYPE);
+        if (!params.isEmpty()) {
+            return null;
+        }
+        if (isValidParam(query, VariantQueryParam.TYPE)) {
+            String types = query.getString(VariantQueryParam.TYPE.key());
+            QueryOperation operation = checkOperator(types);
+            if (operation == QueryOperation.AND || splitValue(types, operation).stream().anyMatch(type -> isNegated(type))) {
+                return null;
+            }
+        }
+
+        Integer studyId;
+        if (isValidParam(query, VariantQueryParam.STUDY)) {
+            String study = query.getString(VariantQueryParam.STUDY.key());
+            if (isNegated(study) || checkOperator(study) != null) {
+                return null;
+            }
+            studyId = metadataManager.getStudyIdOrNull(study);
+        } else {
+            // Without study filter, the counters are only valid if there is one single study
+            Map<String, Integer> studies = metadataManager.getStudies();
+            studyId = studies.size() == 1 ? studies.values().iterator().next() : null;
+        }
+        if (studyId == null || !isReady(studyId)) {
+            return null;
+        }
+        return studyId;
+    }
+
+    /**
+     * Sum the counters of a range of chunks, grouping them in intervals.
+     *
+     * @param studyId      Study id
+     * @param chromosome   Chromosome
+     * @param firstChunk   First chunk to read, inclusive
+     * @param lastChunk    Last chunk to read, inclusive
+     * @param intervalSize Interval size. Must be a multiple of {@link VariantMongoDBAdaptor#CHUNK_SIZE_SMALL}
+     * @param types        Variant types to count. Count all variants if empty.
+     * @param counts       Number of variants per interval id
+     */
+    public void count(int studyId, String chromosome, int firstChunk, int lastChunk, int intervalSize, List<String> types,
+                      Map<Long, Long> counts) {
+        Bson query = and(eq(STUDY_FIELD, studyId), eq(CHROMOSOME_FIELD, chromosome), gte(CHUNK_FIELD, firstChunk),
+                lte(CHUNK_FIELD, lastChunk));
+        int chunksPerInterval = intervalSize / CHUNK_SIZE;
+        for (Document document : chunkCountsCollection.find(query, new QueryOptions()).getResults()) {
+            long count;
+            if (types.isEmpty()) {
+                count = ((Number) document.get(COUNT_FIELD)).longValue();
+            } else {
+                count = 0;
+                Document typesCount = document.get(TYPES_FIELD, Document.class);
+                for (String type : types) {
+                    Number typeCount = (Number) typesCount.get(type);
+                    if (typeCount != null) {
+                        count += typeCount.longValue();
+                    }
+                }
+            }
+            if (count > 0) {
+                long intervalId = document.getInteger(CHUNK_FIELD) / chunksPerInterval;
+                counts.merge(intervalId, count, Long::sum);
+            }
+        }
+    }
+
+    public boolean isReady(int studyId) {
+        Document status = chunkCountsCollection.find(eq("_id", statusId(studyId)), new QueryOptions()).first();
+        return status != null && status.getBoolean(READY_FIELD, false) && status.getInteger(RUNNING_FIELD, 0) <= 0;
+    }
+
+    private void setReady(int studyId, boolean ready) {
+        chunkCountsCollection.update(eq("_id", statusId(studyId)), set(READY_FIELD, ready), UPSERT);
+    }
+
+    private static String statusId(int studyId) {
+        return String.valueOf(studyId);
+    }
+
+    private void createIndexes() {
+        if (!indexed) {
+            chunkCountsCollection.createIndex(new Document(STUDY_FIELD, 1).append(CHROMOSOME_FIELD, 1).append(CHUNK_FIELD, 1),
+                    new ObjectMap(MongoDBCollection.BACKGROUND, true));
+            indexed = true;
+        }
+    }
+
+    private static String buildId(int studyId, String chromosome, int chunk) {
+        return studyId + "_" + chromosome + "_" + chunk;
+    }
+
+}
@@ -469,6 +469,10 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
 //        return buildStorageId(v.getChromosome(), v.getStart(), v.getReference(), v.getAlternate());
     }
 
+    public String buildStorageId(String chromosome, int start, String reference, String alternate, StructuralVariation sv) {
+        return idConverter.buildId(chromosome, start, reference, alternate, sv);
+    }
+
     public String buildStorageId(String chromosome, int start, String reference, String alternate) {
         return idConverter.buildId(chromosome, start, reference, alternate);
 //
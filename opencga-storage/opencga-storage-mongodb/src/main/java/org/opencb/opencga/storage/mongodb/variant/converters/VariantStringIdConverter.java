@@ -123,7 +123,7 @@ public class VariantStringIdConverter {
         return buildId(chromosome, start, reference, alternate, null);
     }
 
-    private String buildId(String chromosome, int start, String reference, String alternate, StructuralVariation sv) {
+    public String buildId(String chromosome, int start, String reference, String alternate, StructuralVariation sv) {
         StringBuilder stringBuilder = buildId(chromosome, start, new StringBuilder());
 
         stringBuilder.append(SEPARATOR_CHAR);
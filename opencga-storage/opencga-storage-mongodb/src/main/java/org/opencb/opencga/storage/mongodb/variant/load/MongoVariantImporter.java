@@ -16,6 +16,8 @@
 
 package org.opencb.opencga.storage.mongodb.variant.load;
 
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.InsertManyOptions;
 import org.bson.Document;
 import org.opencb.biodata.formats.variant.io.VariantReader;
 import org.opencb.biodata.models.variant.StudyEntry;
@@ -26,13 +28,13 @@ import org.opencb.biodata.models.variant.metadata.VariantMetadata;
 import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.biodata.tools.variant.metadata.VariantMetadataManager;
 import org.opencb.commons.ProgressLogger;
-import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.io.DataWriter;
 import org.opencb.commons.run.ParallelTaskRunner;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.StudyConfiguration;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.io.VariantImporter;
 import org.opencb.opencga.storage.core.variant.io.avro.VariantAvroReader;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
@@ -57,10 +59,12 @@ import java.util.stream.Collectors;
 public class MongoVariantImporter extends VariantImporter {
 
     private final MongoDBCollection variantsCollection;
+    private final MongoCollection<Document> variantsNativeCollection;
 
     public MongoVariantImporter(VariantMongoDBAdaptor dbAdaptor) {
         super(dbAdaptor);
         this.variantsCollection = dbAdaptor.getVariantsCollection();
+        this.variantsNativeCollection = dbAdaptor.getVariantsNativeCollection();
     }
 
 
@@ -82,9 +86,19 @@ public class MongoVariantImporter extends VariantImporter {
         ParallelTaskRunner.Task<Variant, Document> converterTask =
                 new VariantToDocumentConverter(studyConfigurations, metadata, progressLogger);
 
-        DataWriter<Document> writer = new MongoDBVariantDocumentDBWriter(variantsCollection);
+        DataWriter<Document> writer = new MongoDBVariantDocumentDBWriter(variantsCollection, variantsNativeCollection);
 
-        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder().setNumTasks(5).setSorted(false).setBatchSize(200).build();
+        // Exported data is already merged, and usually sorted by genomic position. Keep the input order, so the documents are
+        // inserted with increasing _id, appending to the right of the _id index instead of splitting random pages.
+        int batchSize = options.getInt(VariantStorageOptions.IMPORT_BATCH_SIZE.key(),
+                VariantStorageOptions.IMPORT_BATCH_SIZE.defaultValue());
+        int numThreads = options.getInt(VariantStorageOptions.IMPORT_THREADS.key(),
+                VariantStorageOptions.IMPORT_THREADS.defaultValue());
+        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                .setNumTasks(numThreads)
+                .setSorted(true)
+                .setBatchSize(batchSize)
+                .build();
 
         ParallelTaskRunner<Variant, Document> ptr = new ParallelTaskRunner<>(variantReader, converterTask, writer, config);
 
@@ -148,28 +162,43 @@ public class MongoVariantImporter extends VariantImporter {
                     }
                 }
                 return variant;
-            }).map(variantConverter::convertToStorageType).collect(Collectors.toList());
+            }).map(variantConverter::convertToStorageType)
+                    // Sort within the batch, in case the input is not completely sorted
+                    .sorted(Comparator.comparing(document -> document.getString("_id")))
+                    .collect(Collectors.toList());
         }
     }
 
     /**
-     * Simple DataWriter for importing data into MongoDB.
+     * DataWriter for importing data into MongoDB.
+     * Each batch is written with one unordered bulk insert. The secondary indexes are built once, after inserting all the documents.
      */
     private static class MongoDBVariantDocumentDBWriter implements DataWriter<Document> {
 
         private final MongoDBCollection collection;
+        private final MongoCollection<Document> nativeCollection;
+        private final InsertManyOptions insertOptions = new InsertManyOptions().ordered(false);
         private int insertedCount = 0;
 
-        MongoDBVariantDocumentDBWriter(MongoDBCollection collection) {
+        MongoDBVariantDocumentDBWriter(MongoDBCollection collection, MongoCollection<Document> nativeCollection) {
             this.collection = collection;
+            this.nativeCollection = nativeCollection;
         }
 
         @Override
-        public boolean write(List<Document> batch) {
-
-            DataResult result = collection.insert(batch, QueryOptions.empty());
-            insertedCount += result.getNumInserted();
+        public boolean pre() {
+            // Do not maintain the secondary indexes of an empty collection on every insert. They are built in the post step.
+            if (collection.count().getNumMatches() == 0) {
+                nativeCollection.dropIndexes();
+            }
+            return true;
+        }
 
+        @Override
+        public boolean write(List<Document> batch) {
+            // Unordered inserts are not stopped at the first error, and the server can apply them in parallel.
+            nativeCollection.insertMany(batch, insertOptions);
+            insertedCount += batch.size();
             return true;
         }
 
@@ -32,13 +32,19 @@ public class MongoDBVariantDirectLoader implements DataWriter<MongoDBOperations>
 
     public MongoDBVariantDirectLoader(VariantMongoDBAdaptor dbAdaptor, final StudyMetadata studyMetadata, int fileId,
                                       boolean resume, ProgressLogger progressLogger) {
+        this(dbAdaptor, studyMetadata, fileId, resume, progressLogger, false);
+    }
+
+    public MongoDBVariantDirectLoader(VariantMongoDBAdaptor dbAdaptor, final StudyMetadata studyMetadata, int fileId,
+                                      boolean resume, ProgressLogger progressLogger, boolean updateChunkCounts) {
         MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
         stageLoader = new MongoDBVariantStageLoader(stageCollection, studyMetadata.getId(), fileId, resume, true);
         variantsLoader = new MongoDBVariantMergeLoader(
                 dbAdaptor.getVariantsCollection(),
                 stageCollection,
                 dbAdaptor.getStudiesCollection(),
-                studyMetadata, Collections.singletonList(fileId), resume, false, progressLogger);
+                studyMetadata, Collections.singletonList(fileId), resume, false, progressLogger,
+                updateChunkCounts ? dbAdaptor.getChunkCounts() : null);
     }
 
     @Override
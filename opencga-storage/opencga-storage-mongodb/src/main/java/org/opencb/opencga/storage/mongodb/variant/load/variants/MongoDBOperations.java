@@ -18,6 +18,7 @@ package org.opencb.opencga.storage.mongodb.variant.load.variants;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
+import org.opencb.biodata.models.variant.Variant;
 
 import java.util.*;
 
@@ -133,6 +134,8 @@ public class MongoDBOperations {
         // Used if the document does not exist
         // This collection may be smaller than the previous collections
         private final List<Document> variants = new LinkedList<>();
+        // All the variants that will have the study. Used to update the chunk counts
+        private final List<Variant> studyVariants = new LinkedList<>();
 
         public List<String> getIds() {
             return ids;
@@ -149,6 +152,10 @@ public class MongoDBOperations {
         public List<Document> getVariants() {
             return variants;
         }
+
+        public List<Variant> getStudyVariants() {
+            return studyVariants;
+        }
     }
 
     // Document and study exist
@@ -29,6 +29,7 @@ import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.commons.io.DataWriter;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
+import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBChunkCounts;
 import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
 import org.opencb.opencga.storage.mongodb.variant.load.MongoDBVariantWriteResult;
 import org.slf4j.Logger;
@@ -79,6 +80,8 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
     private final Integer studyId;
     /** Files to be loaded. */
     private final List<Integer> fileIds;
+    /** Chunk counts to update with the variants new in the study. Null if the counts are not updated incrementally. */
+    private final VariantMongoDBChunkCounts chunkCounts;
 
     // Variables that must be aware of concurrent modification
     private final MongoDBVariantWriteResult result;
@@ -88,7 +91,16 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
     public MongoDBVariantMergeLoader(MongoDBCollection variantsCollection, MongoDBCollection stageCollection,
                                      MongoDBCollection studiesCollection, StudyMetadata studyMetadata, List<Integer> fileIds,
                                      boolean resume, boolean cleanWhileLoading, ProgressLogger progressLogger) {
+        this(variantsCollection, stageCollection, studiesCollection, studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger,
+                null);
+    }
+
+    public MongoDBVariantMergeLoader(MongoDBCollection variantsCollection, MongoDBCollection stageCollection,
+                                     MongoDBCollection studiesCollection, StudyMetadata studyMetadata, List<Integer> fileIds,
+                                     boolean resume, boolean cleanWhileLoading, ProgressLogger progressLogger,
+                                     VariantMongoDBChunkCounts chunkCounts) {
         this.progressLogger = progressLogger;
+        this.chunkCounts = chunkCounts;
         this.variantsCollection = variantsCollection;
         this.stageCollection = stageCollection;
         this.studiesCollection = studiesCollection;
@@ -143,6 +155,10 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         long newVariants = 0;
         if (!mongoDBOps.getNewStudy().getQueries().isEmpty()) {
             newVariants = executeMongoDBOperationsNewStudy(mongoDBOps, true);
+            if (chunkCounts != null) {
+                // All the operations succeeded, so all these variants have now the study
+                chunkCounts.add(studyId, mongoDBOps.getNewStudy().getStudyVariants());
+            }
         }
         existingVariants.stop();
         StopWatch fillGapsVariants = StopWatch.createStarted();
@@ -1110,6 +1110,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
                     id = variantConverter.buildStorageId(emptyVar);
                 }
                 mongoDBOps.getNewStudy().getIds().add(id);
+                mongoDBOps.getNewStudy().getStudyVariants().add(emptyVar);
                 mongoDBOps.getNewStudy().getQueries().add(eq("_id", id));
                 mongoDBOps.getNewStudy().getUpdates().add(combine(updates));
             } else {
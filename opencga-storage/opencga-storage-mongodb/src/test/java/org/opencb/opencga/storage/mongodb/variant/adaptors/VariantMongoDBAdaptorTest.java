@@ -1,11 +1,37 @@
 package org.opencb.opencga.storage.mongodb.variant.adaptors;
 
+import org.bson.Document;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.feature.Genotype;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.stats.VariantStatsWrapper;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Event;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBIterator;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptorTest;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantStatsConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantStringIdConverter;
 
 import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.mongodb.client.model.Filters.and;
+import static com.mongodb.client.model.Filters.eq;
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.ID;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.STUDY;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.TYPE;
 
 /**
  * Created on 22/12/17.
@@ -24,6 +50,178 @@ public class VariantMongoDBAdaptorTest extends VariantDBAdaptorTest implements M
         logLevel("info");
     }
 
+    @Test
+    public void testGetFrequencyChunkCounts() {
+        VariantMongoDBChunkCounts chunkCounts = ((VariantMongoDBAdaptor) dbAdaptor).getChunkCounts();
+        Region region = new Region("1", 1500, 100000500);
+        for (Query query : Arrays.asList(
+                new Query(STUDY.key(), studyMetadata.getName()),
+                new Query(STUDY.key(), studyMetadata.getName()).append(TYPE.key(), "SNV,INDEL"))) {
+            chunkCounts.rebuild(studyMetadata.getId());
+            assertNotNull(chunkCounts.getCountersStudy(query));
+            DataResult<Document> fromCounters = dbAdaptor.getFrequency(query, region, 1000000);
+
+            // Counters are not used while the variants are being modified
+            chunkCounts.startUpdate(studyMetadata.getId(), true);
+            assertNull(chunkCounts.getCountersStudy(query));
+            DataResult<Document> fromAggregation = dbAdaptor.getFrequency(query, region, 1000000);
+            chunkCounts.endUpdate(studyMetadata.getId(), true);
+
+            assertEquals(fromAggregation.getResults(), fromCounters.getResults());
+            assertTrue(fromCounters.getResults().stream().anyMatch(interval -> !interval.get("features_count").equals(0)));
+        }
+        chunkCounts.rebuild(studyMetadata.getId());
+        assertNull(chunkCounts.getCountersStudy(new Query(STUDY.key(), studyMetadata.getName()).append(TYPE.key(), "!SNV")));
+    }
+
+    @Test
+    public void testChunkCountsIncrementalUpdate() {
+        VariantMongoDBChunkCounts chunkCounts = ((VariantMongoDBAdaptor) dbAdaptor).getChunkCounts();
+        int studyId = studyMetadata.getId();
+        Query query = new Query(STUDY.key(), studyMetadata.getName());
+        Region region = new Region("1", 1500, 100000500);
+
+        // Counters were updated incrementally while loading the variants
+        assertNotNull(chunkCounts.getCountersStudy(query));
+        DataResult<Document> fromCounters = dbAdaptor.getFrequency(query, region, 1000000);
+
+        assertTrue(chunkCounts.startUpdate(studyId, true));
+        DataResult<Document> fromAggregation = dbAdaptor.getFrequency(query, region, 1000000);
+        assertEquals(fromAggregation.getResults(), fromCounters.getResults());
+
+        // Remove the variants of one chromosome from the counters, and add them back
+        chunkCounts.subtract(studyId, and(eq(DocumentToVariantConverter.CHROMOSOME_FIELD, "1"),
+                eq(DocumentToVariantConverter.STUDIES_FIELD + '.' + DocumentToStudyVariantEntryConverter.STUDYID_FIELD, studyId)));
+        Map<Long, Long> counts = new HashMap<>();
+        chunkCounts.count(studyId, "1", 0, Integer.MAX_VALUE / 1000, 1000, Collections.emptyList(), counts);
+        assertEquals(Collections.emptyMap(), counts);
+
+        List<Variant> variants = allVariants.getResults().stream()
+                .filter(variant -> variant.getChromosome().equals("1"))
+                .collect(Collectors.toList());
+        assertFalse(variants.isEmpty());
+        chunkCounts.add(studyId, variants);
+        chunkCounts.endUpdate(studyId, true);
+
+        assertNotNull(chunkCounts.getCountersStudy(query));
+        assertEquals(fromAggregation.getResults(), dbAdaptor.getFrequency(query, region, 1000000).getResults());
+    }
+
+    @Test
+    public void testChunkCountsFailedUpdate() {
+        VariantMongoDBChunkCounts chunkCounts = ((VariantMongoDBAdaptor) dbAdaptor).getChunkCounts();
+        int studyId = studyMetadata.getId();
+        Query query = new Query(STUDY.key(), studyMetadata.getName());
+        chunkCounts.rebuild(studyId);
+
+        // A failed operation leaves the counters not valid
+        assertTrue(chunkCounts.startUpdate(studyId, true));
+        chunkCounts.endUpdate(studyId, false);
+        assertNull(chunkCounts.getCountersStudy(query));
+
+        // The next operation can not update them incrementally, and rebuilds them when it finishes
+        assertFalse(chunkCounts.startUpdate(studyId, true));
+        chunkCounts.endUpdate(studyId, true);
+        assertNotNull(chunkCounts.getCountersStudy(query));
+    }
+
+    @Test
+    public void testChunkCountsRebuildWhileRunning() {
+        VariantMongoDBChunkCounts chunkCounts = ((VariantMongoDBAdaptor) dbAdaptor).getChunkCounts();
+        int studyId = studyMetadata.getId();
+        Query query = new Query(STUDY.key(), studyMetadata.getName());
+        assertTrue(chunkCounts.rebuild(studyId));
+
+        // Refused while an operation is running. The counters are not used until it finishes
+        assertTrue(chunkCounts.startUpdate(studyId, true));
+        assertFalse(chunkCounts.rebuild(studyId));
+        assertNull(chunkCounts.getCountersStudy(query));
+        chunkCounts.endUpdate(studyId, true);
+        assertNotNull(chunkCounts.getCountersStudy(query));
+    }
+
+    @Test
+    public void testUpdateStatsOverwrite() throws Exception {
+        VariantMongoDBAdaptor mongoDBAdaptor = (VariantMongoDBAdaptor) dbAdaptor;
+        String cohortName = "cohort_update_stats";
+        int cohortId = dbAdaptor.getMetadataManager().registerCohort(studyMetadata.getName(), cohortName, Collections.emptyList());
+        List<Variant> variants = allVariants.getResults().subList(0, 10);
+        QueryOptions options = new QueryOptions(VariantStorageOptions.STATS_OVERWRITE.key(), true);
+        try {
+            // Only half of the variants have stats from a previous calculation
+            DataResult result = mongoDBAdaptor.updateStats(newStatsWrappers(variants.subList(0, 5), cohortName, 0.1F),
+                    studyMetadata, 1, options);
+            assertEquals(5, result.getNumMatches());
+
+            result = mongoDBAdaptor.updateStats(newStatsWrappers(variants, cohortName, 0.2F), studyMetadata, 2, options);
+            assertEquals(10, result.getNumMatches());
+            assertEquals(10, result.getNumUpdated());
+            assertTrue(result.getEvents() == null || result.getEvents().isEmpty());
+
+            for (Variant variant : variants) {
+                List<Document> stats = getCohortStats(variant, cohortId);
+                assertEquals(variant.toString(), 1, stats.size());
+                assertEquals(0.2F, ((Number) stats.get(0).get(DocumentToVariantStatsConverter.MAF_FIELD)).floatValue(), 0.0001);
+            }
+        } finally {
+            mongoDBAdaptor.removeStats(studyMetadata.getName(), cohortName, new QueryOptions());
+        }
+    }
+
+    @Test
+    public void testUpdateStatsMissingVariants() throws Exception {
+        VariantMongoDBAdaptor mongoDBAdaptor = (VariantMongoDBAdaptor) dbAdaptor;
+        String cohortName = "cohort_update_stats_missing";
+        dbAdaptor.getMetadataManager().registerCohort(studyMetadata.getName(), cohortName, Collections.emptyList());
+        List<Variant> variants = new ArrayList<>(allVariants.getResults().subList(0, 2));
+        variants.add(new Variant("1:1:A:T"));
+        try {
+            DataResult result = mongoDBAdaptor.updateStats(newStatsWrappers(variants, cohortName, 0.1F), studyMetadata, 1,
+                    new QueryOptions(VariantStorageOptions.STATS_OVERWRITE.key(), true));
+            assertEquals(2, result.getNumMatches());
+            assertEquals(1, result.getEvents().size());
+            Event event = (Event) result.getEvents().get(0);
+            assertEquals(Event.Type.WARNING, event.getType());
+            assertTrue(event.getMessage(), event.getMessage().startsWith("Could not update stats from 1 out of 3 variants"));
+            // The missing variant is reported
+            assertTrue(event.getMessage(), event.getMessage().endsWith(new VariantStringIdConverter().buildId(new Variant("1:1:A:T"))));
+        } finally {
+            mongoDBAdaptor.removeStats(studyMetadata.getName(), cohortName, new QueryOptions());
+        }
+    }
+
+    private List<VariantStatsWrapper> newStatsWrappers(List<Variant> variants, String cohortName, float maf) {
+        List<VariantStatsWrapper> wrappers = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            VariantStats stats = new VariantStats();
+            stats.setRefAlleleCount(10);
+            stats.setAltAlleleCount(0);
+            stats.setMissingAlleleCount(0);
+            stats.setMissingGenotypeCount(0);
+            stats.setMaf(maf);
+            stats.setMafAllele(variant.getAlternate());
+            stats.setMgf(maf);
+            stats.setMgfGenotype("0/1");
+            stats.addGenotype(new Genotype("0/0"), 5, false);
+            Map<String, VariantStats> cohortStats = new HashMap<>();
+            cohortStats.put(cohortName, stats);
+            wrappers.add(new VariantStatsWrapper(variant, cohortStats));
+        }
+        return wrappers;
+    }
+
+    private List<Document> getCohortStats(Variant variant, int cohortId) {
+        MongoDBIterator<Document> iterator = ((VariantMongoDBAdaptor) dbAdaptor)
+                .nativeIterator(new Query(ID.key(), variant.toString()), new QueryOptions(), false);
+        Document document = iterator.next();
+        iterator.close();
+        List<Document> stats = document.get(DocumentToVariantConverter.STATS_FIELD, List.class);
+        return stats.stream()
+                .filter(st -> st.get(DocumentToVariantStatsConverter.COHORT_ID).equals(cohortId)
+                        && st.get(DocumentToVariantStatsConverter.STUDY_ID).equals(studyMetadata.getId()))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public void after() throws IOException {
         super.after();
@@ -18,10 +18,12 @@ package org.opencb.opencga.storage.mongodb.variant.load;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
@@ -29,14 +31,14 @@ import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.io.VariantWriterFactory.VariantOutputFormat;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
+import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
 
 import java.net.URI;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created on 08/12/16.
@@ -72,6 +74,43 @@ public class MongoVariantImporterTest extends VariantStorageBaseTest implements
     }
 
 
+    @Test
+    public void testImportRoundTrip() throws Exception {
+        Map<String, Variant> expected = new HashMap<>();
+        for (Variant variant : variantStorageEngine.getDBAdaptor()) {
+            expected.put(variant.toString(), variant);
+        }
+        URI outputFile = newOutputUri().resolve("export.avro");
+        variantStorageEngine.exportData(outputFile, VariantOutputFormat.AVRO, null, new Query(), new QueryOptions());
+
+        clearDB(DB_NAME);
+
+        // Small batches, to mix several batches and threads
+        variantStorageEngine.importData(outputFile, new ObjectMap()
+                .append(VariantStorageOptions.IMPORT_BATCH_SIZE.key(), 10)
+                .append(VariantStorageOptions.IMPORT_THREADS.key(), 3));
+
+        int count = 0;
+        for (Variant variant : variantStorageEngine.getDBAdaptor()) {
+            Variant expectedVariant = expected.get(variant.toString());
+            assertNotNull(variant.toString(), expectedVariant);
+            assertEquals(expectedVariant.getStudies().size(), variant.getStudies().size());
+            for (int i = 0; i < variant.getStudies().size(); i++) {
+                StudyEntry expectedStudy = expectedVariant.getStudies().get(i);
+                StudyEntry study = variant.getStudies().get(i);
+                // Whole study entry: files, sample data, secondary alternates and the imported stats, not recomputed
+                assertEquals(variant.toString(), expectedStudy.getImpl(), study.getImpl());
+                assertEquals(variant.toString(), expectedStudy.getSamplesPosition(), study.getSamplesPosition());
+            }
+            count++;
+        }
+        assertEquals(expected.size(), count);
+
+        // Secondary indexes built after the import
+        MongoDBCollection variantsCollection = ((VariantMongoDBAdaptor) variantStorageEngine.getDBAdaptor()).getVariantsCollection();
+        assertTrue(variantsCollection.getIndex().getNumResults() > 1);
+    }
+
     @Test
     public void testImportSomeSamples() throws Exception {
         URI outputFile = newOutputUri().resolve("export.avro");